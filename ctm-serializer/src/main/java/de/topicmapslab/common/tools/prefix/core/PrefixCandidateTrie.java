@@ -0,0 +1,353 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.common.tools.prefix.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Radix trie counting the name-space candidates of absolute IRIs, used by the
+ * {@link PrefixIdentifier} to detect the prefixes of a topic map. The
+ * candidate of an IRI is the IRI up to and including its last <code>#</code>
+ * or <code>/</code>, or the whole IRI if it contains none of them. Each
+ * candidate is counted at the node it ends at, so an IRI is counted without
+ * creating the candidate string and a name-space nested in another one is a
+ * descendant of the other one. The trie is not thread-safe, parallel counts
+ * use one trie per thread and merge them afterwards.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public final class PrefixCandidateTrie {
+
+	/**
+	 * a node of the trie
+	 */
+	private static final class Node {
+
+		/**
+		 * the characters of the edge from the parent to this node
+		 */
+		private String label;
+
+		/**
+		 * the parent node or <code>null</code> for the root
+		 */
+		private Node parent;
+
+		/**
+		 * the children in ascending order of the first characters of their
+		 * labels
+		 */
+		private Node[] children;
+
+		/**
+		 * the number of children
+		 */
+		private int childCount;
+
+		/**
+		 * the number of IRIs of the candidate ending at this node
+		 */
+		private int count;
+
+		/**
+		 * flag indicating the candidate ending at this node is selected as
+		 * prefix
+		 */
+		private boolean selected;
+
+		/**
+		 * flag indicating the candidate ending at this node or at one of its
+		 * descendants is selected as prefix
+		 */
+		private boolean blocked;
+
+		/**
+		 * constructor
+		 */
+		private Node(final String label, final Node parent) {
+			this.label = label;
+			this.parent = parent;
+		}
+
+		/**
+		 * Returns the index of the child whose label begins with the given
+		 * character.
+		 *
+		 * @return the index or <code>-(insertion point) - 1</code> if there
+		 *         is no such child
+		 */
+		private int indexOf(final char c) {
+			int low = 0;
+			int high = childCount - 1;
+			while (low <= high) {
+				final int middle = (low + high) >>> 1;
+				final char key = children[middle].label.charAt(0);
+				if (key < c) {
+					low = middle + 1;
+				} else if (key > c) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			return -(low + 1);
+		}
+
+		/**
+		 * Inserts the given child at the given index.
+		 */
+		private void insert(final int index, final Node child) {
+			if (children == null) {
+				children = new Node[2];
+			} else if (childCount == children.length) {
+				Node[] tmp = new Node[childCount * 2];
+				System.arraycopy(children, 0, tmp, 0, childCount);
+				children = tmp;
+			}
+			System.arraycopy(children, index, children, index + 1, childCount - index);
+			children[index] = child;
+			childCount++;
+		}
+	}
+
+	/**
+	 * a candidate with its node, used to select the prefixes
+	 */
+	private static final class Candidate {
+
+		/**
+		 * the name-space
+		 */
+		private final String namespace;
+
+		/**
+		 * the node the name-space ends at
+		 */
+		private final Node node;
+
+		/**
+		 * constructor
+		 */
+		private Candidate(final String namespace, final Node node) {
+			this.namespace = namespace;
+			this.node = node;
+		}
+	}
+
+	/**
+	 * the root node, representing the empty candidate
+	 */
+	private final Node root = new Node("", null);
+
+	/**
+	 * the number of different candidates
+	 */
+	private int size;
+
+	/**
+	 * Returns the end of the name-space candidate of the given IRI, i.e. the
+	 * index behind its last <code>#</code> or <code>/</code>, or the length
+	 * of the IRI if it contains none of them.
+	 *
+	 * @param iri
+	 *            the IRI
+	 * @return the end of the candidate
+	 */
+	public static int getCandidateEnd(final String iri) {
+		for (int i = iri.length() - 1; i >= 0; i--) {
+			final char c = iri.charAt(i);
+			if (c == '/' || c == '#') {
+				return i + 1;
+			}
+		}
+		return iri.length();
+	}
+
+	/**
+	 * Counts the name-space candidate of the given IRI.
+	 *
+	 * @param iri
+	 *            the IRI
+	 */
+	public void add(final String iri) {
+		add(iri, getCandidateEnd(iri), 1);
+	}
+
+	/**
+	 * Adds the counts of the given trie to this trie.
+	 *
+	 * @param other
+	 *            the other trie
+	 */
+	public void addAll(final PrefixCandidateTrie other) {
+		addAll(other.root, new StringBuilder());
+	}
+
+	/**
+	 * Internal method to add the counts of the given node and its descendants
+	 * of another trie.
+	 */
+	private void addAll(final Node node, final StringBuilder namespace) {
+		final int length = namespace.length();
+		namespace.append(node.label);
+		if (node.count > 0) {
+			final String candidate = namespace.toString();
+			add(candidate, candidate.length(), node.count);
+		}
+		for (int i = 0; i < node.childCount; i++) {
+			addAll(node.children[i], namespace);
+		}
+		namespace.setLength(length);
+	}
+
+	/**
+	 * Internal method to add the given count to the candidate, which are the
+	 * first characters of the given IRI up to the given end. Edges only
+	 * matching partially are split.
+	 */
+	private void add(final String iri, final int end, final int count) {
+		Node node = root;
+		int position = 0;
+		while (position < end) {
+			final int index = node.indexOf(iri.charAt(position));
+			if (index < 0) {
+				final Node child = new Node(iri.substring(position, end), node);
+				node.insert(-(index + 1), child);
+				node = child;
+				break;
+			}
+			final Node child = node.children[index];
+			final String label = child.label;
+			final int length = Math.min(label.length(), end - position);
+			int common = 1;
+			while (common < length && label.charAt(common) == iri.charAt(position + common)) {
+				common++;
+			}
+			if (common < label.length()) {
+				final Node middle = new Node(label.substring(0, common), node);
+				child.label = label.substring(common);
+				child.parent = middle;
+				middle.insert(0, child);
+				node.children[index] = middle;
+				node = middle;
+			} else {
+				node = child;
+			}
+			position += common;
+		}
+		if (node.count == 0) {
+			size++;
+		}
+		node.count += count;
+	}
+
+	/**
+	 * Returns the number of IRIs counted for the given candidate.
+	 *
+	 * @param namespace
+	 *            the candidate
+	 * @return the number of IRIs
+	 */
+	public int getCount(final String namespace) {
+		Node node = root;
+		int position = 0;
+		while (position < namespace.length()) {
+			final int index = node.indexOf(namespace.charAt(position));
+			if (index < 0) {
+				return 0;
+			}
+			node = node.children[index];
+			if (!namespace.startsWith(node.label, position)) {
+				return 0;
+			}
+			position += node.label.length();
+		}
+		return node.count;
+	}
+
+	/**
+	 * Returns the number of different candidates.
+	 *
+	 * @return the number of candidates
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Selects the prefixes of the counted candidates. Candidates counted more
+	 * than once are selected in the order of their frequency, candidates of
+	 * the same frequency in descending lexicographical order. A candidate is
+	 * skipped if it is nested in a selected candidate or a selected candidate
+	 * is nested in it, i.e. if one of its ancestors or descendants is
+	 * selected.
+	 *
+	 * @return the selected prefixes in the order of their selection
+	 */
+	public List<String> getPrefixes() {
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		collect(root, new StringBuilder(), candidates);
+		Collections.sort(candidates, new Comparator<Candidate>() {
+			public int compare(Candidate o1, Candidate o2) {
+				if (o1.node.count != o2.node.count) {
+					return o1.node.count > o2.node.count ? -1 : 1;
+				}
+				return o2.namespace.compareTo(o1.namespace);
+			}
+		});
+		List<String> prefixes = new ArrayList<String>();
+		for (Candidate candidate : candidates) {
+			if (candidate.node.blocked || isAncestorSelected(candidate.node)) {
+				continue;
+			}
+			candidate.node.selected = true;
+			for (Node node = candidate.node; node != null && !node.blocked; node = node.parent) {
+				node.blocked = true;
+			}
+			prefixes.add(candidate.namespace);
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Internal method to collect the candidates counted more than once of the
+	 * given node and its descendants. The selection flags are reset.
+	 */
+	private void collect(final Node node, final StringBuilder namespace, final List<Candidate> candidates) {
+		final int length = namespace.length();
+		namespace.append(node.label);
+		node.selected = false;
+		node.blocked = false;
+		if (node.count > 1) {
+			candidates.add(new Candidate(namespace.toString(), node));
+		}
+		for (int i = 0; i < node.childCount; i++) {
+			collect(node.children[i], namespace, candidates);
+		}
+		namespace.setLength(length);
+	}
+
+	/**
+	 * Internal method to check if an ancestor of the given node is selected.
+	 */
+	private static boolean isAncestorSelected(final Node node) {
+		for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+			if (ancestor.selected) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -8,20 +8,26 @@
  */
 package de.topicmapslab.common.tools.prefix.core;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.tmapi.core.Locator;
 import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
 
-import de.topicmapslab.common.tools.collections.Maps;
-import de.topicmapslab.common.tools.collections.StringList;
 import de.topicmapslab.common.tools.exception.ToolRuntimeException;
 import de.topicmapslab.common.tools.prefix.model.IQnameProvider;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
@@ -31,7 +37,9 @@ import de.topicmapslab.identifier.XmlSchemeDatatypes;
  * Utility class to identify prefixes of a given {@link TopicMap}. This class
  * provides methods to extract all {@link Locator} for all topic map construct,
  * extract all potential prefix candidates and identifying the frequently used
- * prefixes.
+ * prefixes. The prefixes are identified by streaming the locators of all
+ * topics once into a {@link PrefixCandidateTrie}, optionally by several
+ * threads.
  * 
  * @author Sven Krosse
  * @email krosse@informatik.uni-leipzig.de
@@ -39,6 +47,11 @@ import de.topicmapslab.identifier.XmlSchemeDatatypes;
  */
 public class PrefixIdentifier {
 
+	/**
+	 * number of topics counted by a thread at once
+	 */
+	private static final int CHUNK_SIZE = 1024;
+
 	/**
 	 * Static method to identifying all prefixes of the topic map and return
 	 * them as a map of QNames and prefixes. Method is calling
@@ -73,12 +86,35 @@ public class PrefixIdentifier {
 	 */
 	public static Map<String, String> prefixMap(TopicMap topicMap,
 			IQnameProvider provider) throws SerializerException {
+		return prefixMap(topicMap, provider, 1);
+	}
+
+	/**
+	 * Static method to identify all prefixes of the topic map and return them
+	 * as a map of QNames and prefixes. QNames are provided by the given
+	 * {@link IQnameProvider}. The locators are counted by the given number of
+	 * threads, so the topic maps engine has to support concurrent reading if
+	 * the number is greater than one.
+	 * 
+	 * @param topicMap
+	 *            the {@link TopicMap}
+	 * @param provider
+	 *            the {@link IQnameProvider} to transform the prefixes to a
+	 *            QName
+	 * @param threads
+	 *            the number of threads
+	 * @return a map of identified prefixes and their QNames
+	 * @throws SerializerException
+	 *             thrown if operation failed.
+	 */
+	public static Map<String, String> prefixMap(TopicMap topicMap,
+			IQnameProvider provider, int threads) throws SerializerException {
 		Map<String, String> prefixes = new HashMap<String, String>();
 
 		/*
 		 * iterate over all identified prefixes
 		 */
-		for (String uri : identifyURIs(topicMap)) {
+		for (String uri : identifyURIs(topicMap, threads)) {
 			try {
 				/*
 				 * get prefix for URI
@@ -125,51 +161,151 @@ public class PrefixIdentifier {
 	 */
 	public static List<String> identifyURIs(TopicMap topicMap)
 			throws SerializerException {
+		return identifyURIs(topicMap, 1);
+	}
 
-		/*
-		 * extract all locators
-		 */
-		Set<Locator> locators = extractLocators(topicMap);
-		/*
-		 * extract all candidates
-		 */
-		Map<String, Integer> candidates = extractCandidates(locators);
-
-		/*
-		 * sort map entries by there frequency
-		 */
-		List<Entry<String, Integer>> sortedCandidates = Maps.sort(candidates,
-				new Comparator<Integer>() {
-					public int compare(Integer o1, Integer o2) {
-						return o1.compareTo(o2);
-					}
-				}, true, true, true);
+	/**
+	 * Static method to identify all prefixes of the {@link TopicMap}. The
+	 * name-space candidates of all subject-identifiers and subject-locators
+	 * are counted and the candidates used more than once are selected by
+	 * their frequency, skipping candidates nested in a selected one or
+	 * containing a selected one (see {@link PrefixCandidateTrie#getPrefixes()}
+	 * ). If the given number of threads is greater than one, the topics are
+	 * counted in chunks by several threads.
+	 * 
+	 * @param topicMap
+	 *            the {@link TopicMap}
+	 * @param threads
+	 *            the number of threads
+	 * @return a list of all identified prefixes
+	 * @throws SerializerException
+	 *             thrown if operation failed.
+	 */
+	public static List<String> identifyURIs(TopicMap topicMap, int threads)
+			throws SerializerException {
+		PrefixCandidateTrie candidates;
+		if (threads > 1) {
+			candidates = countCandidatesParallel(topicMap, threads);
+		} else {
+			candidates = new PrefixCandidateTrie();
+			countCandidates(topicMap.getTopics(), candidates);
+		}
+		return candidates.getPrefixes();
+	}
 
-		/*
-		 * result list of prefixes
-		 */
-		StringList prefixes = new StringList();
+	/**
+	 * Internal method to count the name-space candidates of the
+	 * subject-identifiers and subject-locators of the given topics.
+	 */
+	private static void countCandidates(Iterable<Topic> topics,
+			PrefixCandidateTrie candidates) {
+		for (Topic topic : topics) {
+			for (Locator locator : topic.getSubjectIdentifiers()) {
+				candidates.add(locator.toExternalForm());
+			}
+			for (Locator locator : topic.getSubjectLocators()) {
+				candidates.add(locator.toExternalForm());
+			}
+		}
+	}
 
-		/*
-		 * iterate all candidates
-		 */
-		for (Entry<String, Integer> entry : sortedCandidates) {
+	/**
+	 * Internal method to count the name-space candidates of all topics by the
+	 * given number of threads. The topics are iterated once and passed in
+	 * chunks to the threads, each counting into its own trie. The tries are
+	 * merged at the end.
+	 */
+	private static PrefixCandidateTrie countCandidatesParallel(
+			TopicMap topicMap, int threads) throws SerializerException {
+		final BlockingQueue<List<Topic>> queue = new ArrayBlockingQueue<List<Topic>>(
+				threads * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "CTM prefix detection");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try {
+			List<Future<PrefixCandidateTrie>> workers = new ArrayList<Future<PrefixCandidateTrie>>();
+			for (int i = 0; i < threads; i++) {
+				workers.add(executor.submit(new Callable<PrefixCandidateTrie>() {
+					public PrefixCandidateTrie call() throws Exception {
+						return countCandidates(queue);
+					}
+				}));
+			}
+			List<Topic> chunk = new ArrayList<Topic>(CHUNK_SIZE);
+			for (Topic topic : topicMap.getTopics()) {
+				chunk.add(topic);
+				if (chunk.size() == CHUNK_SIZE) {
+					queue.put(chunk);
+					chunk = new ArrayList<Topic>(CHUNK_SIZE);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				queue.put(chunk);
+			}
 			/*
-			 * check if frequency is more than one
+			 * an empty chunk stops a thread
 			 */
-			if (entry.getValue() > 1) {
-				String candidate = entry.getKey();
-				/*
-				 * check if a prefix is already contained in result list, which
-				 * contains the current prefix as substring.
-				 */
-				if (!prefixes.containsSubstring(candidate)
-						&& !prefixes.containsAsSubstring(candidate)) {
-					prefixes.add(candidate);
+			for (int i = 0; i < threads; i++) {
+				queue.put(Collections.<Topic> emptyList());
+			}
+			PrefixCandidateTrie candidates = null;
+			for (Future<PrefixCandidateTrie> worker : workers) {
+				PrefixCandidateTrie trie = worker.get();
+				if (candidates == null) {
+					candidates = trie;
+				} else {
+					candidates.addAll(trie);
 				}
 			}
+			return candidates;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SerializerException(
+					"Interrupted while detecting the prefixes.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SerializerException(cause);
+		} finally {
+			executor.shutdownNow();
 		}
-		return prefixes;
+	}
+
+	/**
+	 * Internal method to count the name-space candidates of the chunks taken
+	 * from the given queue until an empty chunk is taken. After a failure the
+	 * remaining chunks are taken without counting, so the producer is never
+	 * blocked by a full queue.
+	 */
+	private static PrefixCandidateTrie countCandidates(
+			BlockingQueue<List<Topic>> queue) throws InterruptedException {
+		PrefixCandidateTrie candidates = new PrefixCandidateTrie();
+		Throwable failure = null;
+		for (List<Topic> chunk = queue.take(); !chunk.isEmpty(); chunk = queue
+				.take()) {
+			if (failure == null) {
+				try {
+					countCandidates(chunk, candidates);
+				} catch (Throwable e) {
+					failure = e;
+				}
+			}
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw (RuntimeException) failure;
+		}
+		return candidates;
 	}
 
 	/**
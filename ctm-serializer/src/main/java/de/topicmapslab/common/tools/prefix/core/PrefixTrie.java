@@ -0,0 +1,218 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.common.tools.prefix.core;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Immutable radix trie of the name-spaces of a prefix map, used to transform
+ * absolute IRIs to QNames. The lookup walks the IRI once from the beginning
+ * and remembers the longest name-space found on the way, so its costs depend
+ * on the length of the IRI and not on the number of prefixes. If several
+ * prefixes are defined for the same name-space, the smallest prefix is used.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public final class PrefixTrie {
+
+	/**
+	 * a node of the trie
+	 */
+	private static final class Node {
+
+		/**
+		 * the characters of the edge from the parent to this node
+		 */
+		private final String label;
+
+		/**
+		 * the first characters of the labels of the children in ascending
+		 * order
+		 */
+		private final char[] keys;
+
+		/**
+		 * the children in the order of the keys
+		 */
+		private final Node[] children;
+
+		/**
+		 * the prefix of the name-space ending at this node or
+		 * <code>null</code>
+		 */
+		private final String prefix;
+
+		/**
+		 * constructor
+		 */
+		private Node(final String label, final char[] keys, final Node[] children, final String prefix) {
+			this.label = label;
+			this.keys = keys;
+			this.children = children;
+			this.prefix = prefix;
+		}
+
+		/**
+		 * Returns the child whose label begins with the given character.
+		 *
+		 * @return the child or <code>null</code>
+		 */
+		private Node getChild(final char c) {
+			int low = 0;
+			int high = keys.length - 1;
+			while (low <= high) {
+				final int middle = (low + high) >>> 1;
+				if (keys[middle] < c) {
+					low = middle + 1;
+				} else if (keys[middle] > c) {
+					high = middle - 1;
+				} else {
+					return children[middle];
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * a node of the trie while building it
+	 */
+	private static final class Builder {
+
+		/**
+		 * the children by character
+		 */
+		private final TreeMap<Character, Builder> children = new TreeMap<Character, Builder>();
+
+		/**
+		 * the prefix of the name-space ending at this node or
+		 * <code>null</code>
+		 */
+		private String prefix;
+	}
+
+	/**
+	 * the root node, representing the empty name-space
+	 */
+	private final Node root;
+
+	/**
+	 * the number of name-spaces
+	 */
+	private final int size;
+
+	/**
+	 * constructor
+	 *
+	 * @param prefixes
+	 *            a map of QName and Prefix entries
+	 */
+	public PrefixTrie(final Map<String, String> prefixes) {
+		Builder root = new Builder();
+		int size = 0;
+		for (Entry<String, String> entry : prefixes.entrySet()) {
+			final String namespace = entry.getValue();
+			Builder node = root;
+			for (int i = 0; i < namespace.length(); i++) {
+				final Character c = Character.valueOf(namespace.charAt(i));
+				Builder child = node.children.get(c);
+				if (child == null) {
+					child = new Builder();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			if (node.prefix == null) {
+				size++;
+				node.prefix = entry.getKey();
+			} else if (entry.getKey().compareTo(node.prefix) < 0) {
+				node.prefix = entry.getKey();
+			}
+		}
+		this.root = compress(root, "");
+		this.size = size;
+	}
+
+	/**
+	 * Internal method to create the immutable node of the given builder.
+	 * Nodes without prefix and with only one child are merged with their
+	 * child.
+	 */
+	private static Node compress(Builder node, String label) {
+		final StringBuilder edge = new StringBuilder(label);
+		while (node.prefix == null && node.children.size() == 1) {
+			Entry<Character, Builder> child = node.children.firstEntry();
+			edge.append(child.getKey().charValue());
+			node = child.getValue();
+		}
+		final char[] keys = new char[node.children.size()];
+		final Node[] children = new Node[keys.length];
+		int index = 0;
+		for (Entry<Character, Builder> child : node.children.entrySet()) {
+			keys[index] = child.getKey().charValue();
+			children[index] = compress(child.getValue(), String.valueOf(keys[index]));
+			index++;
+		}
+		return new Node(edge.toString(), keys, children, node.prefix);
+	}
+
+	/**
+	 * Returns the number of name-spaces.
+	 *
+	 * @return the number of name-spaces
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Transforms the given absolute IRI to a QName by using the longest
+	 * name-space matching the beginning of the IRI. The IRI is not
+	 * transformed if the remaining local part contains a <code>/</code>.
+	 *
+	 * @param iri
+	 *            the absolute IRI
+	 * @return the QName, if a name-space matches, otherwise the absolute IRI
+	 */
+	public String toPrefixedIri(final String iri) {
+		final int length = iri.length();
+		String prefix = null;
+		int end = 0;
+		Node node = root;
+		int position = node.label.length();
+		if (!iri.startsWith(node.label)) {
+			return iri;
+		}
+		while (true) {
+			if (node.prefix != null) {
+				prefix = node.prefix;
+				end = position;
+			}
+			if (position == length) {
+				break;
+			}
+			final Node child = node.getChild(iri.charAt(position));
+			if (child == null || !iri.regionMatches(position, child.label, 0, child.label.length())) {
+				break;
+			}
+			position += child.label.length();
+			node = child;
+		}
+		if (prefix == null || iri.indexOf('/', end) != -1) {
+			return iri;
+		}
+		return new StringBuilder(prefix.length() + 1 + length - end).append(prefix).append(':').append(iri, end,
+				length).toString();
+	}
+
+}
@@ -22,7 +22,10 @@ public class Prefixer {
 
 	/**
 	 * Static method transform the given absolute URI to a relative URI by using
-	 * the given prefixes.
+	 * the longest name-space of the given prefixes matching the beginning of
+	 * the URI. The URI is not transformed if the remaining local part contains
+	 * a <code>/</code>. To transform many URIs with the same prefixes use a
+	 * {@link PrefixTrie}.
 	 * 
 	 * @param uri
 	 *            the absolute URI
@@ -33,20 +36,24 @@ public class Prefixer {
 	 */
 	public static final String toPrefixedIri(final String uri,
 			final Map<String, String> prefixes) {
+		Entry<String, String> match = null;
 		for (Entry<String, String> prefix : prefixes.entrySet()) {
-			if (uri.startsWith(prefix.getValue())) {
-				// check if in the remaining part is a '/'
-				String localPart = uri.substring(prefix.getValue().length());
-				if (localPart.contains("/"))
-					continue;
-				
-				String prefixed = uri.replaceFirst(prefix.getValue(), prefix
-						.getKey()
-						+ ":");
-				return prefixed;
+			final String namespace = prefix.getValue();
+			if (uri.startsWith(namespace)
+					&& (match == null
+							|| namespace.length() > match.getValue().length() || (namespace
+							.length() == match.getValue().length() && prefix
+							.getKey().compareTo(match.getKey()) < 0))) {
+				match = prefix;
 			}
 		}
-		return uri;
+		// check if in the remaining part is a '/'
+		if (match == null
+				|| uri.indexOf('/', match.getValue().length()) != -1) {
+			return uri;
+		}
+		return match.getKey() + ":"
+				+ uri.substring(match.getValue().length());
 	}
 
 }
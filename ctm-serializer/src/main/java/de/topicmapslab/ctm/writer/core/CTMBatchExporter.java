@@ -0,0 +1,238 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.tmapi.core.TopicMap;
+
+import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+
+/**
+ * Exporter of many topic maps, e.g. one topic map per tenant. The exporter is
+ * created by {@link CTMTopicMapWriter#createBatchExporter()} and uses a
+ * snapshot of the configuration of the writer, i.e. the properties, the
+ * prefixes, the templates and the ignored constructs. The snapshot is shared
+ * by all jobs and never modified, each job is exported by its own export
+ * session.
+ * <p>
+ * The jobs are exported concurrently by a bounded number of threads (see
+ * {@link CTMTopicMapWriterProperties#BATCH_THREADS}). A job is admitted only
+ * if the estimated size of all running jobs does not exceed the admission
+ * limit (see {@link CTMTopicMapWriterProperties#BATCH_ADMISSIONLIMIT}), so a
+ * few large topic maps are not exported at the same time. The admission is
+ * requested by the thread of the job, so a large job waiting for admission
+ * does not delay the smaller jobs behind it. The sink of each job is closed
+ * after its export and the metrics are stored in its {@link CTMBatchJob}.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMBatchExporter {
+
+	/**
+	 * Stream counting the bytes written to the target stream.
+	 */
+	private static class CountingStream extends FilterOutputStream {
+
+		/**
+		 * the number of bytes written
+		 */
+		private long count;
+
+		/**
+		 * constructor
+		 */
+		private CountingStream(OutputStream out) {
+			super(out);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * The export of one job by a thread of the exporter.
+	 */
+	private class Task implements Runnable {
+
+		/**
+		 * the job
+		 */
+		private final CTMBatchJob job;
+
+		/**
+		 * the time of the submission in nanoseconds
+		 */
+		private final long submitted;
+
+		/**
+		 * the admission control
+		 */
+		private final Semaphore admission;
+
+		/**
+		 * the number of permits of the job
+		 */
+		private final int permits;
+
+		/**
+		 * constructor
+		 */
+		private Task(CTMBatchJob job, long submitted, Semaphore admission, int permits) {
+			this.job = job;
+			this.submitted = submitted;
+			this.admission = admission;
+			this.permits = permits;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void run() {
+			export(job, submitted, admission, permits);
+		}
+	}
+
+	/**
+	 * the snapshot of the configuration
+	 */
+	private final CTMTopicMapWriter configuration;
+
+	/**
+	 * constructor
+	 *
+	 * @param writer
+	 *            the writer containing the configuration
+	 */
+	CTMBatchExporter(final CTMTopicMapWriter writer) {
+		this.configuration = new CTMTopicMapWriter(writer);
+	}
+
+	/**
+	 * Exports the topic maps of the given jobs and waits until all jobs are
+	 * finished. A failed job does not affect the other jobs, its error is
+	 * stored in the job.
+	 *
+	 * @param jobs
+	 *            the jobs
+	 * @throws InterruptedException
+	 *             thrown if the current thread is interrupted while waiting,
+	 *             the running jobs are interrupted too
+	 */
+	public void export(final List<CTMBatchJob> jobs) throws InterruptedException {
+		final CTMTopicMapWriterProperties properties = configuration.getProperties();
+		int threads = properties.getBatchThreads();
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		final int limit = properties.getBatchAdmissionLimit();
+		final Semaphore admission = new Semaphore(limit);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CTM batch export");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (CTMBatchJob job : jobs) {
+				TopicMap topicMap = job.getTopicMap();
+				long size = (long) topicMap.getTopics().size() + topicMap.getAssociations().size();
+				job.setEstimatedSize((int) Math.min(size, Integer.MAX_VALUE));
+				/*
+				 * a job larger than the limit is admitted if no other job is
+				 * running
+				 */
+				int permits = (int) Math.max(1, Math.min(size, limit));
+				executor.execute(new Task(job, System.nanoTime(), admission, permits));
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// wait for the running jobs
+			}
+		} finally {
+			/*
+			 * jobs not started are failed and their sinks are closed
+			 */
+			for (Runnable task : executor.shutdownNow()) {
+				CTMBatchJob job = ((Task) task).job;
+				Exception error = new InterruptedException("Export cancelled before the job was started.");
+				try {
+					job.getSink().close();
+				} catch (IOException e) {
+					// VOID
+				}
+				job.setResult(0, System.nanoTime() - ((Task) task).submitted, 0, null, error);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to export the topic map of the given job as soon as it
+	 * is admitted, close its sink and store the metrics.
+	 */
+	private void export(final CTMBatchJob job, final long submitted, final Semaphore admission, final int permits) {
+		CountingStream stream = new CountingStream(job.getSink());
+		CTMStatistics statistics = null;
+		Exception error = null;
+		long start = System.nanoTime();
+		try {
+			admission.acquire(permits);
+			try {
+				start = System.nanoTime();
+				statistics = configuration.write(job.getTopicMap(), configuration.createWriter(stream, null));
+			} finally {
+				admission.release(permits);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = e;
+		} catch (IOException e) {
+			error = e;
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		final long end = System.nanoTime();
+		try {
+			stream.close();
+		} catch (IOException e) {
+			if (error == null) {
+				error = e;
+			}
+		}
+		job.setResult(stream.count, start - submitted, end - start, statistics, error);
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+import java.io.OutputStream;
+
+import org.tmapi.core.TopicMap;
+
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+
+/**
+ * A job of the {@link CTMBatchExporter}, i.e. a topic map and the stream the
+ * topic map is exported to. After the batch is finished, the job contains the
+ * metrics of the export or the error the export failed with.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMBatchJob {
+
+	/**
+	 * the topic map to export
+	 */
+	private final TopicMap topicMap;
+
+	/**
+	 * the target stream
+	 */
+	private final OutputStream sink;
+
+	/**
+	 * the estimated size, i.e. the number of topics and associations
+	 */
+	private int estimatedSize;
+
+	/**
+	 * the number of bytes written
+	 */
+	private long bytes;
+
+	/**
+	 * the nanoseconds between the submission and the start of the export
+	 */
+	private long waitingTime;
+
+	/**
+	 * the nanoseconds of the export
+	 */
+	private long exportTime;
+
+	/**
+	 * the statistics of the export or <code>null</code>
+	 */
+	private CTMStatistics statistics;
+
+	/**
+	 * the error the export failed with or <code>null</code>
+	 */
+	private Exception error;
+
+	/**
+	 * constructor
+	 *
+	 * @param topicMap
+	 *            the topic map to export
+	 * @param sink
+	 *            the target stream, closed after the export
+	 */
+	public CTMBatchJob(final TopicMap topicMap, final OutputStream sink) {
+		this.topicMap = topicMap;
+		this.sink = sink;
+	}
+
+	/**
+	 * Returns the topic map to export.
+	 *
+	 * @return the topic map
+	 */
+	public TopicMap getTopicMap() {
+		return topicMap;
+	}
+
+	/**
+	 * Returns the target stream.
+	 *
+	 * @return the stream
+	 */
+	public OutputStream getSink() {
+		return sink;
+	}
+
+	/**
+	 * Returns the estimated size of the topic map used by the admission
+	 * control, i.e. the number of topics and associations.
+	 *
+	 * @return the estimated size
+	 */
+	public int getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	/**
+	 * Returns the number of bytes written to the target stream.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the time the job waited for admission and for a free thread.
+	 *
+	 * @return the waiting time in nanoseconds
+	 */
+	public long getWaitingTime() {
+		return waitingTime;
+	}
+
+	/**
+	 * Returns the time of the export.
+	 *
+	 * @return the export time in nanoseconds
+	 */
+	public long getExportTime() {
+		return exportTime;
+	}
+
+	/**
+	 * Returns the latency of the job, i.e. the waiting time and the export
+	 * time.
+	 *
+	 * @return the latency in nanoseconds
+	 */
+	public long getLatency() {
+		return waitingTime + exportTime;
+	}
+
+	/**
+	 * Returns the throughput of the export.
+	 *
+	 * @return the number of bytes written per second
+	 */
+	public double getThroughput() {
+		return exportTime == 0 ? 0 : bytes * 1000000000.0 / exportTime;
+	}
+
+	/**
+	 * Returns the statistics of the export, if enabled by
+	 * {@link de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties#STATISTICS_ENABLED}.
+	 *
+	 * @return the statistics or <code>null</code>
+	 */
+	public CTMStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the error the export failed with.
+	 *
+	 * @return the error or <code>null</code> if the export succeeded
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * Internal method to store the estimated size.
+	 */
+	void setEstimatedSize(final int estimatedSize) {
+		this.estimatedSize = estimatedSize;
+	}
+
+	/**
+	 * Internal method to store the result of the export.
+	 */
+	void setResult(final long bytes, final long waitingTime, final long exportTime, final CTMStatistics statistics,
+			final Exception error) {
+		this.bytes = bytes;
+		this.waitingTime = waitingTime;
+		this.exportTime = exportTime;
+		this.statistics = statistics;
+		this.error = error;
+	}
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import de.topicmapslab.ctm.writer.exception.ExportCancelledException;
+import de.topicmapslab.ctm.writer.utility.CTMCountingWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * Control of one export, passed to
+ * {@link CTMTopicMapWriter#write(org.tmapi.core.TopicMap, CTMExportControl)}.
+ * The export may be cancelled by any thread, by interrupting the exporting
+ * thread or by a deadline and reports its progress to an optional
+ * {@link ICTMProgressListener}. The cancellation is checked by the serializer
+ * at the start of each phase and after each block, so the export stops after
+ * the current block. The output contains the blocks written before and a
+ * comment line noting the cancellation, and the export throws an
+ * {@link ExportCancelledException}.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMExportControl {
+
+	/**
+	 * the number of blocks between two progress reports
+	 */
+	private static final int PROGRESS_INTERVAL = 1024;
+
+	/**
+	 * Writer counting the bytes written by the export.
+	 */
+	private class ProgressWriter extends CTMCountingWriter {
+
+		/**
+		 * the target writer
+		 */
+		private final ICTMWriter target;
+
+		/**
+		 * constructor
+		 */
+		private ProgressWriter(ICTMWriter target) {
+			this.target = target;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		protected ICTMWriter getTarget() {
+			return target;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		protected void written(long bytes) {
+			CTMExportControl.this.bytes += bytes;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void flush() throws IOException {
+			target.flush();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void close() throws IOException {
+			target.close();
+		}
+	}
+
+	/**
+	 * flag indicating the export is cancelled
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * the deadline as value of {@link System#nanoTime()}
+	 */
+	private final long deadline;
+
+	/**
+	 * flag indicating a deadline is set
+	 */
+	private final boolean hasDeadline;
+
+	/**
+	 * the listener or <code>null</code>
+	 */
+	private ICTMProgressListener listener;
+
+	/**
+	 * the current phase or <code>null</code>
+	 */
+	private CTMExportPhase phase;
+
+	/**
+	 * the number of topics or associations of the current phase
+	 */
+	private int total;
+
+	/**
+	 * the number of blocks written in the current phase
+	 */
+	private int done;
+
+	/**
+	 * the number of bytes written
+	 */
+	private long bytes;
+
+	/**
+	 * constructor of a control without deadline
+	 */
+	public CTMExportControl() {
+		this.deadline = 0;
+		this.hasDeadline = false;
+	}
+
+	/**
+	 * constructor of a control with a deadline
+	 *
+	 * @param timeout
+	 *            the time the export may take from now
+	 * @param unit
+	 *            the unit of the timeout
+	 */
+	public CTMExportControl(final long timeout, final TimeUnit unit) {
+		this.deadline = System.nanoTime() + unit.toNanos(timeout);
+		this.hasDeadline = true;
+	}
+
+	/**
+	 * Sets the listener informed about the progress of the export.
+	 *
+	 * @param listener
+	 *            the listener or <code>null</code>
+	 */
+	public void setProgressListener(final ICTMProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Cancels the export. The export stops after the current block.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks if the export is cancelled or the deadline is exceeded.
+	 *
+	 * @return <code>true</code> if the export has to stop
+	 */
+	public boolean isCancelled() {
+		return cancelled || (hasDeadline && System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * Returns the number of bytes written by the export, i.e. the UTF-8 length
+	 * of the content like the statistics. The bytes are counted only if a
+	 * listener is set.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Checks if the export is cancelled or the deadline is exceeded. Called by
+	 * the serializer.
+	 *
+	 * @throws ExportCancelledException
+	 *             thrown if the export has to stop
+	 */
+	public void check() throws ExportCancelledException {
+		if (cancelled) {
+			throw new ExportCancelledException("export was cancelled.");
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new ExportCancelledException("exporting thread was interrupted.");
+		}
+		if (hasDeadline && System.nanoTime() - deadline >= 0) {
+			throw new ExportCancelledException("deadline was exceeded.");
+		}
+	}
+
+	/**
+	 * Starts the given phase of the export. Called by the serializer.
+	 *
+	 * @param phase
+	 *            the phase
+	 * @param total
+	 *            the number of topics or associations of the phase, 0 if
+	 *            unknown
+	 * @throws ExportCancelledException
+	 *             thrown if the export has to stop
+	 */
+	public void startPhase(final CTMExportPhase phase, final int total) throws ExportCancelledException {
+		finish();
+		check();
+		this.phase = phase;
+		this.total = total;
+		this.done = 0;
+		if (listener != null) {
+			listener.phaseStarted(phase, total);
+		}
+	}
+
+	/**
+	 * Counts a written block and checks if the export has to stop. Called by
+	 * the serializer after each block.
+	 *
+	 * @throws ExportCancelledException
+	 *             thrown if the export has to stop
+	 */
+	public void endOfBlock() throws ExportCancelledException {
+		check();
+		if (++done % PROGRESS_INTERVAL == 0 && listener != null) {
+			listener.progress(phase, done, total, bytes);
+		}
+	}
+
+	/**
+	 * Reports the progress at the end of the current phase. Called by the
+	 * serializer.
+	 */
+	public void finish() {
+		if (phase != null && listener != null) {
+			listener.progress(phase, done, total, bytes);
+		}
+		phase = null;
+	}
+
+	/**
+	 * Internal method to decorate the given writer to count the bytes written,
+	 * if a listener is set.
+	 */
+	ICTMWriter count(final ICTMWriter writer) {
+		return listener == null ? writer : new ProgressWriter(writer);
+	}
+
+}
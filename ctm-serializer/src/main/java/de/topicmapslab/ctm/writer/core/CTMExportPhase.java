@@ -0,0 +1,39 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+/**
+ * The phases of an export reported to a {@link ICTMProgressListener}.
+ * 
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ * 
+ */
+public enum CTMExportPhase {
+	/**
+	 * detection of the prefixes
+	 */
+	PREFIXES,
+	/**
+	 * detection of the templates
+	 */
+	TEMPLATE_DETECTION,
+	/**
+	 * merging of the templates
+	 */
+	TEMPLATE_MERGER,
+	/**
+	 * writing of the topic blocks
+	 */
+	TOPICS,
+	/**
+	 * writing of the association blocks
+	 */
+	ASSOCIATIONS
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.serializer.PrefixesSerializer;
+import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMFragmentWriter;
+import de.topicmapslab.ctm.writer.utility.CTMIdentifierGenerator;
+
+/**
+ * Renderer of CTM fragments, i.e. the block of a single {@link Topic} or
+ * {@link Association}, encoded as UTF-8 into a caller-supplied
+ * {@link ByteBuffer} or byte array. The renderer is created by
+ * {@link CTMTopicMapWriter#createFragmentRenderer()} and uses a snapshot of
+ * the configuration of the writer, so later changes of the writer do not
+ * affect the renderer. Each fragment starts with the prefix declarations of
+ * the snapshot, so a fragment containing QNames can be parsed on its own. No
+ * prolog, header or comment is written.
+ * <p>
+ * The renderer is thread-safe. A fragment is rendered by an export session
+ * and a {@link CTMFragmentWriter} taken from a pool, which are created if the
+ * pool is empty and returned afterwards, so rendering a fragment does not load
+ * the properties, does not copy the configuration and does not lock shared
+ * state. The sessions are released with the renderer.
+ * </p>
+ * <p>
+ * The sessions cache the main identifiers of the rendered topics. If the
+ * identifiers of a topic map are changed after rendering one of its topics,
+ * {@link #invalidate()} has to be called.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMFragmentRenderer {
+
+	/**
+	 * The state of one rendering thread.
+	 */
+	private static class Session {
+
+		/**
+		 * the export session of the thread
+		 */
+		private final CTMTopicMapWriter writer;
+
+		/**
+		 * the writer encoding the fragments
+		 */
+		private final CTMFragmentWriter output = new CTMFragmentWriter();
+
+		/**
+		 * the version of the topic maps the cached identifiers are valid for
+		 */
+		private int version;
+
+		/**
+		 * constructor
+		 */
+		private Session(CTMTopicMapWriter writer) {
+			this.writer = writer;
+		}
+	}
+
+	/**
+	 * the snapshot of the configuration
+	 */
+	private final CTMTopicMapWriter configuration;
+
+	/**
+	 * the UTF-8 encoded prefix declarations written before each fragment
+	 */
+	private final byte[] prefixes;
+
+	/**
+	 * the sessions not used by a rendering thread
+	 */
+	private final Queue<Session> sessions = new ConcurrentLinkedQueue<Session>();
+
+	/**
+	 * the version of the topic maps, incremented by {@link #invalidate()}
+	 */
+	private final AtomicInteger version = new AtomicInteger();
+
+	/**
+	 * constructor
+	 *
+	 * @param writer
+	 *            the writer containing the configuration
+	 * @throws IOException
+	 *             thrown if the prefix declarations cannot be rendered
+	 */
+	CTMFragmentRenderer(final CTMTopicMapWriter writer) throws IOException {
+		this.configuration = new CTMTopicMapWriter(writer);
+		CTMBuffer buffer = new CTMBuffer();
+		try {
+			if (PrefixesSerializer.serialize(configuration.getPrefixHandler(), false, null, buffer)) {
+				buffer.appendLine();
+			}
+		} catch (SerializerException e) {
+			throw new IOException("Rendering prefixes failed, because of " + e.getLocalizedMessage());
+		}
+		this.prefixes = buffer.toString().getBytes("UTF-8");
+	}
+
+	/**
+	 * Invalidates the main identifiers cached by the sessions, e.g. after
+	 * identifiers of a topic map were added or removed. The caches and the
+	 * generated identifiers are cleared before the next fragment of each
+	 * session.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Renders the block of the given topic or association into the given
+	 * buffer, starting at its current position, preceded by the prefix
+	 * declarations. The position of the buffer is moved behind the fragment. If the buffer has not enough space left, the
+	 * position of the buffer is restored and a
+	 * {@link java.nio.BufferOverflowException} is thrown.
+	 *
+	 * @param construct
+	 *            the topic or association
+	 * @param target
+	 *            the target buffer
+	 * @return the number of bytes written, <code>0</code> if the construct is
+	 *         no topic or association or has no identity
+	 * @throws IOException
+	 *             thrown if rendering failed
+	 */
+	public int render(final Construct construct, final ByteBuffer target) throws IOException {
+		Session session = sessions.poll();
+		if (session == null) {
+			session = new Session(new CTMTopicMapWriter(configuration));
+		}
+		final int current = version.get();
+		if (session.version != current) {
+			session.writer.getCtmIdentity().clearCache();
+			final CTMIdentifierGenerator generator = session.writer.getCtmIdentity().getIdentifierGenerator();
+			if (generator != null) {
+				generator.clear();
+			}
+			session.version = current;
+		}
+		final CTMFragmentWriter output = session.output;
+		final int start = target.position();
+		boolean success = false;
+		try {
+			target.put(prefixes);
+			output.setTarget(target);
+			if (session.writer.getSerializer().serializeFragment(construct, output)) {
+				output.close();
+				success = true;
+			}
+		} catch (SerializerException e) {
+			throw new IOException("Rendering fragment failed, because of " + e.getLocalizedMessage());
+		} finally {
+			if (!success) {
+				output.setTarget(null);
+				target.position(start);
+			}
+			sessions.offer(session);
+		}
+		return target.position() - start;
+	}
+
+	/**
+	 * Renders the block of the given topic or association into the given
+	 * array, starting at the given offset. If the array has not enough space
+	 * left, a {@link java.nio.BufferOverflowException} is thrown.
+	 *
+	 * @param construct
+	 *            the topic or association
+	 * @param target
+	 *            the target array
+	 * @param offset
+	 *            the index of the first byte written
+	 * @return the number of bytes written, <code>0</code> if the construct is
+	 *         no topic or association or has no identity
+	 * @throws IOException
+	 *             thrown if rendering failed
+	 */
+	public int render(final Construct construct, final byte[] target, final int offset) throws IOException {
+		return render(construct, ByteBuffer.wrap(target, offset, target.length - offset));
+	}
+
+}
@@ -8,32 +8,64 @@
  */
 package de.topicmapslab.ctm.writer.core;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.tmapi.core.Construct;
+import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
 import org.tmapi.index.TypeInstanceIndex;
 import org.tmapix.io.TopicMapWriter;
 
+import de.topicmapslab.ctm.writer.core.serializer.IncludeSerializer;
 import de.topicmapslab.ctm.writer.core.serializer.TopicMapSerializer;
+import de.topicmapslab.ctm.writer.exception.ExportCancelledException;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
 import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
 import de.topicmapslab.ctm.writer.templates.Template;
 import de.topicmapslab.ctm.writer.templates.TemplateFactory;
+import de.topicmapslab.ctm.writer.utility.CTMAppendableWriter;
+import de.topicmapslab.ctm.writer.utility.CTMAsyncWriter;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMChannelWriter;
+import de.topicmapslab.ctm.writer.utility.CTMCharacterWriter;
+import de.topicmapslab.ctm.writer.utility.CTMCheckpoint;
+import de.topicmapslab.ctm.writer.utility.CTMFingerprintIndex;
+import de.topicmapslab.ctm.writer.utility.CTMGzipWriter;
+import de.topicmapslab.ctm.writer.utility.CTMIdentifierGenerator;
 import de.topicmapslab.ctm.writer.utility.CTMIdentity;
+import de.topicmapslab.ctm.writer.utility.CTMIdentityTable;
+import de.topicmapslab.ctm.writer.utility.CTMNeighbourhoodIterator;
+import de.topicmapslab.ctm.writer.utility.CTMShardWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
  * Implementation of {@link TopicMapWriter} interface to provide a CTM topic map writer.
+ * <p>
+ * A writer contains the configuration of the exports, i.e. the properties, the prefixes, the templates, the ignored
+ * constructs, the includes and the merge maps. Each export is done by an export session, a private copy of the
+ * configuration containing all state of the export, like the detected prefixes and templates, the template matchings
+ * and the identity cache. The session is released after the export, so a writer may be reused for many exports, also
+ * by several threads concurrently, without accumulating state.
+ * </p>
  * 
  * @author Sven Krosse
  * @email krosse@informatik.uni-leipzig.de
@@ -45,6 +77,10 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * the output stream
 	 */
 	private final OutputStream stream;
+	/**
+	 * the file channel, used instead of the output stream if set
+	 */
+	private final FileChannel channel;
 	/**
 	 * the base-URI
 	 */
@@ -84,6 +120,22 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 */
 	private Map<String, String> mergeMaps;
 
+	/**
+	 * the statistics of the last export or <code>null</code>
+	 */
+	private volatile CTMStatistics statistics;
+
+	/**
+	 * the control of the export of a session or <code>null</code>
+	 */
+	private CTMExportControl control;
+
+	/**
+	 * the generator owning the numbers of the generated identifiers of all sessions, created by the first session
+	 * generating identifiers
+	 */
+	private CTMIdentifierGenerator identifierGenerator;
+
 	// the serializer
 	// private AKindOfSerializer aKindOfSerializer = null;
 	// private AssociationSerializer associationSerializer = null;
@@ -126,7 +178,33 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 *            {@link CTMTopicMapWriterProperties#parse(String)}
 	 */
 	public CTMTopicMapWriter(final OutputStream outputStream, final String baseURI, final String propertyLine) {
+		this(outputStream, null, baseURI, propertyLine);
+	}
+
+	/**
+	 * constructor
+	 * 
+	 * @param channel
+	 *            the {@link FileChannel} as target for serialized topic map. The content is written at the current
+	 *            position of the channel.
+	 * @param baseURI
+	 *            the base URI used to create a default identify for topics without item-identifier, subject-identifier
+	 *            and subject-locator
+	 * @param propertyLine
+	 *            a argument line, containing internal system properties to set. See also: (
+	 *            {@link CTMTopicMapWriterProperties#parse(String)}
+	 */
+	public CTMTopicMapWriter(final FileChannel channel, final String baseURI, final String propertyLine) {
+		this(null, channel, baseURI, propertyLine);
+	}
+
+	/**
+	 * internal constructor, exactly one of the targets is set
+	 */
+	private CTMTopicMapWriter(final OutputStream outputStream, final FileChannel channel, final String baseURI,
+			final String propertyLine) {
 		this.stream = outputStream;
+		this.channel = channel;
 		this.baseURI = baseURI;
 		this.properties = new CTMTopicMapWriterProperties();
 		this.prefixHandler = new PrefixHandler();
@@ -139,6 +217,104 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 		factory = new TemplateFactory(this);
 	}
 
+	/**
+	 * constructor of an export session of the given configuration, also used
+	 * by the {@link CTMFragmentRenderer}
+	 */
+	CTMTopicMapWriter(final CTMTopicMapWriter configuration) {
+		this.stream = configuration.stream;
+		this.channel = configuration.channel;
+		this.baseURI = configuration.baseURI;
+		this.prefixHandler = new PrefixHandler();
+		synchronized (configuration) {
+			this.properties = new CTMTopicMapWriterProperties(configuration.properties);
+			this.prefixHandler.setPrefixes(configuration.prefixHandler.getPrefixMap());
+			if (configuration.includes != null) {
+				this.includes = new ArrayList<String>(configuration.includes);
+			}
+			if (configuration.mergeMaps != null) {
+				this.mergeMaps = new HashMap<String, String>(configuration.mergeMaps);
+			}
+			if (properties.isIdentifierGenerationEnabled() && baseURI != null
+					&& configuration.identifierGenerator == null) {
+				configuration.identifierGenerator = new CTMIdentifierGenerator(baseURI);
+			}
+			this.identifierGenerator = configuration.identifierGenerator;
+		}
+		if (properties.isIdentityTableEnabled()) {
+			this.ctmIdentity = new CTMIdentity(prefixHandler, new CTMIdentityTable(properties
+					.isDirectIdentityTableEnabled()));
+		} else {
+			this.ctmIdentity = new CTMIdentity(prefixHandler);
+		}
+		if (properties.isIdentifierGenerationEnabled() && baseURI != null) {
+			this.prefixHandler.setPrefix(properties.getGeneratedIdentifierPrefix(), baseURI);
+			this.ctmIdentity.setIdentifierGenerator(new CTMIdentifierGenerator(identifierGenerator));
+		}
+		this.serializer = new TopicMapSerializer(this, prefixHandler, configuration.serializer);
+		this.factory = new TemplateFactory(this);
+	}
+
+	/**
+	 * Internal method to open an export session. The statistics of the session are recorded if enabled.
+	 * 
+	 * @return the export session
+	 * @throws IOException
+	 *             thrown if the generated identifiers cannot be read
+	 */
+	private CTMTopicMapWriter openSession() throws IOException {
+		CTMTopicMapWriter session = new CTMTopicMapWriter(this);
+		session.statistics = session.properties.isStatisticsEnabled() ? new CTMStatistics() : null;
+		session.readGeneratedIdentifiers();
+		return session;
+	}
+
+	/**
+	 * Internal method to read the generated identifiers of the session from the file of the properties (see
+	 * {@link CTMTopicMapWriterProperties#IDENTITY_GENERATED_FILE}), if identifiers are generated and stored. The
+	 * numbers are read once into the generator shared by the sessions of the writer.
+	 * 
+	 * @throws IOException
+	 *             thrown if the file cannot be read
+	 */
+	private void readGeneratedIdentifiers() throws IOException {
+		CTMIdentifierGenerator generator = ctmIdentity.getIdentifierGenerator();
+		File file = properties.getGeneratedIdentifierFile();
+		if (generator != null && file != null) {
+			generator.read(file);
+		}
+	}
+
+	/**
+	 * Internal method to write the generated identifiers of the session to the file of the properties, if
+	 * identifiers are generated and stored. The numbers of all sessions of the writer are written, while concurrent
+	 * sessions wait for the generator shared by them.
+	 * 
+	 * @throws IOException
+	 *             thrown if the file cannot be written
+	 */
+	private void writeGeneratedIdentifiers() throws IOException {
+		CTMIdentifierGenerator generator = ctmIdentity.getIdentifierGenerator();
+		File file = properties.getGeneratedIdentifierFile();
+		if (generator != null && file != null) {
+			generator.write(file);
+		}
+	}
+
+	/**
+	 * Internal method to release the given export session. The statistics of the session become the statistics of the
+	 * last export.
+	 * 
+	 * @param session
+	 *            the export session
+	 */
+	private void closeSession(CTMTopicMapWriter session) {
+		if (session.statistics != null) {
+			session.statistics.setIdentifierCache(session.ctmIdentity);
+		}
+		statistics = session.statistics;
+	}
+
 	/**
 	 * Adding a new {@link Template} to the internal {@link TopicMapSerializer}. Templates are used to extract knowledge
 	 * about ontology from topic items.
@@ -170,25 +346,114 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 *             thrown if serialization failed.
 	 */
 	public void write(TopicMap topicMap) throws IOException {
+		write(topicMap, createWriter(stream, channel));
+	}
+
+	/**
+	 * Serialize the given topic map to CTM and write it into the given {@link OutputStream}, controlled by the given
+	 * {@link CTMExportControl}. The export reports its progress to the listener of the control and stops after the
+	 * current block if the control is cancelled or its deadline is exceeded. In this case the output contains the
+	 * blocks written before and a comment line noting the cancellation, and an {@link ExportCancelledException} is
+	 * thrown.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param control
+	 *            the control of the export
+	 * @throws ExportCancelledException
+	 *             thrown if the export was cancelled
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	public void write(TopicMap topicMap, CTMExportControl control) throws IOException {
+		write(topicMap, createWriter(stream, channel), control);
+	}
+
+	/**
+	 * Serialize the given topic map to CTM and append it to the given {@link Appendable}, e.g. a {@link Writer} or a
+	 * {@link StringBuilder}. The content is not encoded and the target of the writer is not used.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param appendable
+	 *            the target
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	public void write(TopicMap topicMap, Appendable appendable) throws IOException {
+		if (appendable instanceof Writer) {
+			write(topicMap, new CTMCharacterWriter((Writer) appendable));
+		} else {
+			write(topicMap, new CTMAppendableWriter(appendable));
+		}
+	}
 
-		 ICTMWriter writer = new CTMStreamWriter(stream);
-		
+	/**
+	 * Internal method to serialize the given topic map to the given writer. The writer is closed afterwards.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param writer
+	 *            the writer
+	 * @return the statistics of the export or <code>null</code> if disabled
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	CTMStatistics write(TopicMap topicMap, ICTMWriter writer) throws IOException {
+		return write(topicMap, writer, null);
+	}
+
+	/**
+	 * Internal method to serialize the given topic map to the given writer, controlled by the given control. The
+	 * writer is closed afterwards.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param writer
+	 *            the writer
+	 * @param control
+	 *            the control of the export or <code>null</code>
+	 * @return the statistics of the export or <code>null</code> if disabled
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	private CTMStatistics write(TopicMap topicMap, ICTMWriter writer, CTMExportControl control) throws IOException {
 		// open index if not opened
 		TypeInstanceIndex idx = topicMap.getIndex(TypeInstanceIndex.class);
 		if (!idx.isOpen()) {
 			idx.open();
 		}
+		CTMTopicMapWriter session = openSession();
+		if (control != null) {
+			session.control = control;
+			writer = control.count(writer);
+		}
+		writer = session.instrument(writer);
 		try {
-			serializer.serialize(topicMap, writer);
+			session.serializer.serialize(topicMap, writer);
+			if (control != null) {
+				control.finish();
+			}
+			session.writeGeneratedIdentifiers();
+		} catch (ExportCancelledException e) {
+			writer.appendCommentLine("Export cancelled, because of " + e.getLocalizedMessage());
+			throw e;
 		} catch (SerializerException e) {
 			throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+		} finally {
+			try {
+				writer.close();
+			} finally {
+				closeSession(session);
+			}
 		}
-		stream.flush();
+		return session.statistics;
 	}
 
 	/**
 	 * Returns the internal baseURI used to create a default identify for topics without item-identifier,
-	 * subject-identifier and subject-locator.
+	 * subject-identifier and subject-locator, if enabled (see
+	 * {@link CTMTopicMapWriterProperties#IDENTITY_GENERATED_ENABLED}).
 	 * 
 	 * @return the baseURI
 	 */
@@ -217,7 +482,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * @param value
 	 *            the property value
 	 */
-	public void setProperty(final String key, final String value) {
+	public synchronized void setProperty(final String key, final String value) {
 		this.properties.setProperty(key, value);
 	}
 
@@ -228,7 +493,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 *            the prefix identifier
 	 * @return the IRI or <code>null</code> if no prefix is registered for given name-space
 	 */
-	public String getPrefix(final String prefix) {
+	public synchronized String getPrefix(final String prefix) {
 		return prefixHandler.getPrefix(prefix);
 	}
 
@@ -242,7 +507,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * @param iri
 	 *            the IRI
 	 */
-	public void setPrefix(final String prefix, final String iri) {
+	public synchronized void setPrefix(final String prefix, final String iri) {
 		this.prefixHandler.setPrefix(prefix, iri);
 	}
 
@@ -255,15 +520,12 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 *             thrown if serialization failed.
 	 */
 	public void write(Construct... constructs) throws IOException {
-		Collection<Construct> constructs_ = new HashSet<Construct>();
-		for (Construct c : constructs) {
-			constructs_.add(c);
-		}
-		write(constructs_);
+		write(Arrays.asList(constructs));
 	}
 
 	/**
-	 * Serialize the given topic map to CTM and write it into the given {@link OutputStream}.
+	 * Serialize the given topic map to CTM and write it into the given {@link OutputStream}. The constructs are
+	 * streamed like by {@link #write(Iterator)}, so the blocks are written in the order of the collection.
 	 * 
 	 * @param constructs
 	 *            a collection containing all constructs to serialize
@@ -271,13 +533,464 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 *             thrown if serialization failed.
 	 */
 	public void write(Collection<Construct> constructs) throws IOException {
-		ICTMWriter writer = new CTMStreamWriter(stream);
+		write(constructs.iterator());
+	}
+
+	/**
+	 * Serialize the constructs returned by the given iterator to CTM and write it into the given {@link OutputStream}.
+	 * Each topic or association block is written as soon as the iterator returns its first construct, e.g. a name of
+	 * the topic or a role of the association. The constructs are not collected, so the iterator may return the
+	 * results of a query over millions of constructs.
+	 * 
+	 * @param constructs
+	 *            an iterator over all constructs to serialize
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	public void write(Iterator<? extends Construct> constructs) throws IOException {
+		CTMTopicMapWriter session = openSession();
+		ICTMWriter writer = session.instrument(createWriter(stream, channel));
+		try {
+			session.serializer.serialize(constructs, writer);
+			session.writeGeneratedIdentifiers();
+		} catch (SerializerException e) {
+			throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+		} finally {
+			try {
+				writer.close();
+			} finally {
+				closeSession(session);
+			}
+		}
+	}
+
+	/**
+	 * Serialize the neighbourhood of the given seed topics to CTM and write it into the given {@link OutputStream}.
+	 * The neighbourhood contains the seed topics, the associations played by them up to the given number of hops and
+	 * the players of these associations, found by a breadth-first search while writing (see
+	 * {@link CTMNeighbourhoodIterator}). The topics used as types or scope themes by the written blocks are written
+	 * too, so the fragment can be loaded on its own.
+	 * 
+	 * @param seeds
+	 *            the seed topics
+	 * @param hops
+	 *            the maximum number of associations between a seed topic and a written topic, 0 to write the seed
+	 *            topics only
+	 * @param associationTypes
+	 *            the types of the associations to follow, none to follow all associations
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	public void writeNeighbourhood(Collection<? extends Topic> seeds, int hops, Topic... associationTypes)
+			throws IOException {
+		write(new CTMNeighbourhoodIterator(seeds, hops, Arrays.asList(associationTypes)));
+	}
+
+	/**
+	 * Serialize the given topic map to a set of CTM files. The prolog, the reifier, the prefixes, the includes, the
+	 * merge maps and the template definitions are written once to a header file. The topic and association blocks are
+	 * written to a sequence of shard files, each starting with the prolog and the prefixes, so the QNames of a shard
+	 * are resolved if the shard is loaded on its own. A shard is closed as soon as it reaches one of the thresholds (see
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_SHARD_MAXBYTES} and
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_SHARD_MAXBLOCKS}) at the end of a block, so a block is never split.
+	 * Finally the given master file is written, including the header and all shards. The header and shard files are
+	 * created in the directory of the master file and named by the master file, e.g. <code>map-header.ctm</code> and
+	 * <code>map-0001.ctm</code> for the master file <code>map.ctm</code>. The target of the writer is not used.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param master
+	 *            the master file
+	 * @return the list of included file names in the order of inclusion
+	 * @throws IOException
+	 *             thrown if serialization failed.
+	 */
+	public List<String> writeSharded(TopicMap topicMap, File master) throws IOException {
+		final File directory = master.getAbsoluteFile().getParentFile();
+		String name = master.getName();
+		int dot = name.lastIndexOf('.');
+		final String baseName = dot > 0 ? name.substring(0, dot) : name;
+		final String extension = dot > 0 ? name.substring(dot) : "";
+		final List<String> files = new ArrayList<String>();
+
+		// open index if not opened
+		TypeInstanceIndex idx = topicMap.getIndex(TypeInstanceIndex.class);
+		if (!idx.isOpen()) {
+			idx.open();
+		}
+
+		final CTMTopicMapWriter session = openSession();
+		try {
+			writeShards(session, topicMap, directory, baseName, extension, files);
+			writeMaster(session, master, files);
+			session.writeGeneratedIdentifiers();
+		} finally {
+			closeSession(session);
+		}
+		return files;
+	}
+
+	/**
+	 * Internal method to write the header and shard files of the sharded output.
+	 */
+	private void writeShards(final CTMTopicMapWriter session, TopicMap topicMap, final File directory,
+			final String baseName, final String extension, final List<String> files) throws IOException {
+		File header = new File(directory, baseName + "-header" + extension);
+		files.add(header.getName());
+		FileOutputStream out = new FileOutputStream(header);
+		try {
+			ICTMWriter writer = session.instrument(createWriter(null, out.getChannel()));
+			try {
+				session.serializer.serializeProlog(writer);
+				session.serializer.serializeHeader(topicMap, writer);
+			} finally {
+				writer.close();
+			}
+
+			final CTMTopicMapWriterProperties properties = session.getProperties();
+			CTMShardWriter shards = new CTMShardWriter(properties.getShardMaximumBytes(), properties
+					.getShardMaximumBlocks()) {
+
+				private FileOutputStream shard;
+
+				protected ICTMWriter openShard(int index) throws IOException {
+					File file = new File(directory, baseName + "-" + String.format("%04d", index + 1) + extension);
+					files.add(file.getName());
+					shard = new FileOutputStream(file);
+					ICTMWriter writer = createWriter(null, shard.getChannel());
+					ICTMWriter instrumented = session.instrument(writer);
+					session.serializer.serializeProlog(instrumented);
+					try {
+						session.serializer.serializePrefixes(instrumented);
+					} catch (SerializerException e) {
+						throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+					}
+					return writer;
+				}
+
+				protected void closeShard(int index, ICTMWriter writer) throws IOException {
+					try {
+						writer.close();
+					} finally {
+						shard.close();
+					}
+				}
+			};
+			ICTMWriter body = session.instrument(shards);
+			try {
+				session.serializer.serializeBody(topicMap, body);
+			} finally {
+				body.close();
+			}
+		} catch (SerializerException e) {
+			throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Internal method to write the master file of the sharded output.
+	 */
+	private void writeMaster(final CTMTopicMapWriter session, File master, List<String> files) throws IOException {
+		FileOutputStream out = new FileOutputStream(master);
+		try {
+			ICTMWriter writer = session.instrument(createWriter(null, out.getChannel()));
+			try {
+				session.serializer.serializeProlog(writer);
+				writer.appendCommentLine("header and shards");
+				writer.appendLine();
+				IncludeSerializer.serialize(files, session.prefixHandler, writer);
+				writer.appendLine();
+				writer.appendCommentLine("Generated by the CTM Topic Map Writer.");
+			} catch (SerializerException e) {
+				throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+			} finally {
+				writer.close();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Serialize the topic and association blocks of the given topic map changed since the last delta export and write
+	 * them into the given {@link OutputStream}. The fingerprints of all blocks are stored to the given index file, which
+	 * is read by the next delta export. If the index file does not exist, all blocks are written. The output contains
+	 * the prolog and the header of the topic map, the added and changed blocks and the keys of the removed blocks as
+	 * comments. A topic block is identified by the stable identity of the topic, an association block by its type,
+	 * scope and roles (see
+	 * {@link TopicMapSerializer#serializeDelta(TopicMap, CTMFingerprintIndex, CTMFingerprintIndex, ICTMWriter)}). The
+	 * content of the blocks is always sorted (see {@link CTMTopicMapWriterProperties#OUTPUT_SORTED_ENABLED}), so the
+	 * fingerprints do not depend on the order of the topic maps engine and an unchanged topic map loaded again has no
+	 * changed blocks. The blocks are rendered and fingerprinted in parallel, so the topic maps engine has to support
+	 * concurrent reading.
+	 * Changing the prefixes or the templates between two runs changes the fingerprints of the affected blocks. No
+	 * statistics are recorded, so the statistics of the writer are empty afterwards.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param index
+	 *            the fingerprint index file
+	 * @return the sorted keys of the blocks removed since the last delta export
+	 * @throws IOException
+	 *             thrown if serialization failed or the index file cannot be accessed
+	 */
+	public List<String> writeDelta(TopicMap topicMap, File index) throws IOException {
+		// open index if not opened
+		TypeInstanceIndex idx = topicMap.getIndex(TypeInstanceIndex.class);
+		if (!idx.isOpen()) {
+			idx.open();
+		}
+		CTMTopicMapWriter session = openSession();
+		/*
+		 * the blocks are rendered into private buffers in parallel
+		 */
+		session.statistics = null;
+		/*
+		 * the fingerprints must not depend on the order of the engine
+		 */
+		session.properties.enableSortedOutput(true);
+		try {
+			CTMFingerprintIndex previous = CTMFingerprintIndex.read(index);
+			CTMFingerprintIndex next = new CTMFingerprintIndex(previous.size());
+			List<String> removed;
+			ICTMWriter writer = createWriter(stream, channel);
+			try {
+				session.serializer.serializeProlog(writer);
+				session.serializer.serializeHeader(topicMap, writer);
+				removed = session.serializer.serializeDelta(topicMap, previous, next, writer);
+				writer.appendCommentLine("Generated by the CTM Topic Map Writer.");
+			} catch (SerializerException e) {
+				throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+			} finally {
+				writer.close();
+			}
+			next.write(index);
+			session.writeGeneratedIdentifiers();
+			return removed;
+		} finally {
+			closeSession(session);
+		}
+	}
+
+	/**
+	 * Serialize the given topic map to the given CTM file and write checkpoints to a sidecar file, so an export
+	 * aborted by a crash can be resumed by a new process. The topic and association blocks are written in a
+	 * deterministic order (see {@link TopicMapSerializer#getBlockOrder(TopicMap)}). After the header and after each
+	 * interval of blocks (see {@link CTMTopicMapWriterProperties#CHECKPOINT_INTERVAL}) the output is forced to the
+	 * storage device and the checkpoint file <code>&lt;file&gt;.checkpoint</code> is replaced. If the file and its
+	 * checkpoint file exist, the file is truncated to the checkpoint and the export continues behind the last block of
+	 * the checkpoint. The checkpoint file is removed after the export is complete. The topic map must not be modified
+	 * between the aborted and the resumed export. The GZIP output is not supported and the target of the writer is not
+	 * used. The statistics of a resumed export only contain the blocks written after the checkpoint.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param file
+	 *            the CTM file
+	 * @return <code>true</code> if an aborted export was resumed, <code>false</code> if the export started from the
+	 *         beginning
+	 * @throws IOException
+	 *             thrown if serialization failed or the checkpoint does not match the state of the export
+	 */
+	public boolean writeResumable(TopicMap topicMap, File file) throws IOException {
+		if (properties.isGzipOutputEnabled()) {
+			throw new IOException("Resumable export failed, because of the GZIP output cannot be truncated.");
+		}
+		// open index if not opened
+		TypeInstanceIndex idx = topicMap.getIndex(TypeInstanceIndex.class);
+		if (!idx.isOpen()) {
+			idx.open();
+		}
+		CTMTopicMapWriter session = openSession();
+		try {
+			return session.writeResumableSession(topicMap, file);
+		} finally {
+			closeSession(session);
+		}
+	}
+
+	/**
+	 * Internal method of the export session to write the given CTM file and its checkpoints.
+	 * 
+	 * @param topicMap
+	 *            the topic map to serialize
+	 * @param file
+	 *            the CTM file
+	 * @return <code>true</code> if an aborted export was resumed, <code>false</code> if the export started from the
+	 *         beginning
+	 * @throws IOException
+	 *             thrown if serialization failed or the checkpoint does not match the state of the export
+	 */
+	private boolean writeResumableSession(TopicMap topicMap, File file) throws IOException {
+		File checkpointFile = new File(file.getPath() + ".checkpoint");
+		CTMCheckpoint checkpoint = file.exists() ? CTMCheckpoint.read(checkpointFile) : null;
+
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
 		try {
-			serializer.serialize(constructs, writer);
+			FileChannel fileChannel = out.getChannel();
+			CTMBuffer header = new CTMBuffer();
+			serializer.serializeProlog(header);
+			serializer.serializeHeader(topicMap, header);
+			List<Construct> order = serializer.getBlockOrder(topicMap);
+			long state = serializer.getStateFingerprint(header) * 31 + order.size();
+
+			int start = 0;
+			if (checkpoint != null) {
+				if (checkpoint.getState() != state || checkpoint.getOffset() > fileChannel.size()
+						|| checkpoint.getPosition() > order.size()) {
+					throw new IOException("Resuming export failed, because of the checkpoint " + checkpointFile
+							+ " does not match the topic map.");
+				}
+				fileChannel.truncate(checkpoint.getOffset());
+				fileChannel.position(checkpoint.getOffset());
+				start = checkpoint.getPosition();
+			} else {
+				fileChannel.truncate(0);
+			}
+
+			ICTMWriter writer = instrument(createWriter(null, fileChannel));
+			try {
+				if (checkpoint == null) {
+					header.writeTo(writer);
+					checkpoint(writer, fileChannel, 0, state, checkpointFile);
+				}
+				int topics = 0;
+				while (topics < order.size() && order.get(topics) instanceof Topic) {
+					topics++;
+				}
+				int interval = properties.getCheckpointInterval();
+				int blocks = 0;
+				for (int position = start; position <= order.size(); position++) {
+					if (position == 0) {
+						writer.appendCommentLine("topic definitions");
+					}
+					if (position == topics) {
+						writer.appendCommentLine("association definitions");
+					}
+					if (position == order.size()) {
+						break;
+					}
+					if (serializer.serializeBlock(order.get(position), writer) && ++blocks == interval) {
+						checkpoint(writer, fileChannel, position + 1, state, checkpointFile);
+						blocks = 0;
+					}
+				}
+				writer.appendCommentLine("Generated by the CTM Topic Map Writer.");
+			} finally {
+				writer.close();
+			}
 		} catch (SerializerException e) {
 			throw new IOException("Serialization failed, because of " + e.getLocalizedMessage());
+		} finally {
+			out.close();
+		}
+		if (checkpointFile.exists() && !checkpointFile.delete()) {
+			throw new IOException("Removing checkpoint failed, because of " + checkpointFile + " cannot be deleted.");
+		}
+		writeGeneratedIdentifiers();
+		return checkpoint != null;
+	}
+
+	/**
+	 * Internal method to force the written content to the storage device and to write a checkpoint afterwards.
+	 * 
+	 * @param writer
+	 *            the writer
+	 * @param fileChannel
+	 *            the channel the writer writes to
+	 * @param position
+	 *            the position of the next construct
+	 * @param state
+	 *            the fingerprint of the serializer state
+	 * @param file
+	 *            the checkpoint file
+	 * @throws IOException
+	 *             thrown if the content or the checkpoint cannot be written
+	 */
+	private void checkpoint(ICTMWriter writer, FileChannel fileChannel, int position, long state, File file)
+			throws IOException {
+		writer.flush();
+		fileChannel.force(false);
+		new CTMCheckpoint(fileChannel.position(), position, state).write(file);
+	}
+
+	/**
+	 * Returns the statistics of the last export, containing the number of bytes, the number of constructs and the
+	 * elapsed time for each kind of construct and each topic type. The statistics are only recorded if enabled (see
+	 * {@link CTMTopicMapWriterProperties#STATISTICS_ENABLED}). The sharded output records all files written.
+	 * 
+	 * @return the statistics or <code>null</code> if the statistics of the last export were disabled
+	 */
+	public CTMStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Internal method to decorate the given writer by a {@link CTMStatisticsWriter} if the statistics of the current
+	 * export are enabled.
+	 * 
+	 * @param writer
+	 *            the writer
+	 * @return the decorated writer or the given writer
+	 */
+	private ICTMWriter instrument(ICTMWriter writer) {
+		if (statistics == null) {
+			return writer;
+		}
+		return new CTMStatisticsWriter(writer, statistics);
+	}
+
+	/**
+	 * Creates the {@link ICTMWriter} used to write to the given target. The writer returned by
+	 * {@link #createTargetWriter(OutputStream, FileChannel)} is decorated by a {@link CTMAsyncWriter} if the
+	 * asynchronous output is enabled (see {@link CTMTopicMapWriterProperties#OUTPUT_ASYNC_ENABLED}).
+	 * 
+	 * @param stream
+	 *            the target stream, ignored if a channel is given
+	 * @param channel
+	 *            the target channel or <code>null</code>
+	 * @return the new writer
+	 * @throws IOException
+	 *             thrown if the target cannot be accessed
+	 */
+	protected ICTMWriter createWriter(OutputStream stream, FileChannel channel) throws IOException {
+		ICTMWriter writer = createTargetWriter(stream, channel);
+		if (properties.isAsyncOutputEnabled()) {
+			return new CTMAsyncWriter(writer, properties.getAsyncBufferCount(), properties.getAsyncBufferSize());
+		}
+		return writer;
+	}
+
+	/**
+	 * Creates the {@link ICTMWriter} writing to the given target. If the GZIP output is enabled (see
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_GZIP_ENABLED}) a {@link CTMGzipWriter} is returned for both kinds of
+	 * targets. If the writer targets a file channel a {@link CTMChannelWriter} is returned. If the buffered output is enabled (see
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_BUFFERED_ENABLED}) a {@link CTMBufferedStreamWriter} is returned,
+	 * otherwise a {@link CTMStreamWriter}.
+	 * 
+	 * @param stream
+	 *            the target stream, ignored if a channel is given
+	 * @param channel
+	 *            the target channel or <code>null</code>
+	 * @return the new writer
+	 * @throws IOException
+	 *             thrown if the target cannot be accessed
+	 */
+	protected ICTMWriter createTargetWriter(OutputStream stream, FileChannel channel) throws IOException {
+		if (properties.isGzipOutputEnabled()) {
+			OutputStream target = channel != null ? Channels.newOutputStream(channel) : stream;
+			return new CTMGzipWriter(target, properties.getGzipLevel(), properties.getGzipBlockSize(), properties
+					.getGzipThreads());
+		}
+		if (channel != null) {
+			return new CTMChannelWriter(channel, properties.getOutputBufferSize(), properties.isMappedOutputEnabled());
 		}
-		stream.flush();
+		if (properties.isBufferedOutputEnabled()) {
+			return new CTMBufferedStreamWriter(stream, properties.getOutputBufferSize());
+		}
+		return new CTMStreamWriter(stream);
 	}
 
 	/**
@@ -289,6 +1002,55 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 		return factory;
 	}
 
+	/**
+	 * Returns the control of the current export, if this writer is the export session of a controlled export.
+	 * 
+	 * @return the control or <code>null</code>
+	 */
+	public CTMExportControl getExportControl() {
+		return control;
+	}
+
+	/**
+	 * Returns the topic map serializer of this writer.
+	 * 
+	 * @return the serializer
+	 */
+	TopicMapSerializer getSerializer() {
+		return serializer;
+	}
+
+	/**
+	 * Returns the prefix handler of this writer.
+	 * 
+	 * @return the prefix handler
+	 */
+	PrefixHandler getPrefixHandler() {
+		return prefixHandler;
+	}
+
+	/**
+	 * Returns a renderer of CTM fragments of single topics and associations, using a snapshot of the current
+	 * configuration of this writer. The renderer may be shared by several threads.
+	 * 
+	 * @return the fragment renderer
+	 * @throws IOException
+	 *             thrown if the prefix declarations cannot be rendered
+	 */
+	public CTMFragmentRenderer createFragmentRenderer() throws IOException {
+		return new CTMFragmentRenderer(this);
+	}
+
+	/**
+	 * Returns an exporter of many topic maps, exporting them concurrently with a snapshot of the current configuration
+	 * of this writer.
+	 * 
+	 * @return the batch exporter
+	 */
+	public CTMBatchExporter createBatchExporter() {
+		return new CTMBatchExporter(this);
+	}
+
 	/**
 	 * Return the identity utility class instance
 	 * 
@@ -313,7 +1075,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * @param uri
 	 *            the uri for an include directive
 	 */
-	public void addInclude(String uri) {
+	public synchronized void addInclude(String uri) {
 		if (includes == null)
 			includes = new ArrayList<String>();
 		includes.add(uri);
@@ -325,7 +1087,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * @param uri
 	 *            the uri for an include directive
 	 */
-	public void removeInclude(String uri) {
+	public synchronized void removeInclude(String uri) {
 		if (includes != null)
 			includes.remove(uri);
 	}
@@ -346,7 +1108,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * Adds XTM map to merge
 	 * @param iri the url for the xtm
 	 */
-	public void addMergeXTMMap(String iri) {
+	public synchronized void addMergeXTMMap(String iri) {
 		if (mergeMaps == null)
 			mergeMaps = new HashMap<String, String>();
 
@@ -356,7 +1118,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * Adds CTM map to merge
 	 * @param iri the url for the ctm
 	 */
-	public void addMergeCTMMap(String iri) {
+	public synchronized void addMergeCTMMap(String iri) {
 		if (mergeMaps == null)
 			mergeMaps = new HashMap<String, String>();
 
@@ -367,7 +1129,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * Removes the map to merge with the given url
 	 * @param iri
 	 */
-	public void removeMergeMap(String iri) {
+	public synchronized void removeMergeMap(String iri) {
 		if (mergeMaps != null)
 			mergeMaps.remove(iri);
 	}
@@ -376,7 +1138,7 @@ public class CTMTopicMapWriter implements TopicMapWriter {
 	 * Returns the map of maps to merge
 	 * @return a map with the maps (Map<IRI, FORMAT>) 
 	 */
-	public Map<String, String> getMergeMaps() {
+	public synchronized Map<String, String> getMergeMaps() {
 		if (mergeMaps == null)
 			mergeMaps = new HashMap<String, String>();
 		return mergeMaps;
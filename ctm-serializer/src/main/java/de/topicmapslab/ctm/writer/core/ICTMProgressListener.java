@@ -0,0 +1,50 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core;
+
+/**
+ * Listener informed about the progress of an export, registered at a
+ * {@link CTMExportControl}. The methods are called by the thread running the
+ * export, so they should return quickly.
+ * 
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ * 
+ */
+public interface ICTMProgressListener {
+
+	/**
+	 * Called if a new phase of the export starts.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param total
+	 *            the number of topics or associations of the phase, 0 if
+	 *            unknown
+	 */
+	public void phaseStarted(CTMExportPhase phase, int total);
+
+	/**
+	 * Called periodically while blocks are written and at the end of each
+	 * phase.
+	 * 
+	 * @param phase
+	 *            the current phase
+	 * @param done
+	 *            the number of blocks written in the current phase, ignored
+	 *            and TMDM constructs are not counted
+	 * @param total
+	 *            the number of topics or associations of the phase, 0 if
+	 *            unknown
+	 * @param bytes
+	 *            the number of bytes written by the export
+	 */
+	public void progress(CTMExportPhase phase, int done, int total, long bytes);
+
+}
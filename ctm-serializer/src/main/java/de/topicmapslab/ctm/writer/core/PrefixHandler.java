@@ -11,6 +11,8 @@ package de.topicmapslab.ctm.writer.core;
 import java.util.HashMap;
 import java.util.Map;
 
+import de.topicmapslab.common.tools.prefix.core.PrefixTrie;
+
 /**
  * Class store all registered prefixes.
  * 
@@ -25,6 +27,23 @@ public class PrefixHandler {
 	 */
 	private final Map<String, String> prefixMap = new HashMap<String, String>();
 
+	/**
+	 * the number of modifications of the prefix map
+	 */
+	private int version;
+
+	/**
+	 * the trie of the prefixes used to transform IRIs to QNames, built on
+	 * demand after the prefixes were modified
+	 */
+	private volatile PrefixTrie prefixTrie;
+
+	/**
+	 * the hash table of the prefixes used to check QNames without extracting
+	 * their prefixes, built on demand after the prefixes were modified
+	 */
+	private volatile String[] prefixTable;
+
 	/**
 	 * Get the prefix IRI for the given name-space identifier.
 	 * 
@@ -49,6 +68,52 @@ public class PrefixHandler {
 	 */
 	public void setPrefix(final String prefix, final String iri) {
 		this.prefixMap.put(prefix, iri);
+		version++;
+		prefixTrie = null;
+		prefixTable = null;
+	}
+
+	/**
+	 * Register all given prefix definitions.
+	 * 
+	 * @param prefixes
+	 *            the prefixes and their IRIs
+	 */
+	public void setPrefixes(final Map<String, String> prefixes) {
+		this.prefixMap.putAll(prefixes);
+		version++;
+		prefixTrie = null;
+		prefixTable = null;
+	}
+
+	/**
+	 * Transforms the given absolute IRI to a QName by using the longest
+	 * registered name-space matching the beginning of the IRI (see
+	 * {@link PrefixTrie#toPrefixedIri(String)}). The trie of the prefixes is
+	 * only rebuilt after the prefixes were modified.
+	 * 
+	 * @param iri
+	 *            the absolute IRI
+	 * @return the QName, if a name-space matches, otherwise the absolute IRI
+	 */
+	public String toPrefixedIri(final String iri) {
+		PrefixTrie trie = prefixTrie;
+		if (trie == null) {
+			trie = new PrefixTrie(prefixMap);
+			prefixTrie = trie;
+		}
+		return trie.toPrefixedIri(iri);
+	}
+
+	/**
+	 * Returns the number of modifications of the prefixes. The number changes
+	 * each time a prefix is registered, so identifiers rendered with the
+	 * prefixes can be cached until the number changes.
+	 * 
+	 * @return the number of modifications
+	 */
+	public int getVersion() {
+		return version;
 	}
 
 	/**
@@ -64,7 +129,72 @@ public class PrefixHandler {
 	}
 
 	/**
-	 * Get all registered prefix with their corresponding name-spaces.
+	 * Check if the beginning of the given IRI with the given length is
+	 * contained by the internal prefix map. In contrast to
+	 * {@link #isKnownPrefix(String)} the prefix is not extracted from the IRI,
+	 * it is looked up by its hash code in an open addressing table of the
+	 * prefixes.
+	 * 
+	 * @param iri
+	 *            the IRI
+	 * @param length
+	 *            the length of the prefix
+	 * @return <code>true</code> if a prefix stored for the prefix identifier,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isKnownPrefix(final String iri, final int length) {
+		String[] table = prefixTable;
+		if (table == null) {
+			table = createPrefixTable();
+			prefixTable = table;
+		}
+		/*
+		 * the hash code of the prefix equals the hash code of the string
+		 */
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + iri.charAt(i);
+		}
+		final int mask = table.length - 1;
+		for (int index = spread(hash) & mask; table[index] != null; index = (index + 1) & mask) {
+			String prefix = table[index];
+			if (prefix.length() == length && iri.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Internal method to create the hash table of the prefixes. The capacity
+	 * is a power of two larger than twice the number of prefixes, so the table
+	 * always contains a free slot ending a lookup.
+	 */
+	private String[] createPrefixTable() {
+		String[] table = new String[Integer.highestOneBit(prefixMap.size() * 2 + 1) * 2];
+		final int mask = table.length - 1;
+		for (String prefix : prefixMap.keySet()) {
+			int index = spread(prefix.hashCode()) & mask;
+			while (table[index] != null) {
+				index = (index + 1) & mask;
+			}
+			table[index] = prefix;
+		}
+		return table;
+	}
+
+	/**
+	 * Internal method to spread the higher bits of the given hash code to the
+	 * lower ones used as index.
+	 */
+	private static int spread(final int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Get all registered prefix with their corresponding name-spaces. The map
+	 * has to be modified by {@link #setPrefix(String, String)} or
+	 * {@link #setPrefixes(Map)} only.
 	 * 
 	 * @return a map containing all prefixes
 	 */
@@ -80,12 +210,10 @@ public class PrefixHandler {
 	 * @return <code>true</code> of iri is a qname
 	 */
 	public boolean isQName(String iri) {
-		int idx = iri.indexOf(":");
+		int idx = iri.indexOf(':');
 		if (idx==-1)
 			return false;
 		
-		String prefix = iri.substring(0, idx);
-		
-		return getPrefixMap().containsKey(prefix);
+		return isKnownPrefix(iri, idx);
 	}
 }
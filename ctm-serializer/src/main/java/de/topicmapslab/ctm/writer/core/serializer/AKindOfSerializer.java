@@ -11,6 +11,7 @@ package de.topicmapslab.ctm.writer.core.serializer;
 
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.AKO;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.TABULATOR;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
 import java.util.Set;
@@ -20,6 +21,7 @@ import org.tmapi.core.Topic;
 
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 import de.topicmapslab.ctm.writer.utility.TypeHierarchyUtils;
 
@@ -64,7 +66,8 @@ public class AKindOfSerializer implements ISerializer<Topic> {
 			/*
 			 * extract all super-types
 			 */
-			for (Topic supertype : TypeHierarchyUtils.getSupertypes(subtype)) {
+			for (Topic supertype : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+					TypeHierarchyUtils.getSupertypes(subtype))) {
 
 				/*
 				 * add super-type-definition
@@ -83,8 +86,9 @@ public class AKindOfSerializer implements ISerializer<Topic> {
 					}
 					// write the tabs before the rest to omit whitespace between tabs and "ako"
 					buffer.append(TABULATOR);
-					buffer.append(true, AKO,
-							writer.getCtmIdentity().getMainIdentifier(writer.getProperties(), supertype).toString());
+					buffer.append(AKO);
+					buffer.append(WHITESPACE);
+					writer.getCtmIdentity().appendRenderedMainIdentifier(buffer, writer.getProperties(), supertype);
 					addTail = true;
 				}
 			}
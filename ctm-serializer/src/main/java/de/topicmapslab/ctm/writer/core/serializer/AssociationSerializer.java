@@ -22,6 +22,9 @@ import org.tmapi.core.Role;
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
 import de.topicmapslab.ctm.writer.templates.Template;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
@@ -56,6 +59,23 @@ public class AssociationSerializer implements ISerializer<Association> {
 	 */
 	public static Set<Object> serialize(CTMTopicMapWriter writer, Set<Template> adaptiveTemplates,
 			Association association, ICTMWriter buffer) throws SerializerException, IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		if (statistics == null) {
+			return serializeAssociation(writer, adaptiveTemplates, association, buffer);
+		}
+		statistics.begin(Kind.ASSOCIATION);
+		try {
+			return serializeAssociation(writer, adaptiveTemplates, association, buffer);
+		} finally {
+			statistics.end();
+		}
+	}
+
+	/**
+	 * Internal method to write the given association.
+	 */
+	private static Set<Object> serializeAssociation(CTMTopicMapWriter writer, Set<Template> adaptiveTemplates,
+			Association association, ICTMWriter buffer) throws SerializerException, IOException {
 
 		Set<Object> affectedConstructs = new HashSet<Object>();
 
@@ -82,16 +102,16 @@ public class AssociationSerializer implements ISerializer<Association> {
 			/*
 			 * create association definition block
 			 */
-			buffer.appendLine(
-					true,
-					writer.getCtmIdentity().getMainIdentifier(writer.getProperties(), association.getType()).toString(),
-					BRO);
+			writer.getCtmIdentity().appendRenderedMainIdentifier(buffer, writer.getProperties(), association.getType());
+			buffer.append(WHITESPACE);
+			buffer.appendLine(BRO);
 
 			boolean addComma = false;
 			/*
 			 * add all role-player-definitions
 			 */
-			for (Role role : association.getRoles()) {
+			for (Role role : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+					association.getRoles())) {
 				if (addComma) {
 					buffer.appendLine(COMMA);
 					addComma = false;
@@ -109,25 +109,27 @@ public class DatatypeAwareSerializer implements ISerializer<DatatypeAware> {
 			 * string is a variable
 			 */
 			if (isVariable(value)) {
-				buffer.append(false, value);
+				buffer.append(value);
 			}
 			/*
 			 * string contains tripple quotes
 			 */
 			else if (value.contains(TRIPPLEQUOTE)) {
-				buffer.append(false, TRIPPLEQUOTE, value.replaceAll(QUOTE, "\\\\" + QUOTE), TRIPPLEQUOTE);
+				buffer.append(TRIPPLEQUOTE);
+				appendEscaped(value, buffer);
+				buffer.append(TRIPPLEQUOTE);
 			}
 			/*
 			 * string contains quotes
 			 */
 			else if (value.contains(QUOTE)) {
-				buffer.append(false, TRIPPLEQUOTE, value, TRIPPLEQUOTE);
+				appendEnclosed(TRIPPLEQUOTE, value, buffer);
 			}
 			/*
 			 * string does not contain any quotes
 			 */
 			else {
-				buffer.append(false, QUOTE, value, QUOTE);
+				appendEnclosed(QUOTE, value, buffer);
 			}
 		}
 		/*
@@ -138,30 +140,35 @@ public class DatatypeAwareSerializer implements ISerializer<DatatypeAware> {
 			 * URI is variable
 			 */
 			if (isVariable(value)) {
-				buffer.append(false, value);
+				buffer.append(value);
 			} else {
-				String uri = value.replaceAll(" ", "%20");
-				buffer.append(false, PREFIXBEGIN + uri + PREFIXEND);
+				String uri = value.indexOf(' ') == -1 ? value : value.replace(" ", "%20");
+				buffer.append(PREFIXBEGIN);
+				buffer.append(uri);
+				buffer.append(PREFIXEND);
 			}
 		}
 		/*
 		 * type is xsd:integer
 		 */
 		else if (XmlSchemeDatatypes.XSD_INTEGER.equals(datatype_) || XmlSchemeDatatypes.XSD_QINTEGER.equals(datatype_)) {
-			buffer.append(false, value);
+			buffer.append(value);
 		}
 		/*
 		 * type is non-specific
 		 */
 		else {
 			if (isVariable(value)) {
-				buffer.append(false, value);
+				buffer.append(value);
 			} else if (value.contains(QUOTE)) {
-				buffer.append(false, TRIPPLEQUOTE, value, TRIPPLEQUOTE);
+				appendEnclosed(TRIPPLEQUOTE, value, buffer);
 			} else {
-				buffer.append(false, QUOTE, value, QUOTE);
+				appendEnclosed(QUOTE, value, buffer);
 			}
-			buffer.append(false, DATATYPE, PREFIXBEGIN + datatype_ + PREFIXEND);
+			buffer.append(DATATYPE);
+			buffer.append(PREFIXBEGIN);
+			buffer.append(datatype_);
+			buffer.append(PREFIXEND);
 		}
 		buffer.append(WHITESPACE);
 		return true;
@@ -310,6 +317,42 @@ public class DatatypeAwareSerializer implements ISerializer<DatatypeAware> {
 		}
 	}
 
+	/**
+	 * Appends the given value enclosed by the given quotes to the buffer.
+	 * 
+	 * @param quote
+	 *            the quotes
+	 * @param value
+	 *            the value
+	 * @param buffer
+	 *            the output buffer
+	 */
+	static void appendEnclosed(final String quote, final String value, final ICTMWriter buffer) throws IOException {
+		buffer.append(quote);
+		buffer.append(value);
+		buffer.append(quote);
+	}
+
+	/**
+	 * Internal method to append the given value with a backslash in front of
+	 * each quote, without creating a new string.
+	 * 
+	 * @param value
+	 *            the value
+	 * @param buffer
+	 *            the output buffer
+	 */
+	private static void appendEscaped(final String value, final ICTMWriter buffer) throws IOException {
+		final char quote = QUOTE.charAt(0);
+		int start = 0;
+		for (int i = value.indexOf(quote); i != -1; i = value.indexOf(quote, i + 1)) {
+			buffer.append(value, start, i);
+			buffer.append('\\');
+			start = i;
+		}
+		buffer.append(value, start, value.length());
+	}
+
 	/**
 	 * Internal method to check if given value is a variable.
 	 * 
@@ -0,0 +1,212 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.core.serializer;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+/**
+ * Precomputed decisions of an export, created by
+ * {@link TopicMapSerializer#createPlan(org.tmapi.core.TopicMap)} in one pass
+ * over the topic map. Each topic and each association is assigned a dense
+ * number, the position in the plan. The decision whether a block is written
+ * or skipped, the CTM notation of the main identifier of each topic and the
+ * existence of template matchings are stored in arrays, so the blocks are
+ * written without repeated lookups and without exceptions.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class ExportPlan {
+
+	/**
+	 * decision to write the block
+	 */
+	public static final byte WRITE = 0;
+
+	/**
+	 * decision to skip an ignored construct
+	 */
+	public static final byte SKIP_IGNORED = 1;
+
+	/**
+	 * decision to skip a TMDM topic or an association of a TMDM type
+	 */
+	public static final byte SKIP_TMDM = 2;
+
+	/**
+	 * decision to skip a topic or an association type without identity
+	 */
+	public static final byte SKIP_NO_IDENTITY = 3;
+
+	/**
+	 * the topics by number
+	 */
+	private final Topic[] topics;
+
+	/**
+	 * the decisions of the topics
+	 */
+	private final byte[] topicDecisions;
+
+	/**
+	 * the CTM notation of the main identifiers of the topics written
+	 */
+	private final String[] mainIdentifiers;
+
+	/**
+	 * flags indicating the topics with template matchings
+	 */
+	private final boolean[] matched;
+
+	/**
+	 * the associations by number
+	 */
+	private final Association[] associations;
+
+	/**
+	 * the decisions of the associations
+	 */
+	private final byte[] associationDecisions;
+
+	/**
+	 * the number of topics planned
+	 */
+	private int topicCount;
+
+	/**
+	 * the number of associations planned
+	 */
+	private int associationCount;
+
+	/**
+	 * constructor
+	 *
+	 * @param topicCount
+	 *            the number of topics
+	 * @param associationCount
+	 *            the number of associations
+	 */
+	ExportPlan(final int topicCount, final int associationCount) {
+		this.topics = new Topic[topicCount];
+		this.topicDecisions = new byte[topicCount];
+		this.mainIdentifiers = new String[topicCount];
+		this.matched = new boolean[topicCount];
+		this.associations = new Association[associationCount];
+		this.associationDecisions = new byte[associationCount];
+	}
+
+	/**
+	 * Internal method to add the decision of the next topic.
+	 */
+	void addTopic(final Topic topic, final byte decision, final String mainIdentifier, final boolean matching) {
+		topics[topicCount] = topic;
+		topicDecisions[topicCount] = decision;
+		mainIdentifiers[topicCount] = mainIdentifier;
+		matched[topicCount] = matching;
+		topicCount++;
+	}
+
+	/**
+	 * Internal method to add the decision of the next association.
+	 */
+	void addAssociation(final Association association, final byte decision) {
+		associations[associationCount] = association;
+		associationDecisions[associationCount] = decision;
+		associationCount++;
+	}
+
+	/**
+	 * Returns the number of topics.
+	 *
+	 * @return the number of topics
+	 */
+	public int getTopicCount() {
+		return topicCount;
+	}
+
+	/**
+	 * Returns the topic with the given number.
+	 *
+	 * @param id
+	 *            the number of the topic
+	 * @return the topic
+	 */
+	public Topic getTopic(final int id) {
+		return topics[id];
+	}
+
+	/**
+	 * Returns the decision of the topic with the given number.
+	 *
+	 * @param id
+	 *            the number of the topic
+	 * @return {@link #WRITE} or the reason to skip the topic
+	 */
+	public byte getTopicDecision(final int id) {
+		return topicDecisions[id];
+	}
+
+	/**
+	 * Returns the CTM notation of the main identifier of the topic with the
+	 * given number.
+	 *
+	 * @param id
+	 *            the number of the topic
+	 * @return the main identifier or <code>null</code> if the topic is
+	 *         skipped or the identifier is kept by the identity table
+	 */
+	public String getMainIdentifier(final int id) {
+		return mainIdentifiers[id];
+	}
+
+	/**
+	 * Checks if template matchings exist for the topic with the given number.
+	 *
+	 * @param id
+	 *            the number of the topic
+	 * @return <code>true</code> if the topic has template matchings
+	 */
+	public boolean hasMatchings(final int id) {
+		return matched[id];
+	}
+
+	/**
+	 * Returns the number of associations.
+	 *
+	 * @return the number of associations
+	 */
+	public int getAssociationCount() {
+		return associationCount;
+	}
+
+	/**
+	 * Returns the association with the given number.
+	 *
+	 * @param id
+	 *            the number of the association
+	 * @return the association
+	 */
+	public Association getAssociation(final int id) {
+		return associations[id];
+	}
+
+	/**
+	 * Returns the decision of the association with the given number.
+	 *
+	 * @param id
+	 *            the number of the association
+	 * @return {@link #WRITE} or the reason to skip the association
+	 */
+	public byte getAssociationDecision(final int id) {
+		return associationDecisions[id];
+	}
+
+}
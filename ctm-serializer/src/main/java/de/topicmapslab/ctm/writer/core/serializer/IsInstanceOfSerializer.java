@@ -10,6 +10,7 @@ package de.topicmapslab.ctm.writer.core.serializer;
 
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.ISA;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.TABULATOR;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
 import java.util.HashSet;
@@ -22,6 +23,7 @@ import org.tmapi.core.TopicMap;
 
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 import de.topicmapslab.identifier.TmdmSubjectIdentifier;
 
@@ -65,7 +67,8 @@ public class IsInstanceOfSerializer implements ISerializer<Topic> {
 		 */
 		boolean addTail = false;
 		Set<Topic> types = instance.getTypes();
-		for (Topic type : types) {
+		for (Topic type : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(),
+				writer.getProperties(), types)) {
 			/*
 			 * add to buffer
 			 */
@@ -83,9 +86,10 @@ public class IsInstanceOfSerializer implements ISerializer<Topic> {
 				}
 				// write the tabs before the rest to omit whitespace between tabs and "isa"
 				buffer.append(TABULATOR);
-				buffer.append(true, ISA, writer
-						.getCtmIdentity().getMainIdentifier(
-								writer.getProperties(), type).toString());
+				buffer.append(ISA);
+				buffer.append(WHITESPACE);
+				writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+						writer.getProperties(), type);
 				addTail = true;
 			}
 		}
@@ -148,11 +152,12 @@ public class IsInstanceOfSerializer implements ISerializer<Topic> {
 						buffer.appendTailLine();
 						addTail = false;
 					}
-					buffer
-							.append(true, TABULATOR, ISA, writer
-									.getCtmIdentity().getMainIdentifier(
-											writer.getProperties(), newType)
-									.toString());
+					buffer.append(TABULATOR);
+					buffer.append(WHITESPACE);
+					buffer.append(ISA);
+					buffer.append(WHITESPACE);
+					writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+							writer.getProperties(), newType);
 					addTail = true;
 				}
 			}
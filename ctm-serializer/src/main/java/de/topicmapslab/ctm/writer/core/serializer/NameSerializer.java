@@ -10,6 +10,8 @@ package de.topicmapslab.ctm.writer.core.serializer;
 
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.COLON;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.NAME;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXBEGIN;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXEND;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.QUOTE;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.TABULATOR;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.TRIPPLEQUOTE;
@@ -23,7 +25,9 @@ import org.tmapi.core.Variant;
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.NoIdentityException;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
-import de.topicmapslab.ctm.writer.utility.CTMMainIdentifier;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
@@ -40,6 +44,12 @@ import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 public class NameSerializer implements ISerializer<Name> {
 
 	private static final String defaultNameIdentifier = "http://psi.topicmaps.org/iso13250/model/topic-name";
+
+	/**
+	 * the CTM notations of the main identifier of the default name type of
+	 * TMDM, with or without brackets and identity markers
+	 */
+	private static final String[] defaultNameTypes = getDefaultNameTypes();
 	
 	/**
 	 * Method to convert the given construct to its specific CTM string. The result should be written to the given
@@ -57,20 +67,41 @@ public class NameSerializer implements ISerializer<Name> {
 	 */
 	public static boolean serialize(CTMTopicMapWriter writer, Name name, ICTMWriter buffer)
 			throws SerializerException, IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		if (statistics == null) {
+			return serializeName(writer, name, buffer);
+		}
+		statistics.begin(Kind.NAME);
+		try {
+			return serializeName(writer, name, buffer);
+		} finally {
+			statistics.end();
+		}
+	}
+
+	/**
+	 * Internal method to write the given name.
+	 */
+	private static boolean serializeName(CTMTopicMapWriter writer, Name name, ICTMWriter buffer)
+			throws SerializerException, IOException {
 
 		/*
 		 * begin name definition
 		 */
 		// write the tabs before the rest to omit whitespace between tabs and "-"
 		buffer.append(TABULATOR);
-		buffer.append(false, NAME, WHITESPACE);
+		buffer.append(NAME);
+		buffer.append(WHITESPACE);
 		try {
 			/*
 			 * add type if it is not default name type of TMDM
 			 */
-			CTMMainIdentifier mainIdentifier = writer.getCtmIdentity().getMainIdentifier(writer.getProperties(), name.getType());
-			if ((!mainIdentifier.getIdentifier().equals(defaultNameIdentifier)) && (!"tmdm:topic-name".equals(mainIdentifier.getIdentifier()))) {
-				buffer.append(false, mainIdentifier.toString(), WHITESPACE, COLON, WHITESPACE);
+			if (!writer.getCtmIdentity().isRenderedMainIdentifier(writer.getProperties(), name.getType(),
+					defaultNameTypes)) {
+				writer.getCtmIdentity().appendRenderedMainIdentifier(buffer, writer.getProperties(), name.getType());
+				buffer.append(WHITESPACE);
+				buffer.append(COLON);
+				buffer.append(WHITESPACE);
 			}
 		} catch (NoIdentityException e) {
 			// VOID
@@ -78,10 +109,11 @@ public class NameSerializer implements ISerializer<Name> {
 		/*
 		 * append value
 		 */
-		if (name.getValue().contains("\""))
-			buffer.append(false, TRIPPLEQUOTE, name.getValue(), TRIPPLEQUOTE);
+		final String value = name.getValue();
+		if (value.contains(QUOTE))
+			DatatypeAwareSerializer.appendEnclosed(TRIPPLEQUOTE, value, buffer);
 		else
-			buffer.append(false, QUOTE, name.getValue(), QUOTE);
+			DatatypeAwareSerializer.appendEnclosed(QUOTE, value, buffer);
 
 		/*
 		 * add scope if exists
@@ -100,7 +132,8 @@ public class NameSerializer implements ISerializer<Name> {
 		/*
 		 * add variants if exists
 		 */
-		for (Variant variant : name.getVariants()) {
+		for (Variant variant : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+				name.getVariants())) {
 			/*
 			 * redirect to variant serializer
 			 */
@@ -128,18 +161,40 @@ public class NameSerializer implements ISerializer<Name> {
 	public static boolean serialize(final CTMTopicMapWriter writer, final String value, final String type,
 			ICTMWriter buffer) throws SerializerException, IOException {
 
-		buffer.append(true, TABULATOR, NAME, WHITESPACE);
+		buffer.append(TABULATOR);
+		buffer.append(WHITESPACE);
+		buffer.append(NAME);
+		buffer.append(WHITESPACE);
+		buffer.append(WHITESPACE);
 		if (type != null) {
-			buffer.append(false, type, COLON);
+			buffer.append(type);
+			buffer.append(COLON);
 		}
 
 		if (value.startsWith("$")) {
-			buffer.append(false, value);
+			buffer.append(value);
 		} else if (value.contains(QUOTE)) {
-			buffer.append(false, TRIPPLEQUOTE, value, TRIPPLEQUOTE);
+			DatatypeAwareSerializer.appendEnclosed(TRIPPLEQUOTE, value, buffer);
 		} else {
-			buffer.append(false, QUOTE, value, QUOTE);
+			DatatypeAwareSerializer.appendEnclosed(QUOTE, value, buffer);
 		}
 		return true;
 	}
+
+	/**
+	 * Internal method to create the CTM notations of the main identifier of the default name type of TMDM.
+	 */
+	private static String[] getDefaultNameTypes() {
+		String[] iris = { defaultNameIdentifier, "tmdm:topic-name" };
+		String[] markers = { "", "^", "=" };
+		String[] identifiers = new String[iris.length * markers.length * 2];
+		int i = 0;
+		for (String iri : iris) {
+			for (String marker : markers) {
+				identifiers[i++] = marker + iri;
+				identifiers[i++] = marker + PREFIXBEGIN + iri + PREFIXEND;
+			}
+		}
+		return identifiers;
+	}
 }
@@ -18,6 +18,8 @@ import org.tmapi.core.Occurrence;
 
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
@@ -51,14 +53,33 @@ public class OccurrenceSerializer implements ISerializer<Occurrence> {
 	 */
 	public static boolean serialize(CTMTopicMapWriter writer,
 			Occurrence occurrence, ICTMWriter buffer) throws SerializerException, IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		if (statistics == null) {
+			return serializeOccurrence(writer, occurrence, buffer);
+		}
+		statistics.begin(Kind.OCCURRENCE);
+		try {
+			return serializeOccurrence(writer, occurrence, buffer);
+		} finally {
+			statistics.end();
+		}
+	}
+
+	/**
+	 * Internal method to write the given occurrence.
+	 */
+	private static boolean serializeOccurrence(CTMTopicMapWriter writer,
+			Occurrence occurrence, ICTMWriter buffer) throws SerializerException, IOException {
 
 		/*
 		 * begin occurrence-definition block
 		 */
-		buffer.append(false, TABULATOR, 
-				writer.getCtmIdentity().getMainIdentifier(
-						writer.getProperties(), occurrence.getType())
-						.toString(), WHITESPACE, COLON, WHITESPACE);
+		buffer.append(TABULATOR);
+		writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+				writer.getProperties(), occurrence.getType());
+		buffer.append(WHITESPACE);
+		buffer.append(COLON);
+		buffer.append(WHITESPACE);
 
 		/*
 		 * add value and data-type
@@ -105,7 +126,13 @@ public class OccurrenceSerializer implements ISerializer<Occurrence> {
 			Object datatype, final String type, ICTMWriter buffer)
 			throws SerializerException, IOException {
 
-		buffer.append(true, TABULATOR, type, COLON, WHITESPACE);
+		buffer.append(TABULATOR);
+		buffer.append(WHITESPACE);
+		buffer.append(type);
+		buffer.append(WHITESPACE);
+		buffer.append(COLON);
+		buffer.append(WHITESPACE);
+		buffer.append(WHITESPACE);
 
 		/*
 		 * add value and data-type
@@ -14,11 +14,13 @@ import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXEND;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.tmapi.core.TopicMap;
 
+import de.topicmapslab.common.tools.prefix.core.DomainQnameProvider;
 import de.topicmapslab.common.tools.prefix.core.PrefixIdentifier;
 import de.topicmapslab.ctm.writer.core.PrefixHandler;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
@@ -56,15 +58,62 @@ public class PrefixesSerializer implements ISerializer<TopicMap> {
 	public static boolean serialize(PrefixHandler prefixHandler,
 			boolean autoDetect, TopicMap topicMap, ICTMWriter buffer)
 			throws SerializerException, IOException {
+		return serialize(prefixHandler, autoDetect, 1, topicMap, buffer);
+	}
+
+	/**
+	 * Export the prefix definitions of the current writer instance. The
+	 * prefixes are detected by the given number of threads.
+	 * 
+	 * @param prefixHandler
+	 *            the prefix handler
+	 * @param autoDetect
+	 *            flag indicates if the prefixes should detect automatically
+	 * @param threads
+	 *            the number of threads detecting the prefixes
+	 * @param topicMap
+	 *            the topic map
+	 * @param buffer
+	 *            the CTM buffer
+	 * @return <code>true</code> if the prefixes were exported correctly,
+	 *         <code>false</code> otherwise.
+	 * @throws SerializerException
+	 *             thrown if operation fails
+	 */
+	public static boolean serialize(PrefixHandler prefixHandler,
+			boolean autoDetect, int threads, TopicMap topicMap,
+			ICTMWriter buffer) throws SerializerException, IOException {
 
 		boolean result = false;
 		/*
 		 * try to identify all prefixes of the topic map
 		 */
 		if (autoDetect) {
-			Map<String, String> prefixes = PrefixIdentifier.prefixMap(topicMap);
+			Map<String, String> detected = PrefixIdentifier.prefixMap(topicMap,
+					new DomainQnameProvider(), threads);
+			Map<String, String> prefixes = new HashMap<String, String>();
+			for (Entry<String, String> prefix : detected.entrySet()) {
+				String name = prefix.getKey();
+				/*
+				 * keep prefixes already registered for another IRI, e.g. the
+				 * prefix of the generated identifiers
+				 */
+				String iri = prefixHandler.getPrefix(name);
+				if (iri != null && !iri.equals(prefix.getValue())) {
+					for (int i = 2; i < Integer.MAX_VALUE; i++) {
+						final String tmp = prefix.getKey() + i;
+						if (!prefixHandler.isKnownPrefix(tmp)
+								&& !detected.containsKey(tmp)
+								&& !prefixes.containsKey(tmp)) {
+							name = tmp;
+							break;
+						}
+					}
+				}
+				prefixes.put(name, prefix.getValue());
+			}
 
-			prefixHandler.getPrefixMap().putAll(prefixes);
+			prefixHandler.setPrefixes(prefixes);
 		}
 		/*
 		 * iterate over entries
@@ -9,6 +9,7 @@
 package de.topicmapslab.ctm.writer.core.serializer;
 
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.REIFIER;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
 
@@ -50,9 +51,10 @@ public class ReifiableSerializer implements ISerializer<Reifiable> {
 			Reifiable reifiable, ICTMWriter buffer) throws SerializerException, IOException {
 
 		if (reifiable.getReifier() != null) {
-			buffer.append(true, REIFIER, writer.getCtmIdentity()
-					.getMainIdentifier(writer.getProperties(),
-							reifiable.getReifier()).toString());
+			buffer.append(REIFIER);
+			buffer.append(WHITESPACE);
+			writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+					writer.getProperties(), reifiable.getReifier());
 			return true;
 		}
 		return false;
@@ -9,6 +9,7 @@
 package de.topicmapslab.ctm.writer.core.serializer;
 
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.COLON;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
 
@@ -50,10 +51,13 @@ public class RoleSerializer implements ISerializer<Role> {
 	public static boolean serialize(CTMTopicMapWriter writer, Role role,
 			ICTMWriter buffer) throws SerializerException, IOException {
 
-		buffer.append(true, writer.getCtmIdentity().getMainIdentifier(
-				writer.getProperties(), role.getType()).toString(), COLON,
-				writer.getCtmIdentity().getMainIdentifier(
-						writer.getProperties(), role.getPlayer()).toString());
+		writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+				writer.getProperties(), role.getType());
+		buffer.append(WHITESPACE);
+		buffer.append(COLON);
+		buffer.append(WHITESPACE);
+		writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+				writer.getProperties(), role.getPlayer());
 
 		ReifiableSerializer.serialize(writer, role, buffer);
 
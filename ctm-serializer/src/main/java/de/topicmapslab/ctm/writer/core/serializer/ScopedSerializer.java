@@ -19,6 +19,7 @@ import org.tmapi.core.Topic;
 
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
@@ -53,15 +54,17 @@ public class ScopedSerializer implements ISerializer<Scoped> {
 			ICTMWriter buffer) throws SerializerException, IOException {
 		if (!scoped.getScope().isEmpty()) {
 			boolean first = true;
-			for (Topic theme : scoped.getScope()) {
+			for (Topic theme : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+					scoped.getScope())) {
 				if (first) {
 					buffer.append(SCOPE);
 					first = false;
 				} else {
-					buffer.append(false, COMMA, WHITESPACE);
+					buffer.append(COMMA);
+					buffer.append(WHITESPACE);
 				}
-				buffer.append(writer.getCtmIdentity().getMainIdentifier(
-						writer.getProperties(), theme).toString());
+				writer.getCtmIdentity().appendRenderedMainIdentifier(buffer,
+						writer.getProperties(), theme);
 			}
 			return true;
 		}
@@ -12,14 +12,28 @@ import static de.topicmapslab.ctm.writer.utility.CTMTokens.UTF8ENCODING;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.VERSION;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.tmapi.core.Association;
 import org.tmapi.core.Construct;
+import org.tmapi.core.Locator;
 import org.tmapi.core.Name;
 import org.tmapi.core.Occurrence;
 import org.tmapi.core.Role;
@@ -27,16 +41,27 @@ import org.tmapi.core.Topic;
 import org.tmapi.core.TopicMap;
 import org.tmapi.core.Variant;
 
+import de.topicmapslab.ctm.writer.core.CTMExportControl;
+import de.topicmapslab.ctm.writer.core.CTMExportPhase;
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
 import de.topicmapslab.ctm.writer.core.PrefixHandler;
 import de.topicmapslab.ctm.writer.exception.NoIdentityException;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
+import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
 import de.topicmapslab.ctm.writer.templates.ITemplateScanner;
 import de.topicmapslab.ctm.writer.templates.Template;
 import de.topicmapslab.ctm.writer.templates.TemplateMatching;
 import de.topicmapslab.ctm.writer.templates.TemplateMerger;
 import de.topicmapslab.ctm.writer.templates.TemplateSerializer;
 import de.topicmapslab.ctm.writer.templates.autodetection.TemplateDetection;
+import de.topicmapslab.ctm.writer.utility.CTMBlockSorter;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
+import de.topicmapslab.ctm.writer.utility.CTMConstructSet;
+import de.topicmapslab.ctm.writer.utility.CTMFingerprintIndex;
+import de.topicmapslab.ctm.writer.utility.CTMShardWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 import de.topicmapslab.identifier.TmdmSubjectIdentifier;
 
@@ -80,6 +105,11 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 	private final Map<Construct, Set<TemplateMatching>> constructMatchings = new HashMap<Construct, Set<TemplateMatching>>();
 	private final Set<Construct> ignoredConstructs = new HashSet<Construct>();
 
+	/**
+	 * the segment size of the buffers used by the parallel rendering
+	 */
+	private static final int BLOCK_SEGMENT_SIZE = 512;
+
 	/**
 	 * Constructor 
 	 * 
@@ -91,6 +121,29 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 		this.writer = writer;
 	}
 
+	/**
+	 * Constructor of the serializer of one export session. The templates and
+	 * the ignored constructs added to the given serializer are copied, the
+	 * templates detected and the matchings found by this serializer are
+	 * never added to the given serializer.
+	 * 
+	 * @param writer
+	 *            the topic map writer of the export session
+	 * @param prefixHandler
+	 *            the prefix handler of the export session
+	 * @param configuration
+	 *            the serializer containing the configured templates and
+	 *            ignored constructs
+	 */
+	public TopicMapSerializer(CTMTopicMapWriter writer, PrefixHandler prefixHandler,
+			TopicMapSerializer configuration) {
+		this(writer, prefixHandler);
+		synchronized (configuration) {
+			templates.addAll(configuration.templates);
+			ignoredConstructs.addAll(configuration.ignoredConstructs);
+		}
+	}
+
 	/**
 	 * add a template to the internal set. Templates are used to replace frequently used parts of topic blocks or
 	 * associations.
@@ -98,7 +151,7 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 	 * @param template
 	 *            the template to add
 	 */
-	public void addTemplate(Template template) {
+	public synchronized void addTemplate(Template template) {
 		templates.add(template);
 	}
 
@@ -107,6 +160,29 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 	 */
 	public boolean serialize(TopicMap topicMap, ICTMWriter buffer) throws SerializerException, IOException {
 
+		serializeProlog(buffer);
+		serializeHeader(topicMap, buffer);
+		serializeBody(topicMap, buffer);
+
+		/*
+		 * add comment
+		 */
+		buffer.appendCommentLine("Generated by the CTM Topic Map Writer.");
+
+		/*
+		 * end topic map definition
+		 */
+		return true;
+	}
+
+	/**
+	 * Method to write the prolog containing the encoding and the version to
+	 * the given output buffer.
+	 * 
+	 * @param buffer
+	 *            the output buffer
+	 */
+	public void serializeProlog(ICTMWriter buffer) throws IOException {
 		/*
 		 * add encoding
 		 */
@@ -119,6 +195,65 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 
 		// some empty lines
 		buffer.appendLine();
+	}
+
+	/**
+	 * Method to write the prefix definitions of the current writer instance
+	 * to the given output buffer, without detecting new prefixes. A prefix is
+	 * only valid in the file defining it, so each file of the sharded output
+	 * repeats the definitions written by
+	 * {@link #serializeHeader(TopicMap, ICTMWriter)}.
+	 * 
+	 * @param buffer
+	 *            the output buffer
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public void serializePrefixes(ICTMWriter buffer) throws SerializerException, IOException {
+		if (!prefixHandler.getPrefixMap().isEmpty()) {
+			buffer.appendCommentLine("prefixes");
+			buffer.appendLine();
+			PrefixesSerializer.serialize(prefixHandler, false, null, buffer);
+			buffer.appendLine();
+		}
+	}
+
+	/**
+	 * Method to write the header of the topic map to the given output buffer.
+	 * The header contains the reifier, the prefixes, the includes, the merge
+	 * maps and the template definitions. The template scanners are called
+	 * too, so the header has to be written before the body.
+	 * 
+	 * @param topicMap
+	 *            the topic map
+	 * @param buffer
+	 *            the output buffer
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public void serializeHeader(TopicMap topicMap, ICTMWriter buffer) throws SerializerException, IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		if (statistics == null) {
+			serializeTopicMapHeader(topicMap, buffer);
+			return;
+		}
+		statistics.begin(Kind.TOPIC_MAP);
+		try {
+			serializeTopicMapHeader(topicMap, buffer);
+		} finally {
+			statistics.end();
+		}
+	}
+
+	/**
+	 * Internal method to write the header of the given topic map.
+	 */
+	private void serializeTopicMapHeader(TopicMap topicMap, ICTMWriter buffer) throws SerializerException,
+			IOException {
+		/*
+		 * generate the identifiers of topics without usable identity
+		 */
+		writer.getCtmIdentity().generateIdentifiers(writer.getProperties(), topicMap);
 
 		/*
 		 * add reification of topic map if exists
@@ -131,11 +266,16 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 		/*
 		 * add prefixes if some exists
 		 */
+		final CTMExportControl control = writer.getExportControl();
+		if (control != null && writer.getProperties().isPrefixDetectionEnabled()) {
+			control.startPhase(CTMExportPhase.PREFIXES, 0);
+		}
 		if (writer.getProperties().isPrefixDetectionEnabled() || !prefixHandler.getPrefixMap().isEmpty()) {
 			buffer.appendCommentLine("prefixes");
 			buffer.appendLine();
-			PrefixesSerializer.serialize(prefixHandler, writer.getProperties().isPrefixDetectionEnabled(), topicMap,
-					buffer);
+			final int threads = writer.getProperties().isParallelRenderingEnabled() ? getParallelThreads() : 1;
+			PrefixesSerializer.serialize(prefixHandler, writer.getProperties().isPrefixDetectionEnabled(), threads,
+					topicMap, buffer);
 			buffer.appendLine();
 		}
 
@@ -166,6 +306,9 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 		 * try to auto-detect templates if properties is enabled
 		 */
 		if (writer.getProperties().isTemplateDetectionEnabled()) {
+			if (control != null) {
+				control.startPhase(CTMExportPhase.TEMPLATE_DETECTION, 0);
+			}
 			TemplateDetection detection = new TemplateDetection(writer, topicMap);
 			templates.addAll(detection.tryToDetectTemplates());
 		}
@@ -174,6 +317,9 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 		 * try to merge templates if properties is set
 		 */
 		if (writer.getProperties().isTemplateMergerEnabled()) {
+			if (control != null) {
+				control.startPhase(CTMExportPhase.TEMPLATE_MERGER, 0);
+			}
 			Collection<Template> templates = new TemplateMerger(writer.getProperties()).mergeTemplates(this.templates);
 			this.templates.clear();
 			this.templates.addAll(templates);
@@ -225,134 +371,909 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 			}
 			matchings.put(t, set);
 		}
+	}
 
+	/**
+	 * Method to write the topic and association blocks of the topic map to
+	 * the given output buffer. If the buffer is a {@link CTMShardWriter}, it
+	 * is notified after each block, so the output is never split inside a
+	 * block. If the parallel rendering is enabled (see
+	 * {@link CTMTopicMapWriterProperties#PARALLEL_ENABLED}), the blocks are
+	 * rendered by a thread pool and written in the same order as by the
+	 * sequential rendering. The statistics of an export are always recorded
+	 * sequentially. If the sorted output is enabled (see
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_SORTED_ENABLED}), the blocks
+	 * are rendered sequentially and written in the order of
+	 * {@link #getBlockOrder(TopicMap)}, each block is recorded by the
+	 * statistics while it is rendered. Otherwise the sequential rendering uses an
+	 * {@link ExportPlan} if enabled (see
+	 * {@link CTMTopicMapWriterProperties#PLAN_ENABLED}).
+	 * 
+	 * @param topicMap
+	 *            the topic map
+	 * @param buffer
+	 *            the output buffer
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public void serializeBody(TopicMap topicMap, ICTMWriter buffer) throws SerializerException, IOException {
+		if (writer.getProperties().isSortedOutputEnabled()) {
+			serializeBodySorted(topicMap, buffer);
+			return;
+		}
+		if (writer.getProperties().isParallelRenderingEnabled() && CTMStatisticsWriter.getInstance(buffer) == null) {
+			serializeBodyParallel(topicMap, buffer);
+			return;
+		}
+		if (writer.getProperties().isPlanEnabled()) {
+			serializeBody(createPlan(topicMap), buffer);
+			return;
+		}
 		/*
 		 * generate topic-definition blocks
 		 */
+		final CTMExportControl control = writer.getExportControl();
+		if (control != null) {
+			control.startPhase(CTMExportPhase.TOPICS, topicMap.getTopics().size());
+		}
 		buffer.appendCommentLine("topic definitions");
 		for (Topic topic : topicMap.getTopics()) {
-			if (ignoredConstructs.contains(topic)) {
-				continue;
-			}
-			/*
-			 * ignore TMDM topics
-			 */
-			if (!topic.getSubjectIdentifiers().isEmpty()
-					&& TmdmSubjectIdentifier.isTmdmSubjectIdentifier(topic.getSubjectIdentifiers().iterator().next()
-							.toExternalForm())) {
-				continue;
+			if (serializeTopicBlock(topic, buffer)) {
+				endOfBlock(buffer);
 			}
-			serializeTopicToCTM(topic, buffer);
 		}
 
 		/*
 		 * generate association-definition blocks
 		 */
+		if (control != null) {
+			control.startPhase(CTMExportPhase.ASSOCIATIONS, topicMap.getAssociations().size());
+		}
 		buffer.appendCommentLine("association definitions");
-		Set<Object> affectedConstronstructs = new HashSet<Object>();
 		for (Association association : topicMap.getAssociations()) {
-			if (ignoredConstructs.contains(association)) {
-				continue;
+			if (serializeAssociationBlock(association, buffer)) {
+				endOfBlock(buffer);
 			}
-			/*
-			 * already exported
-			 */
-			if (affectedConstronstructs.contains(association)) {
-				continue;
+		}
+	}
+
+	/**
+	 * Method to write the block of the given topic or association to the given
+	 * output buffer, if the construct is not ignored and not a TMDM
+	 * construct.
+	 * 
+	 * @param construct
+	 *            the topic or association
+	 * @param buffer
+	 *            the output buffer
+	 * @return <code>true</code> if a block was written
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public boolean serializeBlock(Construct construct, ICTMWriter buffer) throws SerializerException, IOException {
+		if (construct instanceof Topic) {
+			return serializeTopicBlock((Topic) construct, buffer);
+		} else if (construct instanceof Association) {
+			return serializeAssociationBlock((Association) construct, buffer);
+		}
+		return false;
+	}
+
+	/**
+	 * Method to write the block of the given topic or association to the given
+	 * output buffer as a stand-alone fragment. In contrast to
+	 * {@link #serializeBlock(Construct, ICTMWriter)} no empty line is added
+	 * after the block and TMDM topics and ignored constructs are written too,
+	 * like by {@link #serialize(Collection, ICTMWriter)}.
+	 *
+	 * @param construct
+	 *            the topic or association
+	 * @param buffer
+	 *            the output buffer
+	 * @return <code>true</code> if a block was written, <code>false</code>
+	 *         if the construct is no topic or association or has no identity
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public boolean serializeFragment(Construct construct, ICTMWriter buffer) throws SerializerException, IOException {
+		if (construct instanceof Topic) {
+			Topic topic = (Topic) construct;
+			String identifier = writer.getCtmIdentity().findRenderedMainIdentifier(writer.getProperties(), topic);
+			if (identifier == null) {
+				return false;
 			}
-			try {
-				writer.getCtmIdentity().getIdentity(writer.getProperties(), association.getType());
-				/*
-				 * ignore TMDM associations
-				 */
-				if (!association.getType().getSubjectIdentifiers().isEmpty()
-						&& TmdmSubjectIdentifier.isTmdmSubjectIdentifier(association.getType().getSubjectIdentifiers()
-								.iterator().next().toExternalForm())) {
-					continue;
-				}
-				affectedConstronstructs.addAll(AssociationSerializer.serialize(writer, new HashSet<Template>(),
-						association, buffer));
-				buffer.appendLine();
-			} catch (NoIdentityException e) {
+			TopicSerializer.serialize(writer, constructMatchings.get(topic), topic, identifier, buffer);
+			return true;
+		} else if (construct instanceof Association) {
+			Association association = (Association) construct;
+			if (writer.getCtmIdentity().findIdentity(writer.getProperties(), association.getType()) == null) {
+				return false;
 			}
+			Set<Template> none = Collections.emptySet();
+			AssociationSerializer.serialize(writer, none, association, buffer);
+			return true;
 		}
+		return false;
+	}
 
-		/*
-		 * add comment
+	/**
+	 * Returns the topics and associations of the given topic map in a
+	 * deterministic order, which does not depend on the topic maps engine or
+	 * the process. The topics are sorted by their stable identity and followed
+	 * by the associations, sorted by their type, scope, roles, item-identifiers
+	 * and reifier.
+	 * 
+	 * @param topicMap
+	 *            the topic map
+	 * @return the ordered topics and associations
+	 */
+	public List<Construct> getBlockOrder(TopicMap topicMap) {
+		List<OrderedConstruct> topics = new ArrayList<OrderedConstruct>(topicMap.getTopics().size());
+		for (Topic topic : topicMap.getTopics()) {
+			topics.add(new OrderedConstruct(getOrderKey(topic), topic));
+		}
+		Collections.sort(topics);
+		List<OrderedConstruct> associations = new ArrayList<OrderedConstruct>(topicMap.getAssociations().size());
+		for (Association association : topicMap.getAssociations()) {
+			associations.add(new OrderedConstruct(getOrderKey(association), association));
+		}
+		Collections.sort(associations);
+
+		List<Construct> order = new ArrayList<Construct>(topics.size() + associations.size());
+		for (OrderedConstruct construct : topics) {
+			order.add(construct.construct);
+		}
+		for (OrderedConstruct construct : associations) {
+			order.add(construct.construct);
+		}
+		return order;
+	}
+
+	/**
+	 * Internal method to return the key of the given topic or association used
+	 * to order the blocks (see {@link CTMConstructOrder}).
+	 */
+	private String getOrderKey(final Construct construct) {
+		return CTMConstructOrder.getOrderKey(writer.getCtmIdentity(), writer.getProperties(), construct);
+	}
+
+	/**
+	 * Internal class representing a construct with its order key.
+	 */
+	private static class OrderedConstruct implements Comparable<OrderedConstruct> {
+
+		/**
+		 * the order key
 		 */
-		buffer.appendCommentLine("Generated by the CTM Topic Map Writer.");
+		private final String key;
+
+		/**
+		 * the construct
+		 */
+		private final Construct construct;
+
+		/**
+		 * constructor
+		 */
+		private OrderedConstruct(String key, Construct construct) {
+			this.key = key;
+			this.construct = construct;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int compareTo(OrderedConstruct other) {
+			return key.compareTo(other.key);
+		}
+	}
+
+	/**
+	 * Returns a fingerprint of the state of this serializer after writing the
+	 * given header, i.e. the header itself, the prefixes and the names of the
+	 * templates. The state is used to verify that a resumed export continues
+	 * with the same state.
+	 * 
+	 * @param header
+	 *            the prolog and header written by
+	 *            {@link #serializeProlog(ICTMWriter)} and
+	 *            {@link #serializeHeader(TopicMap, ICTMWriter)}
+	 * @return the fingerprint
+	 */
+	public long getStateFingerprint(CTMBuffer header) {
+		CTMBuffer state = new CTMBuffer();
+		state.append(header);
+		for (Map.Entry<String, String> prefix : new TreeMap<String, String>(prefixHandler.getPrefixMap()).entrySet()) {
+			state.appendLine(prefix.getKey(), prefix.getValue());
+		}
+		List<String> names = new ArrayList<String>();
+		for (Template template : templates) {
+			names.add(template.getTemplateName());
+		}
+		Collections.sort(names);
+		for (String name : names) {
+			state.appendLine(name);
+		}
+		return state.fingerprint();
+	}
 
+	/**
+	 * Method to compute the decisions of the export of the given topic map in
+	 * one pass. The header has to be written before, because the template
+	 * scanners are called by {@link #serializeHeader(TopicMap, ICTMWriter)}.
+	 * 
+	 * @param topicMap
+	 *            the topic map
+	 * @return the export plan
+	 */
+	public ExportPlan createPlan(TopicMap topicMap) {
+		Collection<Topic> topics = topicMap.getTopics();
+		Collection<Association> associations = topicMap.getAssociations();
+		ExportPlan plan = new ExportPlan(topics.size(), associations.size());
 		/*
-		 * end topic map definition
+		 * the identity table keeps the identifiers more compact than the plan
 		 */
-		return true;
+		final boolean keepIdentifiers = writer.getCtmIdentity().getIdentityTable() == null;
+		for (Topic topic : topics) {
+			if (ignoredConstructs.contains(topic)) {
+				plan.addTopic(topic, ExportPlan.SKIP_IGNORED, null, false);
+			} else if (isTmdmTopic(topic)) {
+				plan.addTopic(topic, ExportPlan.SKIP_TMDM, null, false);
+			} else if (keepIdentifiers) {
+				String identifier = writer.getCtmIdentity().findRenderedMainIdentifier(writer.getProperties(), topic);
+				if (identifier == null) {
+					plan.addTopic(topic, ExportPlan.SKIP_NO_IDENTITY, null, false);
+				} else {
+					plan.addTopic(topic, ExportPlan.WRITE, identifier, constructMatchings.containsKey(topic));
+				}
+			} else if (!writer.getCtmIdentity().hasRenderedMainIdentifier(writer.getProperties(), topic)) {
+				plan.addTopic(topic, ExportPlan.SKIP_NO_IDENTITY, null, false);
+			} else {
+				plan.addTopic(topic, ExportPlan.WRITE, null, constructMatchings.containsKey(topic));
+			}
+		}
+		for (Association association : associations) {
+			if (ignoredConstructs.contains(association)) {
+				plan.addAssociation(association, ExportPlan.SKIP_IGNORED);
+			} else if (writer.getCtmIdentity().findIdentity(writer.getProperties(), association.getType()) == null) {
+				plan.addAssociation(association, ExportPlan.SKIP_NO_IDENTITY);
+			} else if (isTmdmTopic(association.getType())) {
+				plan.addAssociation(association, ExportPlan.SKIP_TMDM);
+			} else {
+				plan.addAssociation(association, ExportPlan.WRITE);
+			}
+		}
+		return plan;
 	}
 
 	/**
-	 * Method to convert the given constructs to its specific CTM strings. The result should be written to the given
-	 * output buffer.
+	 * Method to write the topic and association blocks of the given export
+	 * plan to the given output buffer.
 	 * 
-	 * @param constructs
-	 *            a set of topic map constructs to serialize
+	 * @param plan
+	 *            the export plan
 	 * @param buffer
 	 *            the output buffer
-	 * @return <code>true</code> if new content was written into buffer, <code>false</code> otherwise
 	 * @throws SerializerException
 	 *             Thrown if serialization failed.
 	 */
-	public boolean serialize(Collection<Construct> constructs, ICTMWriter buffer) throws SerializerException,
+	public void serializeBody(ExportPlan plan, ICTMWriter buffer) throws SerializerException, IOException {
+		/*
+		 * generate topic-definition blocks
+		 */
+		final CTMExportControl control = writer.getExportControl();
+		if (control != null) {
+			control.startPhase(CTMExportPhase.TOPICS, plan.getTopicCount());
+		}
+		buffer.appendCommentLine("topic definitions");
+		for (int id = 0; id < plan.getTopicCount(); id++) {
+			if (plan.getTopicDecision(id) == ExportPlan.WRITE) {
+				Topic topic = plan.getTopic(id);
+				String identifier = plan.getMainIdentifier(id);
+				if (identifier == null) {
+					identifier = writer.getCtmIdentity().findRenderedMainIdentifier(writer.getProperties(), topic);
+				}
+				TopicSerializer.serialize(writer, plan.hasMatchings(id) ? constructMatchings.get(topic) : null, topic,
+						identifier, buffer);
+				buffer.appendLine();
+				endOfBlock(buffer);
+			}
+		}
+
+		/*
+		 * generate association-definition blocks
+		 */
+		if (control != null) {
+			control.startPhase(CTMExportPhase.ASSOCIATIONS, plan.getAssociationCount());
+		}
+		buffer.appendCommentLine("association definitions");
+		Set<Template> none = Collections.emptySet();
+		for (int id = 0; id < plan.getAssociationCount(); id++) {
+			if (plan.getAssociationDecision(id) == ExportPlan.WRITE) {
+				AssociationSerializer.serialize(writer, none, plan.getAssociation(id), buffer);
+				buffer.appendLine();
+				endOfBlock(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to check if the given topic is a TMDM topic, identified
+	 * by its first subject-identifier.
+	 */
+	private boolean isTmdmTopic(final Topic topic) {
+		Set<Locator> subjectIdentifiers = topic.getSubjectIdentifiers();
+		return !subjectIdentifiers.isEmpty()
+				&& TmdmSubjectIdentifier.isTmdmSubjectIdentifier(subjectIdentifiers.iterator().next()
+						.toExternalForm());
+	}
+
+	/**
+	 * Internal method to write the topic and association blocks sorted by
+	 * their order keys. The rendered blocks are sorted by a
+	 * {@link CTMBlockSorter}, which spills sorted runs to temporary files if
+	 * the blocks exceed the run size (see
+	 * {@link CTMTopicMapWriterProperties#OUTPUT_SORTED_RUNSIZE}).
+	 */
+	private void serializeBodySorted(final TopicMap topicMap, final ICTMWriter buffer) throws SerializerException,
 			IOException {
+		long runSize = writer.getProperties().getSortedRunSize();
+		if (runSize <= 0) {
+			runSize = Long.MAX_VALUE;
+		}
 
 		/*
-		 * topic item store
+		 * generate topic-definition blocks
 		 */
-		Collection<Topic> topics = new HashSet<Topic>();
+		final CTMExportControl control = writer.getExportControl();
+		if (control != null) {
+			control.startPhase(CTMExportPhase.TOPICS, topicMap.getTopics().size());
+		}
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		buffer.appendCommentLine("topic definitions");
+		CTMBlockSorter sorter = new CTMBlockSorter(runSize);
+		try {
+			for (Topic topic : topicMap.getTopics()) {
+				if (control != null) {
+					control.check();
+				}
+				CTMBuffer block = new CTMBuffer(BLOCK_SEGMENT_SIZE);
+				if (serializeTopicBlock(topic, getBlockWriter(block, statistics))) {
+					sorter.add(getOrderKey(topic), block.toString());
+				}
+			}
+			writeSorted(sorter, buffer);
+		} finally {
+			sorter.close();
+		}
+
 		/*
-		 * association item store
+		 * generate association-definition blocks
 		 */
-		Collection<Association> associations = new HashSet<Association>();
+		if (control != null) {
+			control.startPhase(CTMExportPhase.ASSOCIATIONS, topicMap.getAssociations().size());
+		}
+		buffer.appendCommentLine("association definitions");
+		sorter = new CTMBlockSorter(runSize);
+		try {
+			for (Association association : topicMap.getAssociations()) {
+				if (control != null) {
+					control.check();
+				}
+				CTMBuffer block = new CTMBuffer(BLOCK_SEGMENT_SIZE);
+				if (serializeAssociationBlock(association, getBlockWriter(block, statistics))) {
+					sorter.add(getOrderKey(association), block.toString());
+				}
+			}
+			writeSorted(sorter, buffer);
+		} finally {
+			sorter.close();
+		}
+	}
+
+	/**
+	 * Internal method to return the writer rendering a block into the given
+	 * block buffer. If statistics are recorded, the block is rendered by a
+	 * statistics writer recording to the same statistics, so the bytes and
+	 * the time of the block are assigned to its kind and topic types.
+	 */
+	private ICTMWriter getBlockWriter(final CTMBuffer block, final CTMStatisticsWriter statistics) {
+		if (statistics == null) {
+			return block;
+		}
+		return new CTMStatisticsWriter(block, statistics.getStatistics());
+	}
+
+	/**
+	 * Internal method to write the blocks of the given sorter in sorted order.
+	 * The blocks were already recorded by the statistics while rendering, so
+	 * they are written to the target of the statistics writer.
+	 */
+	private void writeSorted(final CTMBlockSorter sorter, final ICTMWriter buffer) throws IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		final ICTMWriter target = statistics == null ? buffer : statistics.getTarget();
+		while (sorter.next()) {
+			target.append(sorter.getBlock());
+			endOfBlock(buffer);
+		}
+	}
 
+	/**
+	 * Internal method to write the topic block of the given topic if the topic
+	 * is not ignored and not a TMDM topic.
+	 * 
+	 * @return <code>true</code> if a block was written
+	 */
+	private boolean serializeTopicBlock(final Topic topic, final ICTMWriter buffer) throws SerializerException,
+			IOException {
+		if (ignoredConstructs.contains(topic)) {
+			return false;
+		}
 		/*
-		 * sort constructs by type
+		 * ignore TMDM topics
 		 */
-		for (Construct construct : constructs) {
+		if (!topic.getSubjectIdentifiers().isEmpty()
+				&& TmdmSubjectIdentifier.isTmdmSubjectIdentifier(topic.getSubjectIdentifiers().iterator().next()
+						.toExternalForm())) {
+			return false;
+		}
+		return serializeTopicToCTM(topic, buffer);
+	}
+
+	/**
+	 * Internal method to write the association block of the given association
+	 * if the association is not ignored and not a TMDM association. No
+	 * templates are used for associations, so an association block never
+	 * affects another association.
+	 * 
+	 * @return <code>true</code> if a block was written
+	 */
+	private boolean serializeAssociationBlock(final Association association, final ICTMWriter buffer)
+			throws SerializerException, IOException {
+		if (ignoredConstructs.contains(association)) {
+			return false;
+		}
+		try {
+			writer.getCtmIdentity().getIdentity(writer.getProperties(), association.getType());
+			/*
+			 * ignore TMDM associations
+			 */
+			if (!association.getType().getSubjectIdentifiers().isEmpty()
+					&& TmdmSubjectIdentifier.isTmdmSubjectIdentifier(association.getType().getSubjectIdentifiers()
+							.iterator().next().toExternalForm())) {
+				return false;
+			}
+			AssociationSerializer.serialize(writer, new HashSet<Template>(), association, buffer);
+			buffer.appendLine();
+			return true;
+		} catch (NoIdentityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Internal method to render the topic and association blocks in parallel.
+	 * The topics and associations are split into chunks, each rendered by one
+	 * task into a {@link CTMBuffer} per block. The chunks are written in the
+	 * original order, and at most two chunks per thread are kept in memory.
+	 * The templates, the matchings and the ignored constructs are not
+	 * modified while rendering, so they are read by all threads without
+	 * synchronization.
+	 */
+	private void serializeBodyParallel(final TopicMap topicMap, final ICTMWriter buffer)
+			throws SerializerException, IOException {
+		final int threads = getParallelThreads();
+		final int chunkSize = writer.getProperties().getParallelChunkSize();
+		final int maximumPending = threads * 2;
+		ExecutorService executor = createExecutor(threads);
+		LinkedList<Future<List<CTMBuffer>>> pending = new LinkedList<Future<List<CTMBuffer>>>();
+		final CTMExportControl control = writer.getExportControl();
+		try {
+			/*
+			 * generate topic-definition blocks
+			 */
+			if (control != null) {
+				control.startPhase(CTMExportPhase.TOPICS, topicMap.getTopics().size());
+			}
+			buffer.appendCommentLine("topic definitions");
+			List<Construct> chunk = new ArrayList<Construct>(chunkSize);
+			for (Topic topic : topicMap.getTopics()) {
+				chunk.add(topic);
+				if (chunk.size() == chunkSize) {
+					submitChunk(executor, pending, chunk, maximumPending, buffer);
+					chunk = new ArrayList<Construct>(chunkSize);
+				}
+			}
+			submitChunk(executor, pending, chunk, 0, buffer);
+
+			/*
+			 * generate association-definition blocks
+			 */
+			if (control != null) {
+				control.startPhase(CTMExportPhase.ASSOCIATIONS, topicMap.getAssociations().size());
+			}
+			buffer.appendCommentLine("association definitions");
+			chunk = new ArrayList<Construct>(chunkSize);
+			for (Association association : topicMap.getAssociations()) {
+				chunk.add(association);
+				if (chunk.size() == chunkSize) {
+					submitChunk(executor, pending, chunk, maximumPending, buffer);
+					chunk = new ArrayList<Construct>(chunkSize);
+				}
+			}
+			submitChunk(executor, pending, chunk, 0, buffer);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Internal method to return the number of rendering threads.
+	 */
+	private int getParallelThreads() {
+		int threads = writer.getProperties().getParallelThreads();
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return threads;
+	}
+
+	/**
+	 * Internal method to create the thread pool of the parallel rendering.
+	 */
+	private ExecutorService createExecutor(final int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CTM rendering");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Internal method to submit a chunk of topics or associations to the
+	 * given executor. Afterwards the oldest chunks are written to the output
+	 * buffer until no more than the given number of chunks are pending.
+	 */
+	private void submitChunk(final ExecutorService executor, final LinkedList<Future<List<CTMBuffer>>> pending,
+			final List<Construct> chunk, final int maximumPending, final ICTMWriter buffer)
+			throws SerializerException, IOException {
+		if (!chunk.isEmpty()) {
+			pending.add(executor.submit(new Callable<List<CTMBuffer>>() {
+				public List<CTMBuffer> call() throws Exception {
+					return renderChunk(chunk);
+				}
+			}));
+		}
+		while (pending.size() > maximumPending) {
+			for (CTMBuffer block : waitForChunk(pending.removeFirst())) {
+				block.writeTo(buffer);
+				endOfBlock(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to render the blocks of the given topics or
+	 * associations.
+	 */
+	private List<CTMBuffer> renderChunk(final List<Construct> chunk) throws SerializerException, IOException {
+		List<CTMBuffer> blocks = new ArrayList<CTMBuffer>(chunk.size());
+		CTMBuffer block = new CTMBuffer(BLOCK_SEGMENT_SIZE);
+		for (Construct construct : chunk) {
+			boolean written;
 			if (construct instanceof Topic) {
-				topics.add((Topic) construct);
-			} else if (construct instanceof Name) {
-				topics.add(((Name) construct).getParent());
-			} else if (construct instanceof Occurrence) {
-				topics.add(((Occurrence) construct).getParent());
-			} else if (construct instanceof Variant) {
-				topics.add(((Variant) construct).getParent().getParent());
-			} else if (construct instanceof Association) {
-				associations.add(((Association) construct));
-			} else if (construct instanceof Role) {
-				associations.add(((Role) construct).getParent());
+				written = serializeTopicBlock((Topic) construct, block);
+			} else {
+				written = serializeAssociationBlock((Association) construct, block);
+			}
+			if (written) {
+				blocks.add(block);
+				block = new CTMBuffer(BLOCK_SEGMENT_SIZE);
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Internal method to wait for the result of a rendering task.
+	 */
+	private <T> T waitForChunk(final Future<T> future) throws SerializerException, IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the rendering.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SerializerException) {
+				throw (SerializerException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SerializerException(cause);
+		}
+	}
+
+	/**
+	 * Method to write the topic and association blocks changed since the
+	 * export described by the given fingerprint index. Every block is
+	 * rendered and fingerprinted by a thread pool (see
+	 * {@link CTMTopicMapWriterProperties#PARALLEL_THREADS}), but only the
+	 * blocks added or changed are written to the given output buffer, in the
+	 * same order as by {@link #serializeBody(TopicMap, ICTMWriter)}. A topic
+	 * block is identified by the stable identity of the topic (see
+	 * {@link CTMConstructOrder#getKey}), so a changed topic block is
+	 * replaced by the CTM parser merging the topics. An association has no
+	 * stable identity, it is identified by the fingerprint of its order key
+	 * (see {@link CTMConstructOrder#getOrderKey}), i.e. of its type, scope,
+	 * roles, item-identifiers and reifier, independently of the rendered
+	 * block. Therefore a changed association is reported as removed and added.
+	 * The fingerprints only ignore the order of the engine if the sorted
+	 * output is enabled. The keys of the removed blocks are written as
+	 * comments after the blocks.
+	 * 
+	 * @param topicMap
+	 *            the topic map
+	 * @param previous
+	 *            the fingerprints of the last export, empty for the first one
+	 * @param next
+	 *            the index to store the fingerprints of this export to
+	 * @param buffer
+	 *            the output buffer
+	 * @return the sorted keys of the blocks removed since the last export
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public List<String> serializeDelta(TopicMap topicMap, final CTMFingerprintIndex previous,
+			CTMFingerprintIndex next, ICTMWriter buffer) throws SerializerException, IOException {
+		final int threads = getParallelThreads();
+		final int chunkSize = writer.getProperties().getParallelChunkSize();
+		final int maximumPending = threads * 2;
+		ExecutorService executor = createExecutor(threads);
+		LinkedList<Future<List<DeltaBlock>>> pending = new LinkedList<Future<List<DeltaBlock>>>();
+		try {
+			/*
+			 * generate changed topic-definition blocks
+			 */
+			buffer.appendCommentLine("topic definitions");
+			List<Construct> chunk = new ArrayList<Construct>(chunkSize);
+			for (Topic topic : topicMap.getTopics()) {
+				chunk.add(topic);
+				if (chunk.size() == chunkSize) {
+					submitDeltaChunk(executor, pending, chunk, previous, next, maximumPending, buffer);
+					chunk = new ArrayList<Construct>(chunkSize);
+				}
 			}
+			submitDeltaChunk(executor, pending, chunk, previous, next, 0, buffer);
+
+			/*
+			 * generate changed association-definition blocks
+			 */
+			buffer.appendCommentLine("association definitions");
+			chunk = new ArrayList<Construct>(chunkSize);
+			for (Association association : topicMap.getAssociations()) {
+				chunk.add(association);
+				if (chunk.size() == chunkSize) {
+					submitDeltaChunk(executor, pending, chunk, previous, next, maximumPending, buffer);
+					chunk = new ArrayList<Construct>(chunkSize);
+				}
+			}
+			submitDeltaChunk(executor, pending, chunk, previous, next, 0, buffer);
+		} finally {
+			executor.shutdownNow();
 		}
 
 		/*
-		 * generate topic-definition blocks
+		 * list removed blocks
 		 */
-		// buffer.appendCommentLine("topic definitions");
-		for (Topic topic : topics) {
-			serializeTopicToCTM(topic, buffer);
+		List<String> removed = new ArrayList<String>();
+		for (String key : previous.getKeys()) {
+			if (next.getFingerprint(key) == null) {
+				removed.add(key);
+			}
+		}
+		Collections.sort(removed);
+		if (!removed.isEmpty()) {
+			buffer.appendCommentLine("removed definitions");
+			for (String key : removed) {
+				buffer.appendCommentLine(key);
+			}
 			buffer.appendLine();
 		}
+		return removed;
+	}
 
-		/*
-		 * generate association-definition blocks
+	/**
+	 * Internal class representing a fingerprinted block of the delta export.
+	 */
+	private static class DeltaBlock {
+
+		/**
+		 * the key of the block
 		 */
-		// buffer.appendCommentLine("association definitions");
-		for (Association association : associations) {
-			try {
-				writer.getCtmIdentity().getIdentity(writer.getProperties(), association.getType());
-				/*
-				 * ignore TMDM associations
-				 */
-				AssociationSerializer.serialize(writer, new HashSet<Template>(), association, buffer);
-				buffer.appendLine();
-			} catch (NoIdentityException e) {
+		private final String key;
+
+		/**
+		 * the fingerprint of the block
+		 */
+		private final long fingerprint;
+
+		/**
+		 * the rendered block or <code>null</code> if unchanged
+		 */
+		private final CTMBuffer block;
+
+		/**
+		 * constructor
+		 */
+		private DeltaBlock(String key, long fingerprint, CTMBuffer block) {
+			this.key = key;
+			this.fingerprint = fingerprint;
+			this.block = block;
+		}
+	}
+
+	/**
+	 * Internal method to submit a chunk of topics or associations of the
+	 * delta export to the given executor. Afterwards the oldest chunks are
+	 * stored to the new index and their changed blocks are written to the
+	 * output buffer until no more than the given number of chunks are
+	 * pending.
+	 */
+	private void submitDeltaChunk(final ExecutorService executor,
+			final LinkedList<Future<List<DeltaBlock>>> pending, final List<Construct> chunk,
+			final CTMFingerprintIndex previous, final CTMFingerprintIndex next, final int maximumPending,
+			final ICTMWriter buffer) throws SerializerException, IOException {
+		if (!chunk.isEmpty()) {
+			pending.add(executor.submit(new Callable<List<DeltaBlock>>() {
+				public List<DeltaBlock> call() throws Exception {
+					return renderDeltaChunk(chunk, previous);
+				}
+			}));
+		}
+		while (pending.size() > maximumPending) {
+			for (DeltaBlock block : waitForChunk(pending.removeFirst())) {
+				next.put(block.key, block.fingerprint);
+				if (block.block != null) {
+					block.block.writeTo(buffer);
+					endOfBlock(buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to render and fingerprint the blocks of the given
+	 * topics or associations. The previous index is only read, so it is
+	 * shared by all threads without synchronization.
+	 */
+	private List<DeltaBlock> renderDeltaChunk(final List<Construct> chunk, final CTMFingerprintIndex previous)
+			throws SerializerException, IOException {
+		List<DeltaBlock> blocks = new ArrayList<DeltaBlock>(chunk.size());
+		for (Construct construct : chunk) {
+			CTMBuffer block = new CTMBuffer(BLOCK_SEGMENT_SIZE);
+			String key = null;
+			if (construct instanceof Topic) {
+				Topic topic = (Topic) construct;
+				if (!serializeTopicBlock(topic, block)) {
+					continue;
+				}
+				key = CTMConstructOrder.getKey(writer.getCtmIdentity(), writer.getProperties(), topic);
+				if (key == null) {
+					continue;
+				}
+			} else if (!serializeAssociationBlock((Association) construct, block)) {
+				continue;
+			}
+			if (key == null) {
+				CTMBuffer orderKey = new CTMBuffer();
+				orderKey.append(CTMConstructOrder.getOrderKey(writer.getCtmIdentity(), writer.getProperties(),
+						construct));
+				key = "association " + Long.toHexString(orderKey.fingerprint());
+			}
+			long fingerprint = block.fingerprint();
+			Long last = previous.getFingerprint(key);
+			boolean changed = last == null || last.longValue() != fingerprint;
+			blocks.add(new DeltaBlock(key, fingerprint, changed ? block : null));
+		}
+		return blocks;
+	}
+
+	/**
+	 * Internal method to notify a sharded output buffer about the end of a
+	 * topic or association block. The sharded output buffer may be decorated
+	 * by a {@link CTMStatisticsWriter}. The cancellation of a controlled
+	 * export is checked too.
+	 * 
+	 * @param buffer
+	 *            the output buffer
+	 */
+	private final void endOfBlock(final ICTMWriter buffer) throws IOException {
+		final CTMExportControl control = writer.getExportControl();
+		if (control != null) {
+			control.endOfBlock();
+		}
+		ICTMWriter target = buffer;
+		if (target instanceof CTMStatisticsWriter) {
+			target = ((CTMStatisticsWriter) target).getTarget();
+		}
+		if (target instanceof CTMShardWriter) {
+			((CTMShardWriter) target).endOfBlock();
+		}
+	}
+
+	/**
+	 * Method to convert the given constructs to its specific CTM strings. The result should be written to the given
+	 * output buffer. The constructs are streamed by
+	 * {@link #serialize(Iterator, ICTMWriter)}, so the blocks are written in the order of the collection.
+	 * 
+	 * @param constructs
+	 *            a set of topic map constructs to serialize
+	 * @param buffer
+	 *            the output buffer
+	 * @return <code>true</code> if new content was written into buffer, <code>false</code> otherwise
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public boolean serialize(Collection<Construct> constructs, ICTMWriter buffer) throws SerializerException,
+			IOException {
+		return serialize(constructs.iterator(), buffer);
+	}
+
+	/**
+	 * Method to convert the constructs returned by the given iterator to their specific CTM strings. Names,
+	 * occurrences and variants are written as part of the block of their topic, roles as part of the block of their
+	 * association. Each block is written as soon as the iterator returns its first construct, so the constructs are
+	 * never collected. Only the topics and associations already written are remembered, by a compact
+	 * {@link CTMConstructSet}.
+	 * 
+	 * @param constructs
+	 *            an iterator over the constructs to serialize
+	 * @param buffer
+	 *            the output buffer
+	 * @return <code>true</code> if new content was written into buffer, <code>false</code> otherwise
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public boolean serialize(Iterator<? extends Construct> constructs, ICTMWriter buffer) throws SerializerException,
+			IOException {
+		CTMConstructSet written = new CTMConstructSet();
+		while (constructs.hasNext()) {
+			Construct construct = constructs.next();
+			/*
+			 * redirect to the construct of the block
+			 */
+			if (construct instanceof Name) {
+				construct = ((Name) construct).getParent();
+			} else if (construct instanceof Occurrence) {
+				construct = ((Occurrence) construct).getParent();
+			} else if (construct instanceof Variant) {
+				construct = ((Variant) construct).getParent().getParent();
+			} else if (construct instanceof Role) {
+				construct = ((Role) construct).getParent();
+			}
+
+			if (construct instanceof Topic) {
+				if (written.add(construct)) {
+					serializeTopicToCTM((Topic) construct, buffer);
+					buffer.appendLine();
+				}
+			} else if (construct instanceof Association) {
+				if (written.add(construct)) {
+					Association association = (Association) construct;
+					try {
+						writer.getCtmIdentity().getIdentity(writer.getProperties(), association.getType());
+						AssociationSerializer.serialize(writer, new HashSet<Template>(), association, buffer);
+						buffer.appendLine();
+					} catch (NoIdentityException e) {
+					}
+				}
 			}
 		}
 
@@ -401,7 +1322,7 @@ public class TopicMapSerializer implements ISerializer<TopicMap> {
 	 * @param the
 	 *            construct to ignore
 	 */
-	public void addIgnoredConstruct(Construct construct) {
+	public synchronized void addIgnoredConstruct(Construct construct) {
 		ignoredConstructs.add(construct);
 	}
 
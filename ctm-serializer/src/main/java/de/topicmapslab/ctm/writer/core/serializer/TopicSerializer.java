@@ -8,13 +8,19 @@
  */
 package de.topicmapslab.ctm.writer.core.serializer;
 
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.BRC;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.BRO;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.COMMA;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.ITEMIDENTIFIER;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.SUBJECTLOCATOR;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.TABULATOR;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.tmapi.core.Locator;
@@ -23,8 +29,11 @@ import org.tmapi.core.Occurrence;
 import org.tmapi.core.Topic;
 
 import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.exception.NoIdentityException;
 import de.topicmapslab.ctm.writer.exception.SerializerException;
 import de.topicmapslab.ctm.writer.templates.TemplateMatching;
+import de.topicmapslab.ctm.writer.utility.CTMConstructOrder;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
 import de.topicmapslab.ctm.writer.utility.ICTMWriter;
 
 /**
@@ -58,11 +67,62 @@ public class TopicSerializer implements ISerializer<Topic> {
 	 */
 	public static boolean serialize(CTMTopicMapWriter writer, Set<TemplateMatching> matchings, Topic topic,
 			ICTMWriter buffer) throws SerializerException, IOException {
+		final String mainIdentifier = writer.getCtmIdentity().getRenderedMainIdentifier(writer.getProperties(), topic);
+		return serialize(writer, matchings, topic, mainIdentifier, buffer);
+	}
+
+	/**
+	 * Method to convert the given construct to its specific CTM string using the given main identifier, e.g. resolved
+	 * by an {@link ExportPlan}. The result should be written to the given output buffer.
+	 * 
+	 * @param writer
+	 *            the CTM writer
+	 * @param adaptiveTemplates
+	 *            the template which can be used in combination with the given topic
+	 * @param topic
+	 *            the topic to serialize
+	 * @param mainIdentifier
+	 *            the CTM notation of the main identifier of the topic
+	 * @param buffer
+	 *            the output buffer
+	 * @return <code>true</code> if new content was written into buffer, <code>false</code> otherwise
+	 * @throws SerializerException
+	 *             Thrown if serialization failed.
+	 */
+	public static boolean serialize(CTMTopicMapWriter writer, Set<TemplateMatching> matchings, Topic topic,
+			String mainIdentifier, ICTMWriter buffer) throws SerializerException, IOException {
+		final CTMStatisticsWriter statistics = CTMStatisticsWriter.getInstance(buffer);
+		if (statistics == null) {
+			return serializeTopic(writer, matchings, topic, mainIdentifier, buffer);
+		}
+		/*
+		 * record the topic block for each of its types
+		 */
+		List<String> types = new ArrayList<String>();
+		for (Topic type : topic.getTypes()) {
+			try {
+				types.add(writer.getCtmIdentity().getRenderedMainIdentifier(writer.getProperties(), type));
+			} catch (NoIdentityException e) {
+				// VOID
+			}
+		}
+		statistics.beginTopic(types);
+		try {
+			return serializeTopic(writer, matchings, topic, mainIdentifier, buffer);
+		} finally {
+			statistics.end();
+		}
+	}
 
-		final String mainIdentifier = writer.getCtmIdentity().getMainIdentifier(writer.getProperties(), topic)
-				.toString();
+	/**
+	 * Internal method to write the topic block of the given topic.
+	 */
+	private static boolean serializeTopic(CTMTopicMapWriter writer, Set<TemplateMatching> matchings, Topic topic,
+			String mainIdentifier, ICTMWriter buffer) throws SerializerException, IOException {
 
-		buffer.append(mainIdentifier, WHITESPACE);
+		buffer.append(mainIdentifier);
+		buffer.append(WHITESPACE);
+		buffer.append(WHITESPACE);
 		boolean addNewLine = true;
 
 		/*
@@ -88,13 +148,18 @@ public class TopicSerializer implements ISerializer<Topic> {
 				}
 				buffer.append(TABULATOR);
 				affectedConstructs.addAll(matching.getAffectedConstructs());
-				buffer.append(matching.getTemplate().getTemplateName() + "(");
+				buffer.append(matching.getTemplate().getTemplateName());
+				buffer.append(BRO);
 				boolean first = true;
 				for (String arg : matching.getArgumentsAsString(writer)) {
-					buffer.append((first ? "" : ",") + arg);
+					if (!first) {
+						buffer.append(COMMA);
+					}
+					buffer.append(arg);
 					first = false;
 				}
-				buffer.append(");");
+				buffer.append(BRC);
+				buffer.append(TAIL);
 				addNewLine = true;
 			}
 		}
@@ -123,7 +188,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 		/*
 		 * add name entries if not affected by template-invocations
 		 */
-		for (Name name : topic.getNames()) {
+		for (Name name : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+				topic.getNames())) {
 			if (!affectedConstructs.contains(name)) {
 				/*
 				 * adding a new line after main identifier
@@ -146,7 +212,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 		/*
 		 * add occurrence entries if not affected by template-invocations
 		 */
-		for (Occurrence occurrence : topic.getOccurrences()) {
+		for (Occurrence occurrence : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+				topic.getOccurrences())) {
 			if (!affectedConstructs.contains(occurrence)) {
 				/*
 				 * adding a new line after main identifier
@@ -169,7 +236,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 		/*
 		 * add all subject-identifeir
 		 */
-		for (Locator locator : topic.getSubjectIdentifiers()) {
+		for (Locator locator : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+				topic.getSubjectIdentifiers())) {
 			if (affectedConstructs.contains(locator)) {
 				continue;
 			}
@@ -190,8 +258,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 					buffer.appendTailLine();
 					addTail = false;
 				}
-				buffer.append(false, TABULATOR);
-				buffer.append(false, identity);
+				buffer.append(TABULATOR);
+				buffer.append(identity);
 				addTail = true;
 			}
 		}
@@ -199,7 +267,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 		/*
 		 * add all subject-locator
 		 */
-		for (Locator locator : topic.getSubjectLocators()) {
+		for (Locator locator : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+				topic.getSubjectLocators())) {
 			if (affectedConstructs.contains(locator)) {
 				continue;
 			}
@@ -220,8 +289,10 @@ public class TopicSerializer implements ISerializer<Topic> {
 					buffer.appendTailLine();
 					addTail = false;
 				}
-				buffer.append(false, TABULATOR);
-				buffer.append(true, SUBJECTLOCATOR, identity);
+				buffer.append(TABULATOR);
+				buffer.append(SUBJECTLOCATOR);
+				buffer.append(WHITESPACE);
+				buffer.append(identity);
 				addTail = true;
 			}
 		}
@@ -230,7 +301,8 @@ public class TopicSerializer implements ISerializer<Topic> {
 		 * add all item-identifier if enabled
 		 */
 		if (writer.getProperties().isExportOfItemIdentifierEnabled()) {
-			for (Locator locator : topic.getItemIdentifiers()) {
+			for (Locator locator : CTMConstructOrder.getBlockOrder(writer.getCtmIdentity(), writer.getProperties(),
+					topic.getItemIdentifiers())) {
 				String identity = writer.getCtmIdentity().getPrefixedIdentity(locator);
 				if (writer.getCtmIdentity().isSystemItemIdentifier(writer.getProperties(), identity)
 						|| affectedConstructs.contains(locator)) {
@@ -251,9 +323,11 @@ public class TopicSerializer implements ISerializer<Topic> {
 						buffer.appendTailLine();
 						addTail = false;
 					}
-					buffer.append(false, TABULATOR);
-					buffer.appendTailLine(true, ITEMIDENTIFIER, writer.getCtmIdentity()
-							.getEscapedCTMIdentity(identity, locator));
+					buffer.append(TABULATOR);
+					buffer.append(ITEMIDENTIFIER);
+					buffer.append(WHITESPACE);
+					writer.getCtmIdentity().appendEscapedCTMIdentity(buffer, identity, locator);
+					buffer.appendTailLine();
 					addTail = true;
 				}
 			}
@@ -0,0 +1,36 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown if an export was cancelled or exceeded its deadline. The
+ * output contains the blocks written before and a comment line noting the
+ * cancellation.
+ * 
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ * 
+ */
+public class ExportCancelledException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * construct bequeathed from super-class
+	 * 
+	 * @param message
+	 *            the message
+	 */
+	public ExportCancelledException(String message) {
+		super(message);
+	}
+
+}
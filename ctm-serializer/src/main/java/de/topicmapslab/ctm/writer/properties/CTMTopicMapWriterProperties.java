@@ -8,6 +8,7 @@
  */
 package de.topicmapslab.ctm.writer.properties;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Properties;
@@ -95,6 +96,221 @@ public class CTMTopicMapWriterProperties extends Properties {
 	 */
 	public static final String FEATURE_TEMPLATEEXPORT_ENABLED = "writer.features.templateExport.enabled";
 
+	/**
+	 * CTMTopicMapWriter Property String for enabling the buffered output. If
+	 * enabled the CTM content is encoded into an internal byte buffer and
+	 * written in large blocks. Value should be a string containing
+	 * <code>true</code> or <code>false</code>.
+	 */
+	public static final String OUTPUT_BUFFERED_ENABLED = "writer.output.buffered.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the size of the internal byte
+	 * buffer used by the buffered output. Value should be a string containing
+	 * a decimal number of bytes.
+	 */
+	public static final String OUTPUT_BUFFERED_SIZE = "writer.output.buffered.size";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the memory-mapped output
+	 * if the writer targets a file channel. Value should be a string
+	 * containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String OUTPUT_CHANNEL_MAPPED = "writer.output.channel.mapped";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the asynchronous output.
+	 * If enabled the content is written by a dedicated thread, while the
+	 * serialization continues. Value should be a string containing
+	 * <code>true</code> or <code>false</code>.
+	 */
+	public static final String OUTPUT_ASYNC_ENABLED = "writer.output.async.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of buffers used by the
+	 * asynchronous output. Value should be a string containing a decimal
+	 * number greater than 1.
+	 */
+	public static final String OUTPUT_ASYNC_BUFFERS = "writer.output.async.buffers";
+
+	/**
+	 * CTMTopicMapWriter Property String for the size of each buffer used by
+	 * the asynchronous output. Value should be a string containing a decimal
+	 * number of characters.
+	 */
+	public static final String OUTPUT_ASYNC_BUFFERSIZE = "writer.output.async.bufferSize";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the GZIP compressed
+	 * output. The blocks are compressed in parallel. Value should be a string
+	 * containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String OUTPUT_GZIP_ENABLED = "writer.output.gzip.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the compression level of the GZIP
+	 * output. Value should be a string containing a decimal number between 0
+	 * and 9 or -1 for the default level.
+	 */
+	public static final String OUTPUT_GZIP_LEVEL = "writer.output.gzip.level";
+
+	/**
+	 * CTMTopicMapWriter Property String for the size of each independently
+	 * compressed block of the GZIP output. Value should be a string containing
+	 * a decimal number of bytes not less than 16.
+	 */
+	public static final String OUTPUT_GZIP_BLOCKSIZE = "writer.output.gzip.blockSize";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of threads compressing
+	 * the GZIP output. Value should be a string containing a positive decimal
+	 * number or 0 to use one thread per processor.
+	 */
+	public static final String OUTPUT_GZIP_THREADS = "writer.output.gzip.threads";
+
+	/**
+	 * CTMTopicMapWriter Property String for the maximum size of a shard of the
+	 * sharded output. Value should be a string containing a decimal number of
+	 * bytes or 0 for unbounded shards.
+	 */
+	public static final String OUTPUT_SHARD_MAXBYTES = "writer.output.shard.maxBytes";
+
+	/**
+	 * CTMTopicMapWriter Property String for the maximum number of topic and
+	 * association blocks of a shard of the sharded output. Value should be a
+	 * string containing a decimal number or 0 for unbounded shards.
+	 */
+	public static final String OUTPUT_SHARD_MAXBLOCKS = "writer.output.shard.maxBlocks";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the sorted output. The
+	 * topic blocks are ordered by the smallest identifier of the topic and the
+	 * association blocks by type and role players. Each topic is referenced by
+	 * its smallest identifier and the types, names, occurrences, identifiers,
+	 * variants, themes and roles inside a block are sorted too, so two exports
+	 * of an unchanged topic map are equal. Value
+	 * should be a string containing
+	 * <code>true</code> or <code>false</code>.
+	 */
+	public static final String OUTPUT_SORTED_ENABLED = "writer.output.sorted.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the estimated heap size of the
+	 * rendered blocks kept in memory by the sorted output. Larger exports are
+	 * sorted in runs spilled to temporary files and merged. Value should be a
+	 * string containing a decimal number of bytes or 0 to sort in memory.
+	 */
+	public static final String OUTPUT_SORTED_RUNSIZE = "writer.output.sorted.runSize";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the statistics of each
+	 * export, like the number of bytes per kind of construct. Value should be
+	 * a string containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String STATISTICS_ENABLED = "writer.statistics.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the parallel rendering
+	 * of the topic and association blocks. The order of the blocks is not
+	 * changed. If the prefix detection is enabled, the prefixes are detected
+	 * in parallel too. The topic maps engine has to support concurrent reading. Value
+	 * should be a string containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String PARALLEL_ENABLED = "writer.parallel.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of threads rendering
+	 * the topic and association blocks. Value should be a string containing a
+	 * positive decimal number or 0 to use one thread per processor.
+	 */
+	public static final String PARALLEL_THREADS = "writer.parallel.threads";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of topics or
+	 * associations rendered by one task of the parallel rendering. Value
+	 * should be a string containing a positive decimal number.
+	 */
+	public static final String PARALLEL_CHUNKSIZE = "writer.parallel.chunkSize";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of topic and
+	 * association blocks written by the resumable export between two
+	 * checkpoints. Each checkpoint forces the output to the storage device.
+	 * Value should be a string containing a positive decimal number.
+	 */
+	public static final String CHECKPOINT_INTERVAL = "writer.checkpoint.interval";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the export plan. The
+	 * decisions for all topics and associations, e.g. the main identifiers,
+	 * are computed in one pass before the blocks are written. The plan needs
+	 * memory for each topic and is disabled by default. Value should be a
+	 * string containing
+	 * <code>true</code> or <code>false</code>.
+	 */
+	public static final String PLAN_ENABLED = "writer.plan.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the number of topic maps exported
+	 * concurrently by the batch exporter. Value should be a string containing
+	 * a positive decimal number or 0 to use one thread per processor.
+	 */
+	public static final String BATCH_THREADS = "writer.batch.threads";
+
+	/**
+	 * CTMTopicMapWriter Property String for the maximum estimated size of the
+	 * topic maps exported concurrently by the batch exporter, i.e. the number
+	 * of their topics and associations. A job is admitted only if the sum of
+	 * the sizes of the running jobs and the job does not exceed the limit, a
+	 * larger topic map is exported alone. Value should be a string containing
+	 * a positive decimal number.
+	 */
+	public static final String BATCH_ADMISSIONLIMIT = "writer.batch.admissionLimit";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the identity table. The
+	 * rendered main identifiers are stored UTF-8 encoded in a compact table
+	 * instead of a map of strings, which needs much less memory for large
+	 * topic maps but decodes the identifiers on each reference. Value should
+	 * be a string containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String IDENTITY_TABLE_ENABLED = "writer.identity.table.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for storing the identifiers of the
+	 * identity table off-heap in direct buffers. Value should be a string
+	 * containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String IDENTITY_TABLE_DIRECT = "writer.identity.table.direct";
+
+	/**
+	 * CTMTopicMapWriter Property String for enabling the generated
+	 * identifiers. Topics without subject-identifier, subject-locator and
+	 * item-identifier, except the internal item-identifiers of the topic maps
+	 * engine, get a short generated item-identifier in the name-space of the
+	 * base URI of the writer, e.g. <code>^gen:t1z</code>, instead of being
+	 * skipped or written with the internal identifier. Value should be a
+	 * string containing <code>true</code> or <code>false</code>.
+	 */
+	public static final String IDENTITY_GENERATED_ENABLED = "writer.identity.generated.enabled";
+
+	/**
+	 * CTMTopicMapWriter Property String for the prefix of the generated
+	 * identifiers, declared for the base URI of the writer. Value should be a
+	 * CTM identifier.
+	 */
+	public static final String IDENTITY_GENERATED_PREFIX = "writer.identity.generated.prefix";
+
+	/**
+	 * CTMTopicMapWriter Property String for the file storing the generated
+	 * identifiers, so each topic keeps its identifier between two exports of
+	 * the same topic map. A topic is recognized by the values of its names and
+	 * occurrences, the identifiers of topics without or with the same values
+	 * are not stored. Value should be the path of the file or an empty string
+	 * if the generated identifiers are not stored.
+	 */
+	public static final String IDENTITY_GENERATED_FILE = "writer.identity.generated.file";
+
 	/**
 	 * a set containing all names of template, which should never exported.
 	 */
@@ -111,6 +327,20 @@ public class CTMTopicMapWriterProperties extends Properties {
 		}
 	}
 
+	/**
+	 * Constructor to copy the given properties, e.g. to get a snapshot used
+	 * by one export.
+	 * 
+	 * @param properties
+	 *            the properties to copy
+	 */
+	public CTMTopicMapWriterProperties(final CTMTopicMapWriterProperties properties) {
+		synchronized (properties) {
+			putAll(properties);
+			restrictedTemplatesToExport.addAll(properties.restrictedTemplatesToExport);
+		}
+	}
+
 	/**
 	 * Method return the prefix used to identify item-identifier generated by
 	 * the topic map engine itself.
@@ -330,6 +560,552 @@ public class CTMTopicMapWriterProperties extends Properties {
 		setProperty(FEATURE_TEMPLATEEXPORT_ENABLED, Boolean.toString(enable));
 	}
 
+	/**
+	 * Check if the buffered output is enabled.
+	 * 
+	 * @return <code>true</code> if the buffered output is enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isBufferedOutputEnabled() {
+		return Boolean.parseBoolean(getProperty(OUTPUT_BUFFERED_ENABLED));
+	}
+
+	/**
+	 * Enables or disables the buffered output.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableBufferedOutput(final boolean enable) {
+		setProperty(OUTPUT_BUFFERED_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the size of the internal byte buffer used by the buffered
+	 * output.
+	 * 
+	 * @return the buffer size in bytes
+	 */
+	public int getOutputBufferSize() {
+		return Integer.parseInt(getProperty(OUTPUT_BUFFERED_SIZE));
+	}
+
+	/**
+	 * Setter of the size of the internal byte buffer used by the buffered
+	 * output.
+	 * 
+	 * @param outputBufferSize
+	 *            the buffer size in bytes
+	 */
+	public void setOutputBufferSize(int outputBufferSize) {
+		setProperty(OUTPUT_BUFFERED_SIZE, Integer.toString(outputBufferSize));
+	}
+
+	/**
+	 * Check if the memory-mapped output is enabled for file channels.
+	 * 
+	 * @return <code>true</code> if the memory-mapped output is enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isMappedOutputEnabled() {
+		return Boolean.parseBoolean(getProperty(OUTPUT_CHANNEL_MAPPED));
+	}
+
+	/**
+	 * Enables or disables the memory-mapped output for file channels.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableMappedOutput(final boolean enable) {
+		setProperty(OUTPUT_CHANNEL_MAPPED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Check if the asynchronous output is enabled.
+	 * 
+	 * @return <code>true</code> if the asynchronous output is enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isAsyncOutputEnabled() {
+		return Boolean.parseBoolean(getProperty(OUTPUT_ASYNC_ENABLED));
+	}
+
+	/**
+	 * Enables or disables the asynchronous output.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableAsyncOutput(final boolean enable) {
+		setProperty(OUTPUT_ASYNC_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the number of buffers used by the asynchronous output.
+	 * 
+	 * @return the number of buffers
+	 */
+	public int getAsyncBufferCount() {
+		return Integer.parseInt(getProperty(OUTPUT_ASYNC_BUFFERS));
+	}
+
+	/**
+	 * Setter of the number of buffers used by the asynchronous output.
+	 * 
+	 * @param asyncBufferCount
+	 *            the number of buffers
+	 */
+	public void setAsyncBufferCount(int asyncBufferCount) {
+		setProperty(OUTPUT_ASYNC_BUFFERS, Integer.toString(asyncBufferCount));
+	}
+
+	/**
+	 * Returns the size of each buffer used by the asynchronous output.
+	 * 
+	 * @return the buffer size in characters
+	 */
+	public int getAsyncBufferSize() {
+		return Integer.parseInt(getProperty(OUTPUT_ASYNC_BUFFERSIZE));
+	}
+
+	/**
+	 * Setter of the size of each buffer used by the asynchronous output.
+	 * 
+	 * @param asyncBufferSize
+	 *            the buffer size in characters
+	 */
+	public void setAsyncBufferSize(int asyncBufferSize) {
+		setProperty(OUTPUT_ASYNC_BUFFERSIZE, Integer.toString(asyncBufferSize));
+	}
+
+	/**
+	 * Returns the internal flag, if the GZIP compressed output is enabled
+	 * 
+	 * @return <code>true</code> if the output is compressed
+	 */
+	public boolean isGzipOutputEnabled() {
+		return Boolean.parseBoolean(getProperty(OUTPUT_GZIP_ENABLED));
+	}
+
+	/**
+	 * Enable or disable the GZIP compressed output.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to compress the output
+	 */
+	public void enableGzipOutput(final boolean enable) {
+		setProperty(OUTPUT_GZIP_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the compression level of the GZIP output.
+	 * 
+	 * @return the compression level
+	 */
+	public int getGzipLevel() {
+		return Integer.parseInt(getProperty(OUTPUT_GZIP_LEVEL));
+	}
+
+	/**
+	 * Setter of the compression level of the GZIP output.
+	 * 
+	 * @param gzipLevel
+	 *            the compression level between 0 and 9 or -1
+	 */
+	public void setGzipLevel(int gzipLevel) {
+		setProperty(OUTPUT_GZIP_LEVEL, Integer.toString(gzipLevel));
+	}
+
+	/**
+	 * Returns the size of each compressed block of the GZIP output.
+	 * 
+	 * @return the block size in bytes
+	 */
+	public int getGzipBlockSize() {
+		return Integer.parseInt(getProperty(OUTPUT_GZIP_BLOCKSIZE));
+	}
+
+	/**
+	 * Setter of the size of each compressed block of the GZIP output.
+	 * 
+	 * @param gzipBlockSize
+	 *            the block size in bytes
+	 */
+	public void setGzipBlockSize(int gzipBlockSize) {
+		setProperty(OUTPUT_GZIP_BLOCKSIZE, Integer.toString(gzipBlockSize));
+	}
+
+	/**
+	 * Returns the number of threads compressing the GZIP output.
+	 * 
+	 * @return the number of threads, <code>0</code> for one thread per
+	 *         processor
+	 */
+	public int getGzipThreads() {
+		return Integer.parseInt(getProperty(OUTPUT_GZIP_THREADS));
+	}
+
+	/**
+	 * Setter of the number of threads compressing the GZIP output.
+	 * 
+	 * @param gzipThreads
+	 *            the number of threads, <code>0</code> for one thread per
+	 *            processor
+	 */
+	public void setGzipThreads(int gzipThreads) {
+		setProperty(OUTPUT_GZIP_THREADS, Integer.toString(gzipThreads));
+	}
+
+	/**
+	 * Returns the maximum size of a shard.
+	 * 
+	 * @return the maximum number of bytes, <code>0</code> if unbounded
+	 */
+	public long getShardMaximumBytes() {
+		return Long.parseLong(getProperty(OUTPUT_SHARD_MAXBYTES));
+	}
+
+	/**
+	 * Setter of the maximum size of a shard.
+	 * 
+	 * @param shardMaximumBytes
+	 *            the maximum number of bytes, <code>0</code> if unbounded
+	 */
+	public void setShardMaximumBytes(long shardMaximumBytes) {
+		setProperty(OUTPUT_SHARD_MAXBYTES, Long.toString(shardMaximumBytes));
+	}
+
+	/**
+	 * Returns the maximum number of topic and association blocks of a shard.
+	 * 
+	 * @return the maximum number of blocks, <code>0</code> if unbounded
+	 */
+	public long getShardMaximumBlocks() {
+		return Long.parseLong(getProperty(OUTPUT_SHARD_MAXBLOCKS));
+	}
+
+	/**
+	 * Setter of the maximum number of topic and association blocks of a
+	 * shard.
+	 * 
+	 * @param shardMaximumBlocks
+	 *            the maximum number of blocks, <code>0</code> if unbounded
+	 */
+	public void setShardMaximumBlocks(long shardMaximumBlocks) {
+		setProperty(OUTPUT_SHARD_MAXBLOCKS, Long.toString(shardMaximumBlocks));
+	}
+
+	/**
+	 * Returns the internal flag, if the blocks are sorted
+	 * 
+	 * @return <code>true</code> if the blocks are sorted
+	 */
+	public boolean isSortedOutputEnabled() {
+		return Boolean.parseBoolean(getProperty(OUTPUT_SORTED_ENABLED));
+	}
+
+	/**
+	 * Enable or disable the sorted output.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to sort the blocks
+	 */
+	public void enableSortedOutput(final boolean enable) {
+		setProperty(OUTPUT_SORTED_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the estimated heap size of the rendered blocks kept in memory by
+	 * the sorted output.
+	 * 
+	 * @return the run size in bytes, <code>0</code> if unbounded
+	 */
+	public long getSortedRunSize() {
+		return Long.parseLong(getProperty(OUTPUT_SORTED_RUNSIZE));
+	}
+
+	/**
+	 * Setter of the estimated heap size of the rendered blocks kept in memory
+	 * by the sorted output.
+	 * 
+	 * @param sortedRunSize
+	 *            the run size in bytes, <code>0</code> if unbounded
+	 */
+	public void setSortedRunSize(long sortedRunSize) {
+		setProperty(OUTPUT_SORTED_RUNSIZE, Long.toString(sortedRunSize));
+	}
+
+	/**
+	 * Returns the internal flag, if the statistics of an export are recorded
+	 * 
+	 * @return <code>true</code> if the statistics are recorded
+	 */
+	public boolean isStatisticsEnabled() {
+		return Boolean.parseBoolean(getProperty(STATISTICS_ENABLED));
+	}
+
+	/**
+	 * Enable or disable the statistics of an export.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to record the statistics
+	 */
+	public void enableStatistics(final boolean enable) {
+		setProperty(STATISTICS_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the internal flag, if the parallel rendering is enabled
+	 * 
+	 * @return <code>true</code> if the blocks are rendered in parallel
+	 */
+	public boolean isParallelRenderingEnabled() {
+		return Boolean.parseBoolean(getProperty(PARALLEL_ENABLED));
+	}
+
+	/**
+	 * Enable or disable the parallel rendering of the topic and association
+	 * blocks.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to render the blocks in parallel
+	 */
+	public void enableParallelRendering(final boolean enable) {
+		setProperty(PARALLEL_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the number of threads of the parallel rendering.
+	 * 
+	 * @return the number of threads, <code>0</code> for one thread per
+	 *         processor
+	 */
+	public int getParallelThreads() {
+		return Integer.parseInt(getProperty(PARALLEL_THREADS));
+	}
+
+	/**
+	 * Setter of the number of threads of the parallel rendering.
+	 * 
+	 * @param parallelThreads
+	 *            the number of threads, <code>0</code> for one thread per
+	 *            processor
+	 */
+	public void setParallelThreads(int parallelThreads) {
+		setProperty(PARALLEL_THREADS, Integer.toString(parallelThreads));
+	}
+
+	/**
+	 * Returns the number of topics or associations rendered by one task of
+	 * the parallel rendering.
+	 * 
+	 * @return the chunk size
+	 */
+	public int getParallelChunkSize() {
+		return Integer.parseInt(getProperty(PARALLEL_CHUNKSIZE));
+	}
+
+	/**
+	 * Setter of the number of topics or associations rendered by one task of
+	 * the parallel rendering.
+	 * 
+	 * @param parallelChunkSize
+	 *            the chunk size
+	 */
+	public void setParallelChunkSize(int parallelChunkSize) {
+		setProperty(PARALLEL_CHUNKSIZE, Integer.toString(parallelChunkSize));
+	}
+
+	/**
+	 * Returns the number of blocks written by the resumable export between
+	 * two checkpoints.
+	 * 
+	 * @return the checkpoint interval
+	 */
+	public int getCheckpointInterval() {
+		return Integer.parseInt(getProperty(CHECKPOINT_INTERVAL));
+	}
+
+	/**
+	 * Setter of the number of blocks written by the resumable export between
+	 * two checkpoints.
+	 * 
+	 * @param checkpointInterval
+	 *            the checkpoint interval
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		setProperty(CHECKPOINT_INTERVAL, Integer.toString(checkpointInterval));
+	}
+
+	/**
+	 * Returns the internal flag, if the export plan is used
+	 * 
+	 * @return <code>true</code> if the export plan is used
+	 */
+	public boolean isPlanEnabled() {
+		return Boolean.parseBoolean(getProperty(PLAN_ENABLED));
+	}
+
+	/**
+	 * Enable or disable the export plan.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to use the export plan
+	 */
+	public void enablePlan(final boolean enable) {
+		setProperty(PLAN_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Returns the number of topic maps exported concurrently by the batch
+	 * exporter.
+	 * 
+	 * @return the number of threads, 0 for one thread per processor
+	 */
+	public int getBatchThreads() {
+		return Integer.parseInt(getProperty(BATCH_THREADS));
+	}
+
+	/**
+	 * Set the number of topic maps exported concurrently by the batch
+	 * exporter.
+	 * 
+	 * @param batchThreads
+	 *            the number of threads, 0 for one thread per processor
+	 */
+	public void setBatchThreads(int batchThreads) {
+		setProperty(BATCH_THREADS, Integer.toString(batchThreads));
+	}
+
+	/**
+	 * Returns the maximum estimated size of the topic maps exported
+	 * concurrently by the batch exporter.
+	 * 
+	 * @return the maximum number of topics and associations
+	 */
+	public int getBatchAdmissionLimit() {
+		return Integer.parseInt(getProperty(BATCH_ADMISSIONLIMIT));
+	}
+
+	/**
+	 * Set the maximum estimated size of the topic maps exported concurrently
+	 * by the batch exporter.
+	 * 
+	 * @param batchAdmissionLimit
+	 *            the maximum number of topics and associations
+	 */
+	public void setBatchAdmissionLimit(int batchAdmissionLimit) {
+		setProperty(BATCH_ADMISSIONLIMIT, Integer.toString(batchAdmissionLimit));
+	}
+
+	/**
+	 * Check if the rendered main identifiers are stored in the identity
+	 * table.
+	 * 
+	 * @return <code>true</code> if the identity table is enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isIdentityTableEnabled() {
+		return Boolean.parseBoolean(getProperty(IDENTITY_TABLE_ENABLED));
+	}
+
+	/**
+	 * Enables or disables the identity table.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableIdentityTable(final boolean enable) {
+		setProperty(IDENTITY_TABLE_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Check if the identifiers of the identity table are stored off-heap.
+	 * 
+	 * @return <code>true</code> if the identifiers are stored off-heap,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isDirectIdentityTableEnabled() {
+		return Boolean.parseBoolean(getProperty(IDENTITY_TABLE_DIRECT));
+	}
+
+	/**
+	 * Enables or disables storing the identifiers of the identity table
+	 * off-heap.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableDirectIdentityTable(final boolean enable) {
+		setProperty(IDENTITY_TABLE_DIRECT, Boolean.toString(enable));
+	}
+
+	/**
+	 * Check if topics without usable identifiers get generated identifiers.
+	 * 
+	 * @return <code>true</code> if the generated identifiers are enabled,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isIdentifierGenerationEnabled() {
+		return Boolean.parseBoolean(getProperty(IDENTITY_GENERATED_ENABLED));
+	}
+
+	/**
+	 * Enables or disables the generated identifiers.
+	 * 
+	 * @param enable
+	 *            the new state
+	 */
+	public void enableIdentifierGeneration(final boolean enable) {
+		setProperty(IDENTITY_GENERATED_ENABLED, Boolean.toString(enable));
+	}
+
+	/**
+	 * Method return the prefix of the generated identifiers.
+	 * 
+	 * @return the prefix
+	 */
+	public String getGeneratedIdentifierPrefix() {
+		return getProperty(IDENTITY_GENERATED_PREFIX);
+	}
+
+	/**
+	 * Setter of the prefix of the generated identifiers.
+	 * 
+	 * @param generatedIdentifierPrefix
+	 *            the new prefix
+	 */
+	public void setGeneratedIdentifierPrefix(final String generatedIdentifierPrefix) {
+		setProperty(IDENTITY_GENERATED_PREFIX, generatedIdentifierPrefix);
+	}
+
+	/**
+	 * Method return the file storing the generated identifiers.
+	 * 
+	 * @return the file or <code>null</code> if the generated identifiers are
+	 *         not stored
+	 */
+	public File getGeneratedIdentifierFile() {
+		String path = getProperty(IDENTITY_GENERATED_FILE);
+		if (path == null || path.trim().length() == 0) {
+			return null;
+		}
+		return new File(path.trim());
+	}
+
+	/**
+	 * Setter of the file storing the generated identifiers.
+	 * 
+	 * @param generatedIdentifierFile
+	 *            the file or <code>null</code> if the generated identifiers
+	 *            should not be stored
+	 */
+	public void setGeneratedIdentifierFile(final File generatedIdentifierFile) {
+		setProperty(IDENTITY_GENERATED_FILE, generatedIdentifierFile == null ? "" : generatedIdentifierFile
+				.getPath());
+	}
+
 	/**
 	 * Checks the plausibility of values before setting it.
 	 * 
@@ -359,6 +1135,85 @@ public class CTMTopicMapWriterProperties extends Properties {
 				throw new IllegalArgumentException(
 						"Value has to be a decimal number greater than 1.");
 			}
+		} else if (key.equalsIgnoreCase(OUTPUT_BUFFERED_SIZE)
+				|| key.equalsIgnoreCase(OUTPUT_GZIP_BLOCKSIZE)) {
+			try {
+				int v = Integer.parseInt(value);
+				if (v < 16) {
+					throw new IllegalArgumentException(
+							"Value has to be a decimal number not less than 16.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a decimal number not less than 16.");
+			}
+		} else if (key.equalsIgnoreCase(OUTPUT_SHARD_MAXBYTES)
+				|| key.equalsIgnoreCase(OUTPUT_SHARD_MAXBLOCKS)
+				|| key.equalsIgnoreCase(OUTPUT_SORTED_RUNSIZE)) {
+			try {
+				long v = Long.parseLong(value);
+				if (v < 0) {
+					throw new IllegalArgumentException(
+							"Value has to be a positive decimal number or 0.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a positive decimal number or 0.");
+			}
+		} else if (key.equalsIgnoreCase(OUTPUT_ASYNC_BUFFERS)) {
+			try {
+				int v = Integer.parseInt(value);
+				if (v < 2) {
+					throw new IllegalArgumentException(
+							"Value has to be a decimal number greater than 1.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a decimal number greater than 1.");
+			}
+		} else if (key.equalsIgnoreCase(OUTPUT_ASYNC_BUFFERSIZE)
+				|| key.equalsIgnoreCase(PARALLEL_CHUNKSIZE)
+				|| key.equalsIgnoreCase(CHECKPOINT_INTERVAL)
+				|| key.equalsIgnoreCase(BATCH_ADMISSIONLIMIT)) {
+			try {
+				int v = Integer.parseInt(value);
+				if (v < 1) {
+					throw new IllegalArgumentException(
+							"Value has to be a positive decimal number.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a positive decimal number.");
+			}
+		} else if (key.equalsIgnoreCase(OUTPUT_GZIP_LEVEL)) {
+			try {
+				int v = Integer.parseInt(value);
+				if (v < -1 || v > 9) {
+					throw new IllegalArgumentException(
+							"Value has to be a decimal number between -1 and 9.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a decimal number between -1 and 9.");
+			}
+		} else if (key.equalsIgnoreCase(OUTPUT_GZIP_THREADS)
+				|| key.equalsIgnoreCase(PARALLEL_THREADS)
+				|| key.equalsIgnoreCase(BATCH_THREADS)) {
+			try {
+				int v = Integer.parseInt(value);
+				if (v < 0) {
+					throw new IllegalArgumentException(
+							"Value has to be a positive decimal number or 0.");
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(
+						"Value has to be a positive decimal number or 0.");
+			}
+		} else if (key.equalsIgnoreCase(IDENTITY_GENERATED_PREFIX)) {
+			if (!value.matches("[a-zA-Z_][a-zA-Z0-9_\\-]*")) {
+				throw new IllegalArgumentException(
+						"Value has to be an identifier of letters, digits, '_' and '-'.");
+			}
 		}
 		return super.setProperty(key, value);
 
@@ -369,12 +1224,14 @@ public class CTMTopicMapWriterProperties extends Properties {
 	 * will be parsed and the key-value-pairs will be extracted before setting
 	 * the properties to property map. The key-value-pairs have to be separated
 	 * with a comma. The key-value-pair has to match the typical pattern for
-	 * java properties " key = value ", others will be ignored.
+	 * java properties " key = value ", others will be ignored. The properties
+	 * of the line are set atomically, so a copy never contains a part of the
+	 * line only.
 	 * 
 	 * @param propertyLine
 	 *            the property line to parse
 	 */
-	public void parse(final String propertyLine) {
+	public synchronized void parse(final String propertyLine) {
 		StringTokenizer properties = new StringTokenizer(propertyLine, ",");
 		while (properties.hasMoreTokens()) {
 			StringTokenizer tokenizer = new StringTokenizer(properties
@@ -394,7 +1251,7 @@ public class CTMTopicMapWriterProperties extends Properties {
 	 * @param name
 	 *            the name of the restricted template
 	 */
-	public void addRestrictionForTemplateExport(final String name) {
+	public synchronized void addRestrictionForTemplateExport(final String name) {
 		this.restrictedTemplatesToExport.add(name);
 	}
 
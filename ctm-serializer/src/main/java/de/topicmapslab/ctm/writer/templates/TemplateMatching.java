@@ -43,8 +43,8 @@ public class TemplateMatching {
 				arguments.add("\"" + obj.toString() + "\"");
 			} else if (obj instanceof Topic) {
 				try {
-					arguments.add(writer.getCtmIdentity().getMainIdentifier(
-							writer.getProperties(), (Topic) obj).toString());
+					arguments.add(writer.getCtmIdentity().getRenderedMainIdentifier(
+							writer.getProperties(), (Topic) obj));
 				} catch (NoIdentityException e) {
 					throw new RuntimeException(e);
 				}
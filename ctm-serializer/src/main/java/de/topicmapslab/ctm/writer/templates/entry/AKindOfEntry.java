@@ -64,8 +64,8 @@ public class AKindOfEntry extends EntryImpl {
 			value = param.getCTMRepresentation();
 		} else {
 			value = writer.getCtmIdentity()
-					.getMainIdentifier(writer.getProperties(),
-							((TopicTypeParam) param).getTopic()).toString();
+					.getRenderedMainIdentifier(writer.getProperties(),
+							((TopicTypeParam) param).getTopic());
 		}
 		buffer.append(true, TABULATOR, AKO, value);
 	}
@@ -91,16 +91,16 @@ public class AssociationEntry implements IEntry {
 	 * {@inheritDoc}
 	 */
 	public void serialize(ICTMWriter buffer) throws SerializerException, IOException {
-		buffer.appendLine(true, writer.getCtmIdentity().getMainIdentifier(
-				writer.getProperties(), getAssociationType()).toString(), BRO);
+		buffer.appendLine(true, writer.getCtmIdentity().getRenderedMainIdentifier(
+				writer.getProperties(), getAssociationType()), BRO);
 		boolean first = true;
 		for (RoleEntry entry : roleEntries) {
 			if (!first) {
 				buffer.appendLine(COMMA);
 			}
 			buffer.append(TABULATOR, TABULATOR, writer.getCtmIdentity()
-					.getMainIdentifier(writer.getProperties(),
-							entry.getRoleType()).toString(), COLON, entry
+					.getRenderedMainIdentifier(writer.getProperties(),
+							entry.getRoleType()), COLON, entry
 					.getParameterAsString());
 			first = false;
 		}
@@ -63,8 +63,8 @@ public class IsInstanceOfEntry extends EntryImpl {
 			value = param.getCTMRepresentation();
 		} else if (param instanceof TopicTypeParam) {
 			value = writer.getCtmIdentity()
-					.getMainIdentifier(writer.getProperties(),
-							((TopicTypeParam) param).getTopic()).toString();
+					.getRenderedMainIdentifier(writer.getProperties(),
+							((TopicTypeParam) param).getTopic());
 		}
 		buffer.append(true, TABULATOR, ISA, value);
 	}
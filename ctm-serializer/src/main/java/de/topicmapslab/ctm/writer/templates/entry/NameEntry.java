@@ -95,9 +95,9 @@ public class NameEntry extends ScopedEntry {
 		String identifier = null;
 		if (type instanceof TopicTypeParam) {
 			try {
-				identifier = writer.getCtmIdentity().getMainIdentifier(
+				identifier = writer.getCtmIdentity().getRenderedMainIdentifier(
 						writer.getProperties(),
-						((TopicTypeParam) type).getTopic()).toString();
+						((TopicTypeParam) type).getTopic());
 			} catch (NoIdentityException e) {
 				throw new SerializerException(e);
 			}
@@ -93,9 +93,8 @@ public class OccurrenceEntry extends ScopedEntry {
 
 		String identifier = null;
 		if (type instanceof TopicTypeParam) {
-			identifier = writer.getCtmIdentity().getMainIdentifier(
-					writer.getProperties(), ((TopicTypeParam) type).getTopic())
-					.toString();
+			identifier = writer.getCtmIdentity().getRenderedMainIdentifier(
+					writer.getProperties(), ((TopicTypeParam) type).getTopic());
 		} else if (type instanceof WildcardParam) {
 			identifier = type.getCTMRepresentation();
 		} else if (type instanceof VariableParam) {
@@ -65,9 +65,9 @@ public class ReifierEntry {
 	 */
 	public void serialize(ICTMWriter buffer) throws SerializerException, IOException {
 		if (reifier instanceof TopicTypeParam) {
-			buffer.append(REIFIER, writer.getCtmIdentity().getMainIdentifier(
+			buffer.append(REIFIER, writer.getCtmIdentity().getRenderedMainIdentifier(
 					writer.getProperties(),
-					((TopicTypeParam) reifier).getTopic()).toString());
+					((TopicTypeParam) reifier).getTopic()));
 		} else if (reifier instanceof WildcardParam) {
 			buffer.append(REIFIER, reifier.getCTMRepresentation());
 		} else if (reifier instanceof VariableParam) {
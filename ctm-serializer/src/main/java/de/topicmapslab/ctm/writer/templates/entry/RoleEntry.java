@@ -144,9 +144,9 @@ public class RoleEntry {
 	public String getParameterAsString() {
 		if (param instanceof TopicTypeParam) {
 			try {
-				return writer.getCtmIdentity().getMainIdentifier(
+				return writer.getCtmIdentity().getRenderedMainIdentifier(
 						writer.getProperties(),
-						((TopicTypeParam) param).getTopic()).toString();
+						((TopicTypeParam) param).getTopic());
 			} catch (NoIdentityException e) {
 				e.printStackTrace();
 			}
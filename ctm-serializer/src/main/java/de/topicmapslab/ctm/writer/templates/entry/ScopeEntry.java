@@ -86,9 +86,9 @@ public class ScopeEntry {
 				buffer.append(COMMA, WHITESPACE);
 			}
 			if (param instanceof TopicTypeParam) {
-				buffer.append(writer.getCtmIdentity().getMainIdentifier(
+				buffer.append(writer.getCtmIdentity().getRenderedMainIdentifier(
 						writer.getProperties(),
-						((TopicTypeParam) param).getTopic()).toString());
+						((TopicTypeParam) param).getTopic()));
 			} else if (param instanceof WildcardParam) {
 				buffer.append(param.getCTMRepresentation());
 			} else if (param instanceof VariableParam) {
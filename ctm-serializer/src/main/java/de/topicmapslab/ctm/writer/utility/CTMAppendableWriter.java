@@ -0,0 +1,255 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.COMMENT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.DOT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.NEWLINE;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Character sink class for CTM content. The content is appended to an
+ * {@link Appendable}, e.g. a {@link StringBuilder}, without encoding it. The
+ * appendable is flushed by {@link #flush()} if it is {@link Flushable}.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMAppendableWriter implements ICTMWriter {
+
+	private final Appendable appendable;
+
+	/**
+	 * constructor
+	 *
+	 * @param appendable
+	 *            the target
+	 */
+	public CTMAppendableWriter(final Appendable appendable) {
+		this.appendable = appendable;
+	}
+
+	/**
+	 * Internal method to append the characters of the given sequence between
+	 * the two indexes to the target.
+	 *
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 */
+	protected void write(final CharSequence str, final int begin, final int end) throws IOException {
+		appendable.append(str, begin, end);
+	}
+
+	/**
+	 * Internal method to append the given string to the target.
+	 *
+	 * @param str
+	 *            the string
+	 */
+	protected void write(final String str) throws IOException {
+		appendable.append(str);
+	}
+
+	/**
+	 * Internal method to append the given character to the target.
+	 *
+	 * @param c
+	 *            the character
+	 */
+	protected void write(final char c) throws IOException {
+		appendable.append(c);
+	}
+
+	/**
+	 * Internal method for appending string tokens, which can be split by
+	 * white-spaces if the given flag is true.
+	 *
+	 * @param withWhitespaces
+	 *            flag if elements should be be split by white-spaces
+	 * @param elements
+	 *            the elements to add
+	 */
+	private void appendElements(final boolean withWhitespaces, final String... elements) throws IOException {
+		boolean first = true;
+		for (String element : elements) {
+			if (!first && withWhitespaces) {
+				write(WHITESPACE);
+			}
+			write(element);
+			first = false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine() throws IOException {
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String... elements) throws IOException {
+		appendLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String line) throws IOException {
+		/*
+		 * same bounds as String#trim() without creating a new string
+		 */
+		int begin = 0;
+		int end = line.length();
+		while (begin < end && line.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while (begin < end && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		write(line, begin, end);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine() throws IOException {
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTail() throws IOException {
+		write(TAIL);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String... elements) throws IOException {
+		appendTailLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String line) throws IOException {
+		write(line);
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendBlockEnd() throws IOException {
+		write(DOT);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String str) throws IOException {
+		write(str);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final char c) throws IOException {
+		write(c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final CharSequence csq, final int start, final int end) throws IOException {
+		write(csq, start, end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final long value) throws IOException {
+		write(Long.toString(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String... elements) throws IOException {
+		appendElements(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendCommentLine(final String comment) throws IOException {
+		write(COMMENT);
+		write(WHITESPACE);
+		write(comment);
+		write(NEWLINE);
+	}
+
+	/**
+	 * Flushes the target if it is {@link Flushable}.
+	 */
+	public void flush() throws IOException {
+		if (appendable instanceof Flushable) {
+			((Flushable) appendable).flush();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		flush();
+	}
+
+}
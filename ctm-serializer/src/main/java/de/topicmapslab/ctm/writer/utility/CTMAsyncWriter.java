@@ -0,0 +1,511 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.COMMENT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.DOT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.NEWLINE;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Asynchronous decorator of an {@link ICTMWriter}. The content is collected
+ * in a fixed number of character buffers. While the serializing thread fills
+ * one buffer, a dedicated writer thread hands over the filled buffers to the
+ * decorated writer. The serializing thread only blocks if all buffers are
+ * filled, so the memory used by the decorator never exceeds
+ * <code>bufferCount * bufferSize</code> characters.
+ * <p>
+ * Errors of the decorated writer are thrown by the next call of the
+ * serializing thread handing over a buffer, by {@link #flush()} or by
+ * {@link #close()}. Content written after an error is discarded.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMAsyncWriter implements ICTMWriter {
+
+	/**
+	 * the default number of buffers
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 2;
+
+	/**
+	 * the default size of each buffer in characters
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * a buffer or a control command for the writer thread
+	 */
+	private static class Block {
+		final char[] chars;
+		final CharBuffer view;
+		int length;
+		final CountDownLatch done;
+		final boolean close;
+
+		/**
+		 * constructor of a buffer
+		 */
+		Block(final int size) {
+			this.chars = new char[size];
+			this.view = CharBuffer.wrap(chars);
+			this.done = null;
+			this.close = false;
+		}
+
+		/**
+		 * constructor of a flush command
+		 */
+		Block(final boolean close) {
+			this.chars = null;
+			this.view = null;
+			this.done = new CountDownLatch(1);
+			this.close = close;
+		}
+	}
+
+	/**
+	 * the decorated writer
+	 */
+	private final ICTMWriter writer;
+
+	/**
+	 * the buffers which can be filled
+	 */
+	private final BlockingQueue<Block> free;
+
+	/**
+	 * the filled buffers and commands to process by the writer thread
+	 */
+	private final BlockingQueue<Block> filled;
+
+	/**
+	 * the writer thread
+	 */
+	private final Thread thread;
+
+	/**
+	 * the buffer filled by the serializing thread
+	 */
+	private Block current;
+
+	/**
+	 * the first error of the decorated writer
+	 */
+	private volatile IOException error;
+
+	/**
+	 * flag indicates if the writer is closed
+	 */
+	private boolean closed;
+
+	/**
+	 * constructor using the default number and size of buffers
+	 *
+	 * @param writer
+	 *            the decorated writer
+	 */
+	public CTMAsyncWriter(final ICTMWriter writer) {
+		this(writer, DEFAULT_BUFFER_COUNT, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param writer
+	 *            the decorated writer
+	 * @param bufferCount
+	 *            the number of buffers, at least 2
+	 * @param bufferSize
+	 *            the size of each buffer in characters
+	 */
+	public CTMAsyncWriter(final ICTMWriter writer, final int bufferCount, final int bufferSize) {
+		if (bufferCount < 2) {
+			throw new IllegalArgumentException("At least two buffers are required.");
+		}
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size has to be positive.");
+		}
+		this.writer = writer;
+		this.free = new ArrayBlockingQueue<Block>(bufferCount);
+		this.filled = new LinkedBlockingQueue<Block>();
+		for (int i = 1; i < bufferCount; i++) {
+			free.add(new Block(bufferSize));
+		}
+		this.current = new Block(bufferSize);
+		this.thread = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "CTM asynchronous writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Method of the writer thread, handing over all filled buffers to the
+	 * decorated writer until the close command is processed.
+	 */
+	private void drain() {
+		while (true) {
+			Block block;
+			try {
+				block = filled.take();
+			} catch (InterruptedException e) {
+				error = new InterruptedIOException("Writer thread was interrupted.");
+				continue;
+			}
+			try {
+				if (error == null) {
+					if (block.chars != null) {
+						writer.append(block.view, 0, block.length);
+					} else {
+						writer.flush();
+					}
+				}
+			} catch (IOException e) {
+				error = e;
+			} catch (RuntimeException e) {
+				error = new IOException("Asynchronous write failed, because of " + e.getLocalizedMessage(), e);
+			}
+			if (block.chars != null) {
+				block.length = 0;
+				free.add(block);
+			} else {
+				block.done.countDown();
+				if (block.close) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to throw the error of the writer thread if there is one.
+	 */
+	private void checkError() throws IOException {
+		if (error != null) {
+			throw new IOException("Asynchronous write failed, because of " + error.getLocalizedMessage(), error);
+		}
+	}
+
+	/**
+	 * Internal method to hand over the current buffer to the writer thread and
+	 * to continue with a free one. The method blocks until a buffer is free.
+	 */
+	private void handOver() throws IOException {
+		checkError();
+		if (closed) {
+			throw new IOException("Writer is already closed.");
+		}
+		if (current.length == 0) {
+			return;
+		}
+		try {
+			filled.put(current);
+			current = free.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free buffer.");
+		}
+	}
+
+	/**
+	 * Internal method to hand over a command to the writer thread and to wait
+	 * until it is processed.
+	 */
+	private void command(final boolean close) throws IOException {
+		handOver();
+		Block command = new Block(close);
+		try {
+			filled.put(command);
+			command.done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the writer thread.");
+		}
+		checkError();
+	}
+
+	/**
+	 * Internal method to copy the characters of the given sequence between
+	 * the two indexes into the buffers.
+	 *
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 */
+	private void write(final CharSequence str, final int begin, final int end) throws IOException {
+		int index = begin;
+		while (index < end) {
+			if (current.length == current.chars.length) {
+				handOver();
+			}
+			int count = Math.min(end - index, current.chars.length - current.length);
+			if (index + count < end && Character.isHighSurrogate(str.charAt(index + count - 1))
+					&& current.length + count > 1) {
+				/*
+				 * keep a surrogate pair within one buffer
+				 */
+				if (--count == 0) {
+					handOver();
+					continue;
+				}
+			}
+			if (str instanceof String) {
+				((String) str).getChars(index, index + count, current.chars, current.length);
+			} else if (str instanceof StringBuilder) {
+				((StringBuilder) str).getChars(index, index + count, current.chars, current.length);
+			} else {
+				for (int i = 0; i < count; i++) {
+					current.chars[current.length + i] = str.charAt(index + i);
+				}
+			}
+			current.length += count;
+			index += count;
+		}
+	}
+
+	/**
+	 * Internal method to copy the given string into the buffers.
+	 *
+	 * @param str
+	 *            the string
+	 */
+	private void write(final String str) throws IOException {
+		write(str, 0, str.length());
+	}
+
+	/**
+	 * Internal method for appending string tokens, which can be split by
+	 * white-spaces if the given flag is true.
+	 *
+	 * @param withWhitespaces
+	 *            flag if elements should be be split by white-spaces
+	 * @param elements
+	 *            the elements to add
+	 */
+	private void appendElements(final boolean withWhitespaces, final String... elements) throws IOException {
+		boolean first = true;
+		for (String element : elements) {
+			if (!first && withWhitespaces) {
+				write(WHITESPACE);
+			}
+			write(element);
+			first = false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine() throws IOException {
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String... elements) throws IOException {
+		appendLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String line) throws IOException {
+		/*
+		 * same bounds as String#trim() without creating a new string
+		 */
+		int begin = 0;
+		int end = line.length();
+		while (begin < end && line.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while (begin < end && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		write(line, begin, end);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine() throws IOException {
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTail() throws IOException {
+		write(TAIL);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String... elements) throws IOException {
+		appendTailLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String line) throws IOException {
+		write(line);
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendBlockEnd() throws IOException {
+		write(DOT);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(TAIL);
+		write(NEWLINE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String str) throws IOException {
+		write(str);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final char c) throws IOException {
+		if (current.length == current.chars.length) {
+			handOver();
+		}
+		current.chars[current.length++] = c;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final CharSequence csq, final int start, final int end) throws IOException {
+		write(csq, start, end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final long value) throws IOException {
+		write(Long.toString(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String... elements) throws IOException {
+		appendElements(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendCommentLine(final String comment) throws IOException {
+		write(COMMENT);
+		write(WHITESPACE);
+		write(comment);
+		write(NEWLINE);
+	}
+
+	/**
+	 * Hands over all buffered content to the decorated writer, flushes it and
+	 * waits until both is done.
+	 */
+	public void flush() throws IOException {
+		command(false);
+	}
+
+	/**
+	 * Flushes the writer and stops the writer thread. The decorated writer is
+	 * closed too, even if the flush failed.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		IOException failure = null;
+		try {
+			command(true);
+		} catch (IOException e) {
+			failure = e;
+		}
+		closed = true;
+		/*
+		 * make sure the writer thread terminates if the close command was not
+		 * handed over
+		 */
+		if (thread.isAlive()) {
+			filled.add(new Block(true));
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			if (failure == null) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External merge sort of rendered blocks. The blocks are added with a sort key
+ * and collected in memory until the estimated size of the current run exceeds
+ * the run size. Then the run is sorted and spilled to a temporary file. After
+ * all blocks are added, the sorted runs are merged, so the heap only contains
+ * one run and one block per spilled run. Blocks with equal keys are ordered
+ * by their content, so the order does not depend on the order the blocks are
+ * added in.
+ * <p>
+ * Usage: call {@link #add(String, String)} for each block, then
+ * {@link #next()} and {@link #getBlock()} until {@link #next()} returns
+ * <code>false</code>. {@link #close()} removes the temporary files.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMBlockSorter {
+
+	/**
+	 * the estimated heap size of a block in addition to its characters
+	 */
+	private static final int BLOCK_OVERHEAD = 96;
+
+	/**
+	 * A block with its sort key.
+	 */
+	private static class Block implements Comparable<Block> {
+
+		/**
+		 * the sort key
+		 */
+		private final String key;
+
+		/**
+		 * the content
+		 */
+		private final String content;
+
+		/**
+		 * constructor
+		 */
+		private Block(String key, String content) {
+			this.key = key;
+			this.content = content;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int compareTo(Block other) {
+			int result = key.compareTo(other.key);
+			if (result == 0) {
+				result = content.compareTo(other.content);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A spilled run read by the merge.
+	 */
+	private static class Run implements Comparable<Run> {
+
+		/**
+		 * the temporary file
+		 */
+		private final DataInputStream in;
+
+		/**
+		 * the current block
+		 */
+		private Block block;
+
+		/**
+		 * constructor
+		 */
+		private Run(File file) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		/**
+		 * Reads the next block of the run.
+		 *
+		 * @return <code>false</code> if the run is exhausted
+		 */
+		private boolean next() throws IOException {
+			String key;
+			try {
+				key = readString(in);
+			} catch (EOFException e) {
+				block = null;
+				return false;
+			}
+			block = new Block(key, readString(in));
+			return true;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int compareTo(Run other) {
+			return block.compareTo(other.block);
+		}
+	}
+
+	/**
+	 * the maximum estimated heap size of a run in bytes
+	 */
+	private final long runSize;
+
+	/**
+	 * the blocks of the current run
+	 */
+	private List<Block> blocks = new ArrayList<Block>();
+
+	/**
+	 * the estimated heap size of the current run
+	 */
+	private long size;
+
+	/**
+	 * the temporary files of the spilled runs
+	 */
+	private final List<File> files = new ArrayList<File>();
+
+	/**
+	 * the runs merged, <code>null</code> before the first call of
+	 * {@link #next()}
+	 */
+	private PriorityQueue<Run> runs;
+
+	/**
+	 * the open runs, closed by {@link #close()}
+	 */
+	private final List<Run> opened = new ArrayList<Run>();
+
+	/**
+	 * the position of the next block of the in-memory run, if no run was
+	 * spilled
+	 */
+	private int position;
+
+	/**
+	 * the current block
+	 */
+	private Block current;
+
+	/**
+	 * constructor
+	 *
+	 * @param runSize
+	 *            the maximum estimated heap size of the blocks kept in memory
+	 */
+	public CTMBlockSorter(final long runSize) {
+		this.runSize = runSize;
+	}
+
+	/**
+	 * Adds a block. Spills the current run if it exceeds the run size.
+	 *
+	 * @param key
+	 *            the sort key
+	 * @param content
+	 *            the rendered block
+	 * @throws IOException
+	 *             thrown if the run cannot be spilled
+	 */
+	public void add(final String key, final String content) throws IOException {
+		if (runs != null) {
+			throw new IllegalStateException("Blocks cannot be added after the merge started.");
+		}
+		blocks.add(new Block(key, content));
+		size += (key.length() + content.length()) * 2 + BLOCK_OVERHEAD;
+		if (size > runSize) {
+			spill();
+		}
+	}
+
+	/**
+	 * Returns the number of runs spilled to temporary files.
+	 *
+	 * @return the number of spilled runs
+	 */
+	public int getSpilledRuns() {
+		return files.size();
+	}
+
+	/**
+	 * Internal method to sort the current run and write it to a temporary file.
+	 */
+	private void spill() throws IOException {
+		Collections.sort(blocks);
+		File file = File.createTempFile("ctm-run", ".tmp");
+		files.add(file);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			for (Block block : blocks) {
+				writeString(out, block.key);
+				writeString(out, block.content);
+			}
+		} finally {
+			out.close();
+		}
+		blocks = new ArrayList<Block>();
+		size = 0;
+	}
+
+	/**
+	 * Moves to the next block in sorted order. The first call finishes adding
+	 * blocks.
+	 *
+	 * @return <code>false</code> if there are no more blocks
+	 * @throws IOException
+	 *             thrown if a spilled run cannot be read
+	 */
+	public boolean next() throws IOException {
+		if (runs == null) {
+			runs = new PriorityQueue<Run>(Math.max(1, files.size() + 1));
+			if (!files.isEmpty()) {
+				if (!blocks.isEmpty()) {
+					spill();
+				}
+				for (File file : files) {
+					Run run = new Run(file);
+					opened.add(run);
+					if (run.next()) {
+						runs.add(run);
+					}
+				}
+			} else {
+				Collections.sort(blocks);
+			}
+		}
+		if (files.isEmpty()) {
+			if (position < blocks.size()) {
+				current = blocks.get(position);
+				blocks.set(position++, null);
+				return true;
+			}
+			current = null;
+			return false;
+		}
+		Run run = runs.poll();
+		if (run == null) {
+			current = null;
+			return false;
+		}
+		current = run.block;
+		if (run.next()) {
+			runs.add(run);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the current block.
+	 *
+	 * @return the rendered block
+	 */
+	public String getBlock() {
+		return current.content;
+	}
+
+	/**
+	 * Closes all runs and removes the temporary files.
+	 */
+	public void close() {
+		for (Run run : opened) {
+			try {
+				run.in.close();
+			} catch (IOException e) {
+				// ignore, the file is removed anyway
+			}
+		}
+		for (File file : files) {
+			file.delete();
+		}
+		files.clear();
+		opened.clear();
+		blocks = new ArrayList<Block>();
+	}
+
+	/**
+	 * Internal method to write a string of any length as UTF-8.
+	 */
+	private static void writeString(final DataOutputStream out, final String string) throws IOException {
+		byte[] bytes = string.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Internal method to read a string written by
+	 * {@link #writeString(DataOutputStream, String)}.
+	 */
+	private static String readString(final DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
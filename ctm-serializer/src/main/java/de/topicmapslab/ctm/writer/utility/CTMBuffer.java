@@ -16,9 +16,21 @@ import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Buffer class for CTM content.
+ * Buffer class for CTM content. The content is stored in a list of character
+ * segments, so the buffer grows without copying its content. Appending a
+ * buffer to another one shares the segments of the appended buffer instead of
+ * copying them, a shared segment is copied before it is modified by one of the
+ * buffers. The position of the last tail-symbol is tracked, so
+ * {@link #clearCTMTail()} does not have to search the content.
+ * <p>
+ * The buffer is not synchronized and should only be used by one thread at the
+ * same time.
+ * </p>
  * 
  * @author Sven Krosse
  * @email krosse@informatik.uni-leipzig.de
@@ -27,15 +39,218 @@ import java.io.IOException;
 public class CTMBuffer implements ICTMWriter {
 
 	/**
-	 * the internal buffer
+	 * the default size of a segment in characters
 	 */
-	private StringBuffer buffer;
+	public static final int DEFAULT_SEGMENT_SIZE = 4096;
+
+	/**
+	 * the tail-symbol as character
+	 */
+	private static final char TAIL_SYMBOL = TAIL.charAt(0);
+
+	/**
+	 * a part of the buffer content
+	 */
+	private static class Segment {
+		final char[] chars;
+		int length;
+		boolean shared;
+
+		/**
+		 * constructor of an empty segment
+		 */
+		Segment(final int size) {
+			this.chars = new char[size];
+		}
+
+		/**
+		 * constructor of a private copy of the given segment
+		 */
+		Segment(final Segment segment) {
+			this.chars = segment.chars.clone();
+			this.length = segment.length;
+		}
+	}
+
+	/**
+	 * the size of new segments
+	 */
+	private final int segmentSize;
+
+	/**
+	 * the segments of the buffer
+	 */
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	/**
+	 * the number of characters in all segments
+	 */
+	private int length;
+
+	/**
+	 * the position of the last tail-symbol, <code>-1</code> if there is no
+	 * tail-symbol
+	 */
+	private int lastTail = -1;
+
+	/**
+	 * flag indicates if the position of the last tail-symbol is unknown and
+	 * has to be searched before the position {@link #length}
+	 */
+	private boolean lastTailUnknown;
 
 	/**
 	 * constructor
 	 */
 	public CTMBuffer() {
-		buffer = new StringBuffer();		
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * constructor
+	 * 
+	 * @param segmentSize
+	 *            the size of each segment in characters
+	 */
+	public CTMBuffer(final int segmentSize) {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size has to be positive.");
+		}
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Internal method to return the last segment, if it can be modified. A
+	 * shared last segment is replaced by a private copy.
+	 * 
+	 * @return the last segment or <code>null</code> if there is none
+	 */
+	private Segment lastSegment() {
+		if (segments.isEmpty()) {
+			return null;
+		}
+		int index = segments.size() - 1;
+		Segment segment = segments.get(index);
+		if (segment.shared) {
+			segment = new Segment(segment);
+			segments.set(index, segment);
+		}
+		return segment;
+	}
+
+	/**
+	 * Internal method to return a segment with free space at the end, adding
+	 * a new one if necessary.
+	 * 
+	 * @return the segment
+	 */
+	private Segment writableSegment() {
+		Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (segment == null || segment.shared || segment.length == segment.chars.length) {
+			segment = new Segment(segmentSize);
+			segments.add(segment);
+		}
+		return segment;
+	}
+
+	/**
+	 * Internal method to copy the characters of the given sequence between
+	 * the two indexes into the segments.
+	 * 
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 */
+	private void write(final CharSequence str, final int begin, final int end) {
+		if (begin >= end) {
+			return;
+		}
+		int index = begin;
+		while (index < end) {
+			Segment segment = writableSegment();
+			int count = Math.min(end - index, segment.chars.length - segment.length);
+			if (str instanceof String) {
+				((String) str).getChars(index, index + count, segment.chars, segment.length);
+			} else if (str instanceof StringBuilder) {
+				((StringBuilder) str).getChars(index, index + count, segment.chars, segment.length);
+			} else {
+				for (int i = 0; i < count; i++) {
+					segment.chars[segment.length + i] = str.charAt(index + i);
+				}
+			}
+			/*
+			 * track the last tail-symbol of the copied characters
+			 */
+			for (int i = segment.length + count - 1; i >= segment.length; i--) {
+				if (segment.chars[i] == TAIL_SYMBOL) {
+					lastTail = length + i - segment.length;
+					lastTailUnknown = false;
+					break;
+				}
+			}
+			segment.length += count;
+			length += count;
+			index += count;
+		}
+	}
+
+	/**
+	 * Internal method to copy the given string into the segments.
+	 * 
+	 * @param str
+	 *            the string
+	 */
+	private void write(final String str) {
+		write(str, 0, str.length());
+	}
+
+	/**
+	 * Internal method to remove all characters behind the given position.
+	 * 
+	 * @param position
+	 *            the new length of the buffer
+	 */
+	private void truncate(final int position) {
+		while (length > position) {
+			Segment segment = segments.get(segments.size() - 1);
+			if (length - segment.length >= position) {
+				segments.remove(segments.size() - 1);
+				length -= segment.length;
+			} else {
+				segment = lastSegment();
+				segment.length -= length - position;
+				length = position;
+			}
+		}
+		if (lastTail >= position) {
+			lastTailUnknown = true;
+		}
+	}
+
+	/**
+	 * Internal method to search the last tail-symbol of the buffer backwards,
+	 * if the position is unknown.
+	 */
+	private void findLastTail() {
+		if (!lastTailUnknown) {
+			return;
+		}
+		lastTailUnknown = false;
+		lastTail = -1;
+		int position = length;
+		for (int i = segments.size() - 1; i >= 0; i--) {
+			Segment segment = segments.get(i);
+			position -= segment.length;
+			for (int j = segment.length - 1; j >= 0; j--) {
+				if (segment.chars[j] == TAIL_SYMBOL) {
+					lastTail = position + j;
+					return;
+				}
+			}
+		}
 	}
 
 	/**
@@ -49,23 +264,21 @@ public class CTMBuffer implements ICTMWriter {
 	 */
 	private void appendElements(final boolean withWhitespaces,
 			final String... elements) {
-		final StringBuffer buffer = new StringBuffer();
 		boolean first = true;
 		for (String element : elements) {
 			if (!first && withWhitespaces) {
-				buffer.append(WHITESPACE);
+				write(WHITESPACE);
 			}
-			buffer.append(element);
+			write(element);
 			first = false;
 		}
-		this.buffer.append(buffer.toString());
 	}
 
 	/**
 	 * Appends a new line to buffer, by adding a new-line-command.
 	 */
 	public void appendLine() {
-		this.buffer.append(NEWLINE);
+		write(NEWLINE);
 	}
 
 	/**
@@ -92,7 +305,7 @@ public class CTMBuffer implements ICTMWriter {
 	public void appendLine(final boolean withWhitespaces,
 			final String... elements) {
 		appendElements(withWhitespaces, elements);
-		this.buffer.append(NEWLINE);
+		write(NEWLINE);
 	}
 
 	/**
@@ -102,7 +315,19 @@ public class CTMBuffer implements ICTMWriter {
 	 *            the line to add
 	 */
 	public void appendLine(final String line) {
-		this.buffer.append(line.trim() + NEWLINE);
+		/*
+		 * same bounds as String#trim() without creating a new string
+		 */
+		int begin = 0;
+		int end = line.length();
+		while (begin < end && line.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while (begin < end && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		write(line, begin, end);
+		write(NEWLINE);
 	}
 
 	/**
@@ -110,14 +335,15 @@ public class CTMBuffer implements ICTMWriter {
 	 * the end of line.
 	 */
 	public void appendTailLine() {
-		this.buffer.append(TAIL + NEWLINE);
+		write(TAIL);
+		write(NEWLINE);
 	}
 
 	/**
 	 * Appends a CTM tail-symbol to the buffer.
 	 */
 	public void appendTail() {
-		this.buffer.append(TAIL);
+		write(TAIL);
 	}
 
 	/**
@@ -128,7 +354,8 @@ public class CTMBuffer implements ICTMWriter {
 	 */
 	public void appendTailLine(final String... elements) {
 		appendElements(true, elements);
-		this.buffer.append(TAIL + NEWLINE);
+		write(TAIL);
+		write(NEWLINE);
 	}
 
 	/**
@@ -138,7 +365,9 @@ public class CTMBuffer implements ICTMWriter {
 	 *            the line to add
 	 */
 	public void appendTailLine(final String line) {
-		this.buffer.append(line + TAIL + NEWLINE);
+		write(line);
+		write(TAIL);
+		write(NEWLINE);
 	}
 
 	/**
@@ -154,7 +383,8 @@ public class CTMBuffer implements ICTMWriter {
 	public void appendTailLine(final boolean withWhitespaces,
 			final String... elements) {
 		appendElements(withWhitespaces, elements);
-		this.buffer.append(TAIL + NEWLINE);
+		write(TAIL);
+		write(NEWLINE);
 	}
 
 	/**
@@ -164,7 +394,47 @@ public class CTMBuffer implements ICTMWriter {
 	 *            the string to add
 	 */
 	public void append(final String str) {
-		this.buffer.append(str);
+		write(str);
+	}
+
+	/**
+	 * Appends a single character to the buffer.
+	 * 
+	 * @param c
+	 *            the character to add
+	 */
+	public void append(final char c) {
+		Segment segment = writableSegment();
+		if (c == TAIL_SYMBOL) {
+			lastTail = length;
+			lastTailUnknown = false;
+		}
+		segment.chars[segment.length++] = c;
+		length++;
+	}
+
+	/**
+	 * Appends a part of the given character sequence to the buffer.
+	 * 
+	 * @param csq
+	 *            the character sequence
+	 * @param start
+	 *            the index of the first character to add
+	 * @param end
+	 *            the index after the last character to add
+	 */
+	public void append(final CharSequence csq, final int start, final int end) {
+		write(csq, start, end);
+	}
+
+	/**
+	 * Appends the decimal representation of the given number to the buffer.
+	 * 
+	 * @param value
+	 *            the number to add
+	 */
+	public void append(final long value) {
+		write(Long.toString(value));
 	}
 
 	/**
@@ -199,36 +469,125 @@ public class CTMBuffer implements ICTMWriter {
 	 *            the buffer to add
 	 */
 	public void appendLine(final CTMBuffer buffer) {
-		this.buffer.append(buffer.getBuffer() + NEWLINE);
+		append(buffer);
+		write(NEWLINE);
 	}
 
 	/**
-	 * Appends the whole content of the given buffer.
+	 * Appends the whole content of the given buffer. The segments of the
+	 * given buffer are shared by both buffers and not copied.
 	 * 
 	 * @param buffer
 	 *            the buffer to add
 	 */
 	public void append(final CTMBuffer buffer) {
-		this.buffer.append(buffer.getBuffer());
+		if (buffer == this) {
+			append(buffer.toString());
+			return;
+		}
+		buffer.findLastTail();
+		if (buffer.lastTail != -1) {
+			lastTail = length + buffer.lastTail;
+			lastTailUnknown = false;
+		}
+		for (Segment segment : buffer.segments) {
+			segment.shared = true;
+			segments.add(segment);
+		}
+		length += buffer.length;
 	}
 
 	/**
-	 * Provide access to the internal {@link StringBuffer}.
+	 * Writes the whole content of the buffer to the given writer. A surrogate
+	 * pair is never split between two calls of the writer, even if it is
+	 * split between two segments.
+	 * 
+	 * @param writer
+	 *            the target writer
+	 * @throws IOException
+	 *             thrown if the writer failed
+	 */
+	public void writeTo(final ICTMWriter writer) throws IOException {
+		char pending = 0;
+		for (Segment segment : segments) {
+			int begin = 0;
+			int end = segment.length;
+			if (end == 0) {
+				continue;
+			}
+			if (pending != 0) {
+				if (Character.isLowSurrogate(segment.chars[0])) {
+					writer.append(new String(new char[] { pending, segment.chars[0] }));
+					begin = 1;
+				} else {
+					writer.append(pending);
+				}
+				pending = 0;
+			}
+			if (end > begin && Character.isHighSurrogate(segment.chars[end - 1])) {
+				pending = segment.chars[--end];
+			}
+			if (end > begin) {
+				writer.append(CharBuffer.wrap(segment.chars), begin, end);
+			}
+		}
+		if (pending != 0) {
+			writer.append(pending);
+		}
+	}
+
+	/**
+	 * Returns the number of characters in the buffer.
+	 * 
+	 * @return the length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a 64-bit fingerprint of the content (FNV-1a over the
+	 * characters). Equal contents have equal fingerprints, independent of the
+	 * segment size.
+	 * 
+	 * @return the fingerprint
+	 */
+	public long fingerprint() {
+		long hash = 0xcbf29ce484222325L;
+		for (Segment segment : segments) {
+			for (int i = 0; i < segment.length; i++) {
+				char c = segment.chars[i];
+				hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+				hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns a copy of the content as {@link StringBuffer}. Changes of the
+	 * returned instance have no effect to this buffer.
 	 * 
 	 * @return the buffer
+	 * @deprecated use {@link #toString()} or {@link #writeTo(ICTMWriter)}
 	 */
+	@Deprecated
 	public StringBuffer getBuffer() {
-		return buffer;
+		return new StringBuffer(toString());
 	}
 
 	/**
 	 * {@inheritDoc}
 	 * 
-	 * @return {@link StringBuffer#toString()}
+	 * @return the content of the buffer
 	 */
 	@Override
 	public String toString() {
-		return buffer.toString();
+		StringBuilder builder = new StringBuilder(length);
+		for (Segment segment : segments) {
+			builder.append(segment.chars, 0, segment.length);
+		}
+		return builder.toString();
 	}
 
 	/**
@@ -236,16 +595,14 @@ public class CTMBuffer implements ICTMWriter {
 	 * tail-symbol with a dot to symbolize the end of topic-definition-block
 	 */
 	public void clearCTMTail() {
-		String tail = getBuffer().toString();
-		int index = tail.lastIndexOf(TAIL);
-		if (index != -1) {
-			String ctm = tail.substring(0, index) + DOT + NEWLINE;
-			buffer = new StringBuffer();
-			buffer.append(ctm);
+		findLastTail();
+		if (lastTail != -1) {
+			truncate(lastTail);
 		} else {
-			buffer.setLength(buffer.length()-NEWLINE.length());
-			buffer.append(DOT + NEWLINE);
+			truncate(Math.max(0, length - NEWLINE.length()));
 		}
+		write(DOT);
+		write(NEWLINE);
 	}
 
 	/**
@@ -263,9 +620,22 @@ public class CTMBuffer implements ICTMWriter {
 	 * {@inheritDoc}
 	 */
 	public void appendBlockEnd() throws IOException {
-		buffer.append(DOT);
-		buffer.append(NEWLINE);
-		
+		write(DOT);
+		write(NEWLINE);
+	}
+
+	/**
+	 * The buffer has no underlying target, so the method does nothing.
+	 */
+	public void flush() {
+		// VOID
+	}
+
+	/**
+	 * The buffer has no resources to release, so the method does nothing.
+	 */
+	public void close() {
+		// VOID
 	}
 
 }
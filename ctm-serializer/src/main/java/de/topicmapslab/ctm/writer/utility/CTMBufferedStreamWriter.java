@@ -0,0 +1,64 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered stream class for CTM content. In contrast to
+ * {@link CTMStreamWriter} the content is encoded into an internal buffer and
+ * written to the stream in large blocks, the written bytes are the same.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMBufferedStreamWriter extends CTMByteWriter {
+
+	private final OutputStream stream;
+
+	/**
+	 * constructor using the default buffer size
+	 *
+	 * @param stream
+	 *            the target stream
+	 */
+	public CTMBufferedStreamWriter(final OutputStream stream) {
+		this(stream, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param stream
+	 *            the target stream
+	 * @param bufferSize
+	 *            the size of the internal buffer in bytes
+	 */
+	public CTMBufferedStreamWriter(final OutputStream stream, final int bufferSize) {
+		super(bufferSize);
+		this.stream = stream;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void drain(byte[] bytes, int offset, int length) throws IOException {
+		stream.write(bytes, offset, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void flushTarget() throws IOException {
+		stream.flush();
+	}
+
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.COMMENT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.DOT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.NEWLINE;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.UTF_8;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Abstract base class of all writers encoding the CTM content to UTF-8 bytes.
+ * The content is encoded into an internal byte buffer which is reused for the
+ * whole serialization and handed over to the sub-class as soon as it is full.
+ * ASCII characters are copied directly, all other characters are encoded by a
+ * {@link CharsetEncoder}. The encoded bytes are identical to the result of
+ * {@link String#getBytes(String)} with UTF-8 for the concatenation of all
+ * appended content, even if a surrogate pair is split between two calls.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public abstract class CTMByteWriter implements ICTMWriter {
+
+	/**
+	 * the default size of the internal byte buffer
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * the pre-encoded CTM tokens
+	 */
+	private static final byte[] NEWLINE_BYTES = encode(NEWLINE);
+	private static final byte[] TAIL_BYTES = encode(TAIL);
+	private static final byte[] DOT_BYTES = encode(DOT);
+	private static final byte[] WHITESPACE_BYTES = encode(WHITESPACE);
+	private static final byte[] COMMENT_BYTES = encode(COMMENT);
+
+	/**
+	 * the internal byte buffer
+	 */
+	private final byte[] buffer;
+
+	/**
+	 * the number of bytes currently stored in the buffer
+	 */
+	private int position;
+
+	/**
+	 * the encoder used for all non-ASCII characters
+	 */
+	private final CharsetEncoder encoder;
+
+	/**
+	 * a high surrogate at the end of the last call waiting for its low
+	 * surrogate, <code>0</code> if there is none
+	 */
+	private char pendingSurrogate;
+
+	/**
+	 * constructor
+	 *
+	 * @param bufferSize
+	 *            the size of the internal byte buffer
+	 */
+	protected CTMByteWriter(final int bufferSize) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer size has to be at least 16 bytes.");
+		}
+		this.buffer = new byte[bufferSize];
+		this.encoder = Charset.forName(UTF_8).newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Called every time the internal buffer is full or the writer is flushed.
+	 * The implementation has to consume the given bytes before returning,
+	 * because the array is reused afterwards.
+	 *
+	 * @param bytes
+	 *            the encoded bytes
+	 * @param offset
+	 *            the offset of the first byte
+	 * @param length
+	 *            the number of bytes
+	 * @throws IOException
+	 *             thrown if the bytes cannot be written
+	 */
+	protected abstract void drain(final byte[] bytes, final int offset, final int length) throws IOException;
+
+	/**
+	 * Called by {@link #flush()} after the internal buffer was drained. The
+	 * default implementation does nothing.
+	 *
+	 * @throws IOException
+	 *             thrown if the target cannot be flushed
+	 */
+	protected void flushTarget() throws IOException {
+		// VOID
+	}
+
+	/**
+	 * Discards the content of the internal buffer not handed over to
+	 * {@link #drain(byte[], int, int)} yet, e.g. after a failed serialization,
+	 * so the writer can be reused.
+	 */
+	protected void discard() {
+		position = 0;
+		pendingSurrogate = 0;
+	}
+
+	/**
+	 * Hands over the content of the internal buffer to {@link #drain(byte[], int, int)}.
+	 *
+	 * @throws IOException
+	 *             thrown if the bytes cannot be written
+	 */
+	private void drainBuffer() throws IOException {
+		if (position > 0) {
+			drain(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/**
+	 * Internal method to add a pre-encoded token to the buffer.
+	 *
+	 * @param bytes
+	 *            the encoded token
+	 */
+	private void write(final byte[] bytes) throws IOException {
+		if (pendingSurrogate != 0) {
+			writePendingSurrogate();
+		}
+		if (position + bytes.length > buffer.length) {
+			drainBuffer();
+		}
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * Internal method to encode the characters of the given sequence between
+	 * the two indexes.
+	 *
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 */
+	private void write(final CharSequence str, final int begin, final int end) throws IOException {
+		if (begin >= end) {
+			return;
+		}
+		int index = begin;
+		if (pendingSurrogate != 0) {
+			if (Character.isLowSurrogate(str.charAt(index))) {
+				writeCodePoint(Character.toCodePoint(pendingSurrogate, str.charAt(index++)));
+				pendingSurrogate = 0;
+			} else {
+				writePendingSurrogate();
+			}
+		}
+		final byte[] buffer = this.buffer;
+		for (int i = index; i < end; i++) {
+			final char c = str.charAt(i);
+			if (c >= 0x80) {
+				encode(str, i, end);
+				return;
+			}
+			if (position == buffer.length) {
+				drainBuffer();
+			}
+			buffer[position++] = (byte) c;
+		}
+	}
+
+	/**
+	 * Internal method to encode the non-ASCII remainder of a sequence by using
+	 * the {@link CharsetEncoder}.
+	 *
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 */
+	private void encode(final CharSequence str, final int begin, final int end) throws IOException {
+		if (Character.isHighSurrogate(str.charAt(end - 1))) {
+			/*
+			 * the low surrogate may follow with the next call
+			 */
+			pendingSurrogate = str.charAt(end - 1);
+			if (begin == end - 1) {
+				return;
+			}
+			encode(str, begin, end - 1);
+			return;
+		}
+		final CharBuffer in;
+		if (str instanceof CharBuffer) {
+			/*
+			 * a view of the same content instead of a wrapper
+			 */
+			in = ((CharBuffer) str).duplicate();
+			int offset = in.position();
+			in.limit(offset + end);
+			in.position(offset + begin);
+		} else {
+			in = CharBuffer.wrap(str, begin, end);
+		}
+		ByteBuffer out = ByteBuffer.wrap(buffer, position, buffer.length - position);
+		encoder.reset();
+		boolean flushed = false;
+		while (true) {
+			CoderResult result = flushed ? encoder.flush(out) : encoder.encode(in, out, true);
+			position = out.position();
+			if (result.isOverflow()) {
+				drainBuffer();
+				out = ByteBuffer.wrap(buffer);
+			} else if (result.isUnderflow()) {
+				if (flushed) {
+					return;
+				}
+				flushed = true;
+			} else {
+				try {
+					result.throwException();
+				} catch (CharacterCodingException e) {
+					throw new IOException("Encoding failed, because of " + e.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to replace a high surrogate without low surrogate like
+	 * {@link String#getBytes(String)} does.
+	 */
+	private void writePendingSurrogate() throws IOException {
+		pendingSurrogate = 0;
+		if (position == buffer.length) {
+			drainBuffer();
+		}
+		buffer[position++] = '?';
+	}
+
+	/**
+	 * Internal method to encode a supplementary code point to four bytes.
+	 *
+	 * @param codePoint
+	 *            the code point
+	 */
+	private void writeCodePoint(final int codePoint) throws IOException {
+		if (position + 4 > buffer.length) {
+			drainBuffer();
+		}
+		buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+		buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+		buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+		buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+	}
+
+	/**
+	 * Internal method for appending string tokens, which can be split by
+	 * white-spaces if the given flag is true.
+	 *
+	 * @param withWhitespaces
+	 *            flag if elements should be be split by white-spaces
+	 * @param elements
+	 *            the elements to add
+	 */
+	private void appendElements(final boolean withWhitespaces, final String... elements) throws IOException {
+		boolean first = true;
+		for (String element : elements) {
+			if (!first && withWhitespaces) {
+				write(WHITESPACE_BYTES);
+			}
+			write(element, 0, element.length());
+			first = false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine() throws IOException {
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String... elements) throws IOException {
+		appendLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String line) throws IOException {
+		/*
+		 * same bounds as String#trim() without creating a new string
+		 */
+		int begin = 0;
+		int end = line.length();
+		while (begin < end && line.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while (begin < end && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		write(line, begin, end);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine() throws IOException {
+		write(TAIL_BYTES);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTail() throws IOException {
+		write(TAIL_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String... elements) throws IOException {
+		appendTailLine(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String line) throws IOException {
+		write(line, 0, line.length());
+		write(TAIL_BYTES);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendBlockEnd() throws IOException {
+		write(DOT_BYTES);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+		write(TAIL_BYTES);
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String str) throws IOException {
+		write(str, 0, str.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final char c) throws IOException {
+		if (pendingSurrogate != 0) {
+			if (Character.isLowSurrogate(c)) {
+				writeCodePoint(Character.toCodePoint(pendingSurrogate, c));
+				pendingSurrogate = 0;
+				return;
+			}
+			writePendingSurrogate();
+		}
+		if (Character.isHighSurrogate(c)) {
+			pendingSurrogate = c;
+			return;
+		}
+		if (position + 3 > buffer.length) {
+			drainBuffer();
+		}
+		if (c < 0x80) {
+			buffer[position++] = (byte) c;
+		} else if (c < 0x800) {
+			buffer[position++] = (byte) (0xc0 | (c >> 6));
+			buffer[position++] = (byte) (0x80 | (c & 0x3f));
+		} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+			/*
+			 * a low surrogate without high surrogate is replaced like by
+			 * String#getBytes(String)
+			 */
+			buffer[position++] = '?';
+		} else {
+			buffer[position++] = (byte) (0xe0 | (c >> 12));
+			buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			buffer[position++] = (byte) (0x80 | (c & 0x3f));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final CharSequence csq, final int start, final int end) throws IOException {
+		write(csq, start, end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final long value) throws IOException {
+		if (pendingSurrogate != 0) {
+			writePendingSurrogate();
+		}
+		if (value == Long.MIN_VALUE || buffer.length < 20) {
+			final String str = Long.toString(value);
+			write(str, 0, str.length());
+			return;
+		}
+		if (position + 20 > buffer.length) {
+			drainBuffer();
+		}
+		long v = value;
+		if (v < 0) {
+			buffer[position++] = '-';
+			v = -v;
+		}
+		/*
+		 * write the digits backwards behind the current position
+		 */
+		int digits = 1;
+		for (long rest = v / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		int index = position + digits;
+		position = index;
+		do {
+			buffer[--index] = (byte) ('0' + (v % 10));
+			v /= 10;
+		} while (v != 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String... elements) throws IOException {
+		appendElements(true, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final boolean withWhitespaces, final String... elements) throws IOException {
+		appendElements(withWhitespaces, elements);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendCommentLine(final String comment) throws IOException {
+		write(COMMENT_BYTES);
+		write(WHITESPACE_BYTES);
+		write(comment, 0, comment.length());
+		write(NEWLINE_BYTES);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void flush() throws IOException {
+		if (pendingSurrogate != 0) {
+			writePendingSurrogate();
+		}
+		drainBuffer();
+		flushTarget();
+	}
+
+	/**
+	 * Internal method to encode a constant token once.
+	 *
+	 * @param token
+	 *            the token
+	 * @return the UTF-8 bytes
+	 */
+	private static byte[] encode(final String token) {
+		try {
+			return token.getBytes(UTF_8);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		flush();
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Channel class for CTM content. The content is encoded by
+ * {@link CTMByteWriter} and written to a {@link FileChannel}, starting at the
+ * current position of the channel. The writer supports two modes:
+ * <ul>
+ * <li>the default mode copies each block into a direct {@link ByteBuffer} and
+ * writes it to the channel</li>
+ * <li>the mapped mode maps the target file in growing windows and copies the
+ * blocks directly into the mapped memory, the channel has to be opened for
+ * reading and writing</li>
+ * </ul>
+ * Mapping a window may extend the file behind the written content. On
+ * {@link #close()} these bytes are removed again and the windows are
+ * released, bytes the file contained before are kept. The channel itself is
+ * not closed.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMChannelWriter extends CTMByteWriter {
+
+	/**
+	 * the size of the first mapped window
+	 */
+	public static final long INITIAL_WINDOW_SIZE = 1024 * 1024;
+
+	/**
+	 * the maximum size of a mapped window
+	 */
+	public static final long MAXIMUM_WINDOW_SIZE = 256 * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	/**
+	 * flag indicates if the target is mapped into memory
+	 */
+	private final boolean mapped;
+
+	/**
+	 * the direct buffer used by the default mode
+	 */
+	private final ByteBuffer direct;
+
+	/**
+	 * the current window of the mapped mode
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * the file position of the next byte
+	 */
+	private long position;
+
+	/**
+	 * the size of the file before the first byte was written
+	 */
+	private final long initialSize;
+
+	/**
+	 * constructor using the default mode
+	 *
+	 * @param channel
+	 *            the target channel
+	 */
+	public CTMChannelWriter(final FileChannel channel) throws IOException {
+		this(channel, DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param channel
+	 *            the target channel
+	 * @param bufferSize
+	 *            the size of the internal buffer in bytes
+	 * @param mapped
+	 *            <code>true</code> to map the target file into memory
+	 * @throws IOException
+	 *             thrown if the channel cannot be accessed
+	 */
+	public CTMChannelWriter(final FileChannel channel, final int bufferSize, final boolean mapped)
+			throws IOException {
+		super(bufferSize);
+		this.channel = channel;
+		this.mapped = mapped;
+		this.position = channel.position();
+		this.initialSize = channel.size();
+		this.direct = mapped ? null : ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void drain(byte[] bytes, int offset, int length) throws IOException {
+		if (mapped) {
+			drainMapped(bytes, offset, length);
+		} else {
+			direct.clear();
+			direct.put(bytes, offset, length);
+			direct.flip();
+			while (direct.hasRemaining()) {
+				position += channel.write(direct, position);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to copy the given bytes into the mapped windows.
+	 *
+	 * @param bytes
+	 *            the encoded bytes
+	 * @param offset
+	 *            the offset of the first byte
+	 * @param length
+	 *            the number of bytes
+	 */
+	private void drainMapped(byte[] bytes, int offset, int length) throws IOException {
+		int off = offset;
+		int remaining = length;
+		while (remaining > 0) {
+			if (window == null || !window.hasRemaining()) {
+				nextWindow();
+			}
+			int count = Math.min(remaining, window.remaining());
+			window.put(bytes, off, count);
+			off += count;
+			remaining -= count;
+			position += count;
+		}
+	}
+
+	/**
+	 * Internal method to map the next window. Each window is twice as large
+	 * as its predecessor until {@link #MAXIMUM_WINDOW_SIZE} is reached.
+	 */
+	private void nextWindow() throws IOException {
+		long size = INITIAL_WINDOW_SIZE;
+		if (window != null) {
+			size = Math.min(window.capacity() * 2L, MAXIMUM_WINDOW_SIZE);
+			window.force();
+			unmap(window);
+			window = null;
+		}
+		window = channel.map(MapMode.READ_WRITE, position, size);
+	}
+
+	/**
+	 * Internal method to release the memory of the given window without
+	 * waiting for the garbage collector. Java offers no public API to unmap a
+	 * buffer, so the cleaner of the buffer is called by reflection if
+	 * possible, otherwise the window is released by the garbage collector.
+	 * The window must not be used afterwards.
+	 *
+	 * @param buffer
+	 *            the window
+	 */
+	private static void unmap(final MappedByteBuffer buffer) {
+		try {
+			/*
+			 * Java 9 and later
+			 */
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (Exception e) {
+			// VOID, try the cleaner of older versions
+		}
+		try {
+			Method cleaner = buffer.getClass().getMethod("cleaner");
+			cleaner.setAccessible(true);
+			Object instance = cleaner.invoke(buffer);
+			if (instance != null) {
+				Method clean = instance.getClass().getMethod("clean");
+				clean.setAccessible(true);
+				clean.invoke(instance);
+			}
+		} catch (Exception e) {
+			// VOID, released by the garbage collector
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void flushTarget() throws IOException {
+		if (window != null) {
+			window.force();
+		}
+		channel.position(position);
+	}
+
+	/**
+	 * Flushes the writer, releases the current window and removes the bytes
+	 * the mapped windows added behind the written content. Bytes the file
+	 * contained before are kept.
+	 *
+	 * @throws IOException
+	 *             thrown if the channel cannot be accessed
+	 */
+	public void close() throws IOException {
+		flush();
+		if (window != null) {
+			unmap(window);
+			window = null;
+		}
+		final long end = Math.max(position, initialSize);
+		if (channel.size() > end) {
+			channel.truncate(end);
+		}
+		channel.position(position);
+	}
+
+	/**
+	 * Returns the file position behind the last byte handed over to the
+	 * channel. Bytes still contained by the internal buffer are not counted
+	 * until the writer is flushed.
+	 *
+	 * @return the position
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Character stream class for CTM content. The content is written to a
+ * {@link Writer}, the encoding is done by the writer. In contrast to
+ * {@link Writer#append(CharSequence, int, int)} a part of a string is written
+ * without creating a sub-sequence.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMCharacterWriter extends CTMAppendableWriter {
+
+	private final Writer writer;
+
+	/**
+	 * constructor
+	 *
+	 * @param writer
+	 *            the target writer
+	 */
+	public CTMCharacterWriter(final Writer writer) {
+		super(writer);
+		this.writer = writer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void write(final CharSequence str, final int begin, final int end) throws IOException {
+		if (str instanceof String) {
+			writer.write((String) str, begin, end - begin);
+		} else if (str instanceof CharBuffer && ((CharBuffer) str).hasArray()) {
+			CharBuffer buffer = (CharBuffer) str;
+			writer.write(buffer.array(), buffer.arrayOffset() + buffer.position() + begin, end - begin);
+		} else {
+			writer.append(str, begin, end);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void write(final String str) throws IOException {
+		writer.write(str);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void write(final char c) throws IOException {
+		writer.write(c);
+	}
+
+}
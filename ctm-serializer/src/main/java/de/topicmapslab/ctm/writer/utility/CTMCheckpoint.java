@@ -0,0 +1,164 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Checkpoint of a resumable export. A checkpoint contains the number of bytes
+ * of the output forced to the storage device, the position of the next
+ * construct in the deterministic order of the topic and association blocks
+ * and a fingerprint of the state of the serializer, i.e. the header, the
+ * prefixes and the templates. A new process may truncate the partial output
+ * to the offset and continue at the position if the state is unchanged.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMCheckpoint {
+
+	/**
+	 * the property key of the offset
+	 */
+	private static final String OFFSET = "offset";
+
+	/**
+	 * the property key of the position
+	 */
+	private static final String POSITION = "position";
+
+	/**
+	 * the property key of the state
+	 */
+	private static final String STATE = "state";
+
+	/**
+	 * the number of bytes forced to the storage device
+	 */
+	private final long offset;
+
+	/**
+	 * the position of the next construct
+	 */
+	private final int position;
+
+	/**
+	 * the fingerprint of the serializer state
+	 */
+	private final long state;
+
+	/**
+	 * constructor
+	 *
+	 * @param offset
+	 *            the number of bytes forced to the storage device
+	 * @param position
+	 *            the position of the next construct
+	 * @param state
+	 *            the fingerprint of the serializer state
+	 */
+	public CTMCheckpoint(final long offset, final int position, final long state) {
+		this.offset = offset;
+		this.position = position;
+		this.state = state;
+	}
+
+	/**
+	 * Returns the number of bytes of the output forced to the storage device.
+	 *
+	 * @return the offset
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the position of the next construct in the deterministic order.
+	 *
+	 * @return the position
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the fingerprint of the serializer state.
+	 *
+	 * @return the state
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * Reads the checkpoint from the given file.
+	 *
+	 * @param file
+	 *            the checkpoint file
+	 * @return the checkpoint or <code>null</code> if the file does not exist
+	 * @throws IOException
+	 *             thrown if the file cannot be read or is not a checkpoint
+	 */
+	public static CTMCheckpoint read(final File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		try {
+			return new CTMCheckpoint(Long.parseLong(properties.getProperty(OFFSET)), Integer.parseInt(properties
+					.getProperty(POSITION)), Long.parseLong(properties.getProperty(STATE)));
+		} catch (NumberFormatException e) {
+			throw new IOException("Reading checkpoint failed, because of " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Writes the checkpoint to the given file and forces it to the storage
+	 * device. The checkpoint is written to a temporary file first, so the old
+	 * checkpoint is kept if writing fails.
+	 *
+	 * @param file
+	 *            the checkpoint file
+	 * @throws IOException
+	 *             thrown if the file cannot be written
+	 */
+	public void write(final File file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(OFFSET, Long.toString(offset));
+		properties.setProperty(POSITION, Integer.toString(position));
+		properties.setProperty(STATE, Long.toString(state));
+
+		File temporary = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temporary);
+		try {
+			properties.store(out, "CTM export checkpoint");
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Writing checkpoint failed, because of " + file + " cannot be replaced.");
+		}
+		if (!temporary.renameTo(file)) {
+			throw new IOException("Writing checkpoint failed, because of " + temporary + " cannot be renamed.");
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Scoped;
+import org.tmapi.core.Topic;
+import org.tmapi.core.Variant;
+
+import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
+
+/**
+ * Utility class to order topic map constructs independently of the topic maps
+ * engine and the process. A topic is ordered by the key of its stable identity
+ * (see {@link CTMIdentity#findStableIdentity(CTMTopicMapWriterProperties, Topic)}),
+ * the other constructs by the keys of their types, values, scopes, roles and
+ * players. The key of a topic also identifies its block in the fingerprint
+ * index of the delta export.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public final class CTMConstructOrder {
+
+	/**
+	 * a construct with its order key
+	 */
+	private static final class Entry<T> implements Comparable<Entry<T>> {
+
+		/**
+		 * the order key
+		 */
+		private final String key;
+
+		/**
+		 * the construct
+		 */
+		private final T construct;
+
+		/**
+		 * constructor
+		 */
+		private Entry(final String key, final T construct) {
+			this.key = key;
+			this.construct = construct;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int compareTo(Entry<T> o) {
+			return key.compareTo(o.key);
+		}
+	}
+
+	/**
+	 * hidden constructor
+	 */
+	private CTMConstructOrder() {
+	}
+
+	/**
+	 * Returns the key of the given topic, i.e. the CTM notation of its stable
+	 * identity without prefixes (see
+	 * {@link CTMFingerprintIndex#getKey(CTMMainIdentifier)}).
+	 *
+	 * @param identity
+	 *            the identity utility of the export
+	 * @param properties
+	 *            the properties of the export
+	 * @param topic
+	 *            the topic
+	 * @return the key or <code>null</code> if the topic has no identity
+	 */
+	public static String getKey(final CTMIdentity identity, final CTMTopicMapWriterProperties properties,
+			final Topic topic) {
+		CTMMainIdentifier identifier = identity.findStableIdentity(properties, topic);
+		if (identifier == null) {
+			return null;
+		}
+		return CTMFingerprintIndex.getKey(identifier);
+	}
+
+	/**
+	 * Returns the order key of the given construct or locator. The key of an
+	 * association contains its type, scope, roles, item-identifiers and
+	 * reifier.
+	 *
+	 * @param identity
+	 *            the identity utility of the export
+	 * @param properties
+	 *            the properties of the export
+	 * @param construct
+	 *            the construct or locator
+	 * @return the order key, never <code>null</code>
+	 */
+	public static String getOrderKey(final CTMIdentity identity, final CTMTopicMapWriterProperties properties,
+			final Object construct) {
+		if (construct instanceof Topic) {
+			String key = getKey(identity, properties, (Topic) construct);
+			return key == null ? "" : key;
+		}
+		if (construct instanceof Locator) {
+			return ((Locator) construct).toExternalForm();
+		}
+		StringBuilder key = new StringBuilder();
+		if (construct instanceof Association) {
+			Association association = (Association) construct;
+			key.append(getOrderKey(identity, properties, association.getType()));
+			appendScope(identity, properties, association, key);
+			key.append('(').append(getOrderKeys(identity, properties, association.getRoles()));
+			key.append('^').append(getOrderKeys(identity, properties, association.getItemIdentifiers()));
+			if (association.getReifier() != null) {
+				key.append('~').append(getOrderKey(identity, properties, association.getReifier()));
+			}
+		} else if (construct instanceof Role) {
+			Role role = (Role) construct;
+			key.append(getOrderKey(identity, properties, role.getType()));
+			key.append(':').append(getOrderKey(identity, properties, role.getPlayer()));
+		} else if (construct instanceof Name) {
+			Name name = (Name) construct;
+			key.append(getOrderKey(identity, properties, name.getType()));
+			key.append('=').append(name.getValue());
+			appendScope(identity, properties, name, key);
+		} else if (construct instanceof Occurrence) {
+			Occurrence occurrence = (Occurrence) construct;
+			key.append(getOrderKey(identity, properties, occurrence.getType()));
+			key.append('=').append(occurrence.getValue());
+			key.append("^^").append(occurrence.getDatatype().toExternalForm());
+			appendScope(identity, properties, occurrence, key);
+		} else if (construct instanceof Variant) {
+			Variant variant = (Variant) construct;
+			key.append(variant.getValue());
+			key.append("^^").append(variant.getDatatype().toExternalForm());
+			appendScope(identity, properties, variant, key);
+		} else {
+			key.append(construct);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Internal method to append the sorted keys of the themes of the given
+	 * scoped construct.
+	 */
+	private static void appendScope(final CTMIdentity identity, final CTMTopicMapWriterProperties properties,
+			final Scoped scoped, final StringBuilder key) {
+		key.append('@').append(getOrderKeys(identity, properties, scoped.getScope()));
+	}
+
+	/**
+	 * Internal method to return the sorted order keys of the given constructs.
+	 */
+	private static List<String> getOrderKeys(final CTMIdentity identity, final CTMTopicMapWriterProperties properties,
+			final Collection<?> constructs) {
+		List<String> keys = new ArrayList<String>(constructs.size());
+		for (Object construct : constructs) {
+			keys.add(getOrderKey(identity, properties, construct));
+		}
+		Collections.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * Returns the given constructs or locators sorted by their order keys.
+	 * Constructs with equal keys keep the order of the given collection.
+	 *
+	 * @param identity
+	 *            the identity utility of the export
+	 * @param properties
+	 *            the properties of the export
+	 * @param constructs
+	 *            the constructs or locators
+	 * @return the sorted constructs
+	 */
+	public static <T> List<T> sort(final CTMIdentity identity, final CTMTopicMapWriterProperties properties,
+			final Collection<T> constructs) {
+		List<Entry<T>> entries = new ArrayList<Entry<T>>(constructs.size());
+		for (T construct : constructs) {
+			entries.add(new Entry<T>(getOrderKey(identity, properties, construct), construct));
+		}
+		Collections.sort(entries);
+		List<T> sorted = new ArrayList<T>(entries.size());
+		for (Entry<T> entry : entries) {
+			sorted.add(entry.construct);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Returns the given constructs or locators in the order they are written
+	 * to a block, i.e. sorted by their order keys if the sorted output is
+	 * enabled (see {@link CTMTopicMapWriterProperties#OUTPUT_SORTED_ENABLED})
+	 * and in the order of the topic maps engine otherwise.
+	 *
+	 * @param identity
+	 *            the identity utility of the export
+	 * @param properties
+	 *            the properties of the export
+	 * @param constructs
+	 *            the constructs or locators
+	 * @return the constructs in the order they are written
+	 */
+	public static <T> Collection<T> getBlockOrder(final CTMIdentity identity,
+			final CTMTopicMapWriterProperties properties, final Collection<T> constructs) {
+		if (constructs.size() < 2 || !properties.isSortedOutputEnabled()) {
+			return constructs;
+		}
+		return sort(identity, properties, constructs);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+/**
+ * Compact set of constructs used to remember the blocks already written. The
+ * elements are stored in a single array with open addressing, so there is no
+ * entry object per element like in a {@link java.util.HashSet}. Elements are
+ * compared by {@link Object#equals(Object)}. The set cannot contain
+ * <code>null</code> and elements cannot be removed.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMConstructSet {
+
+	/**
+	 * the hash table, its length is always a power of two
+	 */
+	private Object[] table;
+
+	/**
+	 * the number of elements
+	 */
+	private int size;
+
+	/**
+	 * constructor
+	 */
+	public CTMConstructSet() {
+		this(16);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param expectedSize
+	 *            the expected number of elements
+	 */
+	public CTMConstructSet(final int expectedSize) {
+		int capacity = 4;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		table = new Object[capacity];
+	}
+
+	/**
+	 * Adds the given element to the set.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> if the element was not contained before
+	 */
+	public boolean add(final Object element) {
+		int index = indexOf(element);
+		if (table[index] != null) {
+			return false;
+		}
+		table[index] = element;
+		if (++size * 2 > table.length) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the given element is contained by the set.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> if the element is contained
+	 */
+	public boolean contains(final Object element) {
+		return table[indexOf(element)] != null;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Internal method to return the index of the given element or of the
+	 * free slot the element has to be stored at.
+	 */
+	private int indexOf(final Object element) {
+		int mask = table.length - 1;
+		int h = element.hashCode() * 0x9e3779b9;
+		int index = (h ^ (h >>> 16)) & mask;
+		while (table[index] != null && !table[index].equals(element)) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	/**
+	 * Internal method to double the capacity of the hash table.
+	 */
+	private void grow() {
+		Object[] old = table;
+		table = new Object[old.length * 2];
+		for (Object element : old) {
+			if (element != null) {
+				table[indexOf(element)] = element;
+			}
+		}
+	}
+
+}
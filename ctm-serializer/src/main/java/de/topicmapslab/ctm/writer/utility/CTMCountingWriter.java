@@ -0,0 +1,242 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.COMMENT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.DOT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.NEWLINE;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.WHITESPACE;
+
+import java.io.IOException;
+
+/**
+ * Base class of decorators counting the content written to another
+ * {@link ICTMWriter}. Each call is forwarded to the writer returned by
+ * {@link #getTarget()} and the length of the UTF-8 encoded content is
+ * reported to {@link #written(long)} afterwards. Flushing and closing is left
+ * to the sub classes.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public abstract class CTMCountingWriter implements ICTMWriter {
+
+	/**
+	 * Returns the writer the content is forwarded to.
+	 *
+	 * @return the target writer
+	 * @throws IOException
+	 *             thrown if the target cannot be accessed
+	 */
+	protected abstract ICTMWriter getTarget() throws IOException;
+
+	/**
+	 * Method called after content was written to the target.
+	 *
+	 * @param bytes
+	 *            the number of UTF-8 encoded bytes written
+	 */
+	protected abstract void written(long bytes);
+
+	/**
+	 * Returns the UTF-8 encoded length of the given sequence between the two
+	 * indexes.
+	 *
+	 * @param str
+	 *            the character sequence
+	 * @param begin
+	 *            the index of the first character
+	 * @param end
+	 *            the index after the last character
+	 * @return the number of bytes
+	 */
+	public static long encodedLength(final CharSequence str, final int begin, final int end) {
+		long count = end - begin;
+		for (int i = begin; i < end; i++) {
+			char c = str.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					count++;
+				} else if (Character.isHighSurrogate(c) && i + 1 < end
+						&& Character.isLowSurrogate(str.charAt(i + 1))) {
+					count += 2;
+					i++;
+				} else {
+					count += 2;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Internal method to return the UTF-8 encoded length of the given string.
+	 */
+	private static long length(final String str) {
+		return encodedLength(str, 0, str.length());
+	}
+
+	/**
+	 * Internal method to return the UTF-8 encoded length of the given
+	 * elements and the white-spaces between them.
+	 */
+	private static long length(final boolean withWhitespaces, final String... elements) {
+		long count = 0;
+		for (String element : elements) {
+			count += length(element);
+		}
+		if (withWhitespaces && elements.length > 1) {
+			count += (elements.length - 1) * WHITESPACE.length();
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine() throws IOException {
+		getTarget().appendLine();
+		written(NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String... elements) throws IOException {
+		getTarget().appendLine(elements);
+		written(length(true, elements) + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		getTarget().appendLine(withWhitespaces, elements);
+		written(length(withWhitespaces, elements) + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendLine(final String line) throws IOException {
+		getTarget().appendLine(line);
+		written(length(line) + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine() throws IOException {
+		getTarget().appendTailLine();
+		written(TAIL.length() + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTail() throws IOException {
+		getTarget().appendTail();
+		written(TAIL.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String... elements) throws IOException {
+		getTarget().appendTailLine(elements);
+		written(length(true, elements) + TAIL.length() + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final String line) throws IOException {
+		getTarget().appendTailLine(line);
+		written(length(line) + TAIL.length() + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendBlockEnd() throws IOException {
+		getTarget().appendBlockEnd();
+		written(DOT.length() + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendTailLine(final boolean withWhitespaces, final String... elements) throws IOException {
+		getTarget().appendTailLine(withWhitespaces, elements);
+		written(length(withWhitespaces, elements) + TAIL.length() + NEWLINE.length());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String str) throws IOException {
+		getTarget().append(str);
+		written(length(str));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final char c) throws IOException {
+		getTarget().append(c);
+		written(c < 0x80 ? 1 : c < 0x800 ? 2 : 3);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final CharSequence csq, final int start, final int end) throws IOException {
+		getTarget().append(csq, start, end);
+		written(encodedLength(csq, start, end));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final long value) throws IOException {
+		getTarget().append(value);
+		long count = value < 0 ? 2 : 1;
+		for (long rest = value / 10; rest != 0; rest /= 10) {
+			count++;
+		}
+		written(count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final String... elements) throws IOException {
+		getTarget().append(elements);
+		written(length(true, elements));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void append(final boolean withWhitespaces, final String... elements) throws IOException {
+		getTarget().append(withWhitespaces, elements);
+		written(length(withWhitespaces, elements));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void appendCommentLine(final String comment) throws IOException {
+		getTarget().appendCommentLine(comment);
+		written(length(comment) + COMMENT.length() + WHITESPACE.length() + NEWLINE.length());
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Index of the fingerprints of the topic and association blocks of an export,
+ * used by the delta export to detect the blocks changed since the last run.
+ * Each block is identified by a stable key, e.g. the CTM notation of the main
+ * identifier of a topic. The index is stored as GZIP compressed sidecar file
+ * next to the export.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMFingerprintIndex {
+
+	/**
+	 * the magic number of an index file
+	 */
+	private static final int MAGIC = 0x43544d46;
+
+	/**
+	 * the version of the file format
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * the fingerprints by key
+	 */
+	private final Map<String, Long> fingerprints;
+
+	/**
+	 * constructor of an empty index
+	 */
+	public CTMFingerprintIndex() {
+		this(16);
+	}
+
+	/**
+	 * constructor of an empty index
+	 *
+	 * @param expectedSize
+	 *            the expected number of blocks
+	 */
+	public CTMFingerprintIndex(final int expectedSize) {
+		fingerprints = new HashMap<String, Long>(Math.max(16, expectedSize * 4 / 3 + 1));
+	}
+
+	/**
+	 * Returns the key identifying a topic block. The key is the CTM notation of
+	 * the given main identifier without prefixes, so it does not depend on the
+	 * prefix detection.
+	 *
+	 * @param identifier
+	 *            the main identifier of the topic
+	 * @return the key
+	 */
+	public static String getKey(final CTMMainIdentifier identifier) {
+		switch (identifier.getType()) {
+		case ITEM_IDENTIFIER:
+			return "^<" + identifier.getIdentifier() + ">";
+		case SUBJECT_LOCATOR:
+			return "=<" + identifier.getIdentifier() + ">";
+		default:
+			return "<" + identifier.getIdentifier() + ">";
+		}
+	}
+
+	/**
+	 * Reads the index from the given file.
+	 *
+	 * @param file
+	 *            the index file
+	 * @return the index, empty if the file does not exist
+	 * @throws IOException
+	 *             thrown if the file cannot be read or is not an index file
+	 */
+	public static CTMFingerprintIndex read(final File file) throws IOException {
+		if (!file.exists()) {
+			return new CTMFingerprintIndex();
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file))));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Reading fingerprint index failed, because of an unknown file format.");
+			}
+			int size = in.readInt();
+			CTMFingerprintIndex index = new CTMFingerprintIndex(size);
+			for (int i = 0; i < size; i++) {
+				String key = in.readUTF();
+				index.put(key, in.readLong());
+			}
+			return index;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the index to the given file. The index is written to a temporary
+	 * file first, so the old index is kept if writing fails.
+	 *
+	 * @param file
+	 *            the index file
+	 * @throws IOException
+	 *             thrown if the file cannot be written
+	 */
+	public void write(final File file) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(temporary))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fingerprints.size());
+			for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue());
+			}
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Writing fingerprint index failed, because of " + file + " cannot be replaced.");
+		}
+		if (!temporary.renameTo(file)) {
+			throw new IOException("Writing fingerprint index failed, because of " + temporary
+					+ " cannot be renamed.");
+		}
+	}
+
+	/**
+	 * Returns the fingerprint of the block with the given key.
+	 *
+	 * @param key
+	 *            the key of the block
+	 * @return the fingerprint or <code>null</code> if the index does not
+	 *         contain the block
+	 */
+	public Long getFingerprint(final String key) {
+		return fingerprints.get(key);
+	}
+
+	/**
+	 * Stores the fingerprint of the block with the given key.
+	 *
+	 * @param key
+	 *            the key of the block
+	 * @param fingerprint
+	 *            the fingerprint
+	 */
+	public void put(final String key, final long fingerprint) {
+		fingerprints.put(key, fingerprint);
+	}
+
+	/**
+	 * Returns the keys of all blocks.
+	 *
+	 * @return an unmodifiable set of the keys
+	 */
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(fingerprints.keySet());
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 *
+	 * @return the number of blocks
+	 */
+	public int size() {
+		return fingerprints.size();
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writer encoding the CTM content of a fragment into a caller-supplied
+ * {@link ByteBuffer}. The writer is reused for many fragments by setting a new
+ * target, so the internal buffer and the encoder are created only once. A
+ * {@link java.nio.BufferOverflowException} is thrown if the target has not
+ * enough space left for the fragment.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMFragmentWriter extends CTMByteWriter {
+
+	/**
+	 * the default size of the internal buffer
+	 */
+	public static final int DEFAULT_FRAGMENT_BUFFER_SIZE = 4 * 1024;
+
+	/**
+	 * the target of the current fragment
+	 */
+	private ByteBuffer target;
+
+	/**
+	 * constructor using the default buffer size
+	 */
+	public CTMFragmentWriter() {
+		this(DEFAULT_FRAGMENT_BUFFER_SIZE);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param bufferSize
+	 *            the size of the internal buffer in bytes
+	 */
+	public CTMFragmentWriter(final int bufferSize) {
+		super(bufferSize);
+	}
+
+	/**
+	 * Sets the target of the next fragment. Content of a previous fragment not
+	 * flushed yet is discarded.
+	 *
+	 * @param target
+	 *            the target buffer
+	 */
+	public void setTarget(final ByteBuffer target) {
+		discard();
+		this.target = target;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void drain(byte[] bytes, int offset, int length) throws IOException {
+		target.put(bytes, offset, length);
+	}
+
+	/**
+	 * Flushes the fragment to the target and releases the target.
+	 *
+	 * @throws IOException
+	 *             thrown if the content cannot be encoded
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			setTarget(null);
+		}
+	}
+
+}
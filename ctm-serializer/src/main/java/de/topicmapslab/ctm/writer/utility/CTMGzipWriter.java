@@ -0,0 +1,236 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compressing stream class for CTM content. The encoded content is split into
+ * blocks of a fixed size, which are compressed in parallel by a thread pool.
+ * Each block is written as an independent GZIP member, so the output is a
+ * sequence of concatenated members as specified by RFC 1952 and can be read by
+ * every GZIP implementation. The members are written in the original order.
+ * The number of blocks in memory is limited to twice the number of threads.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMGzipWriter extends CTMByteWriter {
+
+	/**
+	 * the default size of each compressed block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * the GZIP member header, without modification time and with unknown
+	 * operating system
+	 */
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private final OutputStream stream;
+
+	/**
+	 * the compression level
+	 */
+	private final int level;
+
+	/**
+	 * the thread pool compressing the blocks
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * the maximum number of blocks in progress
+	 */
+	private final int maximumPending;
+
+	/**
+	 * the compressed blocks in progress in original order
+	 */
+	private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+	/**
+	 * flag indicates if at least one member was written
+	 */
+	private boolean written;
+
+	/**
+	 * flag indicates if the writer is closed
+	 */
+	private boolean closed;
+
+	/**
+	 * constructor using the default level, block size and one thread per
+	 * processor
+	 *
+	 * @param stream
+	 *            the target stream
+	 */
+	public CTMGzipWriter(final OutputStream stream) {
+		this(stream, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, 0);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param stream
+	 *            the target stream
+	 * @param level
+	 *            the compression level between 0 and 9 or
+	 *            {@link Deflater#DEFAULT_COMPRESSION}
+	 * @param blockSize
+	 *            the size of each compressed block in bytes
+	 * @param threads
+	 *            the number of compressing threads, <code>0</code> to use
+	 *            one thread per processor
+	 */
+	public CTMGzipWriter(final OutputStream stream, final int level, final int blockSize, final int threads) {
+		super(blockSize);
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Compression level has to be between 0 and 9.");
+		}
+		this.stream = stream;
+		this.level = level;
+		int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.maximumPending = count * 2;
+		this.executor = Executors.newFixedThreadPool(count, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CTM compression");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void drain(byte[] bytes, int offset, int length) throws IOException {
+		if (closed) {
+			throw new IOException("Writer is already closed.");
+		}
+		if (pending.size() >= maximumPending) {
+			writeNext();
+		}
+		final byte[] block = Arrays.copyOfRange(bytes, offset, offset + length);
+		pending.add(executor.submit(new Callable<byte[]>() {
+			public byte[] call() {
+				return compress(block);
+			}
+		}));
+	}
+
+	/**
+	 * Internal method to wait for the oldest block in progress and to write
+	 * it to the stream.
+	 */
+	private void writeNext() throws IOException {
+		Future<byte[]> future = pending.removeFirst();
+		try {
+			stream.write(future.get());
+			written = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the compression.");
+		} catch (ExecutionException e) {
+			throw new IOException("Compression failed, because of " + e.getCause().getLocalizedMessage(), e
+					.getCause());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void flushTarget() throws IOException {
+		while (!pending.isEmpty()) {
+			writeNext();
+		}
+		stream.flush();
+	}
+
+	/**
+	 * Flushes the writer and stops the compressing threads. If nothing was
+	 * written, an empty member is written to produce a valid GZIP stream.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			flush();
+			if (!written) {
+				stream.write(compress(new byte[0]));
+				written = true;
+				stream.flush();
+			}
+		} finally {
+			closed = true;
+			pending.clear();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Internal method to compress the given block to a complete GZIP member.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the GZIP member
+	 */
+	private byte[] compress(final byte[] block) {
+		ByteArrayOutputStream member = new ByteArrayOutputStream(block.length / 2 + HEADER.length + 8);
+		member.write(HEADER, 0, HEADER.length);
+
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(block);
+			deflater.finish();
+			byte[] chunk = new byte[Math.max(512, Math.min(block.length, 64 * 1024))];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(chunk);
+				member.write(chunk, 0, count);
+			}
+		} finally {
+			deflater.end();
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(block);
+		writeInt(member, crc.getValue());
+		writeInt(member, block.length);
+		return member.toByteArray();
+	}
+
+	/**
+	 * Internal method to write the four lower bytes of the given value in
+	 * little-endian order.
+	 */
+	private static void writeInt(ByteArrayOutputStream out, long value) {
+		out.write((int) (value & 0xff));
+		out.write((int) ((value >> 8) & 0xff));
+		out.write((int) ((value >> 16) & 0xff));
+		out.write((int) ((value >> 24) & 0xff));
+	}
+
+}
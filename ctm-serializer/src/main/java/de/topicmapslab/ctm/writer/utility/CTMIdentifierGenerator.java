@@ -0,0 +1,483 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.tmapi.core.Construct;
+import org.tmapi.core.Locator;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+
+/**
+ * Generator of short item-identifiers for topics without usable identifiers,
+ * i.e. topics having no subject-identifier, no subject-locator and only the
+ * internal item-identifiers of the topic maps engine or none at all. Each
+ * topic gets a number, written as base 36 counter behind the letter
+ * <code>t</code> in the name-space of the generator, e.g.
+ * <code>http://psi.example.org/t1z</code>. A number is never used twice and
+ * never for an identifier already used by another construct of the topic
+ * map. The numbers may be stored to a file, so each topic keeps its
+ * identifier between two exports. As the topics have no stable identifier, a
+ * topic is recognized by the values of its names and occurrences. The number
+ * of a topic without names and occurrences, or with the same values as another
+ * topic, is not stored.
+ * <p>
+ * The identifier of a topic is generated and checked against the identifiers
+ * of the topic map once per export, afterwards it is returned without
+ * locking. Concurrent exports use one generator each, created by
+ * {@link #CTMIdentifierGenerator(CTMIdentifierGenerator)}, which share the
+ * numbers and the identifier file of one generator, so they never use the
+ * same number for different topics and never write the file at the same time.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMIdentifierGenerator {
+
+	/**
+	 * the magic number of an identifier file
+	 */
+	private static final int MAGIC = 0x43544d49;
+
+	/**
+	 * the version of the file format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * the maximum length of a key to store, limited by the file format
+	 */
+	private static final int MAX_KEY_LENGTH = 16 * 1024;
+
+	/**
+	 * the name-space of the generated identifiers
+	 */
+	private final String namespace;
+
+	/**
+	 * the generator owning the numbers, this generator if it is not created
+	 * for one export of another one
+	 */
+	private final CTMIdentifierGenerator shared;
+
+	/**
+	 * the numbers by the key of the topic, only used by the shared generator
+	 */
+	private final Map<String, Long> numbers = new HashMap<String, Long>();
+
+	/**
+	 * the generated identifiers of the current export by topic
+	 */
+	private final Map<Topic, String> identifiers = new ConcurrentHashMap<Topic, String>();
+
+	/**
+	 * the topics of the current export by key
+	 */
+	private final Map<String, Topic> owners = new HashMap<String, Topic>();
+
+	/**
+	 * the keys of more than one topic, their numbers are not stored
+	 */
+	private final Set<String> ambiguousKeys = new HashSet<String>();
+
+	/**
+	 * the next number to use, only used by the shared generator
+	 */
+	private long next;
+
+	/**
+	 * flag indicating numbers were added since the generator was read, only
+	 * used by the shared generator
+	 */
+	private boolean modified;
+
+	/**
+	 * the identifier file read by the shared generator or <code>null</code>
+	 */
+	private File file;
+
+	/**
+	 * constructor
+	 *
+	 * @param namespace
+	 *            the name-space of the generated identifiers
+	 */
+	public CTMIdentifierGenerator(final String namespace) {
+		this.namespace = namespace;
+		this.shared = this;
+	}
+
+	/**
+	 * constructor of a generator for one export, using the numbers and the
+	 * identifier file of the given generator
+	 *
+	 * @param generator
+	 *            the generator to share the numbers with
+	 */
+	public CTMIdentifierGenerator(final CTMIdentifierGenerator generator) {
+		this.namespace = generator.namespace;
+		this.shared = generator.shared;
+	}
+
+	/**
+	 * Returns the name-space of the generated identifiers.
+	 *
+	 * @return the name-space
+	 */
+	public String getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * Returns the generated identifier of the given topic. The identifier is
+	 * generated if the topic has none yet.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @return the absolute IRI of the generated identifier
+	 */
+	public String getIdentifier(final Topic topic) {
+		String identifier = identifiers.get(topic);
+		if (identifier == null) {
+			identifier = generate(topic);
+		}
+		return identifier;
+	}
+
+	/**
+	 * Internal method to generate the identifier of the given topic, i.e. to
+	 * use the stored number of its key if the identifier is not used by
+	 * another construct and a new number otherwise.
+	 */
+	private synchronized String generate(final Topic topic) {
+		String identifier = identifiers.get(topic);
+		if (identifier != null) {
+			return identifier;
+		}
+		String key = getKey(topic);
+		if (key != null && !ambiguousKeys.contains(key)) {
+			final Topic owner = owners.get(key);
+			if (owner == null) {
+				owners.put(key, topic);
+			} else {
+				/*
+				 * the key does not recognize the topic, so its number is not
+				 * stored any more
+				 */
+				ambiguousKeys.add(key);
+				owners.remove(key);
+				shared.removeNumber(key);
+				key = null;
+			}
+		} else {
+			key = null;
+		}
+		final Long stored = key == null ? null : shared.getNumber(key);
+		if (stored != null) {
+			identifier = namespace + getLocalIdentifier(stored);
+		}
+		if (identifier == null || !isAvailable(topic, identifier)) {
+			long number;
+			do {
+				number = shared.nextNumber();
+				identifier = namespace + getLocalIdentifier(number);
+			} while (!isAvailable(topic, identifier));
+			if (key != null) {
+				/*
+				 * another export may have numbered the key in the meantime
+				 */
+				final long current = shared.putNumber(key, stored, number);
+				if (current != number && isAvailable(topic, namespace + getLocalIdentifier(current))) {
+					identifier = namespace + getLocalIdentifier(current);
+				}
+			}
+		}
+		identifiers.put(topic, identifier);
+		return identifier;
+	}
+
+	/**
+	 * Internal method of the shared generator to return the number of the
+	 * given key.
+	 */
+	private synchronized Long getNumber(final String key) {
+		return numbers.get(key);
+	}
+
+	/**
+	 * Internal method of the shared generator to return a number not used
+	 * before.
+	 */
+	private synchronized long nextNumber() {
+		return next++;
+	}
+
+	/**
+	 * Internal method of the shared generator to store the given number of
+	 * the given key, if the number of the key is still the expected one.
+	 *
+	 * @return the number of the key
+	 */
+	private synchronized long putNumber(final String key, final Long expected, final long number) {
+		Long current = numbers.get(key);
+		if (current != null && !current.equals(expected)) {
+			return current;
+		}
+		numbers.put(key, number);
+		modified = true;
+		return number;
+	}
+
+	/**
+	 * Internal method of the shared generator to remove the number of the
+	 * given key.
+	 */
+	private synchronized void removeNumber(final String key) {
+		if (numbers.remove(key) != null) {
+			modified = true;
+		}
+	}
+
+	/**
+	 * Returns the number of topics having a generated identifier in the
+	 * current export.
+	 *
+	 * @return the number of topics
+	 */
+	public int size() {
+		return identifiers.size();
+	}
+
+	/**
+	 * Removes the generated identifiers of the current export, so the
+	 * generator can be used for another export. The numbers are kept.
+	 */
+	public synchronized void clear() {
+		identifiers.clear();
+		owners.clear();
+		ambiguousKeys.clear();
+	}
+
+	/**
+	 * Check if identifiers were generated since the generator was read.
+	 *
+	 * @return <code>true</code> if the generator has to be written to keep
+	 *         the identifiers, <code>false</code> otherwise
+	 */
+	public boolean isModified() {
+		synchronized (shared) {
+			return shared.modified;
+		}
+	}
+
+	/**
+	 * Returns the local part of the generated identifier with the given
+	 * number.
+	 *
+	 * @param number
+	 *            the number
+	 * @return the local part, i.e. the letter <code>t</code> and the base 36
+	 *         number
+	 */
+	public static String getLocalIdentifier(final long number) {
+		return "t" + Long.toString(number, 36);
+	}
+
+	/**
+	 * Returns the key recognizing the given topic between two exports, i.e.
+	 * the sorted values of its names and occurrences. Neither the id nor the
+	 * item-identifiers of the topic maps engine are used, because they change
+	 * if the topic map is loaded again.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @return the key or <code>null</code> if the topic has no names and
+	 *         occurrences or too many to be stored
+	 */
+	public static String getKey(final Topic topic) {
+		List<String> values = new ArrayList<String>();
+		for (Name name : topic.getNames()) {
+			values.add("-" + name.getValue());
+		}
+		for (Occurrence occurrence : topic.getOccurrences()) {
+			values.add("=" + occurrence.getValue() + "^^" + occurrence.getDatatype().toExternalForm());
+		}
+		if (values.isEmpty()) {
+			return null;
+		}
+		Collections.sort(values);
+		StringBuilder key = new StringBuilder();
+		for (String value : values) {
+			if (key.length() > 0) {
+				key.append('\n');
+			}
+			key.append(value);
+		}
+		return key.length() > MAX_KEY_LENGTH ? null : key.toString();
+	}
+
+	/**
+	 * Internal method to check if the given identifier is not used by another
+	 * construct of the topic map of the given topic.
+	 */
+	private static boolean isAvailable(final Topic topic, final String identifier) {
+		final TopicMap topicMap = topic.getTopicMap();
+		final Locator locator = topicMap.createLocator(identifier);
+		final Construct construct = topicMap.getConstructByItemIdentifier(locator);
+		if (construct != null && !construct.equals(topic)) {
+			return false;
+		}
+		final Topic other = topicMap.getTopicBySubjectIdentifier(locator);
+		return other == null || other.equals(topic);
+	}
+
+	/**
+	 * Reads the numbers of the topics from the given file into the shared
+	 * generator, if it has not read the file before. The numbers of another
+	 * file read before are replaced, the numbers of the same file are kept,
+	 * because they contain the numbers of the file and the numbers added
+	 * since. Identifiers generated afterwards use numbers greater than the
+	 * numbers read. The numbers of a file of the first version are skipped,
+	 * because their keys are not stable.
+	 *
+	 * @param file
+	 *            the identifier file
+	 * @throws IOException
+	 *             thrown if the file cannot be read or is not an identifier
+	 *             file
+	 */
+	public void read(final File file) throws IOException {
+		synchronized (shared) {
+			shared.readNumbers(file.getAbsoluteFile());
+		}
+	}
+
+	/**
+	 * Internal method of the shared generator to read the numbers of the
+	 * given file.
+	 */
+	private void readNumbers(final File file) throws IOException {
+		if (file.equals(this.file)) {
+			return;
+		}
+		numbers.clear();
+		next = 0;
+		modified = false;
+		this.file = file;
+		if (!file.exists()) {
+			return;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file))));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Reading generated identifiers failed, because of an unknown file format.");
+			}
+			final int version = in.readInt();
+			if (version != 1 && version != VERSION) {
+				throw new IOException("Reading generated identifiers failed, because of an unknown file format.");
+			}
+			next = Math.max(next, in.readLong());
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				String key = in.readUTF();
+				long number = in.readLong();
+				if (version == VERSION) {
+					numbers.put(key, number);
+				}
+				next = Math.max(next, number + 1);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the numbers of the shared generator to the given file, if
+	 * identifiers were generated since the generator was read. The numbers
+	 * are written to a new temporary file in the same directory first, so the
+	 * old file is kept if writing fails.
+	 *
+	 * @param file
+	 *            the identifier file
+	 * @throws IOException
+	 *             thrown if the file cannot be written
+	 */
+	public void write(final File file) throws IOException {
+		synchronized (shared) {
+			shared.writeNumbers(file.getAbsoluteFile());
+		}
+	}
+
+	/**
+	 * Internal method of the shared generator to write the numbers to the
+	 * given file.
+	 */
+	private void writeNumbers(final File file) throws IOException {
+		if (!modified) {
+			return;
+		}
+		File temporary = File.createTempFile("ctm-identifiers", ".tmp", file.getParentFile());
+		boolean success = false;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+					new FileOutputStream(temporary))));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(next);
+				out.writeInt(numbers.size());
+				for (Map.Entry<String, Long> entry : numbers.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeLong(entry.getValue());
+				}
+			} finally {
+				out.close();
+			}
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Writing generated identifiers failed, because of " + file
+						+ " cannot be replaced.");
+			}
+			if (!temporary.renameTo(file)) {
+				throw new IOException("Writing generated identifiers failed, because of " + temporary
+						+ " cannot be renamed.");
+			}
+			success = true;
+		} finally {
+			if (!success) {
+				temporary.delete();
+			}
+		}
+		this.file = file;
+		modified = false;
+	}
+
+}
@@ -11,17 +11,16 @@ package de.topicmapslab.ctm.writer.utility;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXBEGIN;
 import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXEND;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.tmapi.core.Locator;
 import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
 
-import de.topicmapslab.common.tools.prefix.core.Prefixer;
 import de.topicmapslab.ctm.writer.core.PrefixHandler;
-import de.topicmapslab.ctm.writer.core.serializer.PrefixesSerializer;
 import de.topicmapslab.ctm.writer.exception.NoIdentityException;
 import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
 import de.topicmapslab.ctm.writer.utility.CTMMainIdentifier.IdentifierType;
@@ -37,12 +36,39 @@ import de.topicmapslab.identifier.TmdmSubjectIdentifier;
  */
 public class CTMIdentity {
 
+	private final PrefixHandler prefixHandler;
+
 	/**
-	 * internal cache to store the first identifier generated for a topic
+	 * the CTM notation of the main identifiers of the topics already rendered
 	 */
-	private Map<Topic, CTMMainIdentifier> idMap;
+	private final Map<Topic, String> renderedIdentifiers = new ConcurrentHashMap<Topic, String>();
 
-	private final PrefixHandler prefixHandler;
+	/**
+	 * the table of the rendered identifiers used instead of the map or
+	 * <code>null</code>
+	 */
+	private final CTMIdentityTable identityTable;
+
+	/**
+	 * the generator of the identifiers of topics without usable identity or
+	 * <code>null</code>
+	 */
+	private volatile CTMIdentifierGenerator identifierGenerator;
+
+	/**
+	 * the version of the prefixes the rendered identifiers are valid for
+	 */
+	private volatile int prefixVersion;
+
+	/**
+	 * the number of rendered identifiers taken from the cache
+	 */
+	private final AtomicLong cacheHits = new AtomicLong();
+
+	/**
+	 * the number of identifiers rendered because of a cache miss
+	 */
+	private final AtomicLong cacheMisses = new AtomicLong();
 
 	/**
 	 * base constructor
@@ -51,7 +77,303 @@ public class CTMIdentity {
 	 *            the prefix handler
 	 */
 	public CTMIdentity(final PrefixHandler prefixHandler) {
+		this(prefixHandler, null);
+	}
+
+	/**
+	 * constructor of an identity utility storing the rendered identifiers in
+	 * the given {@link CTMIdentityTable}
+	 * 
+	 * @param prefixHandler
+	 *            the prefix handler
+	 * @param identityTable
+	 *            the identity table or <code>null</code> to store the
+	 *            rendered identifiers as strings
+	 */
+	public CTMIdentity(final PrefixHandler prefixHandler,
+			final CTMIdentityTable identityTable) {
 		this.prefixHandler = prefixHandler;
+		this.identityTable = identityTable;
+		this.prefixVersion = prefixHandler.getVersion();
+	}
+
+	/**
+	 * Returns the CTM notation of the main identifier of the given topic, i.e.
+	 * the string representation of
+	 * {@link #getMainIdentifier(CTMTopicMapWriterProperties, Topic)}. The
+	 * notation is computed once per topic and cached until the prefixes
+	 * change, so topics referenced many times as type, role type, player or
+	 * theme are rendered only once.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * @return the CTM notation of the main identifier
+	 * @throws NoIdentityException
+	 *             thrown if topic has no identity ( no item-identifier, no
+	 *             subject-locator and no subject-locator )
+	 */
+	public String getRenderedMainIdentifier(
+			final CTMTopicMapWriterProperties properties, Topic topic)
+			throws NoIdentityException {
+		String rendered = findRenderedMainIdentifier(properties, topic);
+		if (rendered == null) {
+			throw new NoIdentityException("topic has no identity.");
+		}
+		return rendered;
+	}
+
+	/**
+	 * Returns the CTM notation of the main identifier of the given topic like
+	 * {@link #getRenderedMainIdentifier(CTMTopicMapWriterProperties, Topic)},
+	 * but without throwing an exception if the topic has no identity.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * @return the CTM notation of the main identifier or <code>null</code> if
+	 *         the topic has no identity
+	 */
+	public String findRenderedMainIdentifier(
+			final CTMTopicMapWriterProperties properties, Topic topic) {
+		validateCache();
+		if (identityTable != null) {
+			String rendered = identityTable.getIdentifier(topic);
+			if (rendered != null) {
+				cacheHits.incrementAndGet();
+				return rendered;
+			}
+		} else {
+			String rendered = renderedIdentifiers.get(topic);
+			if (rendered != null) {
+				cacheHits.incrementAndGet();
+				return rendered;
+			}
+		}
+		return render(properties, topic);
+	}
+
+	/**
+	 * Writes the CTM notation of the main identifier of the given topic to
+	 * the given writer, equal to
+	 * {@link #getRenderedMainIdentifier(CTMTopicMapWriterProperties, Topic)}.
+	 * If the identity table is used, the cached identifier is copied to the
+	 * writer without creating a string.
+	 * 
+	 * @param writer
+	 *            the writer
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * @throws NoIdentityException
+	 *             thrown if topic has no identity ( no item-identifier, no
+	 *             subject-locator and no subject-locator )
+	 * @throws IOException
+	 *             thrown if writing failed
+	 */
+	public void appendRenderedMainIdentifier(final ICTMWriter writer,
+			final CTMTopicMapWriterProperties properties, Topic topic)
+			throws NoIdentityException, IOException {
+		if (identityTable != null) {
+			validateCache();
+			if (identityTable.appendIdentifier(topic, writer)) {
+				cacheHits.incrementAndGet();
+				return;
+			}
+			String rendered = render(properties, topic);
+			if (rendered == null) {
+				throw new NoIdentityException("topic has no identity.");
+			}
+			writer.append(rendered);
+		} else {
+			writer.append(getRenderedMainIdentifier(properties, topic));
+		}
+	}
+
+	/**
+	 * Checks if the given topic has an identity, i.e. if its main identifier
+	 * can be rendered. The rendered identifier is cached like by
+	 * {@link #findRenderedMainIdentifier(CTMTopicMapWriterProperties, Topic)},
+	 * but if the identity table is used, a cached identifier is not decoded.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * @return <code>true</code> if the topic has an identity
+	 */
+	public boolean hasRenderedMainIdentifier(final CTMTopicMapWriterProperties properties, Topic topic) {
+		if (identityTable != null) {
+			validateCache();
+			if (identityTable.contains(topic)) {
+				cacheHits.incrementAndGet();
+				return true;
+			}
+			return render(properties, topic) != null;
+		}
+		return findRenderedMainIdentifier(properties, topic) != null;
+	}
+
+	/**
+	 * Checks if the CTM notation of the main identifier of the given topic is
+	 * equal to one of the given notations. If the identity table is used, a
+	 * cached identifier is compared without decoding it.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * @param identifiers
+	 *            the CTM notations
+	 * @return <code>true</code> if one of the notations is equal
+	 * @throws NoIdentityException
+	 *             thrown if topic has no identity ( no item-identifier, no
+	 *             subject-locator and no subject-locator )
+	 */
+	public boolean isRenderedMainIdentifier(final CTMTopicMapWriterProperties properties, Topic topic,
+			final String... identifiers) throws NoIdentityException {
+		String rendered;
+		if (identityTable != null) {
+			validateCache();
+			final int index = identityTable.indexOfIdentifier(topic, identifiers);
+			if (index != -2) {
+				cacheHits.incrementAndGet();
+				return index != -1;
+			}
+			rendered = render(properties, topic);
+			if (rendered == null) {
+				throw new NoIdentityException("topic has no identity.");
+			}
+		} else {
+			rendered = getRenderedMainIdentifier(properties, topic);
+		}
+		for (String identifier : identifiers) {
+			if (identifier.equals(rendered)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Internal method to clear the cache if the prefixes have changed.
+	 */
+	private void validateCache() {
+		final int version = prefixHandler.getVersion();
+		if (version != prefixVersion) {
+			clearCache();
+			prefixVersion = version;
+		}
+	}
+
+	/**
+	 * Internal method to render the main identifier of the given topic and
+	 * store it in the cache.
+	 */
+	private String render(final CTMTopicMapWriterProperties properties,
+			final Topic topic) {
+		cacheMisses.incrementAndGet();
+		CTMMainIdentifier identifier = findMainIdentifier(properties, topic);
+		if (identifier == null) {
+			return null;
+		}
+		String rendered = identifier.toString();
+		if (identityTable != null) {
+			identityTable.add(topic, rendered);
+		} else {
+			renderedIdentifiers.put(topic, rendered);
+		}
+		return rendered;
+	}
+
+	/**
+	 * Removes all rendered identifiers from the cache, e.g. because the
+	 * identities of the topics have changed.
+	 */
+	public void clearCache() {
+		if (identityTable != null) {
+			identityTable.clear();
+		} else {
+			renderedIdentifiers.clear();
+		}
+	}
+
+	/**
+	 * Returns the table of the rendered identifiers.
+	 * 
+	 * @return the identity table or <code>null</code> if the rendered
+	 *         identifiers are stored as strings
+	 */
+	public CTMIdentityTable getIdentityTable() {
+		return identityTable;
+	}
+
+	/**
+	 * Returns the generator of the identifiers of topics without usable
+	 * identity.
+	 * 
+	 * @return the generator or <code>null</code> if no identifiers are
+	 *         generated
+	 */
+	public CTMIdentifierGenerator getIdentifierGenerator() {
+		return identifierGenerator;
+	}
+
+	/**
+	 * Sets the generator of the identifiers of topics without usable
+	 * identity. Such topics are identified by a generated item-identifier
+	 * instead of the internal identifier of the topic maps engine.
+	 * 
+	 * @param identifierGenerator
+	 *            the generator or <code>null</code> if no identifiers should
+	 *            be generated
+	 */
+	public void setIdentifierGenerator(
+			final CTMIdentifierGenerator identifierGenerator) {
+		this.identifierGenerator = identifierGenerator;
+		clearCache();
+	}
+
+	/**
+	 * Generates the identifiers of all topics of the given topic map without
+	 * usable identity in the order of the topics, so the generated
+	 * identifiers do not depend on the order the topics are rendered in, e.g.
+	 * by the parallel rendering.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topicMap
+	 *            the topic map
+	 */
+	public void generateIdentifiers(
+			final CTMTopicMapWriterProperties properties, TopicMap topicMap) {
+		if (identifierGenerator == null) {
+			return;
+		}
+		for (Topic topic : topicMap.getTopics()) {
+			findIdentity(properties, topic);
+		}
+	}
+
+	/**
+	 * Returns the number of rendered identifiers taken from the cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Returns the number of identifiers rendered because they were not cached.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.get();
 	}
 
 	/**
@@ -70,63 +392,98 @@ public class CTMIdentity {
 			final CTMTopicMapWriterProperties properties, Topic topic)
 			throws NoIdentityException {
 
-		if (idMap == null)
-			idMap = new HashMap<Topic, CTMMainIdentifier>();
-
-		CTMMainIdentifier prefixedIdentity = getPrefixedIdentity(properties,
-				topic);
-
-		idMap.put(topic, prefixedIdentity);
+		return getPrefixedIdentity(properties, topic);
+	}
 
-		return prefixedIdentity;
+	/**
+	 * Returns the main identifier used to identify the topic map construct in
+	 * the CTM file. In contrast to
+	 * {@link #getMainIdentifier(CTMTopicMapWriterProperties, Topic)} no
+	 * exception is thrown if the topic has no identity.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the {@link Topic}
+	 * 
+	 * @return the generated CTM item-identifier or <code>null</code> if the
+	 *         topic has no identity
+	 */
+	public CTMMainIdentifier findMainIdentifier(
+			final CTMTopicMapWriterProperties properties, Topic topic) {
+		CTMMainIdentifier identifier = findIdentity(properties, topic);
+		if (identifier == null) {
+			return null;
+		}
+		identifier.setIdentifier(prefixHandler.toPrefixedIri(identifier
+				.getIdentifier()));
+		return identifier;
 	}
 
 	/**
-	 * Returns the escaped version of the given identity
-	 * @param identity 
+	 * Returns the escaped version of the given identity, i.e. the identity
+	 * itself if it was prefixed and may be written as QName, otherwise the
+	 * identity enclosed in angle brackets.
+	 * 
+	 * @param identity
+	 *            the prefixed identity
 	 * @param locator
-	 * @return
+	 *            the locator of the identity
+	 * @return the escaped identity
 	 */
 	public final String getEscapedCTMIdentity(final String identity,
 			final Locator locator) {
-
-		String id = identity;
-
-		try {
-			URL url = new URL(id);
-			id = url.toExternalForm();
-		} catch (MalformedURLException e) {
-			id = identity;
+		if (isEscapedAsQName(identity, locator)) {
+			return identity;
 		}
+		return PREFIXBEGIN + identity + PREFIXEND;
+	}
 
-		if ((!identity.equals(locator.toExternalForm()))
-				&& (identity.contains(":")) && !id.contains("%")
-				&& !id.contains(",")) {
-			return id;
-		}
-		return PREFIXBEGIN + id + PREFIXEND;
+	/**
+	 * Writes the escaped version of the given identity to the given writer,
+	 * equal to {@link #getEscapedCTMIdentity(String, Locator)}.
+	 * 
+	 * @param writer
+	 *            the writer
+	 * @param identity
+	 *            the prefixed identity
+	 * @param locator
+	 *            the locator of the identity
+	 * @throws IOException
+	 *             thrown if writing failed
+	 */
+	public final void appendEscapedCTMIdentity(final ICTMWriter writer,
+			final String identity, final Locator locator) throws IOException {
+		CTMIri.append(writer, identity, isEscapedAsQName(identity, locator));
+	}
+
+	/**
+	 * Internal method to check if the given prefixed identity is written as
+	 * QName.
+	 */
+	private boolean isEscapedAsQName(final String identity,
+			final Locator locator) {
+		return CTMIri.getPrefixLength(identity) != -1
+				&& !identity.equals(locator.toExternalForm());
 	}
 
 	/**
 	 * method to transform the given locator to a prefixed CTM identity. Method
-	 * is calling {@link Prefixer#toPrefixedIri(String, java.util.Map)} with
-	 * arguments {@link Locator#toExternalForm()} and
-	 * {@link PrefixesSerializer#knownPrefixes}
+	 * is calling {@link PrefixHandler#toPrefixedIri(String)} with the argument
+	 * {@link Locator#toExternalForm()}
 	 * 
 	 * @param locator
 	 *            the locator of a topic
 	 * @return the prefixed identifier.
 	 */
 	public String getPrefixedIdentity(Locator locator) {
-		return Prefixer.toPrefixedIri(locator.toExternalForm(), prefixHandler
-				.getPrefixMap());
+		return prefixHandler.toPrefixedIri(locator.toExternalForm());
 	}
 
 	/**
 	 * method to transform the given topic to a prefixed CTM identity. Method is
-	 * calling {@link Prefixer#toPrefixedIri(String, java.util.Map)))} with
-	 * arguments {@link Locator#toExternalForm()} and
-	 * {@link PrefixesSerializer#knownPrefixes}
+	 * calling {@link PrefixHandler#toPrefixedIri(String)} with the identifier
+	 * of the topic
 	 * 
 	 * 
 	 * @param properties
@@ -143,8 +500,7 @@ public class CTMIdentity {
 			throws NoIdentityException {
 		CTMMainIdentifier identifier = getIdentity(properties, topic);
 
-		String iri = Prefixer.toPrefixedIri(identifier.getIdentifier(),
-				prefixHandler.getPrefixMap());
+		String iri = prefixHandler.toPrefixedIri(identifier.getIdentifier());
 
 		identifier.setIdentifier(iri);
 		return identifier;
@@ -170,6 +526,34 @@ public class CTMIdentity {
 	public CTMMainIdentifier getIdentity(
 			final CTMTopicMapWriterProperties properties, Topic topic)
 			throws NoIdentityException {
+		CTMMainIdentifier identifier = findIdentity(properties, topic);
+		if (identifier == null) {
+			throw new NoIdentityException("topic has no identity.");
+		}
+		return identifier;
+	}
+
+	/**
+	 * method to extract one identity of the given topic like
+	 * {@link #getIdentity(CTMTopicMapWriterProperties, Topic)}, but without
+	 * throwing an exception if the topic has no identity. If the sorted output
+	 * is enabled, the stable identity is returned (see
+	 * {@link #findStableIdentity(CTMTopicMapWriterProperties, Topic)}), so the
+	 * output does not depend on the order of the identifiers of the engine.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the topic
+	 * @return one identity of the given topic or <code>null</code> if the
+	 *         topic has no identity ( no item-identifier, no subject-locator
+	 *         and no subject-locator )
+	 */
+	public CTMMainIdentifier findIdentity(
+			final CTMTopicMapWriterProperties properties, Topic topic) {
+		if (properties.isSortedOutputEnabled()) {
+			return findStableIdentity(properties, topic);
+		}
 		/*
 		 * store system locator
 		 */
@@ -219,6 +603,15 @@ public class CTMIdentity {
 			}
 		}
 
+		/*
+		 * topic has no usable identity, use a generated one if enabled
+		 */
+		final CTMIdentifierGenerator generator = identifierGenerator;
+		if (generator != null && topic.getSubjectIdentifiers().isEmpty()) {
+			return new CTMMainIdentifier(prefixHandler, generator
+					.getIdentifier(topic), IdentifierType.ITEM_IDENTIFIER);
+		}
+
 		/*
 		 * topic has only the auto generated
 		 */
@@ -227,7 +620,90 @@ public class CTMIdentity {
 					.toExternalForm(), IdentifierType.SUBJECT_IDENTIFIER);
 		}
 
-		throw new NoIdentityException("topic has no identity.");
+		return null;
+	}
+
+	/**
+	 * method to extract a stable identity of the given topic, used to order
+	 * and to identify its block independently of the topic maps engine. In
+	 * contrast to {@link #findIdentity(CTMTopicMapWriterProperties, Topic)}
+	 * the identity is the smallest identifier of the first kind the topic has,
+	 * i.e. of its subject-identifiers, subject-locators and item-identifiers,
+	 * and not the first one returned by the engine. Default TMDM identifiers
+	 * and internal identifiers of the topic maps engine are only used if the
+	 * topic has no other identity.
+	 * 
+	 * @param properties
+	 *            the internal {@link CTMTopicMapWriterProperties}
+	 * @param topic
+	 *            the topic
+	 * @return the stable identity of the given topic or <code>null</code> if
+	 *         the topic has no identity
+	 */
+	public CTMMainIdentifier findStableIdentity(
+			final CTMTopicMapWriterProperties properties, Topic topic) {
+		String identifier = null;
+		String tmdmIdentifier = null;
+		for (Locator locator : topic.getSubjectIdentifiers()) {
+			final String iri = locator.toExternalForm();
+			if (!TmdmSubjectIdentifier.isTmdmSubjectIdentifier(iri)) {
+				identifier = min(identifier, iri);
+			} else {
+				tmdmIdentifier = min(tmdmIdentifier, iri);
+			}
+		}
+		if (identifier != null) {
+			return new CTMMainIdentifier(prefixHandler, identifier,
+					IdentifierType.SUBJECT_IDENTIFIER);
+		}
+
+		for (Locator locator : topic.getSubjectLocators()) {
+			identifier = min(identifier, locator.toExternalForm());
+		}
+		if (identifier != null) {
+			return new CTMMainIdentifier(prefixHandler, identifier,
+					IdentifierType.SUBJECT_LOCATOR);
+		}
+
+		String systemIdentifier = null;
+		for (Locator locator : topic.getItemIdentifiers()) {
+			final String iri = locator.toExternalForm();
+			if (!isSystemItemIdentifier(properties, iri)) {
+				identifier = min(identifier, iri);
+			} else {
+				systemIdentifier = min(systemIdentifier, iri);
+			}
+		}
+		if (identifier != null) {
+			return new CTMMainIdentifier(prefixHandler, identifier,
+					IdentifierType.ITEM_IDENTIFIER);
+		}
+
+		final CTMIdentifierGenerator generator = identifierGenerator;
+		if (generator != null && tmdmIdentifier == null) {
+			return new CTMMainIdentifier(prefixHandler, generator
+					.getIdentifier(topic), IdentifierType.ITEM_IDENTIFIER);
+		}
+		if (tmdmIdentifier != null) {
+			return new CTMMainIdentifier(prefixHandler, tmdmIdentifier,
+					IdentifierType.SUBJECT_IDENTIFIER);
+		}
+		if (systemIdentifier != null) {
+			return new CTMMainIdentifier(prefixHandler, systemIdentifier,
+					IdentifierType.SUBJECT_IDENTIFIER);
+		}
+		return null;
+	}
+
+	/**
+	 * Internal method to return the smaller one of the given IRIs, the first
+	 * one may be <code>null</code>.
+	 */
+	private static String min(final String current, final String iri) {
+		if (current == null || iri.compareTo(current) < 0) {
+			return iri;
+		}
+		return current;
 	}
 
 	/**
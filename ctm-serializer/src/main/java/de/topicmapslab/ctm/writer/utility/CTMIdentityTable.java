@@ -0,0 +1,493 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact table of the rendered main identifiers of many topics. Each topic
+ * is assigned a dense number. The numbers are stored in an open addressing
+ * hash table of <code>int</code> values, the topics and the addresses of the
+ * identifiers in arrays indexed by the number. The identifiers are stored
+ * UTF-8 encoded in a byte arena of large pages, on the heap or off-heap in
+ * direct buffers. So there is no entry object, no string and no character
+ * array per topic like in a {@link java.util.HashMap} of strings.
+ * <p>
+ * The identifiers are decoded each time they are read, so the table trades
+ * some processing time for memory. Identifiers are compared without decoding
+ * them. The table is synchronized, rendering threads contend for it, and each
+ * lookup by topic is one synchronized operation.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMIdentityTable {
+
+	/**
+	 * the size of a page of the arena
+	 */
+	public static final int PAGE_SIZE = 1024 * 1024;
+
+	/**
+	 * flag indicating the pages are allocated off-heap
+	 */
+	private final boolean direct;
+
+	/**
+	 * the hash table of the numbers plus one, 0 marks a free slot, its length
+	 * is always a power of two
+	 */
+	private int[] slots;
+
+	/**
+	 * the topics by number
+	 */
+	private Object[] topics;
+
+	/**
+	 * the addresses of the identifiers by number, i.e. the index of the page
+	 * in the upper and the position in the page in the lower 32 bits
+	 */
+	private long[] addresses;
+
+	/**
+	 * the pages of the arena
+	 */
+	private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+
+	/**
+	 * the page identifiers are added to
+	 */
+	private ByteBuffer page;
+
+	/**
+	 * the number of bytes allocated by the pages
+	 */
+	private long arenaSize;
+
+	/**
+	 * the number of topics
+	 */
+	private int size;
+
+	/**
+	 * the characters of the last decoded identifier
+	 */
+	private CharBuffer characters = CharBuffer.allocate(256);
+
+	/**
+	 * constructor of a table on the heap
+	 */
+	public CTMIdentityTable() {
+		this(false);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param direct
+	 *            <code>true</code> to store the identifiers off-heap
+	 */
+	public CTMIdentityTable(final boolean direct) {
+		this.direct = direct;
+		this.slots = new int[64];
+		this.topics = new Object[32];
+		this.addresses = new long[32];
+	}
+
+	/**
+	 * Returns the number of the given topic.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @return the number or <code>-1</code> if the topic is not contained
+	 */
+	public synchronized int getNumber(final Object topic) {
+		return slots[indexOf(topic)] - 1;
+	}
+
+	/**
+	 * Checks if the given topic is contained.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @return <code>true</code> if the topic is contained
+	 */
+	public synchronized boolean contains(final Object topic) {
+		return slots[indexOf(topic)] != 0;
+	}
+
+	/**
+	 * Returns the rendered identifier of the given topic. The topic is looked
+	 * up and its identifier is decoded in one synchronized operation, so the
+	 * table cannot be cleared in between.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @return the identifier or <code>null</code> if the topic is not
+	 *         contained
+	 */
+	public synchronized String getIdentifier(final Object topic) {
+		final int number = slots[indexOf(topic)] - 1;
+		if (number == -1) {
+			return null;
+		}
+		return decode(number).toString();
+	}
+
+	/**
+	 * Writes the rendered identifier of the given topic to the given writer,
+	 * without creating a string. The topic is looked up and its identifier is
+	 * written in one synchronized operation.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @param writer
+	 *            the writer
+	 * @return <code>false</code> if the topic is not contained
+	 * @throws IOException
+	 *             thrown if writing failed
+	 */
+	public synchronized boolean appendIdentifier(final Object topic, final ICTMWriter writer) throws IOException {
+		final int number = slots[indexOf(topic)] - 1;
+		if (number == -1) {
+			return false;
+		}
+		appendIdentifier(number, writer);
+		return true;
+	}
+
+	/**
+	 * Checks if the rendered identifier of the given topic is equal to one of
+	 * the given identifiers. The UTF-8 encoding of the identifiers is compared
+	 * to the bytes of the arena, the stored identifier is not decoded.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @param identifiers
+	 *            the identifiers
+	 * @return the index of the equal identifier, <code>-1</code> if none of
+	 *         the identifiers is equal and <code>-2</code> if the topic is not
+	 *         contained
+	 */
+	public synchronized int indexOfIdentifier(final Object topic, final String... identifiers) {
+		final int number = slots[indexOf(topic)] - 1;
+		if (number == -1) {
+			return -2;
+		}
+		for (int i = 0; i < identifiers.length; i++) {
+			if (matches(number, identifiers[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the given topic and its rendered identifier to the table, if the
+	 * topic is not contained.
+	 *
+	 * @param topic
+	 *            the topic
+	 * @param identifier
+	 *            the rendered identifier
+	 * @return the number of the topic
+	 */
+	public synchronized int add(final Object topic, final String identifier) {
+		int index = indexOf(topic);
+		if (slots[index] != 0) {
+			return slots[index] - 1;
+		}
+		if (size == topics.length) {
+			int capacity = topics.length * 2;
+			Object[] newTopics = new Object[capacity];
+			System.arraycopy(topics, 0, newTopics, 0, size);
+			topics = newTopics;
+			long[] newAddresses = new long[capacity];
+			System.arraycopy(addresses, 0, newAddresses, 0, size);
+			addresses = newAddresses;
+		}
+		final int number = size++;
+		topics[number] = topic;
+		addresses[number] = store(identifier);
+		slots[index] = number + 1;
+		if (size * 2 > slots.length) {
+			grow();
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the rendered identifier of the topic with the given number.
+	 *
+	 * @param number
+	 *            the number of the topic
+	 * @return the identifier
+	 */
+	public synchronized String getIdentifier(final int number) {
+		return decode(number).toString();
+	}
+
+	/**
+	 * Writes the rendered identifier of the topic with the given number to
+	 * the given writer, without creating a string.
+	 *
+	 * @param number
+	 *            the number of the topic
+	 * @param writer
+	 *            the writer
+	 * @throws IOException
+	 *             thrown if writing failed
+	 */
+	public synchronized void appendIdentifier(final int number, final ICTMWriter writer) throws IOException {
+		CharBuffer identifier = decode(number);
+		writer.append(identifier, 0, identifier.length());
+	}
+
+	/**
+	 * Returns the number of topics.
+	 *
+	 * @return the number of topics
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all topics and identifiers. The first page of the arena is
+	 * reused, the other pages are released.
+	 */
+	public synchronized void clear() {
+		if (topics.length > 32) {
+			slots = new int[64];
+			topics = new Object[32];
+			addresses = new long[32];
+		} else {
+			Arrays.fill(slots, 0);
+			Arrays.fill(topics, null);
+		}
+		if (pages.size() > 1 || (page != null && page.capacity() > PAGE_SIZE)) {
+			pages.clear();
+			page = null;
+			arenaSize = 0;
+		} else if (page != null) {
+			page.clear();
+		}
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of bytes used by the table, i.e. the arrays and the
+	 * pages of the arena, assuming references of 4 bytes. The topics itself
+	 * are not counted.
+	 *
+	 * @return the estimated number of bytes
+	 */
+	public synchronized long getMemoryUsage() {
+		return slots.length * 4L + topics.length * 4L + addresses.length * 8L + arenaSize;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the pages of the arena, which
+	 * are off-heap if the table is direct.
+	 *
+	 * @return the number of bytes
+	 */
+	public synchronized long getArenaSize() {
+		return arenaSize;
+	}
+
+	/**
+	 * Internal method to return the index of the slot of the given topic or
+	 * of the free slot the topic has to be stored at.
+	 */
+	private int indexOf(final Object topic) {
+		final int mask = slots.length - 1;
+		int h = topic.hashCode() * 0x9e3779b9;
+		int index = (h ^ (h >>> 16)) & mask;
+		while (slots[index] != 0 && !topics[slots[index] - 1].equals(topic)) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	/**
+	 * Internal method to double the capacity of the hash table.
+	 */
+	private void grow() {
+		slots = new int[slots.length * 2];
+		for (int number = 0; number < size; number++) {
+			slots[indexOf(topics[number])] = number + 1;
+		}
+	}
+
+	/**
+	 * Internal method to store the given identifier in the arena. The
+	 * identifier is stored as its length in bytes, a variable length number,
+	 * and its UTF-8 encoding. A surrogate without its partner is encoded like
+	 * a character of the basic multilingual plane, so the identifier is
+	 * decoded exactly.
+	 *
+	 * @return the address of the identifier
+	 */
+	private long store(final String identifier) {
+		final int length = (int) CTMCountingWriter.encodedLength(identifier, 0, identifier.length());
+		final int required = length + 5;
+		if (page == null || page.remaining() < required) {
+			page = direct ? ByteBuffer.allocateDirect(Math.max(PAGE_SIZE, required)) : ByteBuffer.allocate(Math
+					.max(PAGE_SIZE, required));
+			pages.add(page);
+			arenaSize += page.capacity();
+		}
+		final ByteBuffer page = this.page;
+		final long address = ((long) (pages.size() - 1) << 32) | page.position();
+		int value = length;
+		while (value >= 0x80) {
+			page.put((byte) (0x80 | (value & 0x7f)));
+			value >>>= 7;
+		}
+		page.put((byte) value);
+		for (int i = 0, n = identifier.length(); i < n; i++) {
+			final char c = identifier.charAt(i);
+			if (c < 0x80) {
+				page.put((byte) c);
+			} else if (c < 0x800) {
+				page.put((byte) (0xc0 | (c >> 6)));
+				page.put((byte) (0x80 | (c & 0x3f)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(identifier.charAt(i + 1))) {
+				final int codePoint = Character.toCodePoint(c, identifier.charAt(++i));
+				page.put((byte) (0xf0 | (codePoint >> 18)));
+				page.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+				page.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+				page.put((byte) (0x80 | (codePoint & 0x3f)));
+			} else {
+				page.put((byte) (0xe0 | (c >> 12)));
+				page.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				page.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+		return address;
+	}
+
+	/**
+	 * Internal method to check if the identifier of the topic with the given
+	 * number is equal to the given identifier, by comparing the stored bytes
+	 * to the encoding of the given identifier like
+	 * {@link #store(String)}.
+	 */
+	private boolean matches(final int number, final String identifier) {
+		final long address = addresses[number];
+		final ByteBuffer page = pages.get((int) (address >>> 32));
+		int position = (int) address;
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = page.get(position++);
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		final int n = identifier.length();
+		if (length < n || length > n * 3) {
+			return false;
+		}
+		final int end = position + length;
+		for (int i = 0; i < n; i++) {
+			final char c = identifier.charAt(i);
+			if (position == end) {
+				return false;
+			}
+			if (c < 0x80) {
+				if (page.get(position++) != (byte) c) {
+					return false;
+				}
+				continue;
+			}
+			final int required;
+			final int value;
+			if (c < 0x800) {
+				required = 2;
+				value = c;
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(identifier.charAt(i + 1))) {
+				required = 4;
+				value = Character.toCodePoint(c, identifier.charAt(++i));
+			} else {
+				required = 3;
+				value = c;
+			}
+			if (end - position < required) {
+				return false;
+			}
+			final int lead = required == 2 ? 0xc0 : required == 3 ? 0xe0 : 0xf0;
+			if (page.get(position++) != (byte) (lead | (value >> (6 * (required - 1))))) {
+				return false;
+			}
+			for (int j = required - 2; j >= 0; j--) {
+				if (page.get(position++) != (byte) (0x80 | ((value >> (6 * j)) & 0x3f))) {
+					return false;
+				}
+			}
+		}
+		return position == end;
+	}
+
+	/**
+	 * Internal method to decode the identifier of the topic with the given
+	 * number into the internal character buffer.
+	 *
+	 * @return the character buffer containing the identifier
+	 */
+	private CharBuffer decode(final int number) {
+		final long address = addresses[number];
+		final ByteBuffer page = pages.get((int) (address >>> 32));
+		int position = (int) address;
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = page.get(position++);
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		if (characters.capacity() < length) {
+			characters = CharBuffer.allocate(Math.max(length, characters.capacity() * 2));
+		}
+		final CharBuffer characters = this.characters;
+		characters.clear();
+		final int end = position + length;
+		while (position < end) {
+			final int c = page.get(position++) & 0xff;
+			if (c < 0x80) {
+				characters.put((char) c);
+			} else if (c < 0xe0) {
+				characters.put((char) (((c & 0x1f) << 6) | (page.get(position++) & 0x3f)));
+			} else if (c < 0xf0) {
+				int value = ((c & 0x0f) << 12) | ((page.get(position++) & 0x3f) << 6);
+				characters.put((char) (value | (page.get(position++) & 0x3f)));
+			} else {
+				int codePoint = ((c & 0x07) << 18) | ((page.get(position++) & 0x3f) << 12);
+				codePoint |= (page.get(position++) & 0x3f) << 6;
+				codePoint |= page.get(position++) & 0x3f;
+				codePoint -= 0x10000;
+				characters.put((char) (0xd800 | (codePoint >>> 10)));
+				characters.put((char) (0xdc00 | (codePoint & 0x3ff)));
+			}
+		}
+		characters.flip();
+		return characters;
+	}
+
+}
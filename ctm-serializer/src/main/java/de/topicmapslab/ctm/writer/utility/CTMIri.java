@@ -0,0 +1,122 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXBEGIN;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.PREFIXEND;
+
+import java.io.IOException;
+
+import de.topicmapslab.ctm.writer.core.PrefixHandler;
+
+/**
+ * Utility class to classify identifiers as QName or IRI. An identifier is
+ * written as QName if it contains a colon, but no percent sign and no comma,
+ * and the part before the first colon is a known prefix. Otherwise it is
+ * enclosed in angle brackets. The identifier is classified in one scan
+ * without parsing it and without allocating objects.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public final class CTMIri {
+
+	/**
+	 * private hidden constructor
+	 */
+	private CTMIri() {
+
+	}
+
+	/**
+	 * Returns the length of the prefix of the given identifier, if the
+	 * identifier may be written as QName.
+	 *
+	 * @param identifier
+	 *            the identifier
+	 * @return the index of the first colon or <code>-1</code> if the
+	 *         identifier contains no colon, a percent sign or a comma
+	 */
+	public static int getPrefixLength(final String identifier) {
+		int colon = -1;
+		for (int i = 0, length = identifier.length(); i < length; i++) {
+			final char c = identifier.charAt(i);
+			if (c == '%' || c == ',') {
+				return -1;
+			}
+			if (c == ':' && colon == -1) {
+				colon = i;
+			}
+		}
+		return colon;
+	}
+
+	/**
+	 * Checks if the given identifier is a QName using one of the prefixes of
+	 * the given prefix handler.
+	 *
+	 * @param identifier
+	 *            the identifier
+	 * @param prefixHandler
+	 *            the prefix handler
+	 * @return <code>true</code> if the identifier may be written as QName,
+	 *         <code>false</code> if it has to be enclosed in angle brackets
+	 */
+	public static boolean isQName(final String identifier, final PrefixHandler prefixHandler) {
+		final int colon = getPrefixLength(identifier);
+		return colon != -1 && prefixHandler.isKnownPrefix(identifier, colon);
+	}
+
+	/**
+	 * Writes the given identifier to the given writer, enclosed in angle
+	 * brackets unless it is written as QName.
+	 *
+	 * @param writer
+	 *            the writer
+	 * @param identifier
+	 *            the identifier
+	 * @param qName
+	 *            flag indicating the identifier is written as QName
+	 * @throws IOException
+	 *             thrown if writing failed
+	 */
+	public static void append(final ICTMWriter writer, final String identifier, final boolean qName)
+			throws IOException {
+		if (qName) {
+			writer.append(identifier);
+		} else {
+			writer.append(PREFIXBEGIN);
+			writer.append(identifier);
+			writer.append(PREFIXEND);
+		}
+	}
+
+	/**
+	 * Appends the given identifier to the given builder, enclosed in angle
+	 * brackets unless it is written as QName.
+	 *
+	 * @param builder
+	 *            the builder
+	 * @param identifier
+	 *            the identifier
+	 * @param qName
+	 *            flag indicating the identifier is written as QName
+	 */
+	public static void append(final StringBuilder builder, final String identifier, final boolean qName) {
+		if (qName) {
+			builder.append(identifier);
+		} else {
+			builder.append(PREFIXBEGIN);
+			builder.append(identifier);
+			builder.append(PREFIXEND);
+		}
+	}
+
+}
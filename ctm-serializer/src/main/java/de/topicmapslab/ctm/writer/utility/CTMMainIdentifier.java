@@ -8,9 +8,6 @@
  */
 package de.topicmapslab.ctm.writer.utility;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-
 import de.topicmapslab.ctm.writer.core.PrefixHandler;
 
 /**
@@ -103,7 +100,7 @@ public class CTMMainIdentifier {
 	 * {@inheritDoc}
 	 */
 	public String toString() {
-		StringBuilder b = new StringBuilder();
+		StringBuilder b = new StringBuilder(identifier.length() + 3);
 		switch (type) {
 		case ITEM_IDENTIFIER:
 			b.append("^");
@@ -114,28 +111,7 @@ public class CTMMainIdentifier {
 			b.append("=");
 			break;
 		}
-
-		String id = identifier;
-
-		try {
-			URL url = new URL(id);
-			id = url.toExternalForm();
-		} catch (MalformedURLException e) {
-			id = identifier;
-		}
-
-		if (id.contains(":") && !id.contains("%") && !id.contains(",")) {
-			int idx = id.indexOf(':');
-			String prefix = id.substring(0, idx);
-			if (prefixHandler.isKnownPrefix(prefix)) {
-				b.append(id);
-				return b.toString();
-			}
-		}
-		b.append(CTMTokens.PREFIXBEGIN);
-		b.append(id);
-		b.append(CTMTokens.PREFIXEND);
-
+		CTMIri.append(b, identifier, CTMIri.isQName(identifier, prefixHandler));
 		return b.toString();
 	}
 
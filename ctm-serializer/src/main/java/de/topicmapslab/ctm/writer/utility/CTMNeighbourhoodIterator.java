@@ -0,0 +1,279 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Role;
+import org.tmapi.core.Scoped;
+import org.tmapi.core.Topic;
+import org.tmapi.core.Variant;
+
+/**
+ * Iterator over the neighbourhood of some seed topics, i.e. the seed topics,
+ * the associations played by the topics up to the given number of hops and
+ * the players of these associations. The neighbourhood is expanded by a
+ * breadth-first search while iterating, so only the current and the next hop
+ * are kept in memory and the topics and associations already reached are
+ * remembered by compact {@link CTMConstructSet}s. Each construct is returned
+ * once.
+ * <p>
+ * The topics referenced by a returned construct as type, supertype, scope
+ * theme or reifier, e.g. the type of an association, are returned too, so the
+ * exported fragment contains their blocks. The references of these topics are
+ * followed as well, until all referenced topics are returned. The associations
+ * of a referenced topic are not expanded, unless the topic is reached as
+ * player.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMNeighbourhoodIterator implements Iterator<Construct> {
+
+	/**
+	 * the number of hops
+	 */
+	private final int hops;
+
+	/**
+	 * the association types to follow, empty to follow all associations
+	 */
+	private final Set<Topic> associationTypes;
+
+	/**
+	 * the topics reached by the breadth-first search
+	 */
+	private final CTMConstructSet reached = new CTMConstructSet();
+
+	/**
+	 * the associations reached by the breadth-first search
+	 */
+	private final CTMConstructSet associations = new CTMConstructSet();
+
+	/**
+	 * the topics returned or pending
+	 */
+	private final CTMConstructSet emitted = new CTMConstructSet();
+
+	/**
+	 * the pending topics whose references are not added yet
+	 */
+	private final LinkedList<Topic> referencing = new LinkedList<Topic>();
+
+	/**
+	 * the constructs to return next
+	 */
+	private final LinkedList<Construct> pending = new LinkedList<Construct>();
+
+	/**
+	 * the topics of the current hop
+	 */
+	private List<Topic> frontier = new ArrayList<Topic>();
+
+	/**
+	 * the topics of the next hop
+	 */
+	private List<Topic> next = new ArrayList<Topic>();
+
+	/**
+	 * the index of the next topic of the current hop to expand
+	 */
+	private int position;
+
+	/**
+	 * the number of the current hop
+	 */
+	private int hop;
+
+	/**
+	 * constructor
+	 *
+	 * @param seeds
+	 *            the seed topics
+	 * @param hops
+	 *            the maximum number of associations between a seed topic and
+	 *            a returned topic, 0 to return the seed topics only
+	 * @param associationTypes
+	 *            the types of the associations to follow, empty to follow
+	 *            all associations
+	 */
+	public CTMNeighbourhoodIterator(final Collection<? extends Topic> seeds, final int hops,
+			final Collection<? extends Topic> associationTypes) {
+		if (hops < 0) {
+			throw new IllegalArgumentException("Number of hops has to be a positive decimal number or 0.");
+		}
+		this.hops = hops;
+		this.associationTypes = new HashSet<Topic>(associationTypes);
+		for (Topic seed : seeds) {
+			if (reached.add(seed)) {
+				frontier.add(seed);
+				emit(seed);
+			}
+		}
+		if (hops == 0) {
+			frontier.clear();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean hasNext() {
+		while (pending.isEmpty()) {
+			if (position == frontier.size()) {
+				if (hop == hops || next.isEmpty()) {
+					return false;
+				}
+				/*
+				 * continue with the next hop
+				 */
+				frontier = next;
+				next = new ArrayList<Topic>();
+				position = 0;
+				hop++;
+				if (hop == hops) {
+					/*
+					 * the players of the last hop are not expanded
+					 */
+					frontier.clear();
+				}
+			} else {
+				Topic topic = frontier.get(position);
+				frontier.set(position++, null);
+				expand(topic);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Construct next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return pending.removeFirst();
+	}
+
+	/**
+	 * Not supported.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Internal method to add the associations played by the given topic and
+	 * their players.
+	 */
+	private void expand(final Topic topic) {
+		for (Role role : topic.getRolesPlayed()) {
+			Association association = role.getParent();
+			if (!associationTypes.isEmpty() && !associationTypes.contains(association.getType())) {
+				continue;
+			}
+			if (associations.add(association)) {
+				emit(association);
+				for (Role other : association.getRoles()) {
+					Topic player = other.getPlayer();
+					if (reached.add(player)) {
+						next.add(player);
+						emit(player);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to add the given construct and the topics it references,
+	 * directly or by other referenced topics, to the pending constructs.
+	 */
+	private void emit(final Construct construct) {
+		if (construct instanceof Topic) {
+			reference((Topic) construct);
+		} else if (construct instanceof Association) {
+			Association association = (Association) construct;
+			pending.add(association);
+			reference(association.getType());
+			reference(association);
+			reference(association.getReifier());
+			for (Role role : association.getRoles()) {
+				reference(role.getType());
+				reference(role.getReifier());
+			}
+		}
+		/*
+		 * a work list instead of a recursion, the chains of types may be long
+		 */
+		while (!referencing.isEmpty()) {
+			Topic topic = referencing.removeFirst();
+			for (Topic type : topic.getTypes()) {
+				reference(type);
+			}
+			for (Topic supertype : TypeHierarchyUtils.getSupertypes(topic)) {
+				reference(supertype);
+			}
+			for (Name name : topic.getNames()) {
+				reference(name.getType());
+				reference(name);
+				reference(name.getReifier());
+				for (Variant variant : name.getVariants()) {
+					reference(variant);
+					reference(variant.getReifier());
+				}
+			}
+			for (Occurrence occurrence : topic.getOccurrences()) {
+				reference(occurrence.getType());
+				reference(occurrence);
+				reference(occurrence.getReifier());
+			}
+		}
+	}
+
+	/**
+	 * Internal method to add the themes of the given scoped construct to the
+	 * pending constructs.
+	 */
+	private void reference(final Scoped scoped) {
+		for (Topic theme : scoped.getScope()) {
+			reference(theme);
+		}
+	}
+
+	/**
+	 * Internal method to add the given topic to the pending constructs, if it
+	 * was not added before. Its references are added by
+	 * {@link #emit(Construct)}.
+	 */
+	private void reference(final Topic topic) {
+		if (topic != null && emitted.add(topic)) {
+			pending.add(topic);
+			referencing.add(topic);
+		}
+	}
+
+}
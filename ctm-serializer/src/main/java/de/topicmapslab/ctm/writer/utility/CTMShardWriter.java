@@ -0,0 +1,175 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+
+/**
+ * Sharding class for CTM content. The content is written to a sequence of
+ * shards opened by {@link #openShard(int)}. The serializer calls
+ * {@link #endOfBlock()} after each topic or association block. If the current
+ * shard reached the byte or block threshold at this point, it is closed and
+ * the following content is written to the next shard, so a block is never
+ * split. The next shard is opened with the first content written to it, so
+ * there is no empty shard at the end.
+ * <p>
+ * The byte threshold refers to the UTF-8 encoded content handed to the shard,
+ * independent from a compression done by the shard writer.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public abstract class CTMShardWriter extends CTMCountingWriter {
+
+	/**
+	 * the maximum number of bytes per shard, <code>0</code> if unbounded
+	 */
+	private final long maximumBytes;
+
+	/**
+	 * the maximum number of blocks per shard, <code>0</code> if unbounded
+	 */
+	private final long maximumBlocks;
+
+	/**
+	 * the writer of the current shard
+	 */
+	private ICTMWriter shard;
+
+	/**
+	 * the number of opened shards
+	 */
+	private int shardCount;
+
+	/**
+	 * the number of bytes written to the current shard
+	 */
+	private long bytes;
+
+	/**
+	 * the number of blocks written to the current shard
+	 */
+	private long blocks;
+
+	/**
+	 * constructor
+	 *
+	 * @param maximumBytes
+	 *            the maximum number of bytes per shard, <code>0</code> if
+	 *            unbounded
+	 * @param maximumBlocks
+	 *            the maximum number of blocks per shard, <code>0</code> if
+	 *            unbounded
+	 */
+	public CTMShardWriter(final long maximumBytes, final long maximumBlocks) {
+		if (maximumBytes < 0 || maximumBlocks < 0) {
+			throw new IllegalArgumentException("Thresholds must not be negative.");
+		}
+		this.maximumBytes = maximumBytes;
+		this.maximumBlocks = maximumBlocks;
+	}
+
+	/**
+	 * Opens the shard with the given index.
+	 *
+	 * @param index
+	 *            the index of the shard starting at <code>0</code>
+	 * @return the writer of the shard
+	 * @throws IOException
+	 *             thrown if the shard cannot be opened
+	 */
+	protected abstract ICTMWriter openShard(int index) throws IOException;
+
+	/**
+	 * Closes the shard with the given index. The default implementation
+	 * closes the writer.
+	 *
+	 * @param index
+	 *            the index of the shard
+	 * @param writer
+	 *            the writer of the shard
+	 * @throws IOException
+	 *             thrown if the shard cannot be closed
+	 */
+	protected void closeShard(int index, ICTMWriter writer) throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Method called after each topic or association block. Closes the current
+	 * shard if one of the thresholds is reached.
+	 */
+	public void endOfBlock() throws IOException {
+		if (shard == null) {
+			return;
+		}
+		blocks++;
+		if ((maximumBytes > 0 && bytes >= maximumBytes) || (maximumBlocks > 0 && blocks >= maximumBlocks)) {
+			closeCurrent();
+		}
+	}
+
+	/**
+	 * Returns the number of opened shards.
+	 *
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * Internal method to close the current shard.
+	 */
+	private void closeCurrent() throws IOException {
+		ICTMWriter writer = shard;
+		shard = null;
+		bytes = 0;
+		blocks = 0;
+		closeShard(shardCount - 1, writer);
+	}
+
+	/**
+	 * Returns the current shard, opening the next one if necessary.
+	 */
+	protected ICTMWriter getTarget() throws IOException {
+		if (shard == null) {
+			shard = openShard(shardCount++);
+		}
+		return shard;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void written(long bytes) {
+		this.bytes += bytes;
+	}
+
+	/**
+	 * Flushes the current shard if there is one.
+	 */
+	public void flush() throws IOException {
+		if (shard != null) {
+			shard.flush();
+		}
+	}
+
+	/**
+	 * Closes the current shard if there is one.
+	 */
+	public void close() throws IOException {
+		if (shard != null) {
+			closeCurrent();
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Report of an export recorded by a {@link CTMStatisticsWriter}. For each kind
+ * of construct the report contains the number of serialized constructs, the
+ * number of UTF-8 encoded bytes and the elapsed nanoseconds. Bytes and time of
+ * a construct do not contain the ones of the constructs nested in it, e.g. the
+ * values of a topic do not contain the names and occurrences of the topic.
+ * Everything outside of a topic or association block, like the prolog, the
+ * header and the comments, is assigned to {@link Kind#TOPIC_MAP}. Therefore
+ * the values of all kinds sum up to the complete export.
+ * <p>
+ * In addition the report contains the same values for each topic type, but
+ * for the complete topic blocks including the nested constructs. A topic
+ * block is counted for each of its types.
+ * </p>
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMStatistics {
+
+	/**
+	 * the kinds of constructs
+	 */
+	public enum Kind {
+		TOPIC_MAP, TOPIC, ASSOCIATION, NAME, OCCURRENCE
+	}
+
+	/**
+	 * Values recorded for one kind of construct or one topic type.
+	 */
+	public static class Entry {
+
+		/**
+		 * the number of constructs
+		 */
+		long count;
+
+		/**
+		 * the number of bytes
+		 */
+		long bytes;
+
+		/**
+		 * the elapsed nanoseconds
+		 */
+		long nanos;
+
+		/**
+		 * Returns the number of serialized constructs.
+		 *
+		 * @return the number of constructs
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the number of UTF-8 encoded bytes written.
+		 *
+		 * @return the number of bytes
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns the elapsed time in nanoseconds.
+		 *
+		 * @return the elapsed nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() {
+			return "count=" + count + ", bytes=" + bytes + ", nanos=" + nanos;
+		}
+	}
+
+	/**
+	 * the values for each kind of construct
+	 */
+	private final Map<Kind, Entry> kinds = new EnumMap<Kind, Entry>(Kind.class);
+
+	/**
+	 * the values for each topic type
+	 */
+	private final Map<String, Entry> topicTypes = new TreeMap<String, Entry>();
+
+	/**
+	 * the number of main identifiers taken from the cache
+	 */
+	private long identifierCacheHits;
+
+	/**
+	 * the number of main identifiers rendered because of a cache miss
+	 */
+	private long identifierCacheMisses;
+
+	/**
+	 * constructor
+	 */
+	public CTMStatistics() {
+		for (Kind kind : Kind.values()) {
+			kinds.put(kind, new Entry());
+		}
+	}
+
+	/**
+	 * Returns the values of the given kind of construct.
+	 *
+	 * @param kind
+	 *            the kind of construct
+	 * @return the values
+	 */
+	public Entry getEntry(final Kind kind) {
+		return kinds.get(kind);
+	}
+
+	/**
+	 * Returns the values of all kinds of constructs.
+	 *
+	 * @return an unmodifiable map of the values by kind
+	 */
+	public Map<Kind, Entry> getKinds() {
+		return Collections.unmodifiableMap(kinds);
+	}
+
+	/**
+	 * Returns the values of all topic types, identified by the CTM main
+	 * identifier of the type.
+	 *
+	 * @return an unmodifiable map of the values by topic type
+	 */
+	public Map<String, Entry> getTopicTypes() {
+		return Collections.unmodifiableMap(topicTypes);
+	}
+
+	/**
+	 * Returns the values of the given topic type and creates them if
+	 * necessary.
+	 *
+	 * @param type
+	 *            the CTM main identifier of the type
+	 * @return the values
+	 */
+	Entry getTopicType(final String type) {
+		Entry entry = topicTypes.get(type);
+		if (entry == null) {
+			entry = new Entry();
+			topicTypes.put(type, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the number of references to topics whose main identifier was
+	 * taken from the cache of the rendered identifiers.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getIdentifierCacheHits() {
+		return identifierCacheHits;
+	}
+
+	/**
+	 * Returns the number of main identifiers rendered because they were not
+	 * cached.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getIdentifierCacheMisses() {
+		return identifierCacheMisses;
+	}
+
+	/**
+	 * Stores the counters of the cache of the rendered identifiers.
+	 *
+	 * @param identity
+	 *            the identity utility of the export
+	 */
+	public void setIdentifierCache(final CTMIdentity identity) {
+		this.identifierCacheHits = identity.getCacheHits();
+		this.identifierCacheMisses = identity.getCacheMisses();
+	}
+
+	/**
+	 * Returns the number of bytes of the complete export.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Entry entry : kinds.values()) {
+			bytes += entry.bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the elapsed time of the complete export in nanoseconds.
+	 *
+	 * @return the elapsed nanoseconds
+	 */
+	public long getNanos() {
+		long nanos = 0;
+		for (Entry entry : kinds.values()) {
+			nanos += entry.nanos;
+		}
+		return nanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<Kind, Entry> entry : kinds.entrySet()) {
+			builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+		}
+		for (Map.Entry<String, Entry> entry : topicTypes.entrySet()) {
+			builder.append("type ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+		}
+		builder.append("identifier cache: hits=").append(identifierCacheHits).append(", misses=")
+				.append(identifierCacheMisses).append('\n');
+		return builder.toString();
+	}
+
+}
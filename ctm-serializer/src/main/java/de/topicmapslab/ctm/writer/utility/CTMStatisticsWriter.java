@@ -0,0 +1,242 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.utility;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Entry;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+
+/**
+ * Decorator class recording the statistics of an export. The serializers
+ * call {@link #begin(Kind)} and {@link #end()} around each construct if the
+ * output buffer is an instance of this class (see
+ * {@link #getInstance(ICTMWriter)}), so there is no further overhead if the
+ * statistics are disabled. The bytes written and the time elapsed are
+ * assigned to the innermost construct in progress. The time contains the time
+ * spent by the target writer.
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+public class CTMStatisticsWriter extends CTMCountingWriter {
+
+	/**
+	 * Internal class representing a construct in progress.
+	 */
+	private static class Frame {
+
+		/**
+		 * the values of the construct kind
+		 */
+		private final Entry entry;
+
+		/**
+		 * the values of the topic types or <code>null</code>
+		 */
+		private final List<Entry> types;
+
+		/**
+		 * the number of bytes written before the construct
+		 */
+		private final long bytes;
+
+		/**
+		 * the time stamp of the construct begin
+		 */
+		private final long start;
+
+		/**
+		 * constructor
+		 */
+		private Frame(Entry entry, List<Entry> types, long bytes, long start) {
+			this.entry = entry;
+			this.types = types;
+			this.bytes = bytes;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * the target writer
+	 */
+	private final ICTMWriter target;
+
+	/**
+	 * the statistics to fill
+	 */
+	private final CTMStatistics statistics;
+
+	/**
+	 * the constructs in progress, the innermost at the end
+	 */
+	private final List<Frame> frames = new ArrayList<Frame>();
+
+	/**
+	 * the number of bytes written
+	 */
+	private long bytes;
+
+	/**
+	 * the time stamp of the last assignment of elapsed time
+	 */
+	private long mark;
+
+	/**
+	 * constructor
+	 *
+	 * @param target
+	 *            the target writer
+	 * @param statistics
+	 *            the statistics to fill, may be shared by several writers
+	 *            used one after another
+	 */
+	public CTMStatisticsWriter(final ICTMWriter target, final CTMStatistics statistics) {
+		this.target = target;
+		this.statistics = statistics;
+		this.mark = System.nanoTime();
+	}
+
+	/**
+	 * Returns the given output buffer as statistics writer.
+	 *
+	 * @param buffer
+	 *            the output buffer
+	 * @return the statistics writer or <code>null</code> if the buffer does
+	 *         not record statistics
+	 */
+	public static CTMStatisticsWriter getInstance(final ICTMWriter buffer) {
+		if (buffer instanceof CTMStatisticsWriter) {
+			return (CTMStatisticsWriter) buffer;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the statistics filled by this writer.
+	 *
+	 * @return the statistics
+	 */
+	public CTMStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public ICTMWriter getTarget() {
+		return target;
+	}
+
+	/**
+	 * Method called before the serialization of a construct.
+	 *
+	 * @param kind
+	 *            the kind of the construct
+	 */
+	public void begin(final Kind kind) {
+		begin(kind, null);
+	}
+
+	/**
+	 * Method called before the serialization of a topic block.
+	 *
+	 * @param types
+	 *            the CTM main identifiers of the topic types
+	 */
+	public void beginTopic(final Collection<String> types) {
+		List<Entry> entries = new ArrayList<Entry>(types.size());
+		for (String type : types) {
+			Entry entry = statistics.getTopicType(type);
+			entry.count++;
+			entries.add(entry);
+		}
+		begin(Kind.TOPIC, entries);
+	}
+
+	/**
+	 * Internal method to put a new construct in progress.
+	 */
+	private void begin(final Kind kind, final List<Entry> types) {
+		elapsed();
+		Entry entry = statistics.getEntry(kind);
+		entry.count++;
+		frames.add(new Frame(entry, types, bytes, mark));
+	}
+
+	/**
+	 * Method called after the serialization of a construct.
+	 */
+	public void end() {
+		elapsed();
+		Frame frame = frames.remove(frames.size() - 1);
+		if (frame.types != null) {
+			for (Entry entry : frame.types) {
+				entry.bytes += bytes - frame.bytes;
+				entry.nanos += mark - frame.start;
+			}
+		}
+	}
+
+	/**
+	 * Internal method to return the values of the innermost construct in
+	 * progress.
+	 */
+	private Entry current() {
+		if (frames.isEmpty()) {
+			return statistics.getEntry(Kind.TOPIC_MAP);
+		}
+		return frames.get(frames.size() - 1).entry;
+	}
+
+	/**
+	 * Internal method to assign the time elapsed since the last call to the
+	 * innermost construct in progress.
+	 */
+	private void elapsed() {
+		long now = System.nanoTime();
+		current().nanos += now - mark;
+		mark = now;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void written(long bytes) {
+		this.bytes += bytes;
+		current().bytes += bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void flush() throws IOException {
+		try {
+			target.flush();
+		} finally {
+			elapsed();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		try {
+			target.close();
+		} finally {
+			elapsed();
+		}
+	}
+
+}
@@ -143,6 +143,31 @@ public class CTMStreamWriter implements ICTMWriter {
 		this.stream.write(str.getBytes(UTF_8));
 	}
 
+	/** 
+	 * {@inheritDoc}
+	 */
+	public void append(final char c) throws IOException {
+		if (c < 0x80) {
+			this.stream.write(c);
+		} else {
+			this.stream.write(String.valueOf(c).getBytes(UTF_8));
+		}
+	}
+
+	/** 
+	 * {@inheritDoc}
+	 */
+	public void append(final CharSequence csq, final int start, final int end) throws IOException {
+		this.stream.write(csq.subSequence(start, end).toString().getBytes(UTF_8));
+	}
+
+	/** 
+	 * {@inheritDoc}
+	 */
+	public void append(final long value) throws IOException {
+		this.stream.write(Long.toString(value).getBytes(UTF_8));
+	}
+
 	/** 
 	 * {@inheritDoc}
 	 */
@@ -164,4 +189,18 @@ public class CTMStreamWriter implements ICTMWriter {
 		appendLine(COMMENT, comment);
 	}
 
+	/** 
+	 * {@inheritDoc}
+	 */
+	public void flush() throws IOException {
+		this.stream.flush();
+	}
+
+	/** 
+	 * {@inheritDoc}
+	 */
+	public void close() throws IOException {
+		flush();
+	}
+
 }
@@ -97,6 +97,38 @@ public interface ICTMWriter {
 	 */
 	public void append(final String str) throws IOException;
 
+	/**
+	 * Appends a single character to the stream. A surrogate character should
+	 * be appended as part of a {@link CharSequence}, because a single
+	 * surrogate cannot be encoded.
+	 * 
+	 * @param c
+	 *            the character to add
+	 */
+	public void append(final char c) throws IOException;
+
+	/**
+	 * Appends a part of the given character sequence to the stream without
+	 * creating a sub-sequence.
+	 * 
+	 * @param csq
+	 *            the character sequence
+	 * @param start
+	 *            the index of the first character to add
+	 * @param end
+	 *            the index after the last character to add
+	 */
+	public void append(final CharSequence csq, final int start, final int end)
+			throws IOException;
+
+	/**
+	 * Appends the decimal representation of the given number to the stream.
+	 * 
+	 * @param value
+	 *            the number to add
+	 */
+	public void append(final long value) throws IOException;
+
 	/**
 	 * Appends a number of elements to the stream divided by white-spaces. Method is calling
 	 * {@link CTMstream#append(boolean, String...)} with default parameter <code>true</code>.
@@ -125,4 +157,15 @@ public interface ICTMWriter {
 	 */
 	public void appendCommentLine(final String comment) throws IOException;
 
+	/**
+	 * Writes all buffered content to the underlying target and flushes it.
+	 */
+	public void flush() throws IOException;
+
+	/**
+	 * Flushes the writer and releases all resources held by it. A stream or
+	 * channel given to the writer is not closed.
+	 */
+	public void close() throws IOException;
+
 }
\ No newline at end of file
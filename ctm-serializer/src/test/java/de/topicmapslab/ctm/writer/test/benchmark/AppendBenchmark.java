@@ -0,0 +1,177 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * Benchmark comparing the allocations and the time per topic block of the
+ * string based {@link ICTMWriter} methods with the character based methods.
+ * The allocated bytes are measured by the thread bean of the Sun JVM, if it is
+ * available. The benchmark is not part of the test suite and has to be started
+ * manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class AppendBenchmark extends TestCase {
+
+	/**
+	 * number of topic blocks per run
+	 */
+	private static final int TOPICS = 500000;
+
+	/**
+	 * number of runs per variant, the first run is the warm-up
+	 */
+	private static final int RUNS = 4;
+
+	/**
+	 * stream discarding all bytes
+	 */
+	private static final OutputStream NULL = new OutputStream() {
+		public void write(int b) {
+			// VOID
+		}
+
+		public void write(byte[] b, int off, int len) {
+			// VOID
+		}
+	};
+
+	private static final String[] IDS = new String[1000];
+	static {
+		for (int i = 0; i < IDS.length; i++) {
+			IDS[i] = "ex:topic-" + i;
+		}
+	}
+
+	/**
+	 * a variant writing one topic block
+	 */
+	private interface Variant {
+		void write(ICTMWriter writer, int i) throws IOException;
+	}
+
+	/**
+	 * writes a topic block by the string based methods, like the serializers
+	 * did before
+	 */
+	private static final Variant STRINGS = new Variant() {
+		public void write(ICTMWriter writer, int i) throws IOException {
+			writer.append(IDS[i % IDS.length], " ");
+			writer.appendLine();
+			writer.append("\t");
+			writer.append(true, "isa", "ex:person");
+			writer.appendTailLine();
+			writer.append("\t");
+			writer.append(false, "- ", "\"", IDS[i % IDS.length], "\"");
+			writer.appendTailLine();
+			writer.append(false, "\t", "ex:age", " ", ":", " ", Integer.toString(i % 100), " ");
+			writer.appendLine();
+			writer.append("\t" + "ex:template" + "(");
+			writer.append("" + IDS[i % IDS.length]);
+			writer.append("," + IDS[(i + 1) % IDS.length]);
+			writer.append(");");
+			writer.appendLine();
+			writer.appendBlockEnd();
+		}
+	};
+
+	/**
+	 * writes the same topic block by the character based methods
+	 */
+	private static final Variant CHARACTERS = new Variant() {
+		public void write(ICTMWriter writer, int i) throws IOException {
+			writer.append(IDS[i % IDS.length]);
+			writer.append(' ');
+			writer.append(' ');
+			writer.appendLine();
+			writer.append('\t');
+			writer.append("isa");
+			writer.append(' ');
+			writer.append("ex:person");
+			writer.appendTailLine();
+			writer.append('\t');
+			writer.append("- ");
+			writer.append('"');
+			writer.append(IDS[i % IDS.length]);
+			writer.append('"');
+			writer.appendTailLine();
+			writer.append('\t');
+			writer.append("ex:age : ");
+			writer.append(i % 100);
+			writer.append(' ');
+			writer.appendLine();
+			writer.append('\t');
+			writer.append("ex:template");
+			writer.append('(');
+			writer.append(IDS[i % IDS.length]);
+			writer.append(',');
+			writer.append(IDS[(i + 1) % IDS.length]);
+			writer.append(");");
+			writer.appendLine();
+			writer.appendBlockEnd();
+		}
+	};
+
+	/**
+	 * Returns the number of bytes allocated by the current thread or
+	 * <code>-1</code> if the JVM does not support the measurement.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes",
+					long.class);
+			return (Long) method.invoke(bean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * runs the benchmark for the given variant and prints the best result
+	 */
+	private void run(String name, Variant variant) throws IOException {
+		long bestTime = Long.MAX_VALUE;
+		long bestAllocation = Long.MAX_VALUE;
+		for (int r = 0; r < RUNS; r++) {
+			ICTMWriter writer = new CTMBufferedStreamWriter(NULL);
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < TOPICS; i++) {
+				variant.write(writer, i);
+			}
+			writer.close();
+			long time = System.nanoTime() - start;
+			allocated = allocatedBytes() - allocated;
+			if (r > 0) {
+				bestTime = Math.min(bestTime, time);
+				bestAllocation = Math.min(bestAllocation, allocated);
+			}
+		}
+		System.out.println(String.format("%-12s %8.1f ns/topic %8.1f bytes/topic", name, bestTime
+				/ (double) TOPICS, bestAllocation / (double) TOPICS));
+	}
+
+	public void testAppend() throws Exception {
+		run("strings", STRINGS);
+		run("characters", CHARACTERS);
+	}
+
+}
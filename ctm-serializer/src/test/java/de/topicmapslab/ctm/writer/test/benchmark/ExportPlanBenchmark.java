@@ -0,0 +1,95 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * Benchmark of the export with and without the export plan (see
+ * {@link CTMTopicMapWriterProperties#PLAN_ENABLED}). The output is discarded,
+ * so only the serialization is measured. The benchmark is not part of the
+ * test suite and has to be started manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class ExportPlanBenchmark extends BaseTestCase {
+
+	/**
+	 * number of topics of the topic map
+	 */
+	private static final int TOPICS = 100000;
+
+	/**
+	 * number of runs per configuration, the first run is the warm-up
+	 */
+	private static final int RUNS = 4;
+
+	/**
+	 * stream discarding the output
+	 */
+	private static class NullOutputStream extends OutputStream {
+		public void write(int b) {
+		}
+
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+	private void createContent() {
+		Topic person = createTopicBySI("person");
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 0; i < TOPICS; i++) {
+			Topic topic = i % 10 == 0 ? createTopicByII("person-" + i) : createTopicBySI("person-" + i);
+			topic.addType(person);
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null && i % 2 == 0) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+	}
+
+	/**
+	 * runs the export with the given property line and prints the best result
+	 */
+	private void run(String name, String propertyLine) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			CTMTopicMapWriter writer = new CTMTopicMapWriter(new NullOutputStream(), base, propertyLine);
+			long start = System.nanoTime();
+			writer.write(topicMap);
+			long time = System.nanoTime() - start;
+			if (i > 0) {
+				best = Math.min(best, time);
+			}
+		}
+		System.out.println(String.format("%-24s %8.1f ms %8.1f topics/ms", name, best / 1000000.0, TOPICS
+				/ (best / 1000000.0)));
+	}
+
+	public void testExportPlan() throws Exception {
+		createContent();
+		run("without plan", "writer.plan.enabled=false");
+		run("with plan", "writer.plan.enabled=true");
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMFragmentRenderer;
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * Benchmark of the latency of rendering the block of a single topic, by a new
+ * {@link CTMTopicMapWriter} per request and by a shared
+ * {@link CTMFragmentRenderer} into a reused array. The benchmark is not part
+ * of the test suite and has to be started manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class FragmentRendererBenchmark extends BaseTestCase {
+
+	/**
+	 * number of topics of the topic map
+	 */
+	private static final int TOPICS = 10000;
+
+	/**
+	 * number of requests measured per configuration
+	 */
+	private static final int REQUESTS = 200000;
+
+	/**
+	 * number of requests before the measurement
+	 */
+	private static final int WARMUP = 100000;
+
+	/**
+	 * A request rendering the fragment of one topic.
+	 */
+	private interface Request {
+		int render(Topic topic) throws IOException;
+	}
+
+	private List<Topic> createContent() {
+		Topic person = createTopicBySI("person");
+		List<Topic> topics = new ArrayList<Topic>(TOPICS);
+		for (int i = 0; i < TOPICS; i++) {
+			Topic topic = createTopicBySI("person-" + i);
+			topic.addType(person);
+			topic.createName("Person " + i, new Topic[0]);
+			topic.createOccurrence(createTopicBySI("age"), Integer.toString(i % 100), new Topic[0]);
+			topics.add(topic);
+		}
+		return topics;
+	}
+
+	/**
+	 * runs the given requests and prints the percentiles of the latency
+	 */
+	private void run(String name, List<Topic> topics, Request request) throws IOException {
+		long bytes = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			bytes += request.render(topics.get(i % TOPICS));
+		}
+		long[] latencies = new long[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			Topic topic = topics.get((i * 7) % TOPICS);
+			long start = System.nanoTime();
+			bytes += request.render(topic);
+			latencies[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(latencies);
+		System.out.println(String.format("%-24s p50 %8.2f us  p99 %8.2f us  p99.9 %8.2f us  (%d bytes)", name,
+				latencies[REQUESTS / 2] / 1000.0, latencies[REQUESTS * 99 / 100] / 1000.0,
+				latencies[REQUESTS * 999 / 1000] / 1000.0, bytes));
+	}
+
+	public void testFragmentLatency() throws Exception {
+		List<Topic> topics = createContent();
+		run("writer per request", topics, new Request() {
+			public int render(Topic topic) throws IOException {
+				ByteArrayOutputStream stream = new ByteArrayOutputStream();
+				new CTMTopicMapWriter(stream, base).write(topic);
+				return stream.size();
+			}
+		});
+
+		final CTMFragmentRenderer renderer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base)
+				.createFragmentRenderer();
+		final byte[] target = new byte[64 * 1024];
+		run("fragment renderer", topics, new Request() {
+			public int render(Topic topic) throws IOException {
+				return renderer.render(topic, target, 0);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMIdentityTable;
+
+/**
+ * Benchmark comparing the memory per topic of the rendered main identifiers
+ * stored as strings in a map, like the {@link de.topicmapslab.ctm.writer.utility.CTMIdentity}
+ * does by default, with the {@link CTMIdentityTable} on the heap and off-heap.
+ * The retained heap is measured after a garbage collection, the topics itself
+ * are not counted. The benchmark is not part of the test suite and has to be
+ * started manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class IdentityTableBenchmark extends TestCase {
+
+	/**
+	 * number of topics
+	 */
+	private static final int TOPICS = 2000000;
+
+	/**
+	 * the topics, simple objects instead of topics of an engine
+	 */
+	private Object[] topics;
+
+	protected void setUp() throws Exception {
+		topics = new Object[TOPICS];
+		for (int i = 0; i < TOPICS; i++) {
+			topics[i] = new Object();
+		}
+	}
+
+	/**
+	 * Internal method to return the rendered identifier of the topic with the
+	 * given index.
+	 */
+	private static String identifier(int i) {
+		return "<http://psi.example.org/test/person-" + i + ">";
+	}
+
+	/**
+	 * Internal method to return the heap used after a garbage collection.
+	 */
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Internal method to print the measured values per topic.
+	 */
+	private static void report(String name, long heap, long offHeap, long nanos) {
+		System.out.println(String.format("%-20s heap %6.1f bytes/topic  off-heap %6.1f bytes/topic  lookup %6.1f ns",
+				name, (double) heap / TOPICS, (double) offHeap / TOPICS, (double) nanos / TOPICS));
+	}
+
+	public void testMemoryPerTopic() throws Exception {
+		long before = usedHeap();
+		Map<Object, String> map = new ConcurrentHashMap<Object, String>();
+		for (int i = 0; i < TOPICS; i++) {
+			map.put(topics[i], identifier(i));
+		}
+		long heap = usedHeap() - before;
+		long expected = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < TOPICS; i++) {
+			expected += map.get(topics[(i * 7) % TOPICS]).length();
+		}
+		report("map of strings", heap, 0, System.nanoTime() - start);
+		map = null;
+
+		for (boolean direct : new boolean[] { false, true }) {
+			before = usedHeap();
+			CTMIdentityTable table = new CTMIdentityTable(direct);
+			for (int i = 0; i < TOPICS; i++) {
+				table.add(topics[i], identifier(i));
+			}
+			heap = usedHeap() - before;
+			long length = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < TOPICS; i++) {
+				length += table.getIdentifier(table.getNumber(topics[(i * 7) % TOPICS])).length();
+			}
+			long nanos = System.nanoTime() - start;
+			report(direct ? "table off-heap" : "table on heap", heap, direct ? table.getArenaSize() : 0, nanos);
+			assertEquals(expected, length);
+			assertEquals(TOPICS, table.size());
+			table = null;
+		}
+	}
+
+}
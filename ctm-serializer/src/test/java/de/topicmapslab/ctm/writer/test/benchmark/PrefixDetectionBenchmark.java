@@ -0,0 +1,116 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+import de.topicmapslab.common.tools.collections.StringList;
+import de.topicmapslab.common.tools.prefix.core.PrefixCandidateTrie;
+
+/**
+ * Benchmark comparing the prefix detection of the former implementation of
+ * {@link de.topicmapslab.common.tools.prefix.core.PrefixIdentifier}, copying
+ * all IRIs into a set and checking the candidates by substring scans of a
+ * {@link StringList}, with the {@link PrefixCandidateTrie}, for 1000, 10000
+ * and 50000 name-spaces. The IRIs are strings instead of locators of an
+ * engine. The benchmark is not part of the test suite and has to be started
+ * manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class PrefixDetectionBenchmark extends TestCase {
+
+	/**
+	 * number of IRIs
+	 */
+	private static final int IRIS = 1000000;
+
+	/**
+	 * number of rounds, the first round warms up
+	 */
+	private static final int ROUNDS = 3;
+
+	/**
+	 * Internal method to identify the prefixes of the given IRIs like the
+	 * former implementation.
+	 */
+	private static List<String> identifyURIs(String[] iris) {
+		Set<String> locators = new HashSet<String>();
+		Collections.addAll(locators, iris);
+		Map<String, Integer> candidates = new HashMap<String, Integer>();
+		for (String iri : locators) {
+			String candidate = iri.substring(0, PrefixCandidateTrie.getCandidateEnd(iri));
+			Integer count = candidates.get(candidate);
+			candidates.put(candidate, count == null ? 1 : count + 1);
+		}
+		List<Entry<String, Integer>> sorted = new ArrayList<Entry<String, Integer>>(candidates.entrySet());
+		Collections.sort(sorted, new Comparator<Entry<String, Integer>>() {
+			public int compare(Entry<String, Integer> o1, Entry<String, Integer> o2) {
+				int compare = o2.getValue().compareTo(o1.getValue());
+				return compare != 0 ? compare : o2.getKey().compareTo(o1.getKey());
+			}
+		});
+		StringList prefixes = new StringList();
+		for (Entry<String, Integer> entry : sorted) {
+			if (entry.getValue() > 1 && !prefixes.containsSubstring(entry.getKey())
+					&& !prefixes.containsAsSubstring(entry.getKey())) {
+				prefixes.add(entry.getKey());
+			}
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Internal method to identify the prefixes of the given IRIs by the trie.
+	 */
+	private static List<String> identifyURIsByTrie(String[] iris) {
+		PrefixCandidateTrie trie = new PrefixCandidateTrie();
+		for (String iri : iris) {
+			trie.add(iri);
+		}
+		return trie.getPrefixes();
+	}
+
+	public void testPrefixDetection() throws Exception {
+		for (int count : new int[] { 1000, 10000, 50000 }) {
+			String[] iris = new String[IRIS];
+			for (int i = 0; i < IRIS; i++) {
+				iris[i] = "http://psi.example.org/ontology-" + (i % count) + "/topic-" + i;
+			}
+			assertEquals(identifyURIs(iris), identifyURIsByTrie(iris));
+			long former = 0;
+			long trie = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				int size = identifyURIs(iris).size();
+				long end = System.nanoTime();
+				size += identifyURIsByTrie(iris).size();
+				long end2 = System.nanoTime();
+				assertEquals(2 * count, size);
+				if (round > 0) {
+					former += end - start;
+					trie += end2 - end;
+				}
+			}
+			System.out.println(String.format("%5d name-spaces: former %8.1f ms, trie %8.1f ms", count,
+					former / 1000000.0 / (ROUNDS - 1), trie / 1000000.0 / (ROUNDS - 1)));
+		}
+	}
+
+}
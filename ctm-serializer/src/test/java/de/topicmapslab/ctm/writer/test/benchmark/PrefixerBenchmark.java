@@ -0,0 +1,103 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+import de.topicmapslab.common.tools.prefix.core.PrefixTrie;
+import de.topicmapslab.common.tools.prefix.core.Prefixer;
+
+/**
+ * Benchmark comparing the transformation of IRIs to QNames by the former
+ * implementation of {@link Prefixer#toPrefixedIri(String, Map)} using a
+ * regular expression, the current one scanning the prefix map and the
+ * {@link PrefixTrie} with 10, 100 and 1000 prefixes. The benchmark is not
+ * part of the test suite and has to be started manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class PrefixerBenchmark extends TestCase {
+
+	/**
+	 * number of IRIs
+	 */
+	private static final int IRIS = 10000;
+
+	/**
+	 * number of rounds, the first rounds warm up
+	 */
+	private static final int ROUNDS = 10;
+
+	/**
+	 * Internal method to transform the given IRI like the former
+	 * implementation of {@link Prefixer#toPrefixedIri(String, Map)}.
+	 */
+	private static String toPrefixedIriByRegularExpression(final String uri, final Map<String, String> prefixes) {
+		for (Entry<String, String> prefix : prefixes.entrySet()) {
+			if (uri.startsWith(prefix.getValue())) {
+				String localPart = uri.substring(prefix.getValue().length());
+				if (localPart.contains("/"))
+					continue;
+				return uri.replaceFirst(prefix.getValue(), prefix.getKey() + ":");
+			}
+		}
+		return uri;
+	}
+
+	public void testPrefixes() throws Exception {
+		for (int count : new int[] { 10, 100, 1000 }) {
+			Map<String, String> prefixes = new HashMap<String, String>();
+			for (int i = 0; i < count; i++) {
+				prefixes.put("p" + i, "http://psi.example.org/ontology-" + i + "/");
+			}
+			String[] iris = new String[IRIS];
+			for (int i = 0; i < IRIS; i++) {
+				iris[i] = "http://psi.example.org/ontology-" + (i * 7 % count) + "/topic-" + i;
+			}
+			PrefixTrie trie = new PrefixTrie(prefixes);
+			for (String iri : iris) {
+				assertEquals(toPrefixedIriByRegularExpression(iri, prefixes), trie.toPrefixedIri(iri));
+			}
+			long regularExpression = 0;
+			long scan = 0;
+			long lookup = 0;
+			long length = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				for (String iri : iris) {
+					length += toPrefixedIriByRegularExpression(iri, prefixes).length();
+				}
+				long end = System.nanoTime();
+				for (String iri : iris) {
+					length += Prefixer.toPrefixedIri(iri, prefixes).length();
+				}
+				long end2 = System.nanoTime();
+				for (String iri : iris) {
+					length += trie.toPrefixedIri(iri).length();
+				}
+				long end3 = System.nanoTime();
+				if (round >= ROUNDS / 2) {
+					regularExpression += end - start;
+					scan += end2 - end;
+					lookup += end3 - end2;
+				}
+			}
+			assertTrue(length > 0);
+			int measured = IRIS * (ROUNDS - ROUNDS / 2);
+			System.out.println(String.format(
+					"%4d prefixes: regular expression %8.1f ns, map scan %8.1f ns, trie %6.1f ns",
+					count, (double) regularExpression / measured, (double) scan / measured, (double) lookup / measured));
+		}
+	}
+
+}
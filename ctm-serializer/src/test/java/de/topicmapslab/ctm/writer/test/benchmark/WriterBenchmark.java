@@ -0,0 +1,148 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMByteWriter;
+import de.topicmapslab.ctm.writer.utility.CTMChannelWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * Simple throughput benchmark of the {@link ICTMWriter} implementations
+ * writing to a file. The benchmark is not part of the test suite and has to
+ * be started manually.
+ *
+ * @author Sven Krosse
+ *
+ */
+public class WriterBenchmark extends TestCase {
+
+	/**
+	 * number of topic blocks per run
+	 */
+	private static final int TOPICS = 500000;
+
+	/**
+	 * number of runs per writer, the first run is the warm-up
+	 */
+	private static final int RUNS = 4;
+
+	/**
+	 * a factory of writers for the given file
+	 */
+	private interface WriterFactory {
+		ICTMWriter create(File file) throws IOException;
+
+		void close() throws IOException;
+	}
+
+	/**
+	 * writes the benchmark content to the given writer
+	 */
+	private void writeContent(ICTMWriter writer) throws IOException {
+		for (int i = 0; i < TOPICS; i++) {
+			writer.append("ex:topic-" + i, " ");
+			writer.appendLine();
+			writer.append("\t");
+			writer.append(true, "isa", "ex:person");
+			writer.appendTailLine();
+			writer.append("\t");
+			writer.append(false, "- ", "\"Topic number ", Integer.toString(i), "\"");
+			writer.appendTailLine();
+			writer.append(false, "\t", "ex:age", " ", ":", " ", Integer.toString(i % 100), " ");
+			writer.appendLine();
+			writer.appendBlockEnd();
+			writer.appendLine();
+		}
+		writer.close();
+	}
+
+	/**
+	 * runs the benchmark for the given factory and prints the best result
+	 */
+	private void run(String name, WriterFactory factory) throws IOException {
+		File file = File.createTempFile("ctm-benchmark", ".ctm");
+		file.deleteOnExit();
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			try {
+				writeContent(factory.create(file));
+			} finally {
+				factory.close();
+			}
+			long time = System.nanoTime() - start;
+			if (i > 0) {
+				best = Math.min(best, time);
+			}
+		}
+		double mb = file.length() / (1024.0 * 1024.0);
+		System.out.println(String.format("%-24s %8.1f ms %8.1f MB/s", name, best / 1000000.0, mb
+				/ (best / 1000000000.0)));
+		file.delete();
+	}
+
+	/**
+	 * factory writing to a file output stream
+	 */
+	private abstract class StreamFactory implements WriterFactory {
+		protected FileOutputStream stream;
+
+		public void close() throws IOException {
+			stream.close();
+		}
+	}
+
+	/**
+	 * factory writing to a file channel
+	 */
+	private class ChannelFactory implements WriterFactory {
+		private final boolean mapped;
+		private RandomAccessFile file;
+
+		public ChannelFactory(boolean mapped) {
+			this.mapped = mapped;
+		}
+
+		public ICTMWriter create(File f) throws IOException {
+			file = new RandomAccessFile(f, "rw");
+			file.setLength(0);
+			return new CTMChannelWriter(file.getChannel(), CTMByteWriter.DEFAULT_BUFFER_SIZE, mapped);
+		}
+
+		public void close() throws IOException {
+			file.close();
+		}
+	}
+
+	public void testFileWriters() throws Exception {
+		run("CTMStreamWriter", new StreamFactory() {
+			public ICTMWriter create(File file) throws IOException {
+				stream = new FileOutputStream(file);
+				return new CTMStreamWriter(stream);
+			}
+		});
+		run("CTMBufferedStreamWriter", new StreamFactory() {
+			public ICTMWriter create(File file) throws IOException {
+				stream = new FileOutputStream(file);
+				return new CTMBufferedStreamWriter(stream);
+			}
+		});
+		run("CTMChannelWriter", new ChannelFactory(false));
+		run("CTMChannelWriter (mapped)", new ChannelFactory(true));
+	}
+
+}
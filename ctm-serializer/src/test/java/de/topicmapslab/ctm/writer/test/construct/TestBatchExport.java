@@ -0,0 +1,90 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tmapi.core.Topic;
+import org.tmapi.core.TopicMap;
+import org.tmapi.core.TopicMapSystem;
+
+import de.topicmapslab.ctm.writer.core.CTMBatchJob;
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestBatchExport extends BaseTestCase {
+
+	private static class Sink extends ByteArrayOutputStream {
+
+		private boolean closed;
+
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+
+	private TopicMap createTenant(TopicMapSystem system, int tenant) throws Exception {
+		String iri = "http://psi.example.org/tenant-" + tenant + "/";
+		TopicMap tenantMap = system.createTopicMap(iri);
+		for (int i = 0; i <= tenant * 10; i++) {
+			Topic topic = tenantMap.createTopicBySubjectIdentifier(tenantMap.createLocator(iri + "topic-" + i));
+			topic.createName("Topic " + i, new Topic[0]);
+		}
+		return tenantMap;
+	}
+
+	public void testBatchExport() throws Exception {
+		TopicMapSystem system = factory.newTopicMapSystem();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base,
+				"writer.batch.threads=3, writer.batch.admissionLimit=100");
+		writer.setPrefix("test", base);
+
+		List<TopicMap> tenants = new ArrayList<TopicMap>();
+		List<CTMBatchJob> jobs = new ArrayList<CTMBatchJob>();
+		for (int tenant = 0; tenant < 20; tenant++) {
+			TopicMap tenantMap = createTenant(system, tenant);
+			tenants.add(tenantMap);
+			jobs.add(new CTMBatchJob(tenantMap, new Sink()));
+		}
+		jobs.add(new CTMBatchJob(tenants.get(1), new OutputStream() {
+			public void write(int b) throws IOException {
+				throw new IOException("failing sink");
+			}
+		}));
+
+		writer.createBatchExporter().export(jobs);
+
+		for (int tenant = 0; tenant < 20; tenant++) {
+			CTMBatchJob job = jobs.get(tenant);
+			assertNull(job.getError());
+			assertEquals(tenant * 10 + 1, job.getEstimatedSize());
+
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			CTMTopicMapWriter single = new CTMTopicMapWriter(expected, base);
+			single.setPrefix("test", base);
+			single.write(tenants.get(tenant));
+			assertEquals(expected.toString("UTF-8"), ((Sink) job.getSink()).toString("UTF-8"));
+			assertTrue("The sink has to be closed", ((Sink) job.getSink()).closed);
+			assertEquals(expected.size(), job.getBytes());
+			assertTrue(job.getExportTime() > 0);
+			assertTrue(job.getLatency() >= job.getExportTime());
+		}
+		assertNotNull(jobs.get(20).getError());
+	}
+
+}
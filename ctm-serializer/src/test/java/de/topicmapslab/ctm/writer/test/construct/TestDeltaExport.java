@@ -0,0 +1,148 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestDeltaExport extends BaseTestCase {
+
+	private File index;
+
+	private String output;
+
+	private List<String> writeDelta() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base, "writer.parallel.threads=2, writer.parallel.chunkSize=7");
+		List<String> removed = writer.writeDelta(topicMap, index);
+		output = stream.toString("UTF-8");
+		return removed;
+	}
+
+	public void testDelta() throws Exception {
+		index = File.createTempFile("ctm-delta", ".idx");
+		index.delete();
+		index.deleteOnExit();
+
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic[] persons = new Topic[50];
+		for (int i = 0; i < persons.length; i++) {
+			persons[i] = createTopicBySI("person-" + i);
+			persons[i].createName("Person " + i, new Topic[0]);
+		}
+		Association association = createAssociation(knows);
+		association.createRole(role, persons[0]);
+		association.createRole(role, persons[1]);
+
+		assertTrue(writeDelta().isEmpty());
+		for (int i = 0; i < persons.length; i++) {
+			assertTrue(output.contains("<" + base + "person-" + i + "> "));
+		}
+		assertTrue(output.contains("<" + base + "knows> ("));
+
+		assertTrue(writeDelta().isEmpty());
+		assertFalse(output.contains("<" + base + "person-"));
+		assertFalse(output.contains("<" + base + "knows> ("));
+
+		persons[3].createName("Changed", new Topic[0]);
+		persons[4].remove();
+		List<String> removed = writeDelta();
+		assertTrue(output.contains("<" + base + "person-3> "));
+		assertFalse(output.contains("<" + base + "person-2> "));
+		assertEquals(1, removed.size());
+		assertEquals("<" + base + "person-4>", removed.get(0));
+
+		association.remove();
+		removed = writeDelta();
+		assertEquals(1, removed.size());
+		assertTrue(removed.get(0).startsWith("association "));
+	}
+
+	/**
+	 * Internal method to fill the topic map, inserting the topics, identifiers,
+	 * names, occurrences, types, themes and roles in reverse order if
+	 * requested.
+	 */
+	private void createTopics(boolean reverse) {
+		Topic knows = createTopicBySI(reverse ? "acquainted" : "knows");
+		knows.addSubjectIdentifier(createLocator(reverse ? "knows" : "acquainted"));
+		Topic role = createTopicBySI("role");
+		List<Topic> themes = new ArrayList<Topic>();
+		List<Topic> types = new ArrayList<Topic>();
+		for (int i = 0; i < 3; i++) {
+			themes.add(createTopicBySI("theme-" + i));
+			types.add(createTopicBySI("type-" + i));
+		}
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 20; i++) {
+			values.add("person-" + i);
+		}
+		if (reverse) {
+			Collections.reverse(themes);
+			Collections.reverse(types);
+			Collections.reverse(values);
+		}
+		Topic[] scope = themes.toArray(new Topic[themes.size()]);
+		List<Topic> persons = new ArrayList<Topic>();
+		for (String value : values) {
+			Topic person = createTopicBySI(value);
+			for (Topic type : types) {
+				person.addType(type);
+			}
+			person.createName("Name of " + value, scope);
+			person.createName("Other name of " + value, new Topic[0]);
+			person.createOccurrence(knows, "Occurrence of " + value, scope);
+			persons.add(person);
+		}
+		for (int i = 0; i + 1 < persons.size(); i++) {
+			Association association = createAssociation(knows);
+			association.createRole(role, persons.get(i));
+			association.createRole(role, persons.get(i + 1));
+			for (Topic theme : themes) {
+				association.addTheme(theme);
+			}
+		}
+	}
+
+	public void testDeltaOfReloadedTopicMap() throws Exception {
+		index = File.createTempFile("ctm-delta", ".idx");
+		index.delete();
+		index.deleteOnExit();
+
+		createTopics(false);
+		assertTrue(writeDelta().isEmpty());
+		assertTrue(output.contains("<" + base + "person-0> "));
+
+		/*
+		 * load the same topic map again, in a different order
+		 */
+		topicMap.close();
+		topicMap = factory.newTopicMapSystem().createTopicMap(base);
+		createTopics(true);
+		assertTrue(writeDelta().isEmpty());
+		assertFalse(output.contains("<" + base + "person-"));
+		assertFalse(output.contains("<" + base + "knows> ("));
+		assertFalse(output.contains("<" + base + "acquainted> ("));
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMExportControl;
+import de.topicmapslab.ctm.writer.core.CTMExportPhase;
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.core.ICTMProgressListener;
+import de.topicmapslab.ctm.writer.exception.ExportCancelledException;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestExportControl extends BaseTestCase {
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 0; i < 3000; i++) {
+			Topic topic = createTopicBySI("person-" + i);
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+	}
+
+	public void testProgress() throws Exception {
+		final List<CTMExportPhase> phases = new ArrayList<CTMExportPhase>();
+		final long[] last = new long[3];
+		CTMExportControl control = new CTMExportControl();
+		control.setProgressListener(new ICTMProgressListener() {
+			public void phaseStarted(CTMExportPhase phase, int total) {
+				phases.add(phase);
+			}
+
+			public void progress(CTMExportPhase phase, int done, int total, long bytes) {
+				assertTrue(done <= total);
+				assertTrue(bytes >= last[2]);
+				last[0] = done;
+				last[1] = total;
+				last[2] = bytes;
+			}
+		});
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		new CTMTopicMapWriter(stream, base, "writer.features.prefixDetection.enabled=true").write(topicMap, control);
+
+		assertEquals(3, phases.size());
+		assertEquals(CTMExportPhase.PREFIXES, phases.get(0));
+		assertEquals(CTMExportPhase.TOPICS, phases.get(1));
+		assertEquals(CTMExportPhase.ASSOCIATIONS, phases.get(2));
+		assertEquals(2999, last[0]);
+		assertEquals(2999, last[1]);
+		assertEquals(stream.size(), control.getBytes());
+	}
+
+	public void testCancel() throws Exception {
+		final CTMExportControl control = new CTMExportControl();
+		control.setProgressListener(new ICTMProgressListener() {
+			public void phaseStarted(CTMExportPhase phase, int total) {
+			}
+
+			public void progress(CTMExportPhase phase, int done, int total, long bytes) {
+				control.cancel();
+			}
+		});
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try {
+			new CTMTopicMapWriter(stream, base).write(topicMap, control);
+			fail("Export has to be cancelled");
+		} catch (ExportCancelledException e) {
+			// expected
+		}
+		String ctm = stream.toString("UTF-8").trim();
+		assertTrue(ctm.endsWith("Export cancelled, because of export was cancelled."));
+		assertFalse(ctm.contains("association definitions"));
+		assertTrue(control.isCancelled());
+	}
+
+	public void testDeadline() throws Exception {
+		CTMExportControl control = new CTMExportControl(0, TimeUnit.MILLISECONDS);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try {
+			new CTMTopicMapWriter(stream, base, "writer.output.buffered.enabled=true").write(topicMap, control);
+			fail("Export has to exceed the deadline");
+		} catch (ExportCancelledException e) {
+			// expected
+		}
+		String ctm = stream.toString("UTF-8");
+		assertTrue(ctm.contains("deadline was exceeded."));
+		assertFalse(ctm.contains("person-"));
+	}
+
+}
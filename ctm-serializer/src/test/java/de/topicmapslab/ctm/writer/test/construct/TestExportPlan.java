@@ -0,0 +1,62 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestExportPlan extends BaseTestCase {
+
+	private String write(String propertyLine) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base, propertyLine);
+		writer.write(topicMap);
+		return stream.toString("UTF-8");
+	}
+
+	public void testPlanOutputEqual() throws Exception {
+		Topic person = createTopicBySI("person");
+		Topic animal = createTopicBySI("animal");
+		addSupertype(person, animal);
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic age = createTopicBySI("age");
+		Topic previous = createTopicBySL("document");
+		for (int i = 0; i < 100; i++) {
+			Topic topic = i % 3 == 0 ? createTopicByII("person-" + i) : createTopicBySI("person-" + i);
+			topic.addType(person);
+			Name name = topic.createName("Person " + i, new Topic[0]);
+			name.createVariant("P" + i, createTopicBySI("short"));
+			topic.createOccurrence(age, Integer.toString(i), new Topic[0]);
+			Association association = createAssociation(knows);
+			association.createRole(role, previous);
+			association.createRole(role, topic);
+			if (i % 10 == 0) {
+				association.setReifier(createTopic());
+			}
+			previous = topic;
+		}
+
+		String expected = write("writer.plan.enabled=false");
+		assertEquals(expected, write("writer.plan.enabled=true"));
+		assertEquals(write("writer.plan.enabled=false, writer.features.export.itemidentifier=true"),
+				write("writer.plan.enabled=true, writer.features.export.itemidentifier=true"));
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestExportSession extends BaseTestCase {
+
+	private String write(CTMTopicMapWriter writer, ByteArrayOutputStream stream) throws Exception {
+		stream.reset();
+		writer.write(topicMap);
+		return stream.toString("UTF-8");
+	}
+
+	public void testReusedWriter() throws Exception {
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic type = createTopicBySI("person");
+		Topic previous = null;
+		for (int i = 0; i < 100; i++) {
+			Topic topic = createTopicBySI("person-" + i);
+			topic.addType(type);
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base,
+				"writer.features.prefixDetection.enabled=true, writer.features.templateDetection.enabled=true, "
+						+ "writer.features.templateDetection.topicTemplates=true, "
+						+ "writer.features.templateDetection.associationTemplates=true");
+		writer.setPrefix("test", base);
+
+		String first = write(writer, stream);
+		assertEquals("A reused writer has to export the same content", first, write(writer, stream));
+		assertEquals(first, write(writer, stream));
+
+		for (String line : first.split("\n")) {
+			if (line.startsWith("%prefix ")) {
+				String prefix = line.substring(8, line.indexOf(' ', 8));
+				if (!"test".equals(prefix)) {
+					assertNull("Detected prefixes must not be added to the writer", writer.getPrefix(prefix));
+				}
+			}
+		}
+		assertEquals(base, writer.getPrefix("test"));
+	}
+
+	public void testConcurrentExports() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			createTopicBySI("topic-" + i).createName("Topic " + i, new Topic[0]);
+		}
+		final CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base,
+				"writer.features.prefixDetection.enabled=true");
+		final StringBuilder expected = new StringBuilder();
+		writer.write(topicMap, expected);
+
+		final String[] results = new String[4];
+		final Exception[] errors = new Exception[results.length];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						StringBuilder builder = new StringBuilder();
+						writer.write(topicMap, builder);
+						results[index] = builder.toString();
+					} catch (Exception e) {
+						errors[index] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			if (errors[i] != null) {
+				throw errors[i];
+			}
+			assertEquals(expected.toString(), results[i]);
+		}
+	}
+
+}
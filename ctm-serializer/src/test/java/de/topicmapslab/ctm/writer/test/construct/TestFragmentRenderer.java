@@ -0,0 +1,131 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMFragmentRenderer;
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestFragmentRenderer extends BaseTestCase {
+
+	private String write(Construct construct) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base);
+		writer.setPrefix("test", base);
+		writer.write(construct);
+		return stream.toString("UTF-8");
+	}
+
+	private CTMFragmentRenderer createRenderer() throws Exception {
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base);
+		writer.setPrefix("test", base);
+		return writer.createFragmentRenderer();
+	}
+
+	/**
+	 * returns the block of the given fragment behind the prefix declarations
+	 */
+	private String getBlock(String fragment) {
+		assertTrue(fragment.startsWith("%prefix test"));
+		return fragment.substring(fragment.indexOf("\n\n") + 2);
+	}
+
+	public void testRenderTopic() throws Exception {
+		Topic topic = createTopicBySI("person");
+		topic.createName("Gr\u00f6\u00dfe \ud834\udd1e", new Topic[0]);
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base);
+		writer.setPrefix("test", base);
+		CTMFragmentRenderer renderer = writer.createFragmentRenderer();
+
+		byte[] target = new byte[1024];
+		int length = renderer.render(topic, target, 10);
+		String fragment = new String(target, 10, length, "UTF-8");
+		assertTrue(fragment.contains("<" + base + ">"));
+		assertTrue(getBlock(fragment).startsWith("test:person"));
+		assertTrue(write(topic).startsWith(getBlock(fragment)));
+
+		/*
+		 * the renderer is reused and not affected by the writer
+		 */
+		writer.setPrefix("other", base);
+		assertEquals(length, renderer.render(topic, target, 0));
+		assertEquals(fragment, new String(target, 0, length, "UTF-8"));
+	}
+
+	public void testRenderAssociation() throws Exception {
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Association association = createAssociation(knows);
+		association.createRole(role, createTopicBySI("a"));
+		association.createRole(role, createTopicBySI("b"));
+		CTMFragmentRenderer renderer = createRenderer();
+
+		ByteBuffer target = ByteBuffer.allocate(1024);
+		target.put((byte) '#');
+		int length = renderer.render(association, target);
+		assertEquals(length + 1, target.position());
+		String fragment = new String(target.array(), 1, length, "UTF-8");
+		assertTrue(write(association).startsWith(getBlock(fragment)));
+
+		Name name = createTopicBySI("c").createName("c", new Topic[0]);
+		assertEquals(0, renderer.render(name, target));
+		assertEquals(length + 1, target.position());
+	}
+
+	public void testInvalidate() throws Exception {
+		Topic topic = createTopicBySI("person");
+		CTMFragmentRenderer renderer = createRenderer();
+		byte[] target = new byte[1024];
+		int length = renderer.render(topic, target, 0);
+		assertTrue(new String(target, 0, length, "UTF-8").contains("test:person "));
+
+		topic.addSubjectIdentifier(createLocator("human"));
+		topic.removeSubjectIdentifier(createLocator("person"));
+		renderer.invalidate();
+		length = renderer.render(topic, target, 0);
+		String fragment = new String(target, 0, length, "UTF-8");
+		assertTrue(fragment.contains("test:human "));
+		assertFalse(fragment.contains("test:person"));
+	}
+
+	public void testOverflow() throws Exception {
+		Topic topic = createTopicBySI("person");
+		for (int i = 0; i < 100; i++) {
+			topic.createName("Person " + i, new Topic[0]);
+		}
+		CTMFragmentRenderer renderer = createRenderer();
+		ByteBuffer target = ByteBuffer.allocate(64);
+		target.position(3);
+		try {
+			renderer.render(topic, target);
+			fail("The fragment does not fit into the buffer");
+		} catch (BufferOverflowException e) {
+			assertEquals(3, target.position());
+		}
+
+		ByteBuffer large = ByteBuffer.allocate(64 * 1024);
+		int length = renderer.render(topic, large);
+		String block = getBlock(new String(large.array(), 0, length, "UTF-8"));
+		assertEquals(write(topic).substring(0, block.length()), block);
+	}
+
+}
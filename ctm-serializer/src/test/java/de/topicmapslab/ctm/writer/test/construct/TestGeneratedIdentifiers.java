@@ -0,0 +1,204 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestGeneratedIdentifiers extends BaseTestCase {
+
+	private String write(String propertyLine) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		new CTMTopicMapWriter(stream, base, propertyLine).write(topicMap);
+		return stream.toString("UTF-8");
+	}
+
+	/**
+	 * Internal method to count the references of the given identifier.
+	 */
+	private static int count(String output, String identifier) {
+		int count = 0;
+		for (int index = output.indexOf(identifier); index != -1; index = output.indexOf(identifier, index + 1)) {
+			int end = index + identifier.length();
+			if (end == output.length() || !Character.isLetterOrDigit(output.charAt(end))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public void testGeneratedIdentifiers() throws Exception {
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic first = createTopic();
+		first.createName("First", new Topic[0]);
+		Topic second = createTopic();
+		second.createName("Second", new Topic[0]);
+		Association association = createAssociation(knows);
+		association.createRole(role, first);
+		association.createRole(role, second);
+
+		String output = write("writer.identity.generated.enabled=true");
+		assertTrue(output.contains("%prefix gen  <" + base + ">"));
+		assertEquals(2, count(output, "^gen:t0"));
+		assertEquals(2, count(output, "^gen:t1"));
+		assertFalse(output.contains("urn:"));
+
+		assertEquals(output, write("writer.identity.generated.enabled=true, writer.parallel.enabled=true"));
+		assertTrue(write("writer.identity.generated.enabled=true, writer.identity.generated.prefix=x").contains(
+				"^x:t0 "));
+		assertFalse(write(null).contains("^gen:"));
+	}
+
+	public void testCollision() throws Exception {
+		createTopicByII("t0");
+		createTopicBySI("t1");
+		createTopic();
+
+		String output = write("writer.identity.generated.enabled=true");
+		assertEquals(1, count(output, "^gen:t2"));
+		assertEquals(1, count(output, "^gen:t0"));
+	}
+
+	public void testStoredIdentifiers() throws Exception {
+		File file = File.createTempFile("ctm-identifiers", ".bin");
+		file.delete();
+		file.deleteOnExit();
+		String propertyLine = "writer.identity.generated.enabled=true, writer.identity.generated.file=" + file.getPath();
+
+		Topic first = createTopic();
+		first.createName("First", new Topic[0]);
+		String output = write(propertyLine);
+		assertTrue(file.exists());
+		assertTrue(output.contains("^gen:t0 "));
+
+		Topic second = createTopic();
+		second.createName("Second", new Topic[0]);
+		first.remove();
+		output = write(propertyLine);
+		assertFalse(output.contains("^gen:t0 "));
+		assertTrue(output.contains("^gen:t1 "));
+
+		/*
+		 * a topic is recognized by its names, not by the engine
+		 */
+		Topic again = createTopic();
+		again.createName("First", new Topic[0]);
+		output = write(propertyLine);
+		assertTrue(output.contains("^gen:t0 "));
+		assertTrue(output.contains("^gen:t1 "));
+	}
+
+	public void testConcurrentSessions() throws Exception {
+		final File directory = File.createTempFile("ctm-identifiers", "");
+		directory.delete();
+		directory.mkdir();
+		File file = new File(directory, "identifiers.bin");
+		String propertyLine = "writer.identity.generated.enabled=true, writer.identity.generated.file=" + file.getPath();
+		for (int i = 0; i < 100; i++) {
+			createTopic().createName("Topic " + i, new Topic[0]);
+		}
+
+		/*
+		 * the sessions of one writer share the numbers and the file
+		 */
+		final CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base, propertyLine);
+		final Exception[] errors = new Exception[4];
+		Thread[] threads = new Thread[errors.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						writer.writeSharded(topicMap, new File(directory, "export-" + index + ".ctm"));
+					} catch (Exception e) {
+						errors[index] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (Exception error : errors) {
+			assertNull(error);
+		}
+		assertEquals(0, directory.list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".tmp");
+			}
+		}).length);
+
+		/*
+		 * a new writer reads the identifiers of all sessions
+		 */
+		byte[] bytes = new byte[(int) new File(directory, "export-0-0001.ctm").length()];
+		DataInputStream in = new DataInputStream(new FileInputStream(new File(directory, "export-0-0001.ctm")));
+		try {
+			in.readFully(bytes);
+		} finally {
+			in.close();
+		}
+		String shard = new String(bytes, "UTF-8");
+		String output = write(propertyLine);
+		Set<String> identifiers = new HashSet<String>();
+		Matcher matcher = Pattern.compile("\\^gen:t[0-9a-z]+").matcher(output);
+		while (matcher.find()) {
+			identifiers.add(matcher.group());
+			assertTrue(shard.contains(matcher.group() + " "));
+		}
+		assertEquals(100, identifiers.size());
+		for (File created : directory.listFiles()) {
+			created.delete();
+		}
+		directory.delete();
+	}
+
+	public void testAmbiguousIdentifiers() throws Exception {
+		File file = File.createTempFile("ctm-identifiers", ".bin");
+		file.delete();
+		file.deleteOnExit();
+		String propertyLine = "writer.identity.generated.enabled=true, writer.identity.generated.file=" + file.getPath();
+
+		createTopic().createName("Same", new Topic[0]);
+		createTopic().createName("Same", new Topic[0]);
+		createTopic();
+		String output = write(propertyLine);
+		assertTrue(output.contains("^gen:t0 "));
+		assertTrue(output.contains("^gen:t1 "));
+		assertTrue(output.contains("^gen:t2 "));
+
+		/*
+		 * topics without names or with the same names get new identifiers
+		 */
+		output = write(propertyLine);
+		assertFalse(output.contains("^gen:t0 "));
+		assertFalse(output.contains("^gen:t1 "));
+		assertFalse(output.contains("^gen:t2 "));
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.core.PrefixHandler;
+import de.topicmapslab.ctm.writer.properties.CTMTopicMapWriterProperties;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+import de.topicmapslab.ctm.writer.utility.CTMIdentity;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestIdentifierCache extends BaseTestCase {
+
+	public void testCachedIdentifier() throws Exception {
+		Topic topic = createTopicBySI("person");
+		PrefixHandler prefixHandler = new PrefixHandler();
+		CTMIdentity identity = new CTMIdentity(prefixHandler);
+		CTMTopicMapWriterProperties properties = new CTMTopicMapWriterProperties();
+
+		String identifier = identity.getRenderedMainIdentifier(properties, topic);
+		assertEquals(identity.getMainIdentifier(properties, topic).toString(), identifier);
+		assertSame(identifier, identity.getRenderedMainIdentifier(properties, topic));
+		assertEquals(1, identity.getCacheHits());
+		assertEquals(1, identity.getCacheMisses());
+	}
+
+	public void testPrefixChange() throws Exception {
+		Topic topic = createTopicBySI("person");
+		PrefixHandler prefixHandler = new PrefixHandler();
+		CTMIdentity identity = new CTMIdentity(prefixHandler);
+		CTMTopicMapWriterProperties properties = new CTMTopicMapWriterProperties();
+
+		assertEquals("<" + base + "person>", identity.getRenderedMainIdentifier(properties, topic));
+		prefixHandler.setPrefix("ex", base);
+		assertEquals("ex:person", identity.getRenderedMainIdentifier(properties, topic));
+		assertEquals(0, identity.getCacheHits());
+		assertEquals(2, identity.getCacheMisses());
+	}
+
+	public void testStatistics() throws Exception {
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 0; i < 100; i++) {
+			Topic topic = createTopicBySI("person-" + i);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base,
+				"writer.statistics.enabled=true");
+		writer.write(topicMap);
+		CTMStatistics statistics = writer.getStatistics();
+		assertTrue(statistics.getIdentifierCacheMisses() > 0);
+		assertTrue(statistics.getIdentifierCacheMisses() <= topicMap.getTopics().size());
+		/*
+		 * each association references its type, two role types and two
+		 * players
+		 */
+		assertTrue(statistics.getIdentifierCacheHits() >= 99 * 5 - statistics.getIdentifierCacheMisses());
+
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		new CTMTopicMapWriter(first, base).write(topicMap);
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		new CTMTopicMapWriter(second, base).write(topicMap);
+		assertEquals(first.toString("UTF-8"), second.toString("UTF-8"));
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+import de.topicmapslab.ctm.writer.utility.CTMNeighbourhoodIterator;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestNeighbourhoodExport extends BaseTestCase {
+
+	private Topic knows;
+	private Topic likes;
+	private Topic role;
+	private Topic person;
+	private Topic[] people;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		knows = createTopicBySI("knows");
+		likes = createTopicBySI("likes");
+		role = createTopicBySI("role");
+		person = createTopicBySI("person");
+		people = new Topic[6];
+		for (int i = 0; i < people.length; i++) {
+			people[i] = createTopicBySI("person-" + i);
+			people[i].addType(person);
+		}
+		/*
+		 * a chain of knows-associations 0-1-2-3-4 and 5 likes 2
+		 */
+		for (int i = 0; i < 4; i++) {
+			connect(knows, people[i], people[i + 1]);
+		}
+		connect(likes, people[5], people[2]);
+	}
+
+	private void connect(Topic type, Topic a, Topic b) {
+		Association association = createAssociation(type);
+		association.createRole(role, a);
+		association.createRole(role, b);
+	}
+
+	private Set<Construct> collect(int hops, Topic... types) {
+		Set<Construct> constructs = new HashSet<Construct>();
+		Iterator<Construct> iterator = new CTMNeighbourhoodIterator(Collections.singleton(people[2]), hops, Arrays
+				.asList(types));
+		while (iterator.hasNext()) {
+			assertTrue("Constructs have to be returned once", constructs.add(iterator.next()));
+		}
+		return constructs;
+	}
+
+	private int count(Set<Construct> constructs, Class<?> type) {
+		int count = 0;
+		for (Construct construct : constructs) {
+			if (type.isInstance(construct)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public void testHops() throws Exception {
+		Set<Construct> constructs = collect(0);
+		assertEquals(2, constructs.size());
+		assertTrue(constructs.contains(people[2]));
+		assertTrue("Types have to be included", constructs.contains(person));
+
+		constructs = collect(1);
+		assertEquals(3, count(constructs, Association.class));
+		assertTrue(constructs.contains(people[1]));
+		assertTrue(constructs.contains(people[3]));
+		assertTrue(constructs.contains(people[5]));
+		assertFalse(constructs.contains(people[0]));
+		assertTrue(constructs.contains(knows));
+		assertTrue(constructs.contains(likes));
+		assertTrue(constructs.contains(role));
+
+		constructs = collect(2);
+		assertEquals(5, count(constructs, Association.class));
+		assertTrue(constructs.contains(people[0]));
+		assertTrue(constructs.contains(people[4]));
+	}
+
+	public void testReferencedPlayer() throws Exception {
+		Topic category = createTopicBySI("category");
+		person.addType(category);
+		Topic label = createTopicBySI("label");
+		person.createName(label, "Person", new Topic[0]);
+		Topic agent = createTopicBySI("agent");
+		addSupertype(person, agent);
+		Topic reifier = createTopicBySI("reifier");
+		/*
+		 * the type of the seed is a player of an association of the seed too
+		 */
+		Association association = createAssociation(likes);
+		association.createRole(role, people[2]);
+		association.createRole(role, person);
+		association.setReifier(reifier);
+
+		Set<Construct> constructs = collect(1);
+		assertTrue(constructs.contains(association));
+		assertTrue(constructs.contains(person));
+		assertTrue("Types of referenced topics have to be included", constructs.contains(category));
+		assertTrue("Name types of referenced topics have to be included", constructs.contains(label));
+		assertTrue("Supertypes have to be included", constructs.contains(agent));
+		assertTrue("Reifiers have to be included", constructs.contains(reifier));
+	}
+
+	public void testAssociationTypes() throws Exception {
+		Set<Construct> constructs = collect(5, likes);
+		assertEquals(1, count(constructs, Association.class));
+		assertTrue(constructs.contains(people[5]));
+		assertFalse(constructs.contains(people[1]));
+		assertFalse(constructs.contains(knows));
+	}
+
+	public void testWriteNeighbourhood() throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base);
+		writer.writeNeighbourhood(Collections.singleton(people[2]), 1, knows);
+		String ctm = stream.toString("UTF-8");
+		assertTrue(ctm.contains("<" + base + "person-1>"));
+		assertTrue(ctm.contains("<" + base + "person-3>"));
+		assertFalse(ctm.contains("<" + base + "person-0>"));
+		assertFalse(ctm.contains("<" + base + "person-5>"));
+	}
+
+}
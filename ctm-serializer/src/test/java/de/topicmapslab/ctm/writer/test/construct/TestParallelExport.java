@@ -0,0 +1,64 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestParallelExport extends BaseTestCase {
+
+	private void createContent() {
+		Topic person = createTopicBySI("person");
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic age = createTopicBySI("age");
+		Topic previous = null;
+		for (int i = 0; i < 1000; i++) {
+			Topic topic = i % 3 == 0 ? createTopic() : createTopicBySI("person-" + i);
+			topic.addType(person);
+			topic.createName("Person \"" + i + "\"", new Topic[0]);
+			topic.createOccurrence(age, Integer.toString(i), new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+	}
+
+	private String write(String propertyLine) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base, propertyLine);
+		writer.write(topicMap);
+		return stream.toString("UTF-8");
+	}
+
+	public void testSameOutput() throws Exception {
+		createContent();
+		String expected = write(null);
+		assertEquals(expected, write("writer.parallel.enabled=true"));
+		assertEquals(expected, write("writer.parallel.enabled=true, writer.parallel.threads=3, writer.parallel.chunkSize=7"));
+		assertEquals(expected, write("writer.parallel.enabled=true, writer.parallel.chunkSize=1"));
+	}
+
+	public void testEmptyTopicMap() throws Exception {
+		assertEquals(write(null), write("writer.parallel.enabled=true"));
+	}
+
+}
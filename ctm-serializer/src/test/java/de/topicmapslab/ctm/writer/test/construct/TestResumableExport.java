@@ -0,0 +1,152 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+import de.topicmapslab.ctm.writer.utility.CTMCountingWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestResumableExport extends BaseTestCase {
+
+	/**
+	 * writer simulating a crash after the given number of bytes
+	 */
+	private static class CrashingWriter extends CTMTopicMapWriter {
+
+		private final long limit;
+
+		public CrashingWriter(String baseURI, String propertyLine, long limit) {
+			super(new ByteArrayOutputStream(), baseURI, propertyLine);
+			this.limit = limit;
+		}
+
+		protected ICTMWriter createWriter(OutputStream stream, FileChannel channel) throws IOException {
+			final ICTMWriter target = super.createWriter(stream, channel);
+			return new CTMCountingWriter() {
+
+				private long bytes;
+
+				protected ICTMWriter getTarget() {
+					return target;
+				}
+
+				protected void written(long bytes) {
+					this.bytes += bytes;
+					if (this.bytes > limit) {
+						throw new IllegalStateException("crash");
+					}
+				}
+
+				public void flush() throws IOException {
+					target.flush();
+				}
+
+				public void close() throws IOException {
+					target.close();
+				}
+			};
+		}
+	}
+
+	private void createContent() {
+		Topic person = createTopicBySI("person");
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 0; i < 500; i++) {
+			Topic topic = i % 3 == 0 ? createTopic() : createTopicBySI("person-" + i);
+			topic.addType(person);
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+	}
+
+	private byte[] read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int off = 0;
+			while (off < bytes.length) {
+				off += in.read(bytes, off, bytes.length - off);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes;
+	}
+
+	public void testResume() throws Exception {
+		createContent();
+		File expected = File.createTempFile("ctm-resumable", ".ctm");
+		expected.deleteOnExit();
+		assertFalse(new CTMTopicMapWriter(new ByteArrayOutputStream(), base).writeResumable(topicMap, expected));
+		assertFalse(new File(expected.getPath() + ".checkpoint").exists());
+
+		File file = File.createTempFile("ctm-resumable", ".ctm");
+		file.deleteOnExit();
+		File checkpoint = new File(file.getPath() + ".checkpoint");
+		checkpoint.deleteOnExit();
+		try {
+			new CrashingWriter(base, "writer.checkpoint.interval=10", expected.length() / 2).writeResumable(topicMap,
+					file);
+			fail("Export has to crash");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(checkpoint.exists());
+
+		assertTrue(new CTMTopicMapWriter(new ByteArrayOutputStream(), base, "writer.checkpoint.interval=10")
+				.writeResumable(topicMap, file));
+		assertFalse(checkpoint.exists());
+		assertTrue(Arrays.equals(read(expected), read(file)));
+	}
+
+	public void testChangedTopicMap() throws Exception {
+		createContent();
+		File file = File.createTempFile("ctm-resumable", ".ctm");
+		file.deleteOnExit();
+		File checkpoint = new File(file.getPath() + ".checkpoint");
+		checkpoint.deleteOnExit();
+		try {
+			new CrashingWriter(base, "writer.checkpoint.interval=10", 2000).writeResumable(topicMap, file);
+			fail("Export has to crash");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		createTopicBySI("added");
+		try {
+			new CTMTopicMapWriter(new ByteArrayOutputStream(), base).writeResumable(topicMap, file);
+			fail("Resuming a changed topic map has to fail");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestShardedExport extends BaseTestCase {
+
+	private String read(File file) throws Exception {
+		byte[] bytes = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int off = 0;
+			while (off < bytes.length) {
+				off += in.read(bytes, off, bytes.length - off);
+			}
+		} finally {
+			in.close();
+		}
+		return new String(bytes, "UTF-8");
+	}
+
+	public void testPrefixesInEachShard() throws Exception {
+		Topic person = createTopicBySI("person");
+		for (int i = 0; i < 10; i++) {
+			createTopicBySI("person-" + i).addType(person);
+		}
+		File directory = File.createTempFile("ctm-shards", "");
+		directory.delete();
+		directory.mkdir();
+		directory.deleteOnExit();
+
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base,
+				"writer.output.shard.maxBlocks=4");
+		writer.setPrefix("test", base);
+		List<String> files = writer.writeSharded(topicMap, new File(directory, "map.ctm"));
+		assertTrue(files.size() > 2);
+		for (String name : files) {
+			File file = new File(directory, name);
+			file.deleteOnExit();
+			String content = read(file);
+			assertTrue(name, content.contains("%prefix test  <" + base + ">"));
+			if (!name.endsWith("-header.ctm")) {
+				assertTrue(name, content.contains("isa test:person"));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Name;
+import org.tmapi.core.Occurrence;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestSortedExport extends BaseTestCase {
+
+	private String write(String propertyLine) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base, propertyLine);
+		writer.write(topicMap);
+		return stream.toString("UTF-8");
+	}
+
+	public void testSortedOutput() throws Exception {
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 999; i >= 0; i--) {
+			Topic topic = createTopicBySI("person-" + (1000 + i));
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+
+		String sorted = write("writer.output.sorted.enabled=true, writer.output.sorted.runSize=0");
+		assertEquals(sorted, write("writer.output.sorted.enabled=true, writer.output.sorted.runSize=4096"));
+		assertEquals(write(null).length(), sorted.length());
+
+		int last = -1;
+		for (int i = 0; i < 1000; i++) {
+			int index = sorted.indexOf("<" + base + "person-" + (1000 + i) + "> ");
+			assertTrue("Topic blocks have to be sorted", index > last);
+			last = index;
+		}
+	}
+
+	public void testSortedByStableIdentity() throws Exception {
+		Topic topic = createTopicBySI("person-2");
+		topic.addSubjectIdentifier(createLocator("person-0"));
+		createTopicBySI("person-1");
+
+		String sorted = write("writer.output.sorted.enabled=true");
+		int index = sorted.indexOf("<" + base + "person-1> ");
+		assertTrue(index > 0);
+		assertTrue(sorted.indexOf("<" + base + "person-0>") < index);
+		assertTrue(sorted.indexOf("<" + base + "person-2>") < index);
+	}
+
+	public void testSortedBlockContent() throws Exception {
+		Topic topic = createTopicBySI("person");
+		Topic type = createTopicBySI("type");
+		String[] values = { "b", "c", "a" };
+		for (String value : values) {
+			topic.createName("name-" + value, new Topic[0]);
+			topic.createOccurrence(type, "occurrence-" + value, new Topic[0]);
+			topic.addType(createTopicBySI("type-" + value));
+		}
+		String expected = write("writer.output.sorted.enabled=true");
+
+		for (Name name : new ArrayList<Name>(topic.getNames())) {
+			name.remove();
+		}
+		for (Occurrence occurrence : new ArrayList<Occurrence>(topic.getOccurrences())) {
+			occurrence.remove();
+		}
+		for (Topic t : new ArrayList<Topic>(topic.getTypes())) {
+			topic.removeType(t);
+		}
+		for (int i = values.length - 1; i >= 0; i--) {
+			topic.addType(createTopicBySI("type-" + values[i]));
+			topic.createOccurrence(type, "occurrence-" + values[i], new Topic[0]);
+			topic.createName("name-" + values[i], new Topic[0]);
+		}
+		assertEquals(expected, write("writer.output.sorted.enabled=true"));
+
+		for (String prefix : new String[] { "\"name-", "\"occurrence-", "type-" }) {
+			int a = expected.indexOf(prefix + "a");
+			int b = expected.indexOf(prefix + "b");
+			int c = expected.indexOf(prefix + "c");
+			assertTrue(prefix, a > 0 && a < b && b < c);
+		}
+	}
+
+	private CTMStatistics statistics(String propertyLine) throws Exception {
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(new ByteArrayOutputStream(), base, propertyLine);
+		writer.write(topicMap);
+		return writer.getStatistics();
+	}
+
+	public void testSortedStatistics() throws Exception {
+		Topic person = createTopicBySI("person");
+		Topic knows = createTopicBySI("knows");
+		Topic role = createTopicBySI("role");
+		Topic previous = null;
+		for (int i = 0; i < 100; i++) {
+			Topic topic = createTopicBySI("person-" + (100 - i));
+			topic.addType(person);
+			topic.createName("Person " + i, new Topic[0]);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				association.createRole(role, previous);
+				association.createRole(role, topic);
+			}
+			previous = topic;
+		}
+
+		CTMStatistics expected = statistics("writer.statistics.enabled=true");
+		CTMStatistics actual = statistics("writer.statistics.enabled=true, writer.output.sorted.enabled=true");
+		assertTrue(actual.getEntry(Kind.TOPIC).getBytes() > 0);
+		assertTrue(actual.getEntry(Kind.ASSOCIATION).getBytes() > 0);
+		assertEquals(expected.getBytes(), actual.getBytes());
+		for (Kind kind : Kind.values()) {
+			assertEquals(kind.name(), expected.getEntry(kind).getCount(), actual.getEntry(kind).getCount());
+			assertEquals(kind.name(), expected.getEntry(kind).getBytes(), actual.getEntry(kind).getBytes());
+		}
+		assertEquals(expected.getTopicTypes().keySet(), actual.getTopicTypes().keySet());
+		for (String type : expected.getTopicTypes().keySet()) {
+			assertEquals(expected.getTopicTypes().get(type).getBytes(), actual.getTopicTypes().get(type).getBytes());
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.construct;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tmapi.core.Association;
+import org.tmapi.core.Construct;
+import org.tmapi.core.Name;
+import org.tmapi.core.Topic;
+
+import de.topicmapslab.ctm.writer.core.CTMTopicMapWriter;
+import de.topicmapslab.ctm.writer.test.BaseTestCase;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestStreamingExport extends BaseTestCase {
+
+	public void testBlocksInIterationOrder() throws Exception {
+		Topic role = createTopicBySI("role");
+		Topic knows = createTopicBySI("knows");
+		List<Construct> constructs = new ArrayList<Construct>();
+		Topic previous = null;
+		for (int i = 0; i < 100; i++) {
+			Topic topic = createTopicBySI("person-" + i);
+			Name name = topic.createName("Person " + i, new Topic[0]);
+			constructs.add(name);
+			constructs.add(name.createVariant("P" + i, createTopicBySI("short")));
+			constructs.add(topic);
+			if (previous != null) {
+				Association association = createAssociation(knows);
+				constructs.add(association.createRole(role, previous));
+				constructs.add(association.createRole(role, topic));
+			}
+			previous = topic;
+		}
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CTMTopicMapWriter writer = new CTMTopicMapWriter(stream, base);
+		writer.write(constructs.iterator());
+		String content = stream.toString("UTF-8");
+
+		int last = -1;
+		for (int i = 0; i < 100; i++) {
+			String identifier = "<" + base + "person-" + i + ">";
+			int index = content.indexOf(identifier + " ");
+			assertTrue("Topic block has to be written in iteration order", index > last);
+			assertEquals("Topic block has to be written once", index, content.lastIndexOf(identifier + " "));
+			last = index;
+		}
+		assertEquals(99, content.split("<" + base + "knows> \\(").length - 1);
+
+		stream = new ByteArrayOutputStream();
+		new CTMTopicMapWriter(stream, base).write(constructs);
+		assertEquals(content, stream.toString("UTF-8"));
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMAsyncWriter;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestAsyncWriter extends TestCase {
+
+	/**
+	 * writes the same calls to the given writer
+	 */
+	private void writeContent(ICTMWriter writer) throws IOException {
+		writer.appendCommentLine("topic definitions");
+		for (int i = 0; i < 5000; i++) {
+			writer.append("<http://psi.example.org/test/topic-" + i + ">", " ");
+			writer.appendLine();
+			writer.append(false, "\t", "- \"Name \u00e4\u00f6\u00fc ", Integer.toString(i), "\"");
+			writer.appendTailLine();
+			writer.appendLine("  \tisa ex:type  ");
+			writer.appendTailLine("\tex:age : " + i);
+			writer.appendBlockEnd();
+		}
+		writer.close();
+	}
+
+	public void testIdenticalOutput() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeContent(new CTMStreamWriter(expected));
+
+		for (int size : new int[] { 1, 7, 1024, 64 * 1024 }) {
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			writeContent(new CTMAsyncWriter(new CTMBufferedStreamWriter(actual), 3, size));
+			assertTrue("Output differs for buffer size " + size, Arrays.equals(expected.toByteArray(), actual
+					.toByteArray()));
+		}
+	}
+
+	public void testSurrogatePairs() throws Exception {
+		String content = "\ud834\udd1e\ud834\udd1e\ud834\udd1e\ud834\udd1e\u00fc";
+		for (int size : new int[] { 2, 3, 4, 5 }) {
+			for (int offset = 0; offset < size; offset++) {
+				StringBuilder expected = new StringBuilder();
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+				ICTMWriter writer = new CTMAsyncWriter(new CTMStreamWriter(actual), 2, size);
+				for (int i = 0; i < offset; i++) {
+					writer.append("x");
+					expected.append('x');
+				}
+				writer.append(content);
+				expected.append(content);
+				writer.close();
+				assertEquals(expected.toString(), actual.toString("UTF-8"));
+			}
+		}
+	}
+
+	public void testErrorPropagation() throws Exception {
+		OutputStream failing = new OutputStream() {
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		try {
+			writeContent(new CTMAsyncWriter(new CTMStreamWriter(failing), 2, 128));
+			fail("Error of the writer thread has to be thrown");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("disk full"));
+		}
+	}
+
+}
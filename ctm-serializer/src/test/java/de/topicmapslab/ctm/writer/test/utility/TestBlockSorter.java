@@ -0,0 +1,81 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBlockSorter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestBlockSorter extends TestCase {
+
+	private List<String> sort(List<String> keys, long runSize, int expectedRuns) throws Exception {
+		CTMBlockSorter sorter = new CTMBlockSorter(runSize);
+		List<String> blocks = new ArrayList<String>();
+		try {
+			for (String key : keys) {
+				sorter.add(key, "block " + key + " \u00fc\n");
+			}
+			assertEquals(expectedRuns > 0, sorter.getSpilledRuns() > 0);
+			while (sorter.next()) {
+				blocks.add(sorter.getBlock());
+			}
+		} finally {
+			sorter.close();
+		}
+		return blocks;
+	}
+
+	public void testSort() throws Exception {
+		Random random = new Random(7);
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			keys.add("<http://psi.example.org/test/topic-" + random.nextInt(100000) + ">");
+		}
+		List<String> expected = new ArrayList<String>();
+		List<String> sorted = new ArrayList<String>(keys);
+		Collections.sort(sorted);
+		for (String key : sorted) {
+			expected.add("block " + key + " \u00fc\n");
+		}
+
+		assertEquals(expected, sort(keys, Long.MAX_VALUE, 0));
+		assertEquals(expected, sort(keys, 10000, 1));
+		assertEquals(expected, sort(keys, 1, 1));
+	}
+
+	public void testEqualKeys() throws Exception {
+		CTMBlockSorter sorter = new CTMBlockSorter(1);
+		sorter.add("a", "2");
+		sorter.add("a", "1");
+		sorter.add("", "3");
+		assertTrue(sorter.next());
+		assertEquals("3", sorter.getBlock());
+		assertTrue(sorter.next());
+		assertEquals("1", sorter.getBlock());
+		assertTrue(sorter.next());
+		assertEquals("2", sorter.getBlock());
+		assertFalse(sorter.next());
+		sorter.close();
+	}
+
+	public void testEmpty() throws Exception {
+		CTMBlockSorter sorter = new CTMBlockSorter(1);
+		assertFalse(sorter.next());
+		sorter.close();
+	}
+
+}
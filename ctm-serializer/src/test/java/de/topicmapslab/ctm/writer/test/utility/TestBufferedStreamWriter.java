@@ -0,0 +1,81 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestBufferedStreamWriter extends TestCase {
+
+	private static final String[] VALUES = { "http://psi.example.org/test/topic", "Leipzig", "Gr\u00fc\u00dfe",
+			"\u65e5\u672c\u8a9e", "\ud834\udd1e clef", "broken \ud834 surrogate", "  trimmed line \t", "" };
+
+	/**
+	 * writes the same calls to the given writer
+	 */
+	private void writeContent(ICTMWriter writer) throws IOException {
+		writer.appendLine("%encoding \"UTF-8\"");
+		writer.appendCommentLine("comment");
+		for (int i = 0; i < 50; i++) {
+			for (String value : VALUES) {
+				writer.append(value);
+				writer.append(value, value);
+				writer.append(false, value, "-", value);
+				writer.appendLine(value);
+				writer.appendLine(value, value);
+				writer.appendLine(false, value, value);
+				writer.appendTail();
+				writer.appendTailLine();
+				writer.appendTailLine(value);
+				writer.appendTailLine(value, value);
+				writer.appendTailLine(false, value, value);
+				writer.appendLine();
+				writer.appendBlockEnd();
+			}
+		}
+		writer.flush();
+	}
+
+	public void testByteIdenticalOutput() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeContent(new CTMStreamWriter(expected));
+
+		for (int size : new int[] { 16, 17, 100, 4096, 64 * 1024 }) {
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			writeContent(new CTMBufferedStreamWriter(actual, size));
+			assertTrue("Output differs for buffer size " + size, Arrays.equals(expected.toByteArray(), actual
+					.toByteArray()));
+		}
+	}
+
+	public void testLargeToken() throws Exception {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			builder.append(i % 2 == 0 ? "a" : "\u00e4");
+		}
+		String value = builder.toString();
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		ICTMWriter writer = new CTMBufferedStreamWriter(stream, 64);
+		writer.append(value);
+		writer.flush();
+		assertTrue(Arrays.equals(value.getBytes("UTF-8"), stream.toByteArray()));
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMTokens;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestCTMBuffer extends TestCase {
+
+	private static final String[] VALUES = { "topic", "- \"name\"", "value;with;tails", "", "isa type",
+			"  trimmed  " };
+
+	/**
+	 * the tail replacement of the former implementation
+	 */
+	private static void clearCTMTail(StringBuilder expected) {
+		int index = expected.lastIndexOf(CTMTokens.TAIL);
+		if (index != -1) {
+			expected.setLength(index);
+		} else {
+			expected.setLength(Math.max(0, expected.length() - CTMTokens.NEWLINE.length()));
+		}
+		expected.append(CTMTokens.DOT).append(CTMTokens.NEWLINE);
+	}
+
+	public void testTailReplacement() throws Exception {
+		CTMBuffer buffer = new CTMBuffer(7);
+		StringBuilder expected = new StringBuilder();
+
+		buffer.appendLine("topic");
+		expected.append("topic").append(CTMTokens.NEWLINE);
+		buffer.appendTailLine("- \"name\"");
+		expected.append("- \"name\"").append(CTMTokens.TAIL).append(CTMTokens.NEWLINE);
+		buffer.appendTailLine("isa type");
+		expected.append("isa type").append(CTMTokens.TAIL).append(CTMTokens.NEWLINE);
+		buffer.clearCTMTail();
+		clearCTMTail(expected);
+		assertEquals(expected.toString(), buffer.toString());
+
+		/*
+		 * no new tail, the former tail has to be found again
+		 */
+		buffer.clearCTMTail();
+		clearCTMTail(expected);
+		assertEquals(expected.toString(), buffer.toString());
+	}
+
+	public void testRandomOperations() throws Exception {
+		Random random = new Random(42);
+		for (int run = 0; run < 200; run++) {
+			CTMBuffer buffer = new CTMBuffer(1 + random.nextInt(16));
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < 50; i++) {
+				String value = VALUES[random.nextInt(VALUES.length)];
+				switch (random.nextInt(6)) {
+				case 0:
+					buffer.append(value);
+					expected.append(value);
+					break;
+				case 1:
+					buffer.appendTailLine(value, value);
+					expected.append(value).append(CTMTokens.WHITESPACE).append(value).append(CTMTokens.TAIL)
+							.append(CTMTokens.NEWLINE);
+					break;
+				case 2:
+					buffer.appendLine(value);
+					expected.append(value.trim()).append(CTMTokens.NEWLINE);
+					break;
+				case 3:
+					buffer.clearCTMTail();
+					clearCTMTail(expected);
+					break;
+				case 4:
+					CTMBuffer other = new CTMBuffer(1 + random.nextInt(16));
+					other.appendTailLine(value);
+					buffer.append(other);
+					expected.append(value).append(CTMTokens.TAIL).append(CTMTokens.NEWLINE);
+					/*
+					 * modifications of the appended buffer must not be visible
+					 */
+					other.clearCTMTail();
+					other.append(value);
+					break;
+				default:
+					buffer.appendBlockEnd();
+					expected.append(CTMTokens.DOT).append(CTMTokens.NEWLINE);
+				}
+				assertEquals(expected.toString(), buffer.toString());
+				assertEquals(expected.length(), buffer.length());
+			}
+		}
+	}
+
+	public void testSharedSegments() throws Exception {
+		CTMBuffer inner = new CTMBuffer(4);
+		inner.appendTailLine("inner content");
+		CTMBuffer outer = new CTMBuffer(4);
+		outer.append("outer");
+		outer.append(inner);
+		outer.clearCTMTail();
+		assertEquals("inner content" + CTMTokens.TAIL + CTMTokens.NEWLINE, inner.toString());
+		assertEquals("outerinner content" + CTMTokens.DOT + CTMTokens.NEWLINE, outer.toString());
+
+		inner.append("more");
+		assertEquals("outerinner content" + CTMTokens.DOT + CTMTokens.NEWLINE, outer.toString());
+	}
+
+	public void testWriteTo() throws Exception {
+		CTMBuffer buffer = new CTMBuffer(3);
+		buffer.appendLine("topic");
+		buffer.appendTailLine("- \"Gr\u00fc\u00dfe\"");
+		buffer.clearCTMTail();
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		buffer.writeTo(new CTMStreamWriter(stream));
+		assertEquals(buffer.toString(), stream.toString("UTF-8"));
+	}
+
+	public void testWriteToKeepsSurrogatePairs() throws Exception {
+		for (int offset = 0; offset < 4; offset++) {
+			CTMBuffer buffer = new CTMBuffer(3);
+			for (int i = 0; i < offset; i++) {
+				buffer.append('x');
+			}
+			buffer.append("\ud834\udd1e\ud834\udd1e\ud834\udd1e \u00fc");
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			buffer.writeTo(new CTMStreamWriter(stream));
+			assertEquals(buffer.toString(), stream.toString("UTF-8"));
+		}
+	}
+
+	public void testFingerprint() throws Exception {
+		CTMBuffer a = new CTMBuffer(3);
+		a.appendLine("topic");
+		a.appendTailLine("- \"Gr\u00fc\u00dfe\"");
+		CTMBuffer b = new CTMBuffer();
+		b.append(a.toString());
+		assertEquals(a.fingerprint(), b.fingerprint());
+		b.append('.');
+		assertFalse(a.fingerprint() == b.fingerprint());
+		assertFalse(new CTMBuffer().fingerprint() == b.fingerprint());
+	}
+
+}
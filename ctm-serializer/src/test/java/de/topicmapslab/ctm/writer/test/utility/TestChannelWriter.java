@@ -0,0 +1,121 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMChannelWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestChannelWriter extends TestCase {
+
+	/**
+	 * writes the same calls to the given writer
+	 */
+	private void writeContent(ICTMWriter writer) throws IOException {
+		writer.appendCommentLine("topic definitions");
+		for (int i = 0; i < 20000; i++) {
+			writer.append("<http://psi.example.org/test/topic-" + i + ">", " ");
+			writer.appendLine();
+			writer.append(false, "\t", "- \"Name \u00e4\u00f6\u00fc ", Integer.toString(i), "\"");
+			writer.appendTailLine();
+			writer.append("\tisa", "ex:type");
+			writer.appendLine();
+			writer.appendBlockEnd();
+			if (i == 10000) {
+				writer.flush();
+			}
+		}
+		writer.close();
+	}
+
+	private byte[] read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int off = 0;
+			while (off < bytes.length) {
+				off += in.read(bytes, off, bytes.length - off);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes;
+	}
+
+	private void assertChannelOutput(boolean mapped) throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeContent(new CTMStreamWriter(expected));
+
+		File file = File.createTempFile("ctm-channel", ".ctm");
+		file.deleteOnExit();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			writeContent(new CTMChannelWriter(raf.getChannel(), 1000, mapped));
+		} finally {
+			raf.close();
+		}
+		assertTrue(Arrays.equals(expected.toByteArray(), read(file)));
+	}
+
+	public void testChannelOutput() throws Exception {
+		assertChannelOutput(false);
+	}
+
+	public void testMappedOutput() throws Exception {
+		assertChannelOutput(true);
+	}
+
+	private void assertExistingContentKept(boolean mapped) throws Exception {
+		File file = File.createTempFile("ctm-channel", ".ctm");
+		file.deleteOnExit();
+		byte[] existing = new byte[100];
+		Arrays.fill(existing, (byte) 'x');
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.write(existing);
+			raf.getChannel().position(10);
+			CTMChannelWriter writer = new CTMChannelWriter(raf.getChannel(), 16, mapped);
+			writer.append("abc");
+			writer.flush();
+			/*
+			 * the mapped window may extend the file until the writer is closed
+			 */
+			assertTrue(mapped ? raf.length() >= 100 : raf.length() == 100);
+			writer.append("def");
+			writer.close();
+			assertEquals(16, raf.getChannel().position());
+		} finally {
+			raf.close();
+		}
+		byte[] expected = existing.clone();
+		System.arraycopy("abcdef".getBytes("UTF-8"), 0, expected, 10, 6);
+		assertTrue(Arrays.equals(expected, read(file)));
+	}
+
+	public void testExistingContentKept() throws Exception {
+		assertExistingContentKept(false);
+	}
+
+	public void testMappedExistingContentKept() throws Exception {
+		assertExistingContentKept(true);
+	}
+
+}
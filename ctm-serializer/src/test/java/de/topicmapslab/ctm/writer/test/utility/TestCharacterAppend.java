@@ -0,0 +1,111 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMAppendableWriter;
+import de.topicmapslab.ctm.writer.utility.CTMAsyncWriter;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMBufferedStreamWriter;
+import de.topicmapslab.ctm.writer.utility.CTMCharacterWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestCharacterAppend extends TestCase {
+
+	private static final String TEXT = "ex:topic Gr\u00fc\u00dfe \u65e5\u672c \ud834\udd1e;";
+
+	private static final long[] NUMBERS = { 0, 7, -7, 42, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE };
+
+	/**
+	 * the expected content written by {@link #writeContent(ICTMWriter)}
+	 */
+	private static String expected() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			builder.append('\t').append('\u00e4').append('\u20ac');
+			builder.append(TEXT.substring(3, 20));
+			builder.append(TEXT);
+			for (long number : NUMBERS) {
+				builder.append(number).append(' ');
+			}
+			builder.append(i);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * writes the content by the character based methods
+	 */
+	private static void writeContent(ICTMWriter writer) throws IOException {
+		for (int i = 0; i < 100; i++) {
+			writer.append('\t');
+			writer.append('\u00e4');
+			writer.append('\u20ac');
+			writer.append(TEXT, 3, 20);
+			writer.append(CharBuffer.wrap(TEXT), 0, TEXT.length());
+			for (long number : NUMBERS) {
+				writer.append(number);
+				writer.append(' ');
+			}
+			writer.append(i);
+		}
+		writer.close();
+	}
+
+	public void testByteWriters() throws Exception {
+		byte[] expected = expected().getBytes("UTF-8");
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeContent(new CTMStreamWriter(stream));
+		assertEquals(new String(expected, "UTF-8"), stream.toString("UTF-8"));
+
+		for (int size : new int[] { 16, 17, 100, 64 * 1024 }) {
+			stream = new ByteArrayOutputStream();
+			writeContent(new CTMBufferedStreamWriter(stream, size));
+			assertEquals("Output differs for buffer size " + size, new String(expected, "UTF-8"), stream
+					.toString("UTF-8"));
+
+			stream = new ByteArrayOutputStream();
+			writeContent(new CTMAsyncWriter(new CTMBufferedStreamWriter(stream), 2, size));
+			assertEquals("Output differs for buffer size " + size, new String(expected, "UTF-8"), stream
+					.toString("UTF-8"));
+		}
+	}
+
+	public void testCharacterWriters() throws Exception {
+		String expected = expected();
+
+		StringBuilder builder = new StringBuilder();
+		writeContent(new CTMAppendableWriter(builder));
+		assertEquals(expected, builder.toString());
+
+		StringWriter writer = new StringWriter();
+		writeContent(new CTMCharacterWriter(writer));
+		assertEquals(expected, writer.toString());
+
+		CTMBuffer buffer = new CTMBuffer(5);
+		writeContent(buffer);
+		assertEquals(expected, buffer.toString());
+
+		builder = new StringBuilder();
+		buffer.writeTo(new CTMAppendableWriter(builder));
+		assertEquals(expected, builder.toString());
+	}
+
+}
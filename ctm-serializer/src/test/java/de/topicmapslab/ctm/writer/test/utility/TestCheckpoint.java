@@ -0,0 +1,40 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMCheckpoint;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestCheckpoint extends TestCase {
+
+	public void testMissingFile() throws Exception {
+		File file = File.createTempFile("ctm-checkpoint", ".checkpoint");
+		file.delete();
+		assertNull(CTMCheckpoint.read(file));
+	}
+
+	public void testWriteAndRead() throws Exception {
+		File file = File.createTempFile("ctm-checkpoint", ".checkpoint");
+		file.deleteOnExit();
+		new CTMCheckpoint(1L, 2, 3L).write(file);
+		new CTMCheckpoint(5000000000L, 123456, -42L).write(file);
+
+		CTMCheckpoint checkpoint = CTMCheckpoint.read(file);
+		assertEquals(5000000000L, checkpoint.getOffset());
+		assertEquals(123456, checkpoint.getPosition());
+		assertEquals(-42L, checkpoint.getState());
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMConstructSet;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestConstructSet extends TestCase {
+
+	public void testAddAndContains() throws Exception {
+		CTMConstructSet set = new CTMConstructSet();
+		Set<Object> expected = new HashSet<Object>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			Integer element = random.nextInt(50000);
+			assertEquals(expected.add(element), set.add(element));
+			assertEquals(expected.size(), set.size());
+		}
+		for (int i = 0; i < 60000; i++) {
+			assertEquals(expected.contains(i), set.contains(i));
+		}
+	}
+
+	public void testEqualElements() throws Exception {
+		CTMConstructSet set = new CTMConstructSet(1);
+		assertTrue(set.add(new String("topic")));
+		assertFalse(set.add(new String("topic")));
+		assertTrue(set.contains("topic"));
+		assertFalse(set.contains("association"));
+		assertEquals(1, set.size());
+	}
+
+}
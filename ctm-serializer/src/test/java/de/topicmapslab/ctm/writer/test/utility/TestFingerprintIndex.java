@@ -0,0 +1,67 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMFingerprintIndex;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestFingerprintIndex extends TestCase {
+
+	public void testMissingFile() throws Exception {
+		File file = File.createTempFile("ctm-index", ".idx");
+		file.delete();
+		assertEquals(0, CTMFingerprintIndex.read(file).size());
+	}
+
+	public void testWriteAndRead() throws Exception {
+		CTMFingerprintIndex index = new CTMFingerprintIndex();
+		for (int i = 0; i < 10000; i++) {
+			index.put("<http://psi.example.org/test/topic-" + i + ">", i * 0x9e3779b97f4a7c15L);
+		}
+		index.put("association 1f", -1L);
+
+		File file = File.createTempFile("ctm-index", ".idx");
+		file.deleteOnExit();
+		index.write(file);
+		index.write(file);
+
+		CTMFingerprintIndex read = CTMFingerprintIndex.read(file);
+		assertEquals(index.getKeys(), read.getKeys());
+		for (String key : index.getKeys()) {
+			assertEquals(index.getFingerprint(key), read.getFingerprint(key));
+		}
+		assertNull(read.getFingerprint("<http://psi.example.org/test/unknown>"));
+	}
+
+	public void testUnknownFormat() throws Exception {
+		File file = File.createTempFile("ctm-index", ".idx");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("no index".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		try {
+			CTMFingerprintIndex.read(file);
+			fail("Reading an unknown format has to fail");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMGzipWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestGzipWriter extends TestCase {
+
+	/**
+	 * writes the same calls to the given writer
+	 */
+	private void writeContent(ICTMWriter writer) throws IOException {
+		writer.appendLine("%encoding \"UTF-8\"");
+		for (int i = 0; i < 5000; i++) {
+			writer.appendLine("topic-" + i);
+			writer.appendTailLine("- \"Gr\u00fc\u00dfe " + i + "\"");
+			writer.appendBlockEnd();
+		}
+		writer.close();
+	}
+
+	/**
+	 * reads the whole content of the given GZIP data
+	 */
+	private byte[] decompress(byte[] data) throws IOException {
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] chunk = new byte[4096];
+		int count;
+		while ((count = in.read(chunk)) != -1) {
+			out.write(chunk, 0, count);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	public void testRoundTrip() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeContent(new CTMStreamWriter(expected));
+
+		for (int threads = 1; threads <= 4; threads++) {
+			for (int blockSize : new int[] { 16, 1000, 64 * 1024 }) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				writeContent(new CTMGzipWriter(compressed, 6, blockSize, threads));
+				assertTrue("Output differs for block size " + blockSize + " and " + threads + " threads", Arrays
+						.equals(expected.toByteArray(), decompress(compressed.toByteArray())));
+			}
+		}
+	}
+
+	public void testEmptyOutput() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		new CTMGzipWriter(compressed).close();
+		assertEquals(0, decompress(compressed.toByteArray()).length);
+	}
+
+	public void testInvalidLevel() throws Exception {
+		try {
+			new CTMGzipWriter(new ByteArrayOutputStream(), 10, 1024, 1);
+			fail("Level 10 should not be accepted.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
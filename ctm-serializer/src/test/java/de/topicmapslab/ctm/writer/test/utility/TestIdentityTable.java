@@ -0,0 +1,116 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMIdentityTable;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestIdentityTable extends TestCase {
+
+	public void testAddAndGet() throws Exception {
+		CTMIdentityTable table = new CTMIdentityTable();
+		Object[] topics = new Object[1000];
+		for (int i = 0; i < topics.length; i++) {
+			topics[i] = new Object();
+			assertEquals(i, table.add(topics[i], "ex:person-" + i));
+		}
+		assertEquals(topics.length, table.size());
+		assertEquals(-1, table.getNumber(new Object()));
+		assertEquals(17, table.add(topics[17], "ex:other"));
+		for (int i = 0; i < topics.length; i++) {
+			assertEquals(i, table.getNumber(topics[i]));
+			assertEquals("ex:person-" + i, table.getIdentifier(i));
+		}
+	}
+
+	public void testEncoding() throws Exception {
+		String[] identifiers = { "<http://psi.example.org/caf\u00e9>", "ex:\u65e5\u672c",
+				"<http://psi.example.org/\ud83d\ude00>", "ex:\ud800x", "ex:x\udc00", "" };
+		for (boolean direct : new boolean[] { false, true }) {
+			CTMIdentityTable table = new CTMIdentityTable(direct);
+			for (int i = 0; i < identifiers.length; i++) {
+				table.add(new Object(), identifiers[i]);
+			}
+			CTMBuffer buffer = new CTMBuffer();
+			for (int i = 0; i < identifiers.length; i++) {
+				assertEquals(identifiers[i], table.getIdentifier(i));
+				table.appendIdentifier(i, buffer);
+			}
+			StringBuilder expected = new StringBuilder();
+			for (String identifier : identifiers) {
+				expected.append(identifier);
+			}
+			assertEquals(expected.toString(), buffer.toString());
+		}
+	}
+
+	public void testLookupByTopic() throws Exception {
+		String[] identifiers = { "<http://psi.example.org/caf\u00e9>", "ex:\u65e5\u672c",
+				"<http://psi.example.org/\ud83d\ude00>", "ex:\ud800x", "ex:x\udc00", "" };
+		for (boolean direct : new boolean[] { false, true }) {
+			CTMIdentityTable table = new CTMIdentityTable(direct);
+			Object[] topics = new Object[identifiers.length];
+			for (int i = 0; i < identifiers.length; i++) {
+				topics[i] = new Object();
+				table.add(topics[i], identifiers[i]);
+			}
+			Object unknown = new Object();
+			assertFalse(table.contains(unknown));
+			assertNull(table.getIdentifier(unknown));
+			assertFalse(table.appendIdentifier(unknown, new CTMBuffer()));
+			assertEquals(-2, table.indexOfIdentifier(unknown, identifiers));
+			for (int i = 0; i < identifiers.length; i++) {
+				assertTrue(table.contains(topics[i]));
+				assertEquals(identifiers[i], table.getIdentifier(topics[i]));
+				CTMBuffer buffer = new CTMBuffer();
+				assertTrue(table.appendIdentifier(topics[i], buffer));
+				assertEquals(identifiers[i], buffer.toString());
+				assertEquals(i, table.indexOfIdentifier(topics[i], identifiers));
+				assertEquals(1, table.indexOfIdentifier(topics[i], "ex:other", identifiers[i]));
+				assertEquals(-1, table.indexOfIdentifier(topics[i], identifiers[i] + "x", "x" + identifiers[i]));
+			}
+			assertEquals(-1, table.indexOfIdentifier(topics[0], "<http://psi.example.org/cafe>"));
+			assertEquals(-1, table.indexOfIdentifier(topics[2], "<http://psi.example.org/\ud83d>"));
+		}
+	}
+
+	public void testLargeIdentifiers() throws Exception {
+		CTMIdentityTable table = new CTMIdentityTable();
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < CTMIdentityTable.PAGE_SIZE + 10) {
+			builder.append("<http://psi.example.org/");
+		}
+		String large = builder.toString();
+		table.add(new Object(), "ex:small");
+		table.add(new Object(), large);
+		table.add(new Object(), "ex:next");
+		assertEquals("ex:small", table.getIdentifier(0));
+		assertEquals(large, table.getIdentifier(1));
+		assertEquals("ex:next", table.getIdentifier(2));
+		assertTrue(table.getArenaSize() > 2 * CTMIdentityTable.PAGE_SIZE);
+	}
+
+	public void testClear() throws Exception {
+		CTMIdentityTable table = new CTMIdentityTable();
+		Object topic = new Object();
+		table.add(topic, "ex:person");
+		table.clear();
+		assertEquals(0, table.size());
+		assertEquals(-1, table.getNumber(topic));
+		assertEquals(0, table.add(topic, "ex:other"));
+		assertEquals("ex:other", table.getIdentifier(0));
+		assertEquals(CTMIdentityTable.PAGE_SIZE, table.getArenaSize());
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.core.PrefixHandler;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMIri;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestIri extends TestCase {
+
+	private PrefixHandler prefixHandler;
+
+	protected void setUp() throws Exception {
+		prefixHandler = new PrefixHandler();
+		prefixHandler.setPrefix("ex", "http://psi.example.org/test/");
+		prefixHandler.setPrefix("tmdm", "http://psi.topicmaps.org/iso13250/model/");
+	}
+
+	public void testPrefixLength() throws Exception {
+		assertEquals(2, CTMIri.getPrefixLength("ex:person"));
+		assertEquals(4, CTMIri.getPrefixLength("http://psi.oasis-open.org/iso/639/#jpn"));
+		assertEquals(-1, CTMIri.getPrefixLength("person"));
+		assertEquals(-1, CTMIri.getPrefixLength("ex:a%20b"));
+		assertEquals(-1, CTMIri.getPrefixLength("ex:a,b"));
+		assertEquals(0, CTMIri.getPrefixLength(":person"));
+	}
+
+	public void testQName() throws Exception {
+		assertTrue(CTMIri.isQName("ex:person", prefixHandler));
+		assertTrue(CTMIri.isQName("tmdm:topic-name", prefixHandler));
+		assertFalse(CTMIri.isQName("e:person", prefixHandler));
+		assertFalse(CTMIri.isQName("exa:person", prefixHandler));
+		assertFalse(CTMIri.isQName("ex:a,b", prefixHandler));
+		assertFalse(CTMIri.isQName("http://psi.oasis-open.org/iso/639/#jpn", prefixHandler));
+		assertFalse(CTMIri.isQName("person", prefixHandler));
+	}
+
+	public void testAppend() throws Exception {
+		CTMBuffer buffer = new CTMBuffer();
+		CTMIri.append(buffer, "ex:person", true);
+		CTMIri.append(buffer, "http://psi.oasis-open.org/iso/639/#jpn", false);
+		assertEquals("ex:person<http://psi.oasis-open.org/iso/639/#jpn>", buffer.toString());
+
+		StringBuilder builder = new StringBuilder();
+		CTMIri.append(builder, "urn:isbn:1", CTMIri.isQName("urn:isbn:1", prefixHandler));
+		assertEquals("<urn:isbn:1>", builder.toString());
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Map.Entry;
+
+import junit.framework.TestCase;
+import de.topicmapslab.common.tools.collections.StringList;
+import de.topicmapslab.common.tools.prefix.core.PrefixCandidateTrie;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestPrefixCandidateTrie extends TestCase {
+
+	public void testCandidates() throws Exception {
+		PrefixCandidateTrie trie = new PrefixCandidateTrie();
+		trie.add("http://psi.example.org/person");
+		trie.add("http://psi.example.org/knows");
+		trie.add("http://psi.example.org/test/person");
+		trie.add("http://psi.oasis-open.org/iso/639/#jpn");
+		trie.add("http://psi.example.org/");
+		trie.add("urn:isbn:1");
+		trie.add("");
+		assertEquals(5, trie.size());
+		assertEquals(3, trie.getCount("http://psi.example.org/"));
+		assertEquals(1, trie.getCount("http://psi.example.org/test/"));
+		assertEquals(1, trie.getCount("http://psi.oasis-open.org/iso/639/#"));
+		assertEquals(1, trie.getCount("urn:isbn:1"));
+		assertEquals(1, trie.getCount(""));
+		assertEquals(0, trie.getCount("http://psi.example.org/test"));
+		assertEquals(0, trie.getCount("http://psi.example.net/"));
+		assertEquals(23, PrefixCandidateTrie.getCandidateEnd("http://psi.example.org/person"));
+		assertEquals(10, PrefixCandidateTrie.getCandidateEnd("urn:isbn:1"));
+	}
+
+	public void testPrefixes() throws Exception {
+		PrefixCandidateTrie trie = new PrefixCandidateTrie();
+		for (String iri : new String[] { "http://psi.example.org/a", "http://psi.example.org/b",
+				"http://psi.example.org/test/a", "http://psi.example.org/test/b", "http://psi.example.org/test/c",
+				"http://psi.example.net/a", "http://psi.example.net/b", "http://psi.other.org/a" }) {
+			trie.add(iri);
+		}
+		assertEquals(Arrays.asList("http://psi.example.org/test/", "http://psi.example.net/"), trie.getPrefixes());
+		assertEquals(trie.getPrefixes(), trie.getPrefixes());
+	}
+
+	public void testMerge() throws Exception {
+		PrefixCandidateTrie first = new PrefixCandidateTrie();
+		first.add("http://psi.example.org/a");
+		first.add("http://psi.example.org/test/a");
+		PrefixCandidateTrie second = new PrefixCandidateTrie();
+		second.add("http://psi.example.org/b");
+		second.add("http://psi.example.net/a");
+		first.addAll(second);
+		assertEquals(3, first.size());
+		assertEquals(2, first.getCount("http://psi.example.org/"));
+		assertEquals(1, first.getCount("http://psi.example.net/"));
+		assertEquals(Arrays.asList("http://psi.example.org/"), first.getPrefixes());
+	}
+
+	public void testRandom() throws Exception {
+		Random random = new Random(42);
+		for (int run = 0; run < 500; run++) {
+			PrefixCandidateTrie trie = new PrefixCandidateTrie();
+			PrefixCandidateTrie part = new PrefixCandidateTrie();
+			PrefixCandidateTrie merged = new PrefixCandidateTrie();
+			List<String> iris = new ArrayList<String>();
+			for (int i = random.nextInt(200); i > 0; i--) {
+				String iri = "http://h/" + randomString(random, "ab/#", 8);
+				iris.add(iri);
+				trie.add(iri);
+				(i % 2 == 0 ? part : merged).add(iri);
+			}
+			merged.addAll(part);
+			assertEquals(identifyURIs(iris), trie.getPrefixes());
+			assertEquals(trie.getPrefixes(), merged.getPrefixes());
+			assertEquals(trie.size(), merged.size());
+		}
+	}
+
+	/**
+	 * Internal method to identify the prefixes of the given IRIs like the
+	 * former implementation of
+	 * {@link de.topicmapslab.common.tools.prefix.core.PrefixIdentifier#identifyURIs(org.tmapi.core.TopicMap)}
+	 * .
+	 */
+	private static List<String> identifyURIs(List<String> iris) {
+		Map<String, Integer> candidates = new HashMap<String, Integer>();
+		for (String iri : iris) {
+			String candidate = iri.substring(0, PrefixCandidateTrie.getCandidateEnd(iri));
+			Integer count = candidates.get(candidate);
+			candidates.put(candidate, count == null ? 1 : count + 1);
+		}
+		List<Entry<String, Integer>> sorted = new ArrayList<Entry<String, Integer>>(candidates.entrySet());
+		Collections.sort(sorted, new Comparator<Entry<String, Integer>>() {
+			public int compare(Entry<String, Integer> o1, Entry<String, Integer> o2) {
+				int compare = o2.getValue().compareTo(o1.getValue());
+				return compare != 0 ? compare : o2.getKey().compareTo(o1.getKey());
+			}
+		});
+		StringList prefixes = new StringList();
+		for (Entry<String, Integer> entry : sorted) {
+			if (entry.getValue() > 1 && !prefixes.containsSubstring(entry.getKey())
+					&& !prefixes.containsAsSubstring(entry.getKey())) {
+				prefixes.add(entry.getKey());
+			}
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Internal method to create a random string of the characters of the
+	 * given alphabet.
+	 */
+	private static String randomString(Random random, String alphabet, int maximumLength) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = random.nextInt(maximumLength + 1); i > 0; i--) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+
+}
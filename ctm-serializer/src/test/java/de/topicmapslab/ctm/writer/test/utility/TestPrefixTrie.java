@@ -0,0 +1,129 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import de.topicmapslab.common.tools.prefix.core.PrefixTrie;
+import de.topicmapslab.common.tools.prefix.core.Prefixer;
+import de.topicmapslab.ctm.writer.core.PrefixHandler;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestPrefixTrie extends TestCase {
+
+	private Map<String, String> prefixes;
+
+	protected void setUp() throws Exception {
+		prefixes = new HashMap<String, String>();
+		prefixes.put("ex", "http://psi.example.org/");
+		prefixes.put("test", "http://psi.example.org/test/");
+		prefixes.put("iso", "http://psi.oasis-open.org/iso/639/#");
+		prefixes.put("re", "http://psi.example.org/a+b(c)/");
+	}
+
+	public void testLongestMatch() throws Exception {
+		PrefixTrie trie = new PrefixTrie(prefixes);
+		assertEquals(4, trie.size());
+		assertEquals("test:person", trie.toPrefixedIri("http://psi.example.org/test/person"));
+		assertEquals("ex:person", trie.toPrefixedIri("http://psi.example.org/person"));
+		assertEquals("iso:jpn", trie.toPrefixedIri("http://psi.oasis-open.org/iso/639/#jpn"));
+		assertEquals("test:", trie.toPrefixedIri("http://psi.example.org/test/"));
+		assertEquals("http://psi.example.org/other/person", trie
+				.toPrefixedIri("http://psi.example.org/other/person"));
+		assertEquals("http://psi.example.net/person", trie.toPrefixedIri("http://psi.example.net/person"));
+		assertEquals("http://psi.example.org", trie.toPrefixedIri("http://psi.example.org"));
+		assertEquals("urn:isbn:1", trie.toPrefixedIri("urn:isbn:1"));
+		assertEquals("", trie.toPrefixedIri(""));
+	}
+
+	public void testRegularExpressionCharacters() throws Exception {
+		PrefixTrie trie = new PrefixTrie(prefixes);
+		assertEquals("re:x", trie.toPrefixedIri("http://psi.example.org/a+b(c)/x"));
+		assertEquals("re:x", Prefixer.toPrefixedIri("http://psi.example.org/a+b(c)/x", prefixes));
+	}
+
+	public void testSameNamespace() throws Exception {
+		prefixes.put("a", "http://psi.example.org/test/");
+		PrefixTrie trie = new PrefixTrie(prefixes);
+		assertEquals(4, trie.size());
+		assertEquals("a:person", trie.toPrefixedIri("http://psi.example.org/test/person"));
+		assertEquals("a:person", Prefixer.toPrefixedIri("http://psi.example.org/test/person", prefixes));
+	}
+
+	public void testEmptyTrie() throws Exception {
+		PrefixTrie trie = new PrefixTrie(new HashMap<String, String>());
+		assertEquals(0, trie.size());
+		assertEquals("http://psi.example.org/person", trie.toPrefixedIri("http://psi.example.org/person"));
+	}
+
+	public void testPrefixHandler() throws Exception {
+		PrefixHandler prefixHandler = new PrefixHandler();
+		assertEquals("http://psi.example.org/test/person", prefixHandler
+				.toPrefixedIri("http://psi.example.org/test/person"));
+		prefixHandler.setPrefixes(prefixes);
+		assertEquals("test:person", prefixHandler.toPrefixedIri("http://psi.example.org/test/person"));
+		prefixHandler.setPrefix("t", "http://psi.example.org/test/p");
+		assertEquals("t:erson", prefixHandler.toPrefixedIri("http://psi.example.org/test/person"));
+	}
+
+	public void testQName() throws Exception {
+		PrefixHandler prefixHandler = new PrefixHandler();
+		assertFalse(prefixHandler.isQName("test:person"));
+		prefixHandler.setPrefixes(prefixes);
+		assertTrue(prefixHandler.isQName("test:person"));
+		assertTrue(prefixHandler.isQName("ex:person"));
+		assertFalse(prefixHandler.isQName("tes:person"));
+		assertFalse(prefixHandler.isQName("tests:person"));
+		assertFalse(prefixHandler.isQName("person"));
+		prefixHandler.setPrefix("tes", "http://psi.example.org/tes/");
+		assertTrue(prefixHandler.isQName("tes:person"));
+		for (int i = 0; i < 100; i++) {
+			prefixHandler.setPrefix("p" + i, "http://psi.example.org/" + i + "/");
+		}
+		for (int i = 0; i < 100; i++) {
+			assertTrue(prefixHandler.isQName("p" + i + ":person"));
+			assertFalse(prefixHandler.isQName("q" + i + ":person"));
+		}
+	}
+
+	public void testRandom() throws Exception {
+		Random random = new Random(42);
+		String alphabet = "ab/#:";
+		for (int run = 0; run < 200; run++) {
+			Map<String, String> prefixes = new HashMap<String, String>();
+			for (int i = random.nextInt(20); i > 0; i--) {
+				prefixes.put("p" + random.nextInt(30), randomString(random, alphabet, 6));
+			}
+			PrefixTrie trie = new PrefixTrie(prefixes);
+			for (int i = 0; i < 200; i++) {
+				String iri = randomString(random, alphabet, 10);
+				assertEquals(iri, Prefixer.toPrefixedIri(iri, prefixes), trie.toPrefixedIri(iri));
+			}
+		}
+	}
+
+	/**
+	 * Internal method to create a random string of the characters of the
+	 * given alphabet.
+	 */
+	private static String randomString(Random random, String alphabet, int maximumLength) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = random.nextInt(maximumLength + 1); i > 0; i--) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMShardWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+import de.topicmapslab.ctm.writer.utility.ICTMWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestShardWriter extends TestCase {
+
+	/**
+	 * shard writer collecting each shard in memory
+	 */
+	private static class MemoryShardWriter extends CTMShardWriter {
+
+		final List<ByteArrayOutputStream> shards = new ArrayList<ByteArrayOutputStream>();
+
+		MemoryShardWriter(long maximumBytes, long maximumBlocks) {
+			super(maximumBytes, maximumBlocks);
+		}
+
+		protected ICTMWriter openShard(int index) throws IOException {
+			assertEquals(shards.size(), index);
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			shards.add(stream);
+			return new CTMStreamWriter(stream);
+		}
+	}
+
+	/**
+	 * writes some blocks to the given writer
+	 */
+	private void writeBlocks(ICTMWriter writer) throws IOException {
+		for (int i = 0; i < 100; i++) {
+			writer.appendLine("topic-" + i);
+			writer.appendTailLine(false, "- \"Gr\u00fc\u00dfe ", Integer.toString(i), "\"");
+			writer.appendBlockEnd();
+			writer.appendLine();
+			if (writer instanceof CTMShardWriter) {
+				((CTMShardWriter) writer).endOfBlock();
+			}
+		}
+		writer.appendCommentLine("end");
+		writer.close();
+	}
+
+	private String join(List<ByteArrayOutputStream> shards) throws Exception {
+		StringBuilder builder = new StringBuilder();
+		for (ByteArrayOutputStream shard : shards) {
+			builder.append(shard.toString("UTF-8"));
+		}
+		return builder.toString();
+	}
+
+	public void testBlockThreshold() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeBlocks(new CTMStreamWriter(expected));
+
+		MemoryShardWriter writer = new MemoryShardWriter(0, 30);
+		writeBlocks(writer);
+		assertEquals(4, writer.getShardCount());
+		assertEquals(expected.toString("UTF-8"), join(writer.shards));
+		for (ByteArrayOutputStream shard : writer.shards) {
+			assertTrue(shard.toString("UTF-8").startsWith("topic-"));
+		}
+	}
+
+	public void testByteThreshold() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		writeBlocks(new CTMStreamWriter(expected));
+
+		MemoryShardWriter writer = new MemoryShardWriter(500, 0);
+		writeBlocks(writer);
+		assertTrue(writer.getShardCount() > 1);
+		assertEquals(expected.toString("UTF-8"), join(writer.shards));
+		for (int i = 0; i < writer.shards.size() - 1; i++) {
+			int size = writer.shards.get(i).size();
+			assertTrue(size >= 500);
+			assertTrue(size < 600);
+		}
+	}
+
+	public void testUnbounded() throws Exception {
+		MemoryShardWriter writer = new MemoryShardWriter(0, 0);
+		writeBlocks(writer);
+		assertEquals(1, writer.getShardCount());
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright: Copyright 2010 Topic Maps Lab, University of Leipzig. http://www.topicmapslab.de/
+ * License:   Apache License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.html
+ *
+ * @author Sven Krosse
+ * @email krosse@informatik.uni-leipzig.de
+ *
+ */
+package de.topicmapslab.ctm.writer.test.utility;
+
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.DOT;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.NEWLINE;
+import static de.topicmapslab.ctm.writer.utility.CTMTokens.TAIL;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import de.topicmapslab.ctm.writer.utility.CTMBuffer;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Entry;
+import de.topicmapslab.ctm.writer.utility.CTMStatistics.Kind;
+import de.topicmapslab.ctm.writer.utility.CTMStatisticsWriter;
+import de.topicmapslab.ctm.writer.utility.CTMStreamWriter;
+
+/**
+ * @author Sven Krosse
+ *
+ */
+public class TestStatisticsWriter extends TestCase {
+
+	public void testGetInstance() throws Exception {
+		CTMBuffer buffer = new CTMBuffer();
+		assertNull(CTMStatisticsWriter.getInstance(buffer));
+		CTMStatisticsWriter writer = new CTMStatisticsWriter(buffer, new CTMStatistics());
+		assertSame(writer, CTMStatisticsWriter.getInstance(writer));
+		assertSame(buffer, writer.getTarget());
+	}
+
+	public void testConstructKinds() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CTMStatistics statistics = new CTMStatistics();
+		CTMStatisticsWriter writer = new CTMStatisticsWriter(new CTMStreamWriter(out), statistics);
+
+		writer.appendCommentLine("topic definitions");
+		for (int i = 0; i < 10; i++) {
+			writer.beginTopic(i % 2 == 0 ? Arrays.asList("person", "author") : Collections.<String> emptyList());
+			writer.append("topic-");
+			writer.append(i);
+			writer.appendLine();
+
+			writer.begin(Kind.NAME);
+			writer.append("\t- \"Gr\u00fc\u00dfe\"");
+			writer.end();
+			writer.appendTailLine();
+
+			writer.begin(Kind.OCCURRENCE);
+			writer.append('\t');
+			writer.append("age : ", 0, 6);
+			writer.append(42L);
+			writer.end();
+			writer.appendBlockEnd();
+			writer.end();
+		}
+		writer.begin(Kind.ASSOCIATION);
+		writer.appendLine(true, "knows", "(");
+		writer.appendLine(")");
+		writer.end();
+		writer.close();
+
+		assertEquals(out.size(), statistics.getBytes());
+		assertEquals(0, statistics.getEntry(Kind.TOPIC_MAP).getCount());
+		assertEquals(("# topic definitions" + NEWLINE).length(), statistics.getEntry(Kind.TOPIC_MAP).getBytes());
+
+		Entry topics = statistics.getEntry(Kind.TOPIC);
+		assertEquals(10, topics.getCount());
+		assertEquals(10 * ("topic-0" + NEWLINE + TAIL + NEWLINE + DOT + NEWLINE).length(), topics.getBytes());
+
+		Entry names = statistics.getEntry(Kind.NAME);
+		assertEquals(10, names.getCount());
+		assertEquals(10 * "\t- \"Gr\u00fc\u00dfe\"".getBytes("UTF-8").length, names.getBytes());
+
+		Entry occurrences = statistics.getEntry(Kind.OCCURRENCE);
+		assertEquals(10, occurrences.getCount());
+		assertEquals(10 * "\tage : 42".length(), occurrences.getBytes());
+
+		Entry associations = statistics.getEntry(Kind.ASSOCIATION);
+		assertEquals(1, associations.getCount());
+		assertEquals(("knows (" + NEWLINE + ")" + NEWLINE).length(), associations.getBytes());
+
+		assertEquals(2, statistics.getTopicTypes().size());
+		Entry person = statistics.getTopicTypes().get("person");
+		assertEquals(5, person.getCount());
+		assertEquals((topics.getBytes() + names.getBytes() + occurrences.getBytes()) / 2, person.getBytes());
+		assertEquals(person.getBytes(), statistics.getTopicTypes().get("author").getBytes());
+
+		long nanos = 0;
+		for (Entry entry : statistics.getKinds().values()) {
+			assertTrue(entry.getNanos() >= 0);
+			nanos += entry.getNanos();
+		}
+		assertEquals(nanos, statistics.getNanos());
+		assertTrue(person.getNanos() <= nanos);
+	}
+
+	public void testSharedStatistics() throws Exception {
+		CTMStatistics statistics = new CTMStatistics();
+		CTMBuffer first = new CTMBuffer();
+		CTMStatisticsWriter writer = new CTMStatisticsWriter(first, statistics);
+		writer.begin(Kind.TOPIC_MAP);
+		writer.appendLine("%version 1.0");
+		writer.end();
+		writer.close();
+
+		CTMBuffer second = new CTMBuffer();
+		writer = new CTMStatisticsWriter(second, statistics);
+		writer.appendLine(false, "a", "b");
+		writer.close();
+
+		assertEquals(1, statistics.getEntry(Kind.TOPIC_MAP).getCount());
+		assertEquals(first.length() + second.length(), statistics.getBytes());
+	}
+
+}